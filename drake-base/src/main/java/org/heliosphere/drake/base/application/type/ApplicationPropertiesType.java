@@ -76,7 +76,159 @@ public enum ApplicationPropertiesType implements IApplicationPropertiesType
 	 * <p>
 	 * Property = {@code Properties.Application.Locale}
 	 */
-	ApplicationLocale(BundleBase.PropertyApplicationLocale);
+	ApplicationLocale(BundleBase.PropertyApplicationLocale),
+
+	/**
+	 * Property defining the number of pre-warmed message codec instances kept
+	 * in the pool for each available processor.
+	 */
+	ApplicationMessageCodecPoolSize(BundleBase.PropertyApplicationMessageCodecPoolSize),
+
+	/**
+	 * Property defining if the leak detection of the pooled message buffers is
+	 * enabled (debug mode).
+	 */
+	ApplicationBufferLeakDetection(BundleBase.PropertyApplicationBufferLeakDetection),
+
+	/**
+	 * Property defining if the message codecs require the classes exchanged on
+	 * the wire to be registered (strict mode).
+	 */
+	ApplicationMessageCodecRegistrationRequired(BundleBase.PropertyApplicationMessageCodecRegistrationRequired),
+
+	/**
+	 * Property defining the compression algorithm applied to the encoded
+	 * messages (NONE, DEFLATE or LZ4).
+	 */
+	ApplicationMessageCompressionType(BundleBase.PropertyApplicationMessageCompressionType),
+
+	/**
+	 * Property defining the minimum size (in bytes) of an encoded message to be
+	 * compressed.
+	 */
+	ApplicationMessageCompressionThreshold(BundleBase.PropertyApplicationMessageCompressionThreshold),
+
+	/**
+	 * Property defining the names (comma separated) of the message types to
+	 * delta encode.
+	 */
+	ApplicationMessageDeltaTypes(BundleBase.PropertyApplicationMessageDeltaTypes),
+
+	/**
+	 * Property defining the number of delta encoded messages of a type after
+	 * which a full snapshot is sent.
+	 */
+	ApplicationMessageDeltaKeyframeInterval(BundleBase.PropertyApplicationMessageDeltaKeyframeInterval),
+
+	/**
+	 * Property defining the number of strings held by the dictionary of the
+	 * strings sent on a session ({@code 0}, the default, disables the
+	 * dictionary).
+	 */
+	ApplicationMessageDictionarySize(BundleBase.PropertyApplicationMessageDictionarySize),
+
+	/**
+	 * Property defining the maximum length of a string held by the dictionary
+	 * of the strings sent on a session.
+	 */
+	ApplicationMessageDictionaryMaxLength(BundleBase.PropertyApplicationMessageDictionaryMaxLength),
+
+	/**
+	 * Property defining if the available codec providers are benchmarked on the
+	 * message protocol at startup.
+	 */
+	ApplicationMessageCodecBenchmark(BundleBase.PropertyApplicationMessageCodecBenchmark),
+
+	/**
+	 * Property defining the maximum size (in bytes) of a network write, larger
+	 * messages are split into chunks.
+	 */
+	ApplicationMessageChunkSize(BundleBase.PropertyApplicationMessageChunkSize),
+
+	/**
+	 * Application property defining if the sorted {@code int} and {@code long}
+	 * arrays are encoded as delta packed runs instead of being copied in bulk.
+	 */
+	ApplicationMessageArrayPacking(BundleBase.PropertyApplicationMessageArrayPacking),
+
+	/**
+	 * Application property defining the number of single threaded lanes
+	 * handling the received messages ({@code 0} to handle them on the
+	 * receiving thread). Only used by the client.
+	 */
+	ApplicationMessageDispatchLanes(BundleBase.PropertyApplicationMessageDispatchLanes),
+
+	/**
+	 * Application property defining the maximum number of messages waiting in
+	 * a dispatch lane.
+	 */
+	ApplicationMessageDispatchQueueCapacity(BundleBase.PropertyApplicationMessageDispatchQueueCapacity),
+
+	/**
+	 * Application property defining the policy applied when a message is
+	 * dispatched to a full lane.
+	 */
+	ApplicationMessageDispatchOverflowPolicy(BundleBase.PropertyApplicationMessageDispatchOverflowPolicy),
+
+	/**
+	 * Application property defining the number of released messages kept by
+	 * each thread for each message type.
+	 */
+	ApplicationMessagePoolSize(BundleBase.PropertyApplicationMessagePoolSize),
+
+	/**
+	 * Application property defining if the per message type metrics
+	 * (counters, timings and sizes) are recorded.
+	 */
+	ApplicationMessageMetricsEnabled(BundleBase.PropertyApplicationMessageMetricsEnabled),
+
+	/**
+	 * Application property defining if the per message type metrics are
+	 * registered as JMX MXBeans.
+	 */
+	ApplicationMessageMetricsJmx(BundleBase.PropertyApplicationMessageMetricsJmx),
+
+	/**
+	 * Application property defining the directory of the message journal (the
+	 * messages are not journaled if not defined).
+	 */
+	ApplicationMessageJournalDirectory(BundleBase.PropertyApplicationMessageJournalDirectory),
+
+	/**
+	 * Application property defining the size (in bytes) of the message
+	 * journal segments.
+	 */
+	ApplicationMessageJournalSegmentSize(BundleBase.PropertyApplicationMessageJournalSegmentSize),
+
+	/**
+	 * Application property defining the default timeout (in milliseconds) of
+	 * the requests.
+	 */
+	ApplicationMessageRequestTimeout(BundleBase.PropertyApplicationMessageRequestTimeout),
+
+	/**
+	 * Application property defining the maximum number of in-flight requests of
+	 * a session.
+	 */
+	ApplicationMessageRequestMaxInFlight(BundleBase.PropertyApplicationMessageRequestMaxInFlight),
+
+	/**
+	 * Application property defining the capacity of the outbound message queue
+	 * of a client player (0 to write the messages synchronously).
+	 */
+	ApplicationMessageOutboundQueueCapacity(BundleBase.PropertyApplicationMessageOutboundQueueCapacity),
+
+	/**
+	 * Application property defining the time the outbound writer waits for more
+	 * messages before writing a batch (in microseconds).
+	 */
+	ApplicationMessageOutboundCoalesceBudget(BundleBase.PropertyApplicationMessageOutboundCoalesceBudget),
+
+	/**
+	 * Application property defining the policy applied when the outbound
+	 * message queue is full (BLOCK, DROP_OLDEST or FAIL_FAST).
+	 */
+	ApplicationMessageOutboundPolicy(BundleBase.PropertyApplicationMessageOutboundPolicy);
 
 	/**
 	 * Property key.
@@ -0,0 +1,471 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.buffer;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A slab allocator of direct {@link ByteBuffer}s.
+ * <p>
+ * Buffers are organized in power of two size classes. Each size class is fed
+ * by direct memory slabs sliced into fixed size chunks. Freed chunks are first
+ * kept in a small per-thread cache and then in a shared free list so that
+ * allocating a buffer on the hot path does not allocate any direct memory nor
+ * take any lock. Requests larger than the biggest size class are served by
+ * dedicated (non pooled) direct buffers.
+ * <p>
+ * When leak detection is enabled, the allocation site of each buffer is
+ * recorded and a buffer being garbage collected without having been released
+ * is reported.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class BufferArena
+{
+	/**
+	 * Shift of the smallest size class (256 bytes).
+	 */
+	private static final int MIN_SHIFT = 8;
+
+	/**
+	 * Shift of the biggest size class (64 KB).
+	 */
+	private static final int MAX_SHIFT = 16;
+
+	/**
+	 * Default slab size (1 MB).
+	 */
+	public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+	/**
+	 * Default number of chunks per size class kept in the per-thread caches.
+	 */
+	public static final int DEFAULT_THREAD_CACHE_SIZE = 32;
+
+	/**
+	 * Default arena.
+	 */
+	private static final BufferArena DEFAULT = new BufferArena(DEFAULT_SLAB_SIZE, DEFAULT_THREAD_CACHE_SIZE);
+
+	/**
+	 * Shared free lists (one per size class).
+	 */
+	private final Queue<ByteBuffer>[] freeLists;
+
+	/**
+	 * Slab size.
+	 */
+	private final int slabSize;
+
+	/**
+	 * Per-thread caches.
+	 */
+	private final ThreadLocal<ThreadCache> caches;
+
+	/**
+	 * Number of slabs allocated so far.
+	 */
+	private final AtomicLong slabs = new AtomicLong();
+
+	/**
+	 * Number of non pooled buffers allocated so far.
+	 */
+	private final AtomicLong unpooled = new AtomicLong();
+
+	/**
+	 * Number of leaks detected so far.
+	 */
+	private final AtomicLong leaks = new AtomicLong();
+
+	/**
+	 * Is leak detection enabled?
+	 */
+	private volatile boolean leakDetection = false;
+
+	/**
+	 * Queue receiving the trackers of garbage collected buffers.
+	 */
+	private final ReferenceQueue<PooledBuffer> collected = new ReferenceQueue<>();
+
+	/**
+	 * Trackers of the live buffers (keeps the trackers reachable).
+	 */
+	private final Set<LeakTracker> trackers = Collections.newSetFromMap(new ConcurrentHashMap<LeakTracker, Boolean>());
+
+	/**
+	 * Creates a new buffer arena.
+	 * <p>
+	 * @param slabSize Size (in bytes) of the slabs of direct memory.
+	 * @param threadCacheSize Number of chunks per size class kept in each
+	 * per-thread cache.
+	 */
+	@SuppressWarnings({ "unchecked", "nls" })
+	public BufferArena(final int slabSize, final int threadCacheSize)
+	{
+		Validate.isTrue(slabSize >= 1 << MAX_SHIFT, "Slab size must be at least: " + (1 << MAX_SHIFT));
+		Validate.isTrue(threadCacheSize >= 0, "Thread cache size cannot be negative!");
+
+		this.slabSize = slabSize;
+		this.freeLists = new Queue[MAX_SHIFT - MIN_SHIFT + 1];
+		for (int i = 0; i < freeLists.length; i++)
+		{
+			freeLists[i] = new ConcurrentLinkedQueue<>();
+		}
+
+		this.caches = new ThreadLocal<ThreadCache>()
+		{
+			@Override
+			protected ThreadCache initialValue()
+			{
+				return new ThreadCache(freeLists.length, threadCacheSize);
+			}
+		};
+	}
+
+	/**
+	 * Returns the default (shared) buffer arena.
+	 * <p>
+	 * @return {@link BufferArena}.
+	 */
+	public static final BufferArena getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * Enables or disables leak detection.
+	 * <p>
+	 * @param enabled {@code True} to enable leak detection, {@code false}
+	 * otherwise.
+	 */
+	public final void setLeakDetection(final boolean enabled)
+	{
+		leakDetection = enabled;
+	}
+
+	/**
+	 * Returns if leak detection is enabled.
+	 * <p>
+	 * @return {@code True} if leak detection is enabled, {@code false}
+	 * otherwise.
+	 */
+	public final boolean isLeakDetection()
+	{
+		return leakDetection;
+	}
+
+	/**
+	 * Allocates a buffer having at least the given capacity. The returned
+	 * buffer is cleared (position is zero and limit is the requested size).
+	 * <p>
+	 * @param size Requested capacity in bytes.
+	 * @return {@link PooledBuffer} with a reference count of one.
+	 */
+	@SuppressWarnings("nls")
+	public final PooledBuffer allocate(final int size)
+	{
+		Validate.isTrue(size >= 0, "Buffer size cannot be negative!");
+
+		if (leakDetection)
+		{
+			reportLeaks();
+		}
+
+		final int sizeClass = getSizeClass(size);
+		ByteBuffer buffer;
+		if (sizeClass < 0)
+		{
+			unpooled.incrementAndGet();
+			buffer = ByteBuffer.allocateDirect(size);
+		}
+		else
+		{
+			buffer = caches.get().poll(sizeClass);
+			if (buffer == null)
+			{
+				buffer = freeLists[sizeClass].poll();
+			}
+			if (buffer == null)
+			{
+				buffer = allocateSlab(sizeClass);
+			}
+			buffer.clear();
+			buffer.limit(size);
+		}
+
+		return new PooledBuffer(this, sizeClass, buffer, leakDetection);
+	}
+
+	/**
+	 * Starts tracking the given buffer for leak detection.
+	 * <p>
+	 * @param buffer {@link PooledBuffer} to track.
+	 * @return Leak tracker.
+	 */
+	final LeakTracker track(final PooledBuffer buffer)
+	{
+		final LeakTracker tracker = new LeakTracker(buffer, collected);
+		trackers.add(tracker);
+
+		return tracker;
+	}
+
+	/**
+	 * Returns a chunk to the arena.
+	 * <p>
+	 * @param sizeClass Size class index.
+	 * @param buffer Chunk to return.
+	 * @param tracker Leak tracker of the released buffer (can be
+	 * {@code null}).
+	 */
+	final void recycle(final int sizeClass, final ByteBuffer buffer, final LeakTracker tracker)
+	{
+		if (tracker != null)
+		{
+			trackers.remove(tracker);
+			tracker.clear();
+		}
+
+		if (sizeClass < 0)
+		{
+			return; // Non pooled buffers are left to the garbage collector.
+		}
+
+		if (!caches.get().offer(sizeClass, buffer))
+		{
+			freeLists[sizeClass].offer(buffer);
+		}
+	}
+
+	/**
+	 * Returns the number of slabs allocated so far.
+	 * <p>
+	 * @return Number of slabs.
+	 */
+	public final long getSlabCount()
+	{
+		return slabs.get();
+	}
+
+	/**
+	 * Returns the number of non pooled buffers allocated so far.
+	 * <p>
+	 * @return Number of non pooled buffers.
+	 */
+	public final long getUnpooledCount()
+	{
+		return unpooled.get();
+	}
+
+	/**
+	 * Returns the number of leaks detected so far.
+	 * <p>
+	 * @return Number of leaks.
+	 */
+	public final long getLeakCount()
+	{
+		return leaks.get();
+	}
+
+	/**
+	 * Reports the buffers that have been garbage collected without having
+	 * been released.
+	 * <p>
+	 * @return Number of leaks reported.
+	 */
+	@SuppressWarnings("nls")
+	public final int reportLeaks()
+	{
+		int count = 0;
+		LeakTracker tracker;
+		while ((tracker = (LeakTracker) collected.poll()) != null)
+		{
+			if (trackers.remove(tracker))
+			{
+				count++;
+				leaks.incrementAndGet();
+				log.error("Buffer leak detected: buffer has been garbage collected without being released!", tracker.getSite());
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the size class index for the given size.
+	 * <p>
+	 * @param size Requested size.
+	 * @return Size class index or {@code -1} if the size exceeds the biggest
+	 * size class.
+	 */
+	private static final int getSizeClass(final int size)
+	{
+		if (size > 1 << MAX_SHIFT)
+		{
+			return -1;
+		}
+
+		if (size <= 1 << MIN_SHIFT)
+		{
+			return 0;
+		}
+
+		return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+	}
+
+	/**
+	 * Allocates a new slab for the given size class, slices it into chunks
+	 * and returns one of them (the others being added to the shared free list).
+	 * <p>
+	 * @param sizeClass Size class index.
+	 * @return Chunk.
+	 */
+	private final ByteBuffer allocateSlab(final int sizeClass)
+	{
+		final int chunkSize = 1 << (sizeClass + MIN_SHIFT);
+		final int count = slabSize / chunkSize;
+		final ByteBuffer slab = ByteBuffer.allocateDirect(count * chunkSize);
+		slabs.incrementAndGet();
+
+		ByteBuffer chunk = null;
+		for (int i = 0; i < count; i++)
+		{
+			slab.limit((i + 1) * chunkSize);
+			slab.position(i * chunkSize);
+			chunk = slab.slice();
+			if (i < count - 1)
+			{
+				freeLists[sizeClass].offer(chunk);
+			}
+		}
+
+		return chunk;
+	}
+
+	/**
+	 * Per-thread cache of free chunks.
+	 */
+	private static final class ThreadCache
+	{
+		/**
+		 * Cached chunks per size class.
+		 */
+		private final ByteBuffer[][] chunks;
+
+		/**
+		 * Number of cached chunks per size class.
+		 */
+		private final int[] counts;
+
+		/**
+		 * Creates a new thread cache.
+		 * <p>
+		 * @param classes Number of size classes.
+		 * @param size Number of chunks cached per size class.
+		 */
+		ThreadCache(final int classes, final int size)
+		{
+			chunks = new ByteBuffer[classes][size];
+			counts = new int[classes];
+		}
+
+		/**
+		 * Retrieves a cached chunk.
+		 * <p>
+		 * @param sizeClass Size class index.
+		 * @return Chunk or {@code null} if no chunk is cached.
+		 */
+		final ByteBuffer poll(final int sizeClass)
+		{
+			if (counts[sizeClass] == 0)
+			{
+				return null;
+			}
+
+			final int index = --counts[sizeClass];
+			final ByteBuffer chunk = chunks[sizeClass][index];
+			chunks[sizeClass][index] = null;
+
+			return chunk;
+		}
+
+		/**
+		 * Caches a chunk.
+		 * <p>
+		 * @param sizeClass Size class index.
+		 * @param chunk Chunk to cache.
+		 * @return {@code True} if the chunk has been cached, {@code false} if
+		 * the cache is full.
+		 */
+		final boolean offer(final int sizeClass, final ByteBuffer chunk)
+		{
+			if (counts[sizeClass] == chunks[sizeClass].length)
+			{
+				return false;
+			}
+
+			chunks[sizeClass][counts[sizeClass]++] = chunk;
+
+			return true;
+		}
+	}
+
+	/**
+	 * Weak reference tracking a pooled buffer and recording its allocation
+	 * site.
+	 */
+	static final class LeakTracker extends WeakReference<PooledBuffer>
+	{
+		/**
+		 * Allocation site.
+		 */
+		private final Throwable site;
+
+		/**
+		 * Creates a new leak tracker.
+		 * <p>
+		 * @param buffer {@link PooledBuffer} to track.
+		 * @param queue Queue the tracker is enqueued to once the buffer has
+		 * been garbage collected.
+		 */
+		@SuppressWarnings("nls")
+		LeakTracker(final PooledBuffer buffer, final ReferenceQueue<PooledBuffer> queue)
+		{
+			super(buffer, queue);
+			this.site = new Throwable("Buffer allocation site");
+		}
+
+		/**
+		 * Returns the allocation site.
+		 * <p>
+		 * @return {@link Throwable} recording the allocation site.
+		 */
+		final Throwable getSite()
+		{
+			return site;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference-counted {@link ByteBuffer} allocated from a {@link BufferArena}.
+ * <p>
+ * A pooled buffer is created with a reference count of one. Each additional
+ * owner must call {@link #retain()} and every owner must call
+ * {@link #release()} once done (typically once the session write completed).
+ * When the reference count drops to zero, the underlying memory is returned
+ * to the arena and the buffer must not be used anymore.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class PooledBuffer
+{
+	/**
+	 * Arena the buffer has been allocated from.
+	 */
+	private final BufferArena arena;
+
+	/**
+	 * Size class index (or {@code -1} if the buffer is not pooled).
+	 */
+	private final int sizeClass;
+
+	/**
+	 * Underlying buffer.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Reference count.
+	 */
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	/**
+	 * Leak tracker (only set when leak detection is enabled).
+	 */
+	private final BufferArena.LeakTracker tracker;
+
+	/**
+	 * Creates a new pooled buffer.
+	 * <p>
+	 * @param arena {@link BufferArena} the buffer is allocated from.
+	 * @param sizeClass Size class index.
+	 * @param buffer Underlying {@link ByteBuffer}.
+	 * @param tracked {@code True} if the buffer must be tracked for leak
+	 * detection, {@code false} otherwise.
+	 */
+	PooledBuffer(final BufferArena arena, final int sizeClass, final ByteBuffer buffer, final boolean tracked)
+	{
+		this.arena = arena;
+		this.sizeClass = sizeClass;
+		this.buffer = buffer;
+		this.tracker = tracked ? arena.track(this) : null;
+	}
+
+	/**
+	 * Returns the underlying buffer.
+	 * <p>
+	 * @return {@link ByteBuffer}.
+	 */
+	public final ByteBuffer getBuffer()
+	{
+		return buffer;
+	}
+
+	/**
+	 * Returns the capacity of the buffer.
+	 * <p>
+	 * @return Capacity in bytes.
+	 */
+	public final int capacity()
+	{
+		return buffer.capacity();
+	}
+
+	/**
+	 * Returns the current reference count.
+	 * <p>
+	 * @return Reference count.
+	 */
+	public final int getReferenceCount()
+	{
+		return references.get();
+	}
+
+	/**
+	 * Increments the reference count.
+	 * <p>
+	 * @return This buffer.
+	 * @throws IllegalStateException Thrown if the buffer has already been
+	 * released.
+	 */
+	@SuppressWarnings("nls")
+	public final PooledBuffer retain()
+	{
+		int count;
+		do
+		{
+			count = references.get();
+			if (count <= 0)
+			{
+				throw new IllegalStateException("Cannot retain a released buffer!");
+			}
+		}
+		while (!references.compareAndSet(count, count + 1));
+
+		return this;
+	}
+
+	/**
+	 * Decrements the reference count and returns the underlying memory to the
+	 * arena when it reaches zero.
+	 * <p>
+	 * @return {@code True} if the buffer has been returned to the arena,
+	 * {@code false} otherwise.
+	 * @throws IllegalStateException Thrown if the buffer has already been
+	 * released.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean release()
+	{
+		final int count = references.decrementAndGet();
+		if (count < 0)
+		{
+			references.incrementAndGet();
+			throw new IllegalStateException("Buffer has already been released!");
+		}
+
+		if (count == 0)
+		{
+			arena.recycle(sizeClass, buffer, tracker);
+			return true;
+		}
+
+		return false;
+	}
+}
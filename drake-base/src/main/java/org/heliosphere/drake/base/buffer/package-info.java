@@ -0,0 +1,4 @@
+/**
+ * Off-heap buffer management artifacts.
+ */
+package org.heliosphere.drake.base.buffer;
\ No newline at end of file
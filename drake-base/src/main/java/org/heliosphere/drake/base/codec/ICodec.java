@@ -13,8 +13,6 @@ package org.heliosphere.drake.base.codec;
 
 import java.nio.ByteBuffer;
 
-import com.esotericsoftware.kryo.Kryo;
-
 /**
  * Interface for encoding and decoding data.
  * <hr>
@@ -24,11 +22,13 @@ import com.esotericsoftware.kryo.Kryo;
 public interface ICodec
 {
 	/**
-	 * Returns the Kryo underlying serializer.
+	 * Registers a class to the underlying serializer(s) so that its instances
+	 * are encoded using a class identifier instead of the class name. Codecs
+	 * made of several serializers apply the registration to each of them.
 	 * <p>
-	 * @return {@link Kryo}.
+	 * @param type Class to register.
 	 */
-	Kryo getSerializer();
+	void register(final Class<?> type);
 
 	/**
 	 * Decodes data.
@@ -0,0 +1,37 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation is used to indicate that a message data class must get a
+ * dedicated serializer generated at compile time by the
+ * {@code drake-codec-processor} annotation processor.
+ * <p>
+ * The generated serializer accesses the fields directly (or through their
+ * accessors when the fields are private) and does not use reflection. The
+ * annotated class must provide a non-private no-argument constructor.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Documented
+@Target({ java.lang.annotation.ElementType.TYPE })
+@Retention(RetentionPolicy.CLASS)
+public @interface Encodable
+{
+	// Marker annotation.
+}
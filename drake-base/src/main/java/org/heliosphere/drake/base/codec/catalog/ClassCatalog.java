@@ -0,0 +1,137 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Default implementation of a class catalog.
+ * <p>
+ * Identifiers are allocated sequentially starting at {@link #BASE_ID}, the
+ * range below being left to the classes natively registered by {@link Kryo}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class ClassCatalog implements IClassCatalog
+{
+	/**
+	 * First identifier allocated to a registered class.
+	 */
+	public static final int BASE_ID = 64;
+
+	/**
+	 * Classes natively registered by {@link Kryo}.
+	 */
+	private static final Set<Class<?>> NATIVES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(int.class, Integer.class, String.class, float.class, Float.class, boolean.class, Boolean.class, byte.class, Byte.class, char.class, Character.class, short.class, Short.class, long.class, Long.class, double.class, Double.class, void.class, Void.class));
+
+	/**
+	 * Registered classes in their registration order.
+	 */
+	private volatile List<Class<?>> classes = Collections.emptyList();
+
+	/**
+	 * Registered classes by identifier.
+	 */
+	private final Map<Class<?>, Integer> identifiers = new ConcurrentHashMap<>();
+
+	/**
+	 * Is registration required?
+	 */
+	private volatile boolean registrationRequired = false;
+
+	@SuppressWarnings("nls")
+	@Override
+	public final synchronized int register(final Class<?> type)
+	{
+		Validate.notNull(type, "Class to register in class catalog cannot be null");
+
+		if (NATIVES.contains(type))
+		{
+			return -1;
+		}
+
+		final Integer registered = identifiers.get(type);
+		if (registered != null)
+		{
+			return registered.intValue();
+		}
+
+		final int id = BASE_ID + classes.size();
+		final List<Class<?>> list = new ArrayList<>(classes);
+		list.add(type);
+		identifiers.put(type, Integer.valueOf(id));
+		classes = Collections.unmodifiableList(list);
+
+		log.debug("Class registered in class catalog [class=" + type.getName() + ", id=" + id + "]");
+
+		return id;
+	}
+
+	@Override
+	public final int getId(final Class<?> type)
+	{
+		final Integer id = identifiers.get(type);
+
+		return id == null ? -1 : id.intValue();
+	}
+
+	@Override
+	public final boolean isRegistered(final Class<?> type)
+	{
+		return identifiers.containsKey(type);
+	}
+
+	@Override
+	public final List<Class<?>> getClasses()
+	{
+		return classes;
+	}
+
+	@Override
+	public final void setRegistrationRequired(final boolean required)
+	{
+		registrationRequired = required;
+	}
+
+	@Override
+	public final boolean isRegistrationRequired()
+	{
+		return registrationRequired;
+	}
+
+	@Override
+	public final void apply(final Kryo kryo)
+	{
+		final List<Class<?>> snapshot = classes;
+		for (int i = 0; i < snapshot.size(); i++)
+		{
+			kryo.register(snapshot.get(i), BASE_ID + i);
+		}
+
+		kryo.setRegistrationRequired(registrationRequired);
+	}
+}
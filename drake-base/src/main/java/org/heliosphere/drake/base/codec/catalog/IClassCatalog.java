@@ -0,0 +1,90 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.catalog;
+
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Interface defining the behavior of a class catalog.
+ * <p>
+ * A class catalog associates a stable numeric identifier to each class
+ * exchanged on the wire so that the codecs do not have to write fully
+ * qualified class names into the encoded payloads. Identifiers only depend on
+ * the order of registration, so two catalogs populated from the same message
+ * protocols (client and server) hold the same identifiers.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface IClassCatalog
+{
+	/**
+	 * Registers a class. Registering an already registered class or a class
+	 * natively known by the codecs has no effect.
+	 * <p>
+	 * @param type Class to register.
+	 * @return Identifier of the class or {@code -1} if the class is natively
+	 * known by the codecs.
+	 */
+	int register(final Class<?> type);
+
+	/**
+	 * Returns the identifier of a registered class.
+	 * <p>
+	 * @param type Class.
+	 * @return Identifier of the class or {@code -1} if the class is not
+	 * registered.
+	 */
+	int getId(final Class<?> type);
+
+	/**
+	 * Returns if the given class is registered.
+	 * <p>
+	 * @param type Class.
+	 * @return {@code True} if the class is registered, {@code false}
+	 * otherwise.
+	 */
+	boolean isRegistered(final Class<?> type);
+
+	/**
+	 * Returns the registered classes in their registration order.
+	 * <p>
+	 * @return List of registered classes.
+	 */
+	List<Class<?>> getClasses();
+
+	/**
+	 * Sets if the registration of the classes is required (strict mode). In
+	 * strict mode, encoding or decoding an unregistered class fails.
+	 * <p>
+	 * @param required {@code True} to enable the strict mode, {@code false}
+	 * otherwise.
+	 */
+	void setRegistrationRequired(final boolean required);
+
+	/**
+	 * Returns if the registration of the classes is required (strict mode).
+	 * <p>
+	 * @return {@code True} if the strict mode is enabled, {@code false}
+	 * otherwise.
+	 */
+	boolean isRegistrationRequired();
+
+	/**
+	 * Applies the registered classes to the given {@link Kryo} instance.
+	 * <p>
+	 * @param kryo {@link Kryo} instance.
+	 */
+	void apply(final Kryo kryo);
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.compression;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a compression stage: number of messages and number of bytes
+ * before and after compression, for both outgoing and incoming messages.
+ * <p>
+ * The counters are updated atomically and can be read at any time.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class CompressionStatistics
+{
+	/**
+	 * Number of encoded messages.
+	 */
+	private final AtomicLong encodedMessages = new AtomicLong();
+
+	/**
+	 * Number of encoded messages that have been compressed.
+	 */
+	private final AtomicLong compressedMessages = new AtomicLong();
+
+	/**
+	 * Number of bytes of the encoded messages before compression.
+	 */
+	private final AtomicLong encodedBytesBefore = new AtomicLong();
+
+	/**
+	 * Number of bytes of the encoded messages after compression.
+	 */
+	private final AtomicLong encodedBytesAfter = new AtomicLong();
+
+	/**
+	 * Number of decoded messages.
+	 */
+	private final AtomicLong decodedMessages = new AtomicLong();
+
+	/**
+	 * Number of bytes of the decoded messages before decompression.
+	 */
+	private final AtomicLong decodedBytesBefore = new AtomicLong();
+
+	/**
+	 * Number of bytes of the decoded messages after decompression.
+	 */
+	private final AtomicLong decodedBytesAfter = new AtomicLong();
+
+	/**
+	 * Records an encoded message.
+	 * <p>
+	 * @param before Length of the encoded message before compression.
+	 * @param after Length of the encoded message after compression.
+	 * @param compressed {@code True} if the message has been compressed.
+	 */
+	public final void recordEncoded(final int before, final int after, final boolean compressed)
+	{
+		encodedMessages.incrementAndGet();
+		if (compressed)
+		{
+			compressedMessages.incrementAndGet();
+		}
+		encodedBytesBefore.addAndGet(before);
+		encodedBytesAfter.addAndGet(after);
+	}
+
+	/**
+	 * Records a decoded message.
+	 * <p>
+	 * @param before Length of the received message (compressed form).
+	 * @param after Length of the message after decompression.
+	 */
+	public final void recordDecoded(final int before, final int after)
+	{
+		decodedMessages.incrementAndGet();
+		decodedBytesBefore.addAndGet(before);
+		decodedBytesAfter.addAndGet(after);
+	}
+
+	/**
+	 * Returns the number of encoded messages.
+	 * <p>
+	 * @return Number of encoded messages.
+	 */
+	public final long getEncodedMessages()
+	{
+		return encodedMessages.get();
+	}
+
+	/**
+	 * Returns the number of encoded messages that have been compressed.
+	 * <p>
+	 * @return Number of compressed messages.
+	 */
+	public final long getCompressedMessages()
+	{
+		return compressedMessages.get();
+	}
+
+	/**
+	 * Returns the number of bytes of the encoded messages before compression.
+	 * <p>
+	 * @return Number of bytes.
+	 */
+	public final long getEncodedBytesBefore()
+	{
+		return encodedBytesBefore.get();
+	}
+
+	/**
+	 * Returns the number of bytes of the encoded messages after compression.
+	 * <p>
+	 * @return Number of bytes.
+	 */
+	public final long getEncodedBytesAfter()
+	{
+		return encodedBytesAfter.get();
+	}
+
+	/**
+	 * Returns the number of decoded messages.
+	 * <p>
+	 * @return Number of decoded messages.
+	 */
+	public final long getDecodedMessages()
+	{
+		return decodedMessages.get();
+	}
+
+	/**
+	 * Returns the number of bytes of the decoded messages before
+	 * decompression.
+	 * <p>
+	 * @return Number of bytes.
+	 */
+	public final long getDecodedBytesBefore()
+	{
+		return decodedBytesBefore.get();
+	}
+
+	/**
+	 * Returns the number of bytes of the decoded messages after decompression.
+	 * <p>
+	 * @return Number of bytes.
+	 */
+	public final long getDecodedBytesAfter()
+	{
+		return decodedBytesAfter.get();
+	}
+
+	/**
+	 * Returns the compression ratio of the outgoing messages.
+	 * <p>
+	 * @return Ratio between the number of bytes after and before compression
+	 * (lower is better) or {@code 1} if no message has been encoded.
+	 */
+	public final double getEncodedRatio()
+	{
+		final long before = encodedBytesBefore.get();
+
+		return before == 0 ? 1D : (double) encodedBytesAfter.get() / before;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "CompressionStatistics [encoded.messages=" + encodedMessages.get() + ", compressed.messages=" + compressedMessages.get() + ", encoded.bytes.before=" + encodedBytesBefore.get() + ", encoded.bytes.after=" + encodedBytesAfter.get() + ", decoded.messages=" + decodedMessages.get() + ", decoded.bytes.before=" + decodedBytesBefore.get() + ", decoded.bytes.after=" + decodedBytesAfter.get() + "]";
+	}
+}
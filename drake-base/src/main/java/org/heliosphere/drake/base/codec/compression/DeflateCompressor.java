@@ -0,0 +1,145 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.compression;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.heliosphere.drake.base.codec.DataDecodingException;
+
+/**
+ * A compressor based on the {@code Deflate} algorithm (raw format, without
+ * the {@code zlib} header and checksum).
+ * <p>
+ * Each thread uses its own {@link Deflater} and {@link Inflater} which are
+ * reset between two operations instead of being reallocated.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class DeflateCompressor implements ICompressor
+{
+	/**
+	 * Compression level.
+	 */
+	private final int level;
+
+	/**
+	 * Deflater of each thread.
+	 */
+	private final ThreadLocal<Deflater> deflater = new ThreadLocal<Deflater>()
+	{
+		@Override
+		protected Deflater initialValue()
+		{
+			return new Deflater(level, true);
+		}
+	};
+
+	/**
+	 * Inflater of each thread.
+	 */
+	private final ThreadLocal<Inflater> inflater = new ThreadLocal<Inflater>()
+	{
+		@Override
+		protected Inflater initialValue()
+		{
+			return new Inflater(true);
+		}
+	};
+
+	/**
+	 * Creates a new compressor using the fastest compression level.
+	 */
+	public DeflateCompressor()
+	{
+		this(Deflater.BEST_SPEED);
+	}
+
+	/**
+	 * Creates a new compressor.
+	 * <p>
+	 * @param level Compression level (from 0 to 9).
+	 */
+	public DeflateCompressor(final int level)
+	{
+		this.level = level;
+	}
+
+	@Override
+	public final int getMaxCompressedLength(final int length)
+	{
+		// Same bound as the zlib compressBound() function.
+		return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13;
+	}
+
+	@Override
+	public final int compress(final byte[] source, final int offset, final int length, final byte[] target, final int targetOffset)
+	{
+		final Deflater current = deflater.get();
+
+		try
+		{
+			current.setInput(source, offset, length);
+			current.finish();
+
+			int written = 0;
+			while (!current.finished() && targetOffset + written < target.length)
+			{
+				written += current.deflate(target, targetOffset + written, target.length - targetOffset - written);
+			}
+
+			return current.finished() ? written : -1;
+		}
+		finally
+		{
+			current.reset();
+		}
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final void decompress(final byte[] source, final int offset, final int length, final byte[] target, final int targetOffset, final int originalLength) throws DataDecodingException
+	{
+		final Inflater current = inflater.get();
+
+		try
+		{
+			current.setInput(source, offset, length);
+
+			int read = 0;
+			while (read < originalLength && !current.finished())
+			{
+				final int count = current.inflate(target, targetOffset + read, originalLength - read);
+				if (count == 0 && (current.needsInput() || current.needsDictionary()))
+				{
+					break;
+				}
+				read += count;
+			}
+
+			if (read != originalLength)
+			{
+				throw new DataDecodingException("Cannot decompress data due to: truncated data [expected=" + originalLength + ", read=" + read + "]");
+			}
+		}
+		catch (final DataFormatException e)
+		{
+			throw new DataDecodingException("Cannot decompress data due to: " + e.getMessage());
+		}
+		finally
+		{
+			current.reset();
+		}
+	}
+}
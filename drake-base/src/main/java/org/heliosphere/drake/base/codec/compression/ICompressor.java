@@ -0,0 +1,60 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.compression;
+
+import org.heliosphere.drake.base.codec.DataDecodingException;
+
+/**
+ * Interface that compression algorithms must implement.
+ * <p>
+ * Implementations must be thread-safe.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface ICompressor
+{
+	/**
+	 * Returns the maximum length of the compressed form of data.
+	 * <p>
+	 * @param length Length of the data to compress.
+	 * @return Maximum length of the compressed data.
+	 */
+	int getMaxCompressedLength(final int length);
+
+	/**
+	 * Compresses data.
+	 * <p>
+	 * @param source Array containing the data to compress.
+	 * @param offset Offset of the data in the source array.
+	 * @param length Length of the data.
+	 * @param target Array receiving the compressed data. Must have at least
+	 * {@link #getMaxCompressedLength(int)} bytes available from the target
+	 * offset.
+	 * @param targetOffset Offset in the target array.
+	 * @return Length of the compressed data.
+	 */
+	int compress(final byte[] source, final int offset, final int length, final byte[] target, final int targetOffset);
+
+	/**
+	 * Decompresses data.
+	 * <p>
+	 * @param source Array containing the compressed data.
+	 * @param offset Offset of the compressed data in the source array.
+	 * @param length Length of the compressed data.
+	 * @param target Array receiving the decompressed data.
+	 * @param targetOffset Offset in the target array.
+	 * @param originalLength Length of the decompressed data.
+	 * @throws DataDecodingException Thrown if the compressed data is corrupted.
+	 */
+	void decompress(final byte[] source, final int offset, final int length, final byte[] target, final int targetOffset, final int originalLength) throws DataDecodingException;
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.compression;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import org.heliosphere.drake.base.codec.DataDecodingException;
+
+/**
+ * A compressor based on the {@code LZ4} algorithm using the fastest available
+ * implementation (native, unsafe or pure Java).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class Lz4Compressor implements ICompressor
+{
+	/**
+	 * Compressor (thread-safe).
+	 */
+	private final LZ4Compressor compressor;
+
+	/**
+	 * Decompressor (thread-safe).
+	 */
+	private final LZ4FastDecompressor decompressor;
+
+	/**
+	 * Creates a new compressor.
+	 */
+	public Lz4Compressor()
+	{
+		final LZ4Factory factory = LZ4Factory.fastestInstance();
+
+		compressor = factory.fastCompressor();
+		decompressor = factory.fastDecompressor();
+	}
+
+	@Override
+	public final int getMaxCompressedLength(final int length)
+	{
+		return compressor.maxCompressedLength(length);
+	}
+
+	@Override
+	public final int compress(final byte[] source, final int offset, final int length, final byte[] target, final int targetOffset)
+	{
+		return compressor.compress(source, offset, length, target, targetOffset, target.length - targetOffset);
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final void decompress(final byte[] source, final int offset, final int length, final byte[] target, final int targetOffset, final int originalLength) throws DataDecodingException
+	{
+		try
+		{
+			final int read = decompressor.decompress(source, offset, target, targetOffset, originalLength);
+			if (read != length)
+			{
+				throw new DataDecodingException("Cannot decompress data due to: length mismatch [expected=" + length + ", read=" + read + "]");
+			}
+		}
+		catch (final RuntimeException e)
+		{
+			// LZ4Exception or index out of bounds on corrupted data.
+			throw new DataDecodingException("Cannot decompress data due to: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.dictionary;
+
+import java.nio.charset.Charset;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A {@code Kryo} string serializer replacing the strings already sent on the
+ * session by a reference to a {@link StringDictionary}.
+ * <p>
+ * The dictionary of the session being encoded or decoded is bound to the
+ * current thread using {@link #bind(StringDictionary)}; when no dictionary is
+ * bound, strings are always written in full. A string is written as a
+ * variable length integer whose two lowest bits give its kind:<br>
+ * <ul>
+ * <li>{@code 0}: {@code null} string</li>
+ * <li>{@code 1}: reference to the identifier given by the upper bits</li>
+ * <li>{@code 2}: definition of the identifier given by the upper bits,
+ * followed by the UTF-8 length and bytes of the string</li>
+ * <li>{@code 3}: string not defined in the dictionary, the upper bits give
+ * the UTF-8 length and are followed by the bytes of the string</li>
+ * </ul>
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class DictionaryStringSerializer extends Serializer<String>
+{
+	/**
+	 * Charset used to encode the strings.
+	 */
+	@SuppressWarnings("nls")
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Kind of a reference.
+	 */
+	private static final int KIND_REFERENCE = 1;
+
+	/**
+	 * Kind of a definition.
+	 */
+	private static final int KIND_DEFINITION = 2;
+
+	/**
+	 * Kind of a string written in full.
+	 */
+	private static final int KIND_LITERAL = 3;
+
+	/**
+	 * Dictionary bound to the current thread.
+	 */
+	private static final ThreadLocal<StringDictionary> DICTIONARY = new ThreadLocal<>();
+
+	/**
+	 * Creates a new dictionary string serializer.
+	 */
+	public DictionaryStringSerializer()
+	{
+		setAcceptsNull(true);
+	}
+
+	@Override
+	public final void write(final Kryo kryo, final Output output, final String value)
+	{
+		writeString(output, value);
+	}
+
+	@Override
+	public final String read(final Kryo kryo, final Input input, final Class<String> type)
+	{
+		return readString(input);
+	}
+
+	/**
+	 * Binds a dictionary to the current thread.
+	 * <p>
+	 * @param dictionary {@link StringDictionary} to bind or {@code null} to
+	 * unbind the current one.
+	 * @return Dictionary previously bound to the current thread.
+	 */
+	public static final StringDictionary bind(final StringDictionary dictionary)
+	{
+		final StringDictionary previous = DICTIONARY.get();
+		if (dictionary == null)
+		{
+			DICTIONARY.remove();
+		}
+		else
+		{
+			DICTIONARY.set(dictionary);
+		}
+
+		return previous;
+	}
+
+	/**
+	 * Writes a string.
+	 * <p>
+	 * @param output {@link Output}.
+	 * @param value String (can be {@code null}).
+	 */
+	public static final void writeString(final Output output, final String value)
+	{
+		if (value == null)
+		{
+			output.writeVarInt(0, true);
+			return;
+		}
+
+		final StringDictionary dictionary = DICTIONARY.get();
+		if (dictionary != null && dictionary.accepts(value))
+		{
+			// Only the strings whose definition has been confirmed by the receiver are referenced.
+			final int identifier = dictionary.lookup(value);
+			if (identifier >= 0)
+			{
+				output.writeVarInt(identifier << 2 | KIND_REFERENCE, true);
+				return;
+			}
+
+			final byte[] bytes = value.getBytes(UTF8);
+			output.writeVarInt(dictionary.define(value) << 2 | KIND_DEFINITION, true);
+			output.writeVarInt(bytes.length, true);
+			output.writeBytes(bytes);
+			return;
+		}
+
+		final byte[] bytes = value.getBytes(UTF8);
+		output.writeVarInt(bytes.length << 2 | KIND_LITERAL, true);
+		output.writeBytes(bytes);
+	}
+
+	/**
+	 * Reads a string.
+	 * <p>
+	 * @param input {@link Input}.
+	 * @return String (can be {@code null}).
+	 * @throws KryoException Thrown if the string references an identifier
+	 * which is not defined or if no dictionary is bound to the current thread.
+	 */
+	@SuppressWarnings("nls")
+	public static final String readString(final Input input)
+	{
+		final int header = input.readVarInt(true);
+		if (header == 0)
+		{
+			return null;
+		}
+
+		final int value = header >>> 2;
+		switch (header & 3)
+		{
+			case KIND_LITERAL:
+				return new String(input.readBytes(value), UTF8);
+
+			case KIND_DEFINITION:
+				final String string = new String(input.readBytes(input.readVarInt(true)), UTF8);
+				getDictionary().set(value, string);
+				return string;
+
+			default:
+				final String defined = getDictionary().get(value);
+				if (defined == null)
+				{
+					throw new KryoException("Undefined dictionary identifier: " + value);
+				}
+				return defined;
+		}
+	}
+
+	/**
+	 * Returns the dictionary bound to the current thread.
+	 * <p>
+	 * @return {@link StringDictionary}.
+	 * @throws KryoException Thrown if no dictionary is bound.
+	 */
+	@SuppressWarnings("nls")
+	private static final StringDictionary getDictionary()
+	{
+		final StringDictionary dictionary = DICTIONARY.get();
+		if (dictionary == null)
+		{
+			throw new KryoException("No string dictionary bound to the current thread!");
+		}
+
+		return dictionary;
+	}
+}
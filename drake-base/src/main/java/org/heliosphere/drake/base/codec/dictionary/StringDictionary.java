@@ -0,0 +1,355 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.dictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A bounded dictionary of strings exchanged in one direction of a session.
+ * <p>
+ * The sending side assigns the identifiers: a string seen for the first time
+ * is defined under a new identifier (evicting the least recently used string
+ * once the dictionary is full) and sent in full. A string is only sent as a
+ * reference to its identifier once the receiving side has confirmed its
+ * definition, until then the definition is sent again each time the string
+ * is sent. Messages can therefore be lost (such as the messages of an aborted
+ * transaction) or delivered in another order than the one they have been
+ * encoded in without the receiving side ever missing a definition.
+ * <p>
+ * Identifiers are never reused (until they wrap after
+ * {@link #MAX_IDENTIFIER} definitions), so a reference delivered after the
+ * string has been evicted can only fail to resolve: it never resolves to
+ * another string. The receiving side drops the definitions released by the
+ * sending side and holds at most {@link #MAX_CAPACITY} definitions.
+ * <p>
+ * The confirmations and the releases are carried by the messages sent in the
+ * opposite direction (see {@link #drainAcknowledgements()} and
+ * {@link #drainReleased()}). A dictionary is not thread safe, its owner must
+ * serialize the accesses.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class StringDictionary
+{
+	/**
+	 * Maximum number of strings held by a dictionary.
+	 */
+	public static final int MAX_CAPACITY = 65536;
+
+	/**
+	 * Maximum value of an identifier (the identifiers then wrap to zero).
+	 */
+	public static final int MAX_IDENTIFIER = (1 << 29) - 1;
+
+	/**
+	 * Default number of strings held by a dictionary.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Default maximum length of a string to be defined in a dictionary
+	 * (longer strings are always sent in full).
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 256;
+
+	/**
+	 * Number of strings held by the dictionary when sending.
+	 */
+	private final int capacity;
+
+	/**
+	 * Maximum length of a string to be defined.
+	 */
+	private final int maxLength;
+
+	/**
+	 * Defined strings (sending side) in least recently used order.
+	 */
+	private final LinkedHashMap<String, Entry> entries;
+
+	/**
+	 * Defined strings by identifier (sending side).
+	 */
+	private final Map<Integer, Entry> identifiers = new HashMap<>();
+
+	/**
+	 * Identifiers evicted since the last call to {@link #drainReleased()}
+	 * (sending side).
+	 */
+	private List<Integer> released = new ArrayList<>();
+
+	/**
+	 * Next identifier to assign (sending side).
+	 */
+	private int nextIdentifier = 0;
+
+	/**
+	 * Strings by identifier (receiving side) in definition order.
+	 */
+	private final LinkedHashMap<Integer, String> definitions = new LinkedHashMap<Integer, String>()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected final boolean removeEldestEntry(final Map.Entry<Integer, String> eldest)
+		{
+			return size() > MAX_CAPACITY;
+		}
+	};
+
+	/**
+	 * Identifiers defined since the last call to
+	 * {@link #drainAcknowledgements()} (receiving side).
+	 */
+	private List<Integer> acknowledgements = new ArrayList<>();
+
+	/**
+	 * Creates a new string dictionary.
+	 * <p>
+	 * @param capacity Number of strings held by the dictionary when sending
+	 * ({@code 0} to send all the strings in full).
+	 * @param maxLength Maximum length of a string to be defined.
+	 */
+	@SuppressWarnings("nls")
+	public StringDictionary(final int capacity, final int maxLength)
+	{
+		Validate.isTrue(capacity >= 0 && capacity <= MAX_CAPACITY, "Dictionary capacity must be between 0 and " + MAX_CAPACITY + "!");
+		Validate.isTrue(maxLength > 0, "Maximum string length must be greater than zero!");
+
+		this.capacity = capacity;
+		this.maxLength = maxLength;
+		this.entries = new LinkedHashMap<>(Math.min(capacity, 1024) * 4 / 3 + 1, 0.75f, true);
+	}
+
+	/**
+	 * Returns if the given string can be defined in the dictionary.
+	 * <p>
+	 * @param value String.
+	 * @return {@code True} if the string can be defined, {@code false}
+	 * otherwise.
+	 */
+	public final boolean accepts(final String value)
+	{
+		return capacity > 0 && value.length() <= maxLength;
+	}
+
+	/**
+	 * Returns the identifier of a string whose definition has been confirmed
+	 * by the receiving side and marks it as the most recently used one
+	 * (sending side).
+	 * <p>
+	 * @param value String.
+	 * @return Identifier or {@code -1} if the string is not defined or its
+	 * definition is not yet confirmed.
+	 */
+	public final int lookup(final String value)
+	{
+		final Entry entry = entries.get(value);
+
+		return entry != null && entry.confirmed ? entry.identifier : -1;
+	}
+
+	/**
+	 * Defines a string, evicting the least recently used one if the
+	 * dictionary is full (sending side). A string already defined but not yet
+	 * confirmed keeps its identifier.
+	 * <p>
+	 * @param value String.
+	 * @return Identifier assigned to the string.
+	 */
+	public final int define(final String value)
+	{
+		Entry entry = entries.get(value);
+		if (entry != null)
+		{
+			return entry.identifier;
+		}
+
+		if (entries.size() >= capacity)
+		{
+			final Iterator<Entry> iterator = entries.values().iterator();
+			final Entry eldest = iterator.next();
+			iterator.remove();
+			identifiers.remove(Integer.valueOf(eldest.identifier));
+
+			// Even an unconfirmed definition may have been received.
+			released.add(Integer.valueOf(eldest.identifier));
+		}
+
+		entry = new Entry(nextIdentifier);
+		nextIdentifier = nextIdentifier == MAX_IDENTIFIER ? 0 : nextIdentifier + 1;
+
+		entries.put(value, entry);
+		identifiers.put(Integer.valueOf(entry.identifier), entry);
+
+		return entry.identifier;
+	}
+
+	/**
+	 * Confirms that the receiving side holds the definition of an identifier
+	 * so that the string can be sent as a reference (sending side).
+	 * Confirming an identifier which is no longer defined is ignored.
+	 * <p>
+	 * @param identifier Identifier.
+	 */
+	public final void confirm(final int identifier)
+	{
+		final Entry entry = identifiers.get(Integer.valueOf(identifier));
+		if (entry != null)
+		{
+			entry.confirmed = true;
+		}
+	}
+
+	/**
+	 * Returns and forgets the identifiers evicted since the last call, to be
+	 * released by the receiving side (sending side).
+	 * <p>
+	 * @return List of identifiers.
+	 */
+	public final List<Integer> drainReleased()
+	{
+		if (released.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final List<Integer> drained = released;
+		released = new ArrayList<>();
+
+		return drained;
+	}
+
+	/**
+	 * Returns the string defined under an identifier (receiving side).
+	 * <p>
+	 * @param identifier Identifier.
+	 * @return String or {@code null} if the identifier is not defined.
+	 */
+	public final String get(final int identifier)
+	{
+		return definitions.get(Integer.valueOf(identifier));
+	}
+
+	/**
+	 * Defines a string under an identifier and records the definition to be
+	 * confirmed to the sending side (receiving side).
+	 * <p>
+	 * @param identifier Identifier.
+	 * @param value String.
+	 */
+	@SuppressWarnings("nls")
+	public final void set(final int identifier, final String value)
+	{
+		Validate.isTrue(identifier >= 0 && identifier <= MAX_IDENTIFIER, "Invalid dictionary identifier: " + identifier);
+
+		definitions.put(Integer.valueOf(identifier), value);
+		acknowledgements.add(Integer.valueOf(identifier));
+	}
+
+	/**
+	 * Drops the definition of an identifier released by the sending side
+	 * (receiving side).
+	 * <p>
+	 * @param identifier Identifier.
+	 */
+	public final void release(final int identifier)
+	{
+		definitions.remove(Integer.valueOf(identifier));
+	}
+
+	/**
+	 * Returns and forgets the identifiers defined since the last call, to be
+	 * confirmed to the sending side (receiving side).
+	 * <p>
+	 * @return List of identifiers.
+	 */
+	public final List<Integer> drainAcknowledgements()
+	{
+		if (acknowledgements.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final List<Integer> drained = acknowledgements;
+		acknowledgements = new ArrayList<>();
+
+		return drained;
+	}
+
+	/**
+	 * Returns the number of strings currently defined (sending side).
+	 * <p>
+	 * @return Number of strings.
+	 */
+	public final int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of strings currently held (receiving side).
+	 * <p>
+	 * @return Number of strings.
+	 */
+	public final int getDefinitionCount()
+	{
+		return definitions.size();
+	}
+
+	/**
+	 * Clears the dictionary (both sides).
+	 */
+	public final void clear()
+	{
+		entries.clear();
+		identifiers.clear();
+		released = new ArrayList<>();
+		definitions.clear();
+		acknowledgements = new ArrayList<>();
+	}
+
+	/**
+	 * A string defined by the sending side.
+	 */
+	private static final class Entry
+	{
+		/**
+		 * Identifier of the string.
+		 */
+		private final int identifier;
+
+		/**
+		 * Whether the receiving side confirmed the definition.
+		 */
+		private boolean confirmed = false;
+
+		/**
+		 * Creates a new entry.
+		 * <p>
+		 * @param identifier Identifier of the string.
+		 */
+		private Entry(final int identifier)
+		{
+			this.identifier = identifier;
+		}
+	}
+}
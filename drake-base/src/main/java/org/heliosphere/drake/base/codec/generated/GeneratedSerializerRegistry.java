@@ -0,0 +1,204 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.generated;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.extern.log4j.Log4j;
+
+import org.heliosphere.drake.base.codec.catalog.IClassCatalog;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+
+/**
+ * Registry of the serializers generated at compile time by the
+ * {@code drake-codec-processor} annotation processor.
+ * <p>
+ * The annotation processor writes an index ({@link #INDEX}) listing each
+ * annotated data class and its generated serializer. The index files found on
+ * the class path are loaded once (the only place where reflection is used),
+ * the serializers being then plugged into the {@link Kryo} instances.
+ * <p>
+ * Generated serializers must be stateless as a single instance is shared by
+ * all the {@link Kryo} instances.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class GeneratedSerializerRegistry
+{
+	/**
+	 * Location of the index of the generated serializers.
+	 */
+	@SuppressWarnings("nls")
+	public static final String INDEX = "META-INF/drake/serializers";
+
+	/**
+	 * Registry built from the index files available on the class path.
+	 */
+	private static volatile GeneratedSerializerRegistry instance = null;
+
+	/**
+	 * Generated serializers by data class (generated serializers are
+	 * stateless and can be shared).
+	 */
+	private final Map<Class<?>, Serializer<?>> serializers;
+
+	/**
+	 * Creates a new registry.
+	 * <p>
+	 * @param serializers Generated serializers by data class.
+	 */
+	private GeneratedSerializerRegistry(final Map<Class<?>, Serializer<?>> serializers)
+	{
+		this.serializers = Collections.unmodifiableMap(serializers);
+	}
+
+	/**
+	 * Returns the registry built from the index files available on the class
+	 * path.
+	 * <p>
+	 * @return {@link GeneratedSerializerRegistry}.
+	 */
+	public static final GeneratedSerializerRegistry getInstance()
+	{
+		GeneratedSerializerRegistry registry = instance;
+		if (registry == null)
+		{
+			synchronized (GeneratedSerializerRegistry.class)
+			{
+				if (instance == null)
+				{
+					instance = load();
+				}
+				registry = instance;
+			}
+		}
+
+		return registry;
+	}
+
+	/**
+	 * Returns the generated serializers by data class.
+	 * <p>
+	 * @return Map of serializers.
+	 */
+	public final Map<Class<?>, Serializer<?>> getSerializers()
+	{
+		return serializers;
+	}
+
+	/**
+	 * Returns if a serializer has been generated for the given class.
+	 * <p>
+	 * @param type Data class.
+	 * @return {@code True} if a serializer has been generated, {@code false}
+	 * otherwise.
+	 */
+	public final boolean contains(final Class<?> type)
+	{
+		return serializers.containsKey(type);
+	}
+
+	/**
+	 * Plugs the generated serializers into the given {@link Kryo} instance.
+	 * <p>
+	 * Only the classes registered in the class catalog get their generated
+	 * serializer (keeping their catalog identifier), so that the class
+	 * identifiers stay consistent between a client and a server. This must be
+	 * called after the class catalog has been applied to the {@link Kryo}
+	 * instance.
+	 * <p>
+	 * @param kryo {@link Kryo} instance.
+	 * @param catalog {@link IClassCatalog} applied to the {@link Kryo}
+	 * instance.
+	 */
+	public final void apply(final Kryo kryo, final IClassCatalog catalog)
+	{
+		for (Map.Entry<Class<?>, Serializer<?>> entry : serializers.entrySet())
+		{
+			final int id = catalog.getId(entry.getKey());
+			if (id >= 0)
+			{
+				kryo.register(entry.getKey(), entry.getValue(), id);
+			}
+		}
+	}
+
+	/**
+	 * Loads the index files available on the class path.
+	 * <p>
+	 * @return {@link GeneratedSerializerRegistry}.
+	 */
+	@SuppressWarnings("nls")
+	private static final GeneratedSerializerRegistry load()
+	{
+		final Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null)
+		{
+			loader = GeneratedSerializerRegistry.class.getClassLoader();
+		}
+
+		try
+		{
+			final Enumeration<URL> urls = loader.getResources(INDEX);
+			while (urls.hasMoreElements())
+			{
+				final URL url = urls.nextElement();
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), Charset.forName("UTF-8"))))
+				{
+					String line;
+					while ((line = reader.readLine()) != null)
+					{
+						line = line.trim();
+						if (line.isEmpty() || line.startsWith("#"))
+						{
+							continue;
+						}
+
+						final int separator = line.indexOf('=');
+						try
+						{
+							final Class<?> type = Class.forName(line.substring(0, separator).trim(), false, loader);
+							final Class<?> serializer = Class.forName(line.substring(separator + 1).trim(), true, loader);
+							serializers.put(type, (Serializer<?>) serializer.getConstructor().newInstance());
+
+							log.info("Generated serializer registered [data.class=" + type.getName() + ", serializer.class=" + serializer.getName() + "]");
+						}
+						catch (final Exception e)
+						{
+							log.error("Cannot load generated serializer [entry=" + line + ", index=" + url + "]", e);
+						}
+					}
+				}
+			}
+		}
+		catch (final IOException e)
+		{
+			log.error("Cannot load the generated serializers index: " + INDEX, e);
+		}
+
+		return new GeneratedSerializerRegistry(serializers);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link InputStream} reading directly from a {@link ByteBuffer} (heap or
+ * direct) without any intermediate copy.
+ * <p>
+ * The stream is reusable: it can be bound to another buffer using
+ * {@link #setBuffer(ByteBuffer)}. Reading from the stream advances the
+ * position of the underlying buffer.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class ByteBufferInputStream extends InputStream
+{
+	/**
+	 * Underlying buffer.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates a new byte buffer input stream not yet bound to a buffer.
+	 */
+	public ByteBufferInputStream()
+	{
+		this(null);
+	}
+
+	/**
+	 * Creates a new byte buffer input stream.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} to read from.
+	 */
+	public ByteBufferInputStream(final ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Binds the stream to the given buffer.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} to read from.
+	 */
+	public final void setBuffer(final ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Returns the underlying buffer.
+	 * <p>
+	 * @return {@link ByteBuffer}.
+	 */
+	public final ByteBuffer getBuffer()
+	{
+		return buffer;
+	}
+
+	@Override
+	public final int read()
+	{
+		if (!buffer.hasRemaining())
+		{
+			return -1;
+		}
+
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public final int read(final byte[] bytes, final int offset, final int length)
+	{
+		if (length == 0)
+		{
+			return 0;
+		}
+
+		final int count = Math.min(length, buffer.remaining());
+		if (count == 0)
+		{
+			return -1;
+		}
+
+		buffer.get(bytes, offset, count);
+
+		return count;
+	}
+
+	@Override
+	public final long skip(final long count)
+	{
+		final int skipped = (int) Math.min(Math.max(count, 0), buffer.remaining());
+		buffer.position(buffer.position() + skipped);
+
+		return skipped;
+	}
+
+	@Override
+	public final int available()
+	{
+		return buffer.remaining();
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helper methods to read and write variable length integers (7 bits per byte,
+ * least significant group first, the most significant bit of a byte telling
+ * if another byte follows) from and to a {@link ByteBuffer}.
+ * <p>
+ * Signed values which may be negative should be zig-zag encoded first (see
+ * {@link #encodeZigZag(long)}) so that small negative values also use few
+ * bytes.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class VarInt
+{
+	/**
+	 * Maximum number of bytes of an encoded integer.
+	 */
+	public static final int MAX_INT_SIZE = 5;
+
+	/**
+	 * Maximum number of bytes of an encoded long.
+	 */
+	public static final int MAX_LONG_SIZE = 10;
+
+	/**
+	 * Helper class, cannot be instantiated.
+	 */
+	private VarInt()
+	{
+		// Empty
+	}
+
+	/**
+	 * Returns the number of bytes needed to encode an integer.
+	 * <p>
+	 * @param value Value (considered as unsigned).
+	 * @return Number of bytes.
+	 */
+	public static final int sizeOf(final int value)
+	{
+		if ((value & (0xFFFFFFFF << 7)) == 0)
+		{
+			return 1;
+		}
+		if ((value & (0xFFFFFFFF << 14)) == 0)
+		{
+			return 2;
+		}
+		if ((value & (0xFFFFFFFF << 21)) == 0)
+		{
+			return 3;
+		}
+		if ((value & (0xFFFFFFFF << 28)) == 0)
+		{
+			return 4;
+		}
+
+		return 5;
+	}
+
+	/**
+	 * Returns the number of bytes needed to encode a long.
+	 * <p>
+	 * @param value Value (considered as unsigned).
+	 * @return Number of bytes.
+	 */
+	public static final int sizeOf(final long value)
+	{
+		int size = 1;
+		long remaining = value >>> 7;
+		while (remaining != 0)
+		{
+			size++;
+			remaining >>>= 7;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Writes an integer at the current position of a buffer.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} to write to.
+	 * @param value Value (considered as unsigned).
+	 */
+	public static final void writeInt(final ByteBuffer buffer, final int value)
+	{
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0)
+		{
+			buffer.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		buffer.put((byte) remaining);
+	}
+
+	/**
+	 * Writes a long at the current position of a buffer.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} to write to.
+	 * @param value Value (considered as unsigned).
+	 */
+	public static final void writeLong(final ByteBuffer buffer, final long value)
+	{
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0)
+		{
+			buffer.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		buffer.put((byte) remaining);
+	}
+
+	/**
+	 * Reads an integer from the current position of a buffer.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} to read from.
+	 * @return Value.
+	 * @throws IllegalArgumentException Thrown if the encoded value is longer
+	 * than {@link #MAX_INT_SIZE} bytes.
+	 */
+	@SuppressWarnings("nls")
+	public static final int readInt(final ByteBuffer buffer)
+	{
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7)
+		{
+			final byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+
+		throw new IllegalArgumentException("Malformed variable length integer!");
+	}
+
+	/**
+	 * Reads a long from the current position of a buffer.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} to read from.
+	 * @return Value.
+	 * @throws IllegalArgumentException Thrown if the encoded value is longer
+	 * than {@link #MAX_LONG_SIZE} bytes.
+	 */
+	@SuppressWarnings("nls")
+	public static final long readLong(final ByteBuffer buffer)
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			final byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+
+		throw new IllegalArgumentException("Malformed variable length long!");
+	}
+
+	/**
+	 * Zig-zag encodes a signed value.
+	 * <p>
+	 * @param value Signed value.
+	 * @return Zig-zag encoded value.
+	 */
+	public static final long encodeZigZag(final long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Decodes a zig-zag encoded value.
+	 * <p>
+	 * @param value Zig-zag encoded value.
+	 * @return Signed value.
+	 */
+	public static final long decodeZigZag(final long value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
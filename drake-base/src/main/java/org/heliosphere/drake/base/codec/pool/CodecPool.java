@@ -0,0 +1,212 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A lock-free pool of codec instances.
+ * <p>
+ * Codecs such as the {@code Kryo} based serializers keep buffers and a
+ * {@code Kryo} object as instance state and can therefore not be shared
+ * between threads. The pool keeps one stripe of pre-warmed instances per
+ * available processor; a thread borrows an instance from its own stripe (or
+ * steals from another one when its stripe is empty), uses it exclusively and
+ * returns it once done. A new instance is only created when all the stripes
+ * are exhausted.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ * @param <T> Type of the pooled codecs.
+ */
+public final class CodecPool<T>
+{
+	/**
+	 * Default number of instances per available processor.
+	 */
+	public static final int DEFAULT_INSTANCES_PER_CORE = 2;
+
+	/**
+	 * Factory used to create the codec instances.
+	 */
+	private final ICodecFactory<T> factory;
+
+	/**
+	 * Pool stripes (one per available processor).
+	 */
+	private final List<Queue<T>> stripes;
+
+	/**
+	 * Number of idle instances in each stripe.
+	 */
+	private final AtomicIntegerArray sizes;
+
+	/**
+	 * Maximum number of idle instances kept by a stripe.
+	 */
+	private final int capacity;
+
+	/**
+	 * Number of instances created since the creation of the pool.
+	 */
+	private final AtomicLong created = new AtomicLong();
+
+	/**
+	 * Creates a new codec pool with the default number of instances per
+	 * available processor.
+	 * <p>
+	 * @param factory {@link ICodecFactory} used to create codec instances.
+	 */
+	public CodecPool(final ICodecFactory<T> factory)
+	{
+		this(factory, DEFAULT_INSTANCES_PER_CORE);
+	}
+
+	/**
+	 * Creates a new codec pool.
+	 * <p>
+	 * @param factory {@link ICodecFactory} used to create codec instances.
+	 * @param instancesPerCore Number of pre-warmed instances to keep for each
+	 * available processor.
+	 */
+	@SuppressWarnings("nls")
+	public CodecPool(final ICodecFactory<T> factory, final int instancesPerCore)
+	{
+		Validate.notNull(factory, "Codec factory cannot be null!");
+		Validate.isTrue(instancesPerCore > 0, "Number of instances per core must be greater than zero!");
+
+		final int count = Runtime.getRuntime().availableProcessors();
+
+		this.factory = factory;
+		this.capacity = instancesPerCore;
+		this.sizes = new AtomicIntegerArray(count);
+		this.stripes = new ArrayList<>(count);
+
+		// Pre-warm the stripes.
+		for (int i = 0; i < count; i++)
+		{
+			final Queue<T> stripe = new ConcurrentLinkedQueue<>();
+			for (int j = 0; j < instancesPerCore; j++)
+			{
+				stripe.offer(create());
+			}
+			sizes.set(i, instancesPerCore);
+			stripes.add(stripe);
+		}
+	}
+
+	/**
+	 * Borrows a codec from the pool. The codec is confined to the calling
+	 * thread until it is returned using {@link #release(Object)}.
+	 * <p>
+	 * @return Codec instance.
+	 */
+	public final T borrow()
+	{
+		final int count = stripes.size();
+		final int index = getStripeIndex();
+
+		T codec;
+		for (int i = 0; i < count; i++)
+		{
+			final int current = (index + i) % count;
+			codec = stripes.get(current).poll();
+			if (codec != null)
+			{
+				sizes.decrementAndGet(current);
+				return codec;
+			}
+		}
+
+		return create();
+	}
+
+	/**
+	 * Returns a codec to the pool. If the stripe of the calling thread is
+	 * already full, the codec is simply dropped.
+	 * <p>
+	 * @param codec Codec to return.
+	 */
+	public final void release(final T codec)
+	{
+		if (codec == null)
+		{
+			return;
+		}
+
+		final int index = getStripeIndex();
+		if (sizes.incrementAndGet(index) <= capacity)
+		{
+			stripes.get(index).offer(codec);
+		}
+		else
+		{
+			sizes.decrementAndGet(index);
+		}
+	}
+
+	/**
+	 * Returns the number of idle codecs currently held by the pool.
+	 * <p>
+	 * @return Number of idle codecs.
+	 */
+	public final int getIdleCount()
+	{
+		int count = 0;
+		for (int i = 0; i < sizes.length(); i++)
+		{
+			count += sizes.get(i);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the number of codecs created since the creation of the pool
+	 * (including the pre-warmed ones).
+	 * <p>
+	 * @return Number of created codecs.
+	 */
+	public final long getCreatedCount()
+	{
+		return created.get();
+	}
+
+	/**
+	 * Creates a new codec instance.
+	 * <p>
+	 * @return Codec.
+	 */
+	private final T create()
+	{
+		created.incrementAndGet();
+
+		return factory.create();
+	}
+
+	/**
+	 * Returns the index of the stripe associated to the calling thread.
+	 * <p>
+	 * @return Stripe index.
+	 */
+	private final int getStripeIndex()
+	{
+		return (int) (Thread.currentThread().getId() % stripes.size());
+	}
+}
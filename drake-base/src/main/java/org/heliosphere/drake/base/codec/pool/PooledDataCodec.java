@@ -0,0 +1,166 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.pool;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.codec.DataDecodingException;
+import org.heliosphere.drake.base.codec.DataEncodingException;
+import org.heliosphere.drake.base.codec.ICodec;
+
+/**
+ * A thread-safe data codec delegating to a {@link CodecPool} of data codecs.
+ * <p>
+ * Each encoding or decoding operation borrows a codec from the pool, uses it
+ * and returns it to the pool, even if the operation failed as the codecs
+ * reset their state at the start of each operation.
+ * <p>
+ * The classes registered through {@link #register(Class)} are applied to
+ * every codec of the pool: the pool is replaced by a new one whose codecs
+ * are created with all the registrations.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class PooledDataCodec implements ICodec
+{
+	/**
+	 * Classes registered to the pooled codecs.
+	 */
+	private final List<Class<?>> registrations = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Factory used to create the pooled codecs.
+	 */
+	private ICodecFactory<ICodec> factory;
+
+	/**
+	 * Number of pooled codecs per available processor.
+	 */
+	private int instancesPerCore;
+
+	/**
+	 * Pool of data codecs.
+	 */
+	private volatile CodecPool<ICodec> pool;
+
+	/**
+	 * Creates a new pooled data codec.
+	 * <p>
+	 * @param factory {@link ICodecFactory} used to create the data codecs.
+	 * @param instancesPerCore Number of pre-warmed codecs to keep for each
+	 * available processor.
+	 */
+	public PooledDataCodec(final ICodecFactory<ICodec> factory, final int instancesPerCore)
+	{
+		setFactory(factory, instancesPerCore);
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final synchronized void register(final Class<?> type)
+	{
+		Validate.notNull(type, "Class to register cannot be null!");
+
+		if (!registrations.contains(type))
+		{
+			registrations.add(type);
+			pool = createPool();
+		}
+	}
+
+	@Override
+	public final Object decodeData(final ByteBuffer encoded) throws DataDecodingException
+	{
+		final CodecPool<ICodec> current = pool;
+		final ICodec codec = current.borrow();
+		try
+		{
+			return codec.decodeData(encoded);
+		}
+		finally
+		{
+			current.release(codec);
+		}
+	}
+
+	@Override
+	public final ByteBuffer encodeData(final Object data) throws DataEncodingException
+	{
+		final CodecPool<ICodec> current = pool;
+		final ICodec codec = current.borrow();
+		try
+		{
+			return codec.encodeData(data);
+		}
+		finally
+		{
+			current.release(codec);
+		}
+	}
+
+	/**
+	 * Replaces the factory of the pooled codecs (and therefore the pool).
+	 * Operations in progress complete using the previous pool.
+	 * <p>
+	 * @param factory {@link ICodecFactory} used to create the data codecs.
+	 * @param instancesPerCore Number of pre-warmed codecs to keep for each
+	 * available processor.
+	 */
+	@SuppressWarnings("nls")
+	public final synchronized void setFactory(final ICodecFactory<ICodec> factory, final int instancesPerCore)
+	{
+		Validate.notNull(factory, "Codec factory cannot be null!");
+
+		this.factory = factory;
+		this.instancesPerCore = instancesPerCore;
+		this.pool = createPool();
+	}
+
+	/**
+	 * Returns the underlying codec pool.
+	 * <p>
+	 * @return {@link CodecPool}.
+	 */
+	public final CodecPool<ICodec> getPool()
+	{
+		return pool;
+	}
+
+	/**
+	 * Creates a pool whose codecs are created with the registered classes.
+	 * <p>
+	 * @return {@link CodecPool}.
+	 */
+	private final CodecPool<ICodec> createPool()
+	{
+		final ICodecFactory<ICodec> delegate = factory;
+
+		return new CodecPool<>(new ICodecFactory<ICodec>()
+		{
+			@Override
+			public ICodec create()
+			{
+				final ICodec codec = delegate.create();
+				for (Class<?> type : registrations)
+				{
+					codec.register(type);
+				}
+
+				return codec;
+			}
+		}, instancesPerCore);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.pool;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.codec.MessageEncodingException;
+
+/**
+ * A thread-safe message codec delegating to a {@link CodecPool} of message
+ * codecs.
+ * <p>
+ * Each encoding or decoding operation borrows a codec from the pool, uses it
+ * and returns it to the pool, even if the operation failed as the codecs
+ * reset their state at the start of each operation.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class PooledMessageCodec implements IMessageCodec
+{
+	/**
+	 * Pool of message codecs.
+	 */
+	private volatile CodecPool<IMessageCodec> pool;
+
+	/**
+	 * Creates a new pooled message codec.
+	 * <p>
+	 * @param pool {@link CodecPool} of message codecs.
+	 */
+	@SuppressWarnings("nls")
+	public PooledMessageCodec(final CodecPool<IMessageCodec> pool)
+	{
+		Validate.notNull(pool, "Codec pool cannot be null!");
+
+		this.pool = pool;
+	}
+
+	@Override
+	public final IMessage decodeMessage(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		final CodecPool<IMessageCodec> current = pool;
+		final IMessageCodec codec = current.borrow();
+		try
+		{
+			return codec.decodeMessage(encoded);
+		}
+		finally
+		{
+			current.release(codec);
+		}
+	}
+
+	@Override
+	public final ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	{
+		final CodecPool<IMessageCodec> current = pool;
+		final IMessageCodec codec = current.borrow();
+		try
+		{
+			return codec.encodeMessage(message);
+		}
+		finally
+		{
+			current.release(codec);
+		}
+	}
+
+	@Override
+	public final int encodeMessage(final IMessage message, final ByteBuffer target) throws MessageEncodingException
+	{
+		final CodecPool<IMessageCodec> current = pool;
+		final IMessageCodec codec = current.borrow();
+		try
+		{
+			return codec.encodeMessage(message, target);
+		}
+		finally
+		{
+			current.release(codec);
+		}
+	}
+
+	@Override
+	public final PooledBuffer encodeMessage(final IMessage message, final BufferArena arena) throws MessageEncodingException
+	{
+		final CodecPool<IMessageCodec> current = pool;
+		final IMessageCodec codec = current.borrow();
+		try
+		{
+			return codec.encodeMessage(message, arena);
+		}
+		finally
+		{
+			current.release(codec);
+		}
+	}
+
+	@Override
+	public final ByteBuffer encodeMessages(final List<IMessage> messages) throws MessageEncodingException
+	{
+		final CodecPool<IMessageCodec> current = pool;
+		final IMessageCodec codec = current.borrow();
+		try
+		{
+			return codec.encodeMessages(messages);
+		}
+		finally
+		{
+			current.release(codec);
+		}
+	}
+
+	@Override
+	public final PooledBuffer encodeMessages(final List<IMessage> messages, final BufferArena arena) throws MessageEncodingException
+	{
+		final CodecPool<IMessageCodec> current = pool;
+		final IMessageCodec codec = current.borrow();
+		try
+		{
+			return codec.encodeMessages(messages, arena);
+		}
+		finally
+		{
+			current.release(codec);
+		}
+	}
+
+	/**
+	 * Replaces the underlying codec pool. Operations in progress complete
+	 * using the previous pool.
+	 * <p>
+	 * @param pool {@link CodecPool} of codecs.
+	 */
+	@SuppressWarnings("nls")
+	public final void setPool(final CodecPool<IMessageCodec> pool)
+	{
+		Validate.notNull(pool, "Codec pool cannot be null!");
+
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns the underlying codec pool.
+	 * <p>
+	 * @return {@link CodecPool}.
+	 */
+	public final CodecPool<IMessageCodec> getPool()
+	{
+		return pool;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.primitive;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+
+/**
+ * Reads values written by a {@link BitWriter}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+final class BitReader
+{
+	/**
+	 * Input to read from.
+	 */
+	private final Input input;
+
+	/**
+	 * Number of packed bytes not yet read from the input.
+	 */
+	private int remaining;
+
+	/**
+	 * Bits read but not yet consumed.
+	 */
+	private long word;
+
+	/**
+	 * Number of bits not yet consumed in the word.
+	 */
+	private int bits;
+
+	/**
+	 * Creates a new bit reader.
+	 * <p>
+	 * @param input Input to read from.
+	 * @param length Number of packed bytes.
+	 */
+	BitReader(final Input input, final int length)
+	{
+		this.input = input;
+		this.remaining = length;
+	}
+
+	/**
+	 * Reads a value.
+	 * <p>
+	 * @param width Bit width (1 to 64).
+	 * @return Value.
+	 */
+	@SuppressWarnings("nls")
+	final long read(final int width)
+	{
+		final long mask = width == 64 ? -1L : (1L << width) - 1;
+
+		if (bits >= width)
+		{
+			final long value = word & mask;
+			word = width == 64 ? 0 : word >>> width;
+			bits -= width;
+			return value;
+		}
+
+		final int count = Math.min(8, remaining);
+		final int used = width - bits;
+		if (count << 3 < used)
+		{
+			throw new KryoException("Packed run is truncated");
+		}
+
+		final long next = readBytes(count);
+		final long value = (word | (next << bits)) & mask;
+
+		word = used == 64 ? 0 : next >>> used;
+		bits = (count << 3) - used;
+
+		return value;
+	}
+
+	/**
+	 * Reads a little endian word.
+	 * <p>
+	 * @param count Number of bytes to read.
+	 * @return Word.
+	 */
+	private final long readBytes(final int count)
+	{
+		long value = 0;
+		for (int i = 0; i < count; i++)
+		{
+			value |= (input.readByte() & 0xFFL) << (i << 3);
+		}
+		remaining -= count;
+
+		return value;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.primitive;
+
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Writes values of a fixed bit width packed one after the other (least
+ * significant bits first) in little endian 64 bits words.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+final class BitWriter
+{
+	/**
+	 * Output to write to.
+	 */
+	private final Output output;
+
+	/**
+	 * Bits not yet written.
+	 */
+	private long word;
+
+	/**
+	 * Number of bits used in the word.
+	 */
+	private int bits;
+
+	/**
+	 * Creates a new bit writer.
+	 * <p>
+	 * @param output Output to write to.
+	 */
+	BitWriter(final Output output)
+	{
+		this.output = output;
+	}
+
+	/**
+	 * Writes a value.
+	 * <p>
+	 * @param value Value (only its {@code width} low bits can be set).
+	 * @param width Bit width (1 to 64).
+	 */
+	final void write(final long value, final int width)
+	{
+		word |= value << bits;
+
+		final int total = bits + width;
+		if (total >= 64)
+		{
+			writeBytes(word, 8);
+			word = bits == 0 ? 0 : value >>> (64 - bits);
+			bits = total - 64;
+		}
+		else
+		{
+			bits = total;
+		}
+	}
+
+	/**
+	 * Writes the pending bits (padded to a byte).
+	 */
+	final void flush()
+	{
+		writeBytes(word, (bits + 7) >>> 3);
+		word = 0;
+		bits = 0;
+	}
+
+	/**
+	 * Writes the low bytes of a word in little endian order.
+	 * <p>
+	 * @param value Word.
+	 * @param count Number of bytes to write.
+	 */
+	private final void writeBytes(final long value, final int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			output.writeByte((byte) (value >>> (i << 3)));
+		}
+	}
+}
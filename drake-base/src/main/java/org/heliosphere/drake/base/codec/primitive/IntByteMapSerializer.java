@@ -0,0 +1,65 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.primitive;
+
+import java.util.Arrays;
+
+import org.heliosphere.drake.base.collection.IntByteMap;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A {@code Kryo} serializer writing an {@link IntByteMap} as a sorted run of
+ * packed keys followed by the raw run of the corresponding values.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class IntByteMapSerializer extends Serializer<IntByteMap>
+{
+	@Override
+	public final void write(final Kryo kryo, final Output output, final IntByteMap map)
+	{
+		final int[] keys = map.keys();
+		Arrays.sort(keys);
+
+		final byte[] values = new byte[keys.length];
+		for (int i = 0; i < keys.length; i++)
+		{
+			values[i] = map.get(keys[i], (byte) 0);
+		}
+
+		output.writeVarInt(keys.length, true);
+		PrimitiveRuns.writeInts(output, keys, 0, keys.length);
+		output.writeBytes(values);
+	}
+
+	@Override
+	public final IntByteMap read(final Kryo kryo, final Input input, final Class<IntByteMap> type)
+	{
+		final int size = PrimitiveRuns.readSize(input);
+		final int[] keys = new int[size];
+		PrimitiveRuns.readInts(input, keys, 0, size);
+		final byte[] values = input.readBytes(size);
+
+		final IntByteMap map = new IntByteMap(size);
+		for (int i = 0; i < size; i++)
+		{
+			map.put(keys[i], values[i]);
+		}
+
+		return map;
+	}
+}
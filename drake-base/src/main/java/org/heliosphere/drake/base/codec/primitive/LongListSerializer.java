@@ -0,0 +1,46 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.primitive;
+
+import org.heliosphere.drake.base.collection.LongList;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A {@code Kryo} serializer writing an {@link LongList} as a single run of
+ * packed values.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class LongListSerializer extends Serializer<LongList>
+{
+	@Override
+	public final void write(final Kryo kryo, final Output output, final LongList list)
+	{
+		output.writeVarInt(list.size(), true);
+		PrimitiveRuns.writeLongs(output, list.getBuffer(), 0, list.size());
+	}
+
+	@Override
+	public final LongList read(final Kryo kryo, final Input input, final Class<LongList> type)
+	{
+		final int size = PrimitiveRuns.readSize(input);
+		final long[] elements = new long[size];
+		PrimitiveRuns.readLongs(input, elements, 0, size);
+
+		return LongList.wrap(elements, size);
+	}
+}
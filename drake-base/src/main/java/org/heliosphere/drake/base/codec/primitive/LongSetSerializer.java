@@ -0,0 +1,57 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.primitive;
+
+import java.util.Arrays;
+
+import org.heliosphere.drake.base.collection.LongSet;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A {@code Kryo} serializer writing a {@link LongSet} as a sorted run of
+ * packed values (which usually ends up delta encoded).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class LongSetSerializer extends Serializer<LongSet>
+{
+	@Override
+	public final void write(final Kryo kryo, final Output output, final LongSet set)
+	{
+		final long[] values = set.toArray();
+		Arrays.sort(values);
+
+		output.writeVarInt(values.length, true);
+		PrimitiveRuns.writeLongs(output, values, 0, values.length);
+	}
+
+	@Override
+	public final LongSet read(final Kryo kryo, final Input input, final Class<LongSet> type)
+	{
+		final int size = PrimitiveRuns.readSize(input);
+		final long[] values = new long[size];
+		PrimitiveRuns.readLongs(input, values, 0, size);
+
+		final LongSet set = new LongSet(size);
+		for (int i = 0; i < size; i++)
+		{
+			set.add(values[i]);
+		}
+
+		return set;
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.primitive;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A {@code Kryo} serializer copying the arrays of a primitive numeric type
+ * ({@code int}, {@code long}, {@code short}, {@code char}, {@code float} or
+ * {@code double}) in bulk through {@link ByteBuffer} views instead of
+ * writing them element by element.
+ * <p>
+ * An array is written as its length followed by a header byte and the
+ * elements. The elements are written in the native byte order of the
+ * writer, which the header records so that the reader copies them back
+ * without any byte swapping when both ends share the same byte order. When
+ * enabled, sorted {@code int} and {@code long} arrays are written as a
+ * {@link PrimitiveRuns} run instead (zig-zag deltas, bit-packed or
+ * variable length).
+ * <p>
+ * The elements are copied straight into (or from) the buffer of the
+ * {@code Kryo} output (or input) when it has enough room left, through a
+ * reusable scratch array otherwise.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class PrimitiveArraySerializer extends Serializer<Object>
+{
+	/**
+	 * Header flag set when the elements are written in little endian order.
+	 */
+	public static final int LITTLE_ENDIAN = 0x01;
+
+	/**
+	 * Header flag set when the elements are written as a {@link PrimitiveRuns}
+	 * run.
+	 */
+	public static final int RUN = 0x02;
+
+	/**
+	 * Minimum length of a sorted array to be written as a run.
+	 */
+	public static final int MIN_RUN_LENGTH = 16;
+
+	/**
+	 * Size of the scratch array used when the buffer has not enough room.
+	 */
+	private static final int SCRATCH_SIZE = 8192;
+
+	/**
+	 * Native byte order (written by this end).
+	 */
+	private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+	/**
+	 * Array type.
+	 */
+	private final Class<?> type;
+
+	/**
+	 * Size of an element (in bytes).
+	 */
+	private final int elementSize;
+
+	/**
+	 * Whether the sorted {@code int} and {@code long} arrays are written as
+	 * runs.
+	 */
+	private final boolean packing;
+
+	/**
+	 * Scratch array (lazily allocated).
+	 */
+	private byte[] scratch;
+
+	/**
+	 * Creates a new primitive array serializer.
+	 * <p>
+	 * @param type Array type ({@code int[].class}, {@code long[].class},
+	 * {@code short[].class}, {@code char[].class}, {@code float[].class} or
+	 * {@code double[].class}).
+	 * @param packing Whether the sorted {@code int} and {@code long} arrays
+	 * are written as runs.
+	 */
+	@SuppressWarnings("nls")
+	public PrimitiveArraySerializer(final Class<?> type, final boolean packing)
+	{
+		if (type == int[].class || type == float[].class)
+		{
+			elementSize = 4;
+		}
+		else if (type == long[].class || type == double[].class)
+		{
+			elementSize = 8;
+		}
+		else if (type == short[].class || type == char[].class)
+		{
+			elementSize = 2;
+		}
+		else
+		{
+			throw new IllegalArgumentException("Not a primitive numeric array type: " + type);
+		}
+
+		this.type = type;
+		this.packing = packing;
+	}
+
+	@Override
+	public final void write(final Kryo kryo, final Output output, final Object array)
+	{
+		final int length = Array.getLength(array);
+		output.writeVarInt(length, true);
+
+		if (packing && length >= MIN_RUN_LENGTH)
+		{
+			if (type == int[].class && isSorted((int[]) array))
+			{
+				output.writeByte((byte) RUN);
+				PrimitiveRuns.writeInts(output, (int[]) array, 0, length);
+				return;
+			}
+			if (type == long[].class && isSorted((long[]) array))
+			{
+				output.writeByte((byte) RUN);
+				PrimitiveRuns.writeLongs(output, (long[]) array, 0, length);
+				return;
+			}
+		}
+
+		output.writeByte((byte) (ORDER == ByteOrder.LITTLE_ENDIAN ? LITTLE_ENDIAN : 0));
+
+		final byte[] buffer = output.getBuffer();
+		final int position = output.position();
+		final long bytes = (long) length * elementSize;
+		if (buffer.length - position >= bytes)
+		{
+			put(ByteBuffer.wrap(buffer, position, (int) bytes).order(ORDER), array, 0, length);
+			output.setPosition(position + (int) bytes);
+			return;
+		}
+
+		final byte[] chunk = getScratch();
+		final int elements = chunk.length / elementSize;
+		for (int offset = 0; offset < length; offset += elements)
+		{
+			final int count = Math.min(elements, length - offset);
+			put(ByteBuffer.wrap(chunk, 0, count * elementSize).order(ORDER), array, offset, count);
+			output.writeBytes(chunk, 0, count * elementSize);
+		}
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final Object read(final Kryo kryo, final Input input, final Class<Object> arrayType)
+	{
+		final int length = PrimitiveRuns.readSize(input);
+		final int header = input.readByteUnsigned();
+		final Object array = Array.newInstance(type.getComponentType(), length);
+
+		if ((header & RUN) != 0)
+		{
+			if (type == int[].class)
+			{
+				PrimitiveRuns.readInts(input, (int[]) array, 0, length);
+			}
+			else if (type == long[].class)
+			{
+				PrimitiveRuns.readLongs(input, (long[]) array, 0, length);
+			}
+			else
+			{
+				throw new KryoException("Invalid array header: " + header + " for type: " + type.getSimpleName());
+			}
+			return array;
+		}
+
+		final ByteOrder order = (header & LITTLE_ENDIAN) != 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		final int position = input.position();
+		final long bytes = (long) length * elementSize;
+		if (input.limit() - position >= bytes)
+		{
+			get(ByteBuffer.wrap(input.getBuffer(), position, (int) bytes).order(order), array, 0, length);
+			input.setPosition(position + (int) bytes);
+			return array;
+		}
+
+		final byte[] chunk = getScratch();
+		final int elements = chunk.length / elementSize;
+		for (int offset = 0; offset < length; offset += elements)
+		{
+			final int count = Math.min(elements, length - offset);
+			input.readBytes(chunk, 0, count * elementSize);
+			get(ByteBuffer.wrap(chunk, 0, count * elementSize).order(order), array, offset, count);
+		}
+
+		return array;
+	}
+
+	/**
+	 * Copies elements of an array to a buffer.
+	 * <p>
+	 * @param buffer Buffer (positioned on the first byte to write).
+	 * @param array Array.
+	 * @param offset Offset of the first element.
+	 * @param count Number of elements.
+	 */
+	private final void put(final ByteBuffer buffer, final Object array, final int offset, final int count)
+	{
+		if (type == int[].class)
+		{
+			buffer.asIntBuffer().put((int[]) array, offset, count);
+		}
+		else if (type == long[].class)
+		{
+			buffer.asLongBuffer().put((long[]) array, offset, count);
+		}
+		else if (type == double[].class)
+		{
+			buffer.asDoubleBuffer().put((double[]) array, offset, count);
+		}
+		else if (type == float[].class)
+		{
+			buffer.asFloatBuffer().put((float[]) array, offset, count);
+		}
+		else if (type == short[].class)
+		{
+			buffer.asShortBuffer().put((short[]) array, offset, count);
+		}
+		else
+		{
+			buffer.asCharBuffer().put((char[]) array, offset, count);
+		}
+	}
+
+	/**
+	 * Copies elements from a buffer to an array.
+	 * <p>
+	 * @param buffer Buffer (positioned on the first byte to read).
+	 * @param array Array.
+	 * @param offset Offset of the first element.
+	 * @param count Number of elements.
+	 */
+	private final void get(final ByteBuffer buffer, final Object array, final int offset, final int count)
+	{
+		if (type == int[].class)
+		{
+			buffer.asIntBuffer().get((int[]) array, offset, count);
+		}
+		else if (type == long[].class)
+		{
+			buffer.asLongBuffer().get((long[]) array, offset, count);
+		}
+		else if (type == double[].class)
+		{
+			buffer.asDoubleBuffer().get((double[]) array, offset, count);
+		}
+		else if (type == float[].class)
+		{
+			buffer.asFloatBuffer().get((float[]) array, offset, count);
+		}
+		else if (type == short[].class)
+		{
+			buffer.asShortBuffer().get((short[]) array, offset, count);
+		}
+		else
+		{
+			buffer.asCharBuffer().get((char[]) array, offset, count);
+		}
+	}
+
+	/**
+	 * Returns the scratch array.
+	 * <p>
+	 * @return Scratch array.
+	 */
+	private final byte[] getScratch()
+	{
+		if (scratch == null)
+		{
+			scratch = new byte[SCRATCH_SIZE];
+		}
+
+		return scratch;
+	}
+
+	/**
+	 * Returns if an array is sorted in ascending order.
+	 * <p>
+	 * @param array Array.
+	 * @return {@code True} if the array is sorted, {@code false} otherwise.
+	 */
+	private static final boolean isSorted(final int[] array)
+	{
+		for (int i = 1; i < array.length; i++)
+		{
+			if (array[i] < array[i - 1])
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns if an array is sorted in ascending order.
+	 * <p>
+	 * @param array Array.
+	 * @return {@code True} if the array is sorted, {@code false} otherwise.
+	 */
+	private static final boolean isSorted(final long[] array)
+	{
+		for (int i = 1; i < array.length; i++)
+		{
+			if (array[i] < array[i - 1])
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
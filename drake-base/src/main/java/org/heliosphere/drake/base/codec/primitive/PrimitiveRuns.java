@@ -0,0 +1,292 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.primitive;
+
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Encodes runs of {@code int} and {@code long} values in bulk.
+ * <p>
+ * Values (or the deltas between consecutive values) are zig-zag encoded and
+ * written either bit-packed using the width of the largest one, or as
+ * variable length integers, whichever is the smallest. A run starts with a
+ * header byte: the low 7 bits hold the bit width (0 to 64, 0 meaning that
+ * all the values are zero) or {@link #VARINT} and the high bit tells if the
+ * run holds deltas. The number of values is not written, it is known by the
+ * serializers.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class PrimitiveRuns
+{
+	/**
+	 * Header value (low 7 bits) of a run of variable length integers.
+	 */
+	public static final int VARINT = 0x7F;
+
+	/**
+	 * Header flag of a run of deltas.
+	 */
+	public static final int DELTA = 0x80;
+
+	/**
+	 * Writes a run of {@code int} values.
+	 * <p>
+	 * @param output Output to write to.
+	 * @param values Values.
+	 * @param offset Offset of the first value.
+	 * @param count Number of values.
+	 */
+	public static final void writeInts(final Output output, final int[] values, final int offset, final int count)
+	{
+		// Size of the four possible encodings.
+		int plainWidth = 0;
+		int deltaWidth = 0;
+		long plainVarints = 0;
+		long deltaVarints = 0;
+
+		int previous = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			final int plain = zigzag(values[i]);
+			final int delta = zigzag(values[i] - previous);
+			previous = values[i];
+
+			plainWidth = Math.max(plainWidth, 32 - Integer.numberOfLeadingZeros(plain));
+			deltaWidth = Math.max(deltaWidth, 32 - Integer.numberOfLeadingZeros(delta));
+			plainVarints += varintLength(plain & 0xFFFFFFFFL);
+			deltaVarints += varintLength(delta & 0xFFFFFFFFL);
+		}
+
+		final boolean delta = Math.min(packedLength(count, deltaWidth), deltaVarints) < Math.min(packedLength(count, plainWidth), plainVarints);
+		final int width = delta ? deltaWidth : plainWidth;
+		final boolean varint = (delta ? deltaVarints : plainVarints) < packedLength(count, width);
+
+		output.writeByte((byte) ((varint ? VARINT : width) | (delta ? DELTA : 0)));
+		if (!varint && width == 0)
+		{
+			return;
+		}
+
+		final BitWriter writer = varint ? null : new BitWriter(output);
+		previous = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			final int value = zigzag(delta ? values[i] - previous : values[i]);
+			previous = values[i];
+
+			if (varint)
+			{
+				output.writeVarInt(value, true);
+			}
+			else
+			{
+				writer.write(value & 0xFFFFFFFFL, width);
+			}
+		}
+		if (writer != null)
+		{
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Reads a run of {@code int} values.
+	 * <p>
+	 * @param input Input to read from.
+	 * @param target Array receiving the values.
+	 * @param offset Offset of the first value.
+	 * @param count Number of values.
+	 */
+	@SuppressWarnings("nls")
+	public static final void readInts(final Input input, final int[] target, final int offset, final int count)
+	{
+		final int header = input.readByteUnsigned();
+		final boolean delta = (header & DELTA) != 0;
+		final int width = header & VARINT;
+		if (width != VARINT && width > 32)
+		{
+			throw new KryoException("Invalid int run header: " + header);
+		}
+
+		final BitReader reader = width == VARINT || width == 0 ? null : new BitReader(input, packedLength(count, width));
+		int previous = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			final int encoded = width == VARINT ? input.readVarInt(true) : width == 0 ? 0 : (int) reader.read(width);
+			final int value = (encoded >>> 1) ^ -(encoded & 1);
+
+			previous = delta ? previous + value : value;
+			target[i] = previous;
+		}
+	}
+
+	/**
+	 * Writes a run of {@code long} values.
+	 * <p>
+	 * @param output Output to write to.
+	 * @param values Values.
+	 * @param offset Offset of the first value.
+	 * @param count Number of values.
+	 */
+	public static final void writeLongs(final Output output, final long[] values, final int offset, final int count)
+	{
+		// Size of the four possible encodings.
+		int plainWidth = 0;
+		int deltaWidth = 0;
+		long plainVarints = 0;
+		long deltaVarints = 0;
+
+		long previous = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			final long plain = zigzag(values[i]);
+			final long delta = zigzag(values[i] - previous);
+			previous = values[i];
+
+			plainWidth = Math.max(plainWidth, 64 - Long.numberOfLeadingZeros(plain));
+			deltaWidth = Math.max(deltaWidth, 64 - Long.numberOfLeadingZeros(delta));
+			plainVarints += varintLength(plain);
+			deltaVarints += varintLength(delta);
+		}
+
+		final boolean delta = Math.min(packedLength(count, deltaWidth), deltaVarints) < Math.min(packedLength(count, plainWidth), plainVarints);
+		final int width = delta ? deltaWidth : plainWidth;
+		final boolean varint = (delta ? deltaVarints : plainVarints) < packedLength(count, width);
+
+		output.writeByte((byte) ((varint ? VARINT : width) | (delta ? DELTA : 0)));
+		if (!varint && width == 0)
+		{
+			return;
+		}
+
+		final BitWriter writer = varint ? null : new BitWriter(output);
+		previous = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			final long value = zigzag(delta ? values[i] - previous : values[i]);
+			previous = values[i];
+
+			if (varint)
+			{
+				output.writeVarLong(value, true);
+			}
+			else
+			{
+				writer.write(value, width);
+			}
+		}
+		if (writer != null)
+		{
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Reads a run of {@code long} values.
+	 * <p>
+	 * @param input Input to read from.
+	 * @param target Array receiving the values.
+	 * @param offset Offset of the first value.
+	 * @param count Number of values.
+	 */
+	@SuppressWarnings("nls")
+	public static final void readLongs(final Input input, final long[] target, final int offset, final int count)
+	{
+		final int header = input.readByteUnsigned();
+		final boolean delta = (header & DELTA) != 0;
+		final int width = header & VARINT;
+		if (width != VARINT && width > 64)
+		{
+			throw new KryoException("Invalid long run header: " + header);
+		}
+
+		final BitReader reader = width == VARINT || width == 0 ? null : new BitReader(input, packedLength(count, width));
+		long previous = 0;
+		for (int i = offset; i < offset + count; i++)
+		{
+			final long encoded = width == VARINT ? input.readVarLong(true) : width == 0 ? 0 : reader.read(width);
+			final long value = (encoded >>> 1) ^ -(encoded & 1);
+
+			previous = delta ? previous + value : value;
+			target[i] = previous;
+		}
+	}
+
+	/**
+	 * Reads the number of elements of a collection.
+	 * <p>
+	 * @param input Input to read from.
+	 * @return Number of elements.
+	 */
+	@SuppressWarnings("nls")
+	public static final int readSize(final Input input)
+	{
+		final int size = input.readVarInt(true);
+		if (size < 0)
+		{
+			throw new KryoException("Invalid collection size: " + size);
+		}
+
+		return size;
+	}
+
+	/**
+	 * Zig-zag encodes an {@code int} (small negative values become small
+	 * positive ones).
+	 * <p>
+	 * @param value Value.
+	 * @return Encoded value.
+	 */
+	private static final int zigzag(final int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Zig-zag encodes a {@code long}.
+	 * <p>
+	 * @param value Value.
+	 * @return Encoded value.
+	 */
+	private static final long zigzag(final long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Returns the length of an unsigned value written as a variable length
+	 * integer.
+	 * <p>
+	 * @param value Unsigned value.
+	 * @return Length (in bytes).
+	 */
+	private static final int varintLength(final long value)
+	{
+		return value == 0 ? 1 : (64 - Long.numberOfLeadingZeros(value) + 6) / 7;
+	}
+
+	/**
+	 * Returns the length of a bit-packed run.
+	 * <p>
+	 * @param count Number of values.
+	 * @param width Bit width.
+	 * @return Length (in bytes).
+	 */
+	private static final int packedLength(final int count, final int width)
+	{
+		return (int) (((long) count * width + 7) >>> 3);
+	}
+}
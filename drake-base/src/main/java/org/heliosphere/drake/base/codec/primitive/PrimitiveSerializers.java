@@ -0,0 +1,109 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.primitive;
+
+import org.heliosphere.drake.base.collection.IntByteMap;
+import org.heliosphere.drake.base.collection.IntList;
+import org.heliosphere.drake.base.collection.LongList;
+import org.heliosphere.drake.base.collection.LongSet;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * Registers the serializers of the primitive collections and of the
+ * primitive numeric arrays.
+ * <p>
+ * The collections and arrays are registered with fixed identifiers taken in
+ * the range left free below
+ * {@link org.heliosphere.drake.base.codec.catalog.ClassCatalog#BASE_ID} so
+ * that both ends agree on them without any class catalog registration. They
+ * are also declared as default serializers so that they are kept if one of
+ * these classes is registered again by a class catalog.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class PrimitiveSerializers
+{
+	/**
+	 * Identifier of the first registered class.
+	 */
+	public static final int FIRST_ID = 32;
+
+	/**
+	 * Primitive numeric array types (registered after the collections).
+	 */
+	private static final Class<?>[] ARRAYS = { int[].class, long[].class, short[].class, char[].class, float[].class, double[].class };
+
+	/**
+	 * Whether the sorted {@code int} and {@code long} arrays are written as
+	 * delta packed runs.
+	 */
+	private static volatile boolean arrayPacking = true;
+
+	/**
+	 * Sets if the sorted {@code int} and {@code long} arrays are written as
+	 * delta packed runs by the serializers registered afterwards. This only
+	 * changes the encoding side, both encodings are always decoded.
+	 * <p>
+	 * @param packing {@code True} to pack the sorted arrays, {@code false} to
+	 * always copy them in bulk.
+	 */
+	public static final void setArrayPacking(final boolean packing)
+	{
+		arrayPacking = packing;
+	}
+
+	/**
+	 * Returns if the sorted {@code int} and {@code long} arrays are written as
+	 * delta packed runs.
+	 * <p>
+	 * @return {@code True} if the sorted arrays are packed, {@code false}
+	 * otherwise.
+	 */
+	public static final boolean isArrayPacking()
+	{
+		return arrayPacking;
+	}
+
+	/**
+	 * Registers the primitive collection and array serializers in a
+	 * {@link Kryo} instance.
+	 * <p>
+	 * @param kryo {@link Kryo} instance.
+	 */
+	public static final void apply(final Kryo kryo)
+	{
+		final IntListSerializer intList = new IntListSerializer();
+		final LongListSerializer longList = new LongListSerializer();
+		final LongSetSerializer longSet = new LongSetSerializer();
+		final IntByteMapSerializer intByteMap = new IntByteMapSerializer();
+
+		kryo.addDefaultSerializer(IntList.class, intList);
+		kryo.addDefaultSerializer(LongList.class, longList);
+		kryo.addDefaultSerializer(LongSet.class, longSet);
+		kryo.addDefaultSerializer(IntByteMap.class, intByteMap);
+
+		kryo.register(IntList.class, intList, FIRST_ID);
+		kryo.register(LongList.class, longList, FIRST_ID + 1);
+		kryo.register(LongSet.class, longSet, FIRST_ID + 2);
+		kryo.register(IntByteMap.class, intByteMap, FIRST_ID + 3);
+
+		final boolean packing = arrayPacking;
+		for (int i = 0; i < ARRAYS.length; i++)
+		{
+			final PrimitiveArraySerializer serializer = new PrimitiveArraySerializer(ARRAYS[i], packing);
+			kryo.addDefaultSerializer(ARRAYS[i], serializer);
+			kryo.register(ARRAYS[i], serializer, FIRST_ID + 4 + i);
+		}
+	}
+}
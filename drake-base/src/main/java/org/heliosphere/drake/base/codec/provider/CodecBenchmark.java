@@ -0,0 +1,156 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.provider;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.codec.IMessageCodec;
+
+/**
+ * Self-benchmark ranking the {@link ICodecProvider} on sample messages of the
+ * registered message protocols.
+ * <p>
+ * Each provider encodes and decodes (including the message content) all the
+ * sample messages a number of warm-up rounds, then a number of measured
+ * rounds. Providers are ranked by average encoding and decoding time, the
+ * providers which failed to encode or decode a sample message come last.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class CodecBenchmark
+{
+	/**
+	 * Default number of warm-up rounds.
+	 */
+	public static final int DEFAULT_WARMUP_ROUNDS = 200;
+
+	/**
+	 * Default number of measured rounds.
+	 */
+	public static final int DEFAULT_ROUNDS = 500;
+
+	/**
+	 * Sample messages.
+	 */
+	private final List<IMessage> samples;
+
+	/**
+	 * Number of warm-up rounds.
+	 */
+	private final int warmupRounds;
+
+	/**
+	 * Number of measured rounds.
+	 */
+	private final int rounds;
+
+	/**
+	 * Creates a new codec benchmark.
+	 * <p>
+	 * @param samples Sample messages.
+	 * @param warmupRounds Number of warm-up rounds.
+	 * @param rounds Number of measured rounds.
+	 */
+	@SuppressWarnings("nls")
+	public CodecBenchmark(final List<IMessage> samples, final int warmupRounds, final int rounds)
+	{
+		Validate.notEmpty(samples, "Sample messages cannot be empty!");
+		Validate.isTrue(warmupRounds >= 0, "Number of warm-up rounds cannot be negative!");
+		Validate.isTrue(rounds > 0, "Number of rounds must be greater than zero!");
+
+		this.samples = new ArrayList<>(samples);
+		this.warmupRounds = warmupRounds;
+		this.rounds = rounds;
+	}
+
+	/**
+	 * Benchmarks the given providers.
+	 * <p>
+	 * @param providers Providers to benchmark.
+	 * @param context {@link CodecContext} used to create the codecs (its data
+	 * codec is ignored, each provider uses its own).
+	 * @return Results ranked from the fastest provider to the slowest one.
+	 */
+	@SuppressWarnings("nls")
+	public final List<CodecBenchmarkResult> run(final Collection<ICodecProvider> providers, final CodecContext context)
+	{
+		final List<CodecBenchmarkResult> results = new ArrayList<>(providers.size());
+
+		for (ICodecProvider provider : providers)
+		{
+			try
+			{
+				final ICodec dataCodec = provider.createDataCodec(new CodecContext(context.getCatalog(), context.getManager(), null));
+				final IMessageCodec codec = provider.createMessageCodec(new CodecContext(context.getCatalog(), context.getManager(), dataCodec));
+
+				for (int i = 0; i < warmupRounds; i++)
+				{
+					round(codec);
+				}
+
+				long bytes = 0;
+				final long start = System.nanoTime();
+				for (int i = 0; i < rounds; i++)
+				{
+					bytes += round(codec);
+				}
+				final long elapsed = System.nanoTime() - start;
+
+				final double count = (double) rounds * samples.size();
+				results.add(new CodecBenchmarkResult(provider, elapsed / count, bytes / count, null));
+			}
+			catch (final Exception e)
+			{
+				log.warn("Codec benchmark failed [provider=" + provider.getName() + ", reason=" + e.getMessage() + "]");
+				results.add(new CodecBenchmarkResult(provider, Double.NaN, Double.NaN, e.getClass().getSimpleName() + ": " + e.getMessage()));
+			}
+		}
+
+		Collections.sort(results);
+
+		return results;
+	}
+
+	/**
+	 * Encodes and decodes all the sample messages once.
+	 * <p>
+	 * @param codec {@link IMessageCodec}.
+	 * @return Number of encoded bytes.
+	 * @throws Exception Thrown if a sample message cannot be encoded or
+	 * decoded.
+	 */
+	private final long round(final IMessageCodec codec) throws Exception
+	{
+		long bytes = 0;
+		for (IMessage sample : samples)
+		{
+			final ByteBuffer encoded = codec.encodeMessage(sample);
+			bytes += encoded.remaining();
+
+			// Lazily decoded contents are part of the decoding cost.
+			codec.decodeMessage(encoded).getContent();
+		}
+
+		return bytes;
+	}
+}
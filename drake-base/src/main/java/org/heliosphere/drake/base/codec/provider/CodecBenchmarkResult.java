@@ -0,0 +1,134 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.provider;
+
+/**
+ * Result of the benchmark of a {@link ICodecProvider}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class CodecBenchmarkResult implements Comparable<CodecBenchmarkResult>
+{
+	/**
+	 * Benchmarked provider.
+	 */
+	private final ICodecProvider provider;
+
+	/**
+	 * Average time (in nanoseconds) to encode and decode a message.
+	 */
+	private final double nanosPerMessage;
+
+	/**
+	 * Average length (in bytes) of an encoded message.
+	 */
+	private final double bytesPerMessage;
+
+	/**
+	 * Reason of the failure ({@code null} if the benchmark succeeded).
+	 */
+	private final String failure;
+
+	/**
+	 * Creates a new benchmark result.
+	 * <p>
+	 * @param provider Benchmarked {@link ICodecProvider}.
+	 * @param nanosPerMessage Average time (in nanoseconds) to encode and
+	 * decode a message.
+	 * @param bytesPerMessage Average length (in bytes) of an encoded message.
+	 * @param failure Reason of the failure ({@code null} if the benchmark
+	 * succeeded).
+	 */
+	CodecBenchmarkResult(final ICodecProvider provider, final double nanosPerMessage, final double bytesPerMessage, final String failure)
+	{
+		this.provider = provider;
+		this.nanosPerMessage = nanosPerMessage;
+		this.bytesPerMessage = bytesPerMessage;
+		this.failure = failure;
+	}
+
+	/**
+	 * Returns the benchmarked provider.
+	 * <p>
+	 * @return {@link ICodecProvider}.
+	 */
+	public final ICodecProvider getProvider()
+	{
+		return provider;
+	}
+
+	/**
+	 * Returns the average time (in nanoseconds) to encode and decode a
+	 * message.
+	 * <p>
+	 * @return Time in nanoseconds.
+	 */
+	public final double getNanosPerMessage()
+	{
+		return nanosPerMessage;
+	}
+
+	/**
+	 * Returns the average length (in bytes) of an encoded message.
+	 * <p>
+	 * @return Length in bytes.
+	 */
+	public final double getBytesPerMessage()
+	{
+		return bytesPerMessage;
+	}
+
+	/**
+	 * Returns if the benchmark of the provider succeeded.
+	 * <p>
+	 * @return {@code True} if the provider encoded and decoded all the sample
+	 * messages, {@code false} otherwise.
+	 */
+	public final boolean isSuccessful()
+	{
+		return failure == null;
+	}
+
+	/**
+	 * Returns the reason of the failure.
+	 * <p>
+	 * @return Reason or {@code null} if the benchmark succeeded.
+	 */
+	public final String getFailure()
+	{
+		return failure;
+	}
+
+	@Override
+	public final int compareTo(final CodecBenchmarkResult other)
+	{
+		if (isSuccessful() != other.isSuccessful())
+		{
+			return isSuccessful() ? -1 : 1;
+		}
+
+		return Double.compare(nanosPerMessage, other.nanosPerMessage);
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		if (!isSuccessful())
+		{
+			return "[provider=" + provider.getName() + ", failure=" + failure + "]";
+		}
+
+		return String.format("[provider=%s, ns/message=%.1f, bytes/message=%.1f]", provider.getName(), Double.valueOf(nanosPerMessage), Double.valueOf(bytesPerMessage));
+	}
+}
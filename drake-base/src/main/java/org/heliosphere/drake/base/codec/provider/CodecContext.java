@@ -0,0 +1,90 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.provider;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.codec.catalog.IClassCatalog;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+
+/**
+ * Context given to the {@link ICodecProvider} to create codecs.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class CodecContext
+{
+	/**
+	 * Class catalog containing the classes of the registered message
+	 * protocols.
+	 */
+	private final IClassCatalog catalog;
+
+	/**
+	 * Message manager.
+	 */
+	private final IMessageManager manager;
+
+	/**
+	 * Data codec (can be {@code null}).
+	 */
+	private final ICodec dataCodec;
+
+	/**
+	 * Creates a new codec context.
+	 * <p>
+	 * @param catalog {@link IClassCatalog}.
+	 * @param manager {@link IMessageManager}.
+	 * @param dataCodec Data codec ({@code null} when creating a data codec).
+	 */
+	@SuppressWarnings("nls")
+	public CodecContext(final IClassCatalog catalog, final IMessageManager manager, final ICodec dataCodec)
+	{
+		Validate.notNull(catalog, "Class catalog cannot be null!");
+		Validate.notNull(manager, "Message manager cannot be null!");
+
+		this.catalog = catalog;
+		this.manager = manager;
+		this.dataCodec = dataCodec;
+	}
+
+	/**
+	 * Returns the class catalog.
+	 * <p>
+	 * @return {@link IClassCatalog}.
+	 */
+	public final IClassCatalog getCatalog()
+	{
+		return catalog;
+	}
+
+	/**
+	 * Returns the message manager.
+	 * <p>
+	 * @return {@link IMessageManager}.
+	 */
+	public final IMessageManager getManager()
+	{
+		return manager;
+	}
+
+	/**
+	 * Returns the data codec.
+	 * <p>
+	 * @return {@link ICodec} or {@code null} when creating a data codec.
+	 */
+	public final ICodec getDataCodec()
+	{
+		return dataCodec;
+	}
+}
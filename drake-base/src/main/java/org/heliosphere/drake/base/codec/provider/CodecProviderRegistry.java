@@ -0,0 +1,147 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Registry of the {@link ICodecProvider} available on the class path
+ * (discovered using the {@link ServiceLoader} mechanism).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class CodecProviderRegistry
+{
+	/**
+	 * Registry built from the providers available on the class path.
+	 */
+	private static volatile CodecProviderRegistry instance = null;
+
+	/**
+	 * Providers by name (upper case).
+	 */
+	private final Map<String, ICodecProvider> providers;
+
+	/**
+	 * Creates a new registry.
+	 * <p>
+	 * @param providers Providers by name.
+	 */
+	private CodecProviderRegistry(final Map<String, ICodecProvider> providers)
+	{
+		this.providers = Collections.unmodifiableMap(providers);
+	}
+
+	/**
+	 * Returns the registry built from the providers available on the class
+	 * path.
+	 * <p>
+	 * @return {@link CodecProviderRegistry}.
+	 */
+	public static final CodecProviderRegistry getInstance()
+	{
+		CodecProviderRegistry registry = instance;
+		if (registry == null)
+		{
+			synchronized (CodecProviderRegistry.class)
+			{
+				if (instance == null)
+				{
+					instance = load();
+				}
+				registry = instance;
+			}
+		}
+
+		return registry;
+	}
+
+	/**
+	 * Returns the provider having the given name (case insensitive).
+	 * <p>
+	 * @param name Provider name.
+	 * @return {@link ICodecProvider} or {@code null} if no provider has this
+	 * name.
+	 */
+	public final ICodecProvider getProvider(final String name)
+	{
+		return name == null ? null : providers.get(name.trim().toUpperCase());
+	}
+
+	/**
+	 * Returns the available providers.
+	 * <p>
+	 * @return List of providers.
+	 */
+	public final List<ICodecProvider> getProviders()
+	{
+		return new ArrayList<>(providers.values());
+	}
+
+	/**
+	 * Loads the providers available on the class path.
+	 * <p>
+	 * @return {@link CodecProviderRegistry}.
+	 */
+	@SuppressWarnings("nls")
+	private static final CodecProviderRegistry load()
+	{
+		final Map<String, ICodecProvider> providers = new LinkedHashMap<>();
+
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null)
+		{
+			loader = CodecProviderRegistry.class.getClassLoader();
+		}
+
+		final Iterator<ICodecProvider> iterator = ServiceLoader.load(ICodecProvider.class, loader).iterator();
+		while (true)
+		{
+			try
+			{
+				if (!iterator.hasNext())
+				{
+					break;
+				}
+
+				final ICodecProvider provider = iterator.next();
+				final String name = provider.getName().toUpperCase();
+				if (providers.containsKey(name))
+				{
+					log.warn("Codec provider ignored, name already registered [name=" + name + ", provider.class=" + provider.getClass().getName() + "]");
+					continue;
+				}
+
+				providers.put(name, provider);
+
+				log.info("Codec provider registered [name=" + name + ", provider.class=" + provider.getClass().getName() + ", thread.safe=" + provider.isThreadSafe() + ", zero.copy=" + provider.isZeroCopy() + ", schema.required=" + provider.isSchemaRequired() + "]");
+			}
+			catch (final ServiceConfigurationError e)
+			{
+				log.error("Cannot load codec provider", e);
+			}
+		}
+
+		return new CodecProviderRegistry(providers);
+	}
+}
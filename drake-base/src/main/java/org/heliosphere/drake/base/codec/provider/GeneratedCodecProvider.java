@@ -0,0 +1,66 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.provider;
+
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.codec.generated.GeneratedSerializerRegistry;
+import org.heliosphere.drake.base.codec.serializer.KryoDataSerializer;
+import org.heliosphere.drake.base.codec.type.CodecType;
+import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.serializer.KryoMessageSerializer;
+
+/**
+ * Codec provider of the {@code Kryo} serialization mechanism using the
+ * serializers generated at compile time for the data classes annotated with
+ * {@code Encodable}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class GeneratedCodecProvider implements ICodecProvider
+{
+	@Override
+	public final String getName()
+	{
+		return CodecType.GENERATED.name();
+	}
+
+	@Override
+	public final boolean isThreadSafe()
+	{
+		return false;
+	}
+
+	@Override
+	public final boolean isZeroCopy()
+	{
+		return true;
+	}
+
+	@Override
+	public final boolean isSchemaRequired()
+	{
+		return true;
+	}
+
+	@Override
+	public final ICodec createDataCodec(final CodecContext context)
+	{
+		return new KryoDataSerializer(context.getCatalog(), GeneratedSerializerRegistry.getInstance());
+	}
+
+	@Override
+	public final IMessageCodec createMessageCodec(final CodecContext context)
+	{
+		return new KryoMessageSerializer(context.getCatalog(), GeneratedSerializerRegistry.getInstance());
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.provider;
+
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.message.codec.IMessageCodec;
+
+/**
+ * Service provider interface of the message codecs.
+ * <p>
+ * Providers are discovered using the {@link java.util.ServiceLoader}
+ * mechanism: a provider is made available by listing its class name in a
+ * {@code META-INF/services/org.heliosphere.drake.base.codec.provider.ICodecProvider}
+ * file on the class path. The provider to use is selected by its name using
+ * the {@code ApplicationMessageEncoderType} application property.
+ * <p>
+ * Providers must have a public no-argument constructor.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface ICodecProvider
+{
+	/**
+	 * Returns the name of the provider (used to select it).
+	 * <p>
+	 * @return Provider name.
+	 */
+	String getName();
+
+	/**
+	 * Returns if the message codecs created by the provider can be shared
+	 * between threads.
+	 * <p>
+	 * @return {@code True} if the message codecs are thread safe,
+	 * {@code false} otherwise.
+	 */
+	boolean isThreadSafe();
+
+	/**
+	 * Returns if the message codecs created by the provider encode into and
+	 * decode from (direct) buffers without intermediate copies.
+	 * <p>
+	 * @return {@code True} if zero-copy is supported, {@code false}
+	 * otherwise.
+	 */
+	boolean isZeroCopy();
+
+	/**
+	 * Returns if the message codecs created by the provider require both
+	 * sides to share the same schema (same classes registered with the same
+	 * identifiers in the class catalog).
+	 * <p>
+	 * @return {@code True} if a schema is required, {@code false} otherwise.
+	 */
+	boolean isSchemaRequired();
+
+	/**
+	 * Creates a new data codec.
+	 * <p>
+	 * @param context {@link CodecContext} (its data codec is not set).
+	 * @return {@link ICodec}.
+	 */
+	ICodec createDataCodec(final CodecContext context);
+
+	/**
+	 * Creates a new message codec.
+	 * <p>
+	 * @param context {@link CodecContext}.
+	 * @return {@link IMessageCodec}.
+	 */
+	IMessageCodec createMessageCodec(final CodecContext context);
+}
@@ -20,7 +20,7 @@ import java.io.ObjectOutputStream;
 import java.nio.ByteBuffer;
 
 import org.heliosphere.drake.base.message.IMessage;
-import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.codec.AbstractMessageCodec;
 import org.heliosphere.drake.base.message.codec.MessageDecodingException;
 import org.heliosphere.drake.base.message.codec.MessageEncodingException;
 
@@ -36,7 +36,7 @@ import lombok.extern.log4j.Log4j;
  * @version 1.0.0
  */
 @Log4j
-public final class JavaDataSerializer implements IMessageCodec
+public final class JavaDataSerializer extends AbstractMessageCodec
 {
 	/**
 	 * Byte array input stream.
@@ -18,6 +18,11 @@ import lombok.extern.log4j.Log4j;
 import org.heliosphere.drake.base.codec.DataDecodingException;
 import org.heliosphere.drake.base.codec.DataEncodingException;
 import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.codec.catalog.IClassCatalog;
+import org.heliosphere.drake.base.codec.dictionary.DictionaryStringSerializer;
+import org.heliosphere.drake.base.codec.generated.GeneratedSerializerRegistry;
+import org.heliosphere.drake.base.codec.io.ByteBufferInputStream;
+import org.heliosphere.drake.base.codec.primitive.PrimitiveSerializers;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
@@ -25,6 +30,12 @@ import com.esotericsoftware.kryo.io.Output;
 
 /**
  * A {@code Kryo} serializer for data encoding and decoding.
+ * <p>
+ * Data is decoded from the position of the given buffer, heap buffers are
+ * read in place and direct buffers through a reusable stream adapter. The
+ * output grows on demand and is released once it exceeds
+ * {@link #MAX_RETAINED_SIZE} so that a large payload does not pin a large
+ * buffer in every pooled instance.
  * <hr>
  * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
  * @version 1.0.0
@@ -33,19 +44,39 @@ import com.esotericsoftware.kryo.io.Output;
 public final class KryoDataSerializer implements ICodec
 {
 	/**
-	 * Default buffer allocation size.
+	 * Default buffer allocation size (the output grows on demand).
 	 */
-	protected static int BUFFER_ALLOCATION_SIZE = 32000;
+	protected static int BUFFER_ALLOCATION_SIZE = 1024;
+
+	/**
+	 * Maximum size of the output buffer kept between two encodings.
+	 */
+	public static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+	/**
+	 * Empty array used to unbind the input.
+	 */
+	private static final byte[] EMPTY = new byte[0];
 
 	/**
 	 * Output stream.
 	 */
-	private Output output = new Output(BUFFER_ALLOCATION_SIZE);
+	private Output output = new Output(BUFFER_ALLOCATION_SIZE, -1);
+
+	/**
+	 * Input stream (bound to the buffer to decode).
+	 */
+	private final Input input = new Input();
 
 	/**
-	 * Input stream.
+	 * Input used to decode direct buffers.
 	 */
-	private Input input = new Input(BUFFER_ALLOCATION_SIZE);
+	private final Input streamInput = new Input(BUFFER_ALLOCATION_SIZE);
+
+	/**
+	 * Stream adapter bound to the direct buffer to decode.
+	 */
+	private final ByteBufferInputStream stream = new ByteBufferInputStream();
 
 	/**
 	 * Kryo object.
@@ -58,6 +89,35 @@ public final class KryoDataSerializer implements ICodec
 	public KryoDataSerializer()
 	{
 		kryo = new Kryo();
+		kryo.register(String.class, new DictionaryStringSerializer());
+		PrimitiveSerializers.apply(kryo);
+	}
+
+	/**
+	 * Creates a new Kryo serializer registering the classes of the given
+	 * class catalog.
+	 * <p>
+	 * @param catalog {@link IClassCatalog} containing the classes to register.
+	 */
+	public KryoDataSerializer(final IClassCatalog catalog)
+	{
+		this();
+		catalog.apply(kryo);
+	}
+
+	/**
+	 * Creates a new Kryo serializer registering the classes of the given
+	 * class catalog and using the compile time generated serializers of the
+	 * given registry for the registered classes having one.
+	 * <p>
+	 * @param catalog {@link IClassCatalog} containing the classes to register.
+	 * @param registry {@link GeneratedSerializerRegistry} containing the
+	 * generated serializers.
+	 */
+	public KryoDataSerializer(final IClassCatalog catalog, final GeneratedSerializerRegistry registry)
+	{
+		this(catalog);
+		registry.apply(kryo, catalog);
 	}
 
 	@SuppressWarnings("nls")
@@ -65,18 +125,38 @@ public final class KryoDataSerializer implements ICodec
 	public final Object decodeData(final ByteBuffer encoded) throws DataDecodingException
 	{
 		Object data = null;
+		final int start = encoded.position();
 
 		try
 		{
-			input.setBuffer(encoded.array());
-			data = kryo.readClassAndObject(input);
-			input.close();
+			if (encoded.hasArray())
+			{
+				final int offset = encoded.arrayOffset() + start;
+				input.setBuffer(encoded.array(), offset, encoded.remaining());
+				data = kryo.readClassAndObject(input);
+				encoded.position(start + input.position() - offset);
+			}
+			else
+			{
+				stream.setBuffer(encoded);
+				streamInput.setInputStream(stream);
+				data = kryo.readClassAndObject(streamInput);
+
+				// The input may have read ahead, only consume the data bytes.
+				encoded.position(start + (int) streamInput.total());
+			}
 		}
 		catch (final Exception e)
 		{
 			log.error(e);
+			encoded.position(start);
 			throw new DataDecodingException("Cannot decode data due to: " + e.getMessage());
 		}
+		finally
+		{
+			input.setBuffer(EMPTY, 0, 0);
+			stream.setBuffer(null);
+		}
 
 		return data;
 	}
@@ -96,12 +176,28 @@ public final class KryoDataSerializer implements ICodec
 			throw new DataEncodingException("Cannot encode data due to: " + e.getMessage());
 		}
 
-		return ByteBuffer.wrap(output.toBytes());
+		final ByteBuffer encoded = ByteBuffer.wrap(output.toBytes());
+		if (output.getBuffer().length > MAX_RETAINED_SIZE)
+		{
+			output = new Output(BUFFER_ALLOCATION_SIZE, -1);
+		}
+
+		return encoded;
 	}
 
-	@Override
+	/**
+	 * Returns the Kryo underlying serializer.
+	 * <p>
+	 * @return {@link Kryo}.
+	 */
 	public final Kryo getSerializer()
 	{
 		return kryo;
 	}
+
+	@Override
+	public final void register(final Class<?> type)
+	{
+		kryo.register(type);
+	}
 }
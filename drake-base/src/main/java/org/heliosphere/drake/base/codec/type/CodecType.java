@@ -14,6 +14,10 @@ package org.heliosphere.drake.base.codec.type;
 /**
  * Enumeration of the available {@code codec} types used to encode and decode
  * data.
+ * <p>
+ * Each value is the name of a built-in
+ * {@link org.heliosphere.drake.base.codec.provider.ICodecProvider}, other
+ * providers can be made available on the class path.
  * <hr>
  * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
  * @version 1.0.0
@@ -28,5 +32,28 @@ public enum CodecType
 	/**
 	 * {@code Kryo} serialization mechanism.
 	 */
-	KRYO;
+	KRYO,
+
+	/**
+	 * {@code Kryo} serialization mechanism using the serializers generated at
+	 * compile time for the data classes annotated with {@code Encodable}
+	 * (falls back to the {@code Kryo} reflective serializers for the other
+	 * classes).
+	 */
+	GENERATED,
+
+	/**
+	 * Compact binary envelope (message identifier, creation time stamp and
+	 * length prefixed content) with the content encoded by the {@code Kryo}
+	 * data codec and decoded on first access.
+	 */
+	ENVELOPE,
+
+	/**
+	 * Codec provider which is not a built-in one (see
+	 * {@link org.heliosphere.drake.base.codec.provider.ICodecProvider#getName()}
+	 * for its name). Cannot be selected by type, custom providers are
+	 * selected by name.
+	 */
+	CUSTOM;
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.codec.type;
+
+/**
+ * Enumeration of the available compression algorithms applied to the encoded
+ * messages.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public enum CompressionType
+{
+	/**
+	 * No compression.
+	 */
+	NONE,
+
+	/**
+	 * {@code Deflate} compression (better ratio, slower).
+	 */
+	DEFLATE,
+
+	/**
+	 * {@code LZ4} compression (lower ratio, much faster).
+	 */
+	LZ4;
+}
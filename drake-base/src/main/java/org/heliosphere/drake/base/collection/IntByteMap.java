@@ -0,0 +1,484 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.collection;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A map of {@code int} keys to {@code byte} values which does not box its
+ * entries.
+ * <p>
+ * Entries are stored in an open addressing table using linear probing, the
+ * key {@code 0} (which marks the free slots) is tracked separately. Removals
+ * shift the following entries back so that no tombstone is left in the
+ * table. Can be used as message content, the codecs encode the keys as a
+ * sorted run of packed deltas followed by the raw run of values.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class IntByteMap implements Serializable
+{
+	/**
+	 * Default serialization identifier.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Default expected number of entries.
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Maximum ratio of used slots before the table grows.
+	 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**
+	 * Table of keys ({@code 0} marks a free slot).
+	 */
+	private transient int[] keys;
+
+	/**
+	 * Table of values.
+	 */
+	private transient byte[] values;
+
+	/**
+	 * Whether the map contains the key {@code 0}.
+	 */
+	private transient boolean hasZero;
+
+	/**
+	 * Value of the key {@code 0}.
+	 */
+	private transient byte zeroValue;
+
+	/**
+	 * Number of entries (including the key {@code 0}).
+	 */
+	private transient int size;
+
+	/**
+	 * Number of used slots above which the table grows.
+	 */
+	private transient int threshold;
+
+	/**
+	 * Creates a new map with the default capacity.
+	 */
+	public IntByteMap()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new map.
+	 * <p>
+	 * @param capacity Expected number of entries.
+	 */
+	@SuppressWarnings("nls")
+	public IntByteMap(final int capacity)
+	{
+		Validate.isTrue(capacity >= 0, "Map capacity cannot be negative!");
+
+		allocate(tableSize(capacity));
+	}
+
+	/**
+	 * Associates a value to a key.
+	 * <p>
+	 * @param key Key.
+	 * @param value Value.
+	 * @return {@code True} if the key was added, {@code false} if the value of
+	 * an existing key was replaced.
+	 */
+	public final boolean put(final int key, final byte value)
+	{
+		if (key == 0)
+		{
+			zeroValue = value;
+			if (hasZero)
+			{
+				return false;
+			}
+			hasZero = true;
+			size++;
+			return true;
+		}
+
+		final int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != 0)
+		{
+			if (keys[slot] == key)
+			{
+				values[slot] = value;
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > threshold)
+		{
+			rehash(keys.length << 1);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the value associated to a key.
+	 * <p>
+	 * @param key Key.
+	 * @param defaultValue Value to return if the map does not contain the key.
+	 * @return Value.
+	 */
+	public final byte get(final int key, final byte defaultValue)
+	{
+		if (key == 0)
+		{
+			return hasZero ? zeroValue : defaultValue;
+		}
+
+		final int slot = find(key);
+
+		return slot < 0 ? defaultValue : values[slot];
+	}
+
+	/**
+	 * Returns if the map contains a key.
+	 * <p>
+	 * @param key Key.
+	 * @return {@code True} if the map contains the key, {@code false}
+	 * otherwise.
+	 */
+	public final boolean containsKey(final int key)
+	{
+		return key == 0 ? hasZero : find(key) >= 0;
+	}
+
+	/**
+	 * Removes a key.
+	 * <p>
+	 * @param key Key.
+	 * @return {@code True} if the key was removed, {@code false} if the map
+	 * did not contain it.
+	 */
+	public final boolean remove(final int key)
+	{
+		if (key == 0)
+		{
+			if (!hasZero)
+			{
+				return false;
+			}
+			hasZero = false;
+			size--;
+			return true;
+		}
+
+		final int slot = find(key);
+		if (slot < 0)
+		{
+			return false;
+		}
+
+		shift(slot);
+		size--;
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * <p>
+	 * @return Number of entries.
+	 */
+	public final int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns if the map is empty.
+	 * <p>
+	 * @return {@code True} if the map is empty, {@code false} otherwise.
+	 */
+	public final boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the entries (the capacity is kept).
+	 */
+	public final void clear()
+	{
+		Arrays.fill(keys, 0);
+		hasZero = false;
+		size = 0;
+	}
+
+	/**
+	 * Returns the keys (in no particular order).
+	 * <p>
+	 * @return Array of keys.
+	 */
+	public final int[] keys()
+	{
+		final int[] result = new int[size];
+
+		int index = 0;
+		if (hasZero)
+		{
+			result[index++] = 0;
+		}
+		for (int key : keys)
+		{
+			if (key != 0)
+			{
+				result[index++] = key;
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public final boolean equals(final Object object)
+	{
+		if (this == object)
+		{
+			return true;
+		}
+		if (!(object instanceof IntByteMap))
+		{
+			return false;
+		}
+
+		final IntByteMap other = (IntByteMap) object;
+		if (size != other.size || hasZero != other.hasZero || (hasZero && zeroValue != other.zeroValue))
+		{
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (keys[i] != 0)
+			{
+				final int slot = other.find(keys[i]);
+				if (slot < 0 || other.values[slot] != values[i])
+				{
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public final int hashCode()
+	{
+		int hash = hasZero ? zeroValue : 0;
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (keys[i] != 0)
+			{
+				hash += keys[i] ^ values[i];
+			}
+		}
+
+		return hash;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		final StringBuilder builder = new StringBuilder("{");
+		for (int key : keys())
+		{
+			if (builder.length() > 1)
+			{
+				builder.append(", ");
+			}
+			builder.append(key).append('=').append(get(key, (byte) 0));
+		}
+
+		return builder.append('}').toString();
+	}
+
+	/**
+	 * Returns the slot of a (non zero) key.
+	 * <p>
+	 * @param key Key.
+	 * @return Slot or {@code -1} if the map does not contain the key.
+	 */
+	private final int find(final int key)
+	{
+		final int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != 0)
+		{
+			if (keys[slot] == key)
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the table slot of a key.
+	 * <p>
+	 * @param key Key.
+	 * @return Hash code spreading the key bits over the low bits.
+	 */
+	private static final int mix(final int key)
+	{
+		final int hash = key * 0x9E3779B9;
+
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Returns the table size (a power of two) for an expected number of
+	 * entries.
+	 * <p>
+	 * @param capacity Expected number of entries.
+	 * @return Table size.
+	 */
+	private static final int tableSize(final int capacity)
+	{
+		final int needed = (int) Math.min(1L << 30, (long) Math.ceil(Math.max(capacity, 2) / LOAD_FACTOR));
+
+		return Integer.highestOneBit(needed - 1) << 1;
+	}
+
+	/**
+	 * Allocates an empty table.
+	 * <p>
+	 * @param length Table size (a power of two).
+	 */
+	private final void allocate(final int length)
+	{
+		keys = new int[length];
+		values = new byte[length];
+		threshold = (int) (length * LOAD_FACTOR);
+	}
+
+	/**
+	 * Grows the table.
+	 * <p>
+	 * @param length New table size (a power of two).
+	 */
+	private final void rehash(final int length)
+	{
+		final int[] previousKeys = keys;
+		final byte[] previousValues = values;
+		allocate(length);
+
+		final int mask = length - 1;
+		for (int i = 0; i < previousKeys.length; i++)
+		{
+			if (previousKeys[i] != 0)
+			{
+				int slot = mix(previousKeys[i]) & mask;
+				while (keys[slot] != 0)
+				{
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = previousKeys[i];
+				values[slot] = previousValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Frees a slot, shifting back the following entries of its probe chain.
+	 * <p>
+	 * @param position Slot to free.
+	 */
+	private final void shift(final int position)
+	{
+		final int mask = keys.length - 1;
+
+		int last = position;
+		int slot = position;
+		while (true)
+		{
+			slot = (slot + 1) & mask;
+			final int key = keys[slot];
+			if (key == 0)
+			{
+				keys[last] = 0;
+				return;
+			}
+
+			// Move the entry back unless its ideal slot lies between the freed slot and its slot.
+			final int ideal = mix(key) & mask;
+			if (last <= slot ? last >= ideal || ideal > slot : last >= ideal && ideal > slot)
+			{
+				keys[last] = key;
+				values[last] = values[slot];
+				last = slot;
+			}
+		}
+	}
+
+	/**
+	 * Writes the entries.
+	 * <p>
+	 * @param stream Object output stream.
+	 * @throws IOException Thrown if the map cannot be written.
+	 */
+	private void writeObject(final ObjectOutputStream stream) throws IOException
+	{
+		stream.defaultWriteObject();
+		stream.writeInt(size);
+		for (int key : keys())
+		{
+			stream.writeInt(key);
+			stream.writeByte(get(key, (byte) 0));
+		}
+	}
+
+	/**
+	 * Reads the entries.
+	 * <p>
+	 * @param stream Object input stream.
+	 * @throws IOException Thrown if the map cannot be read.
+	 * @throws ClassNotFoundException Thrown if a class cannot be found.
+	 */
+	private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException
+	{
+		stream.defaultReadObject();
+
+		final int count = stream.readInt();
+		allocate(tableSize(count));
+		for (int i = 0; i < count; i++)
+		{
+			put(stream.readInt(), stream.readByte());
+		}
+	}
+}
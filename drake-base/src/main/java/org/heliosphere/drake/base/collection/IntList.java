@@ -0,0 +1,356 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.collection;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A growable list of {@code int} values which does not box its elements.
+ * <p>
+ * Can be used as message content, the codecs encode it as a bulk run of
+ * packed values.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class IntList implements Serializable
+{
+	/**
+	 * Default serialization identifier.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Default initial capacity.
+	 */
+	public static final int DEFAULT_CAPACITY = 10;
+
+	/**
+	 * Elements (only the first {@link #size} ones are used).
+	 */
+	private transient int[] elements;
+
+	/**
+	 * Number of elements.
+	 */
+	private transient int size;
+
+	/**
+	 * Creates a new list with the default initial capacity.
+	 */
+	public IntList()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new list.
+	 * <p>
+	 * @param capacity Initial capacity.
+	 */
+	@SuppressWarnings("nls")
+	public IntList(final int capacity)
+	{
+		Validate.isTrue(capacity >= 0, "List capacity cannot be negative!");
+
+		this.elements = new int[capacity];
+	}
+
+	/**
+	 * Creates a new list adopting the given array (which is not copied).
+	 * <p>
+	 * @param elements Elements.
+	 * @param size Number of elements to use from the array.
+	 * @return {@link IntList}.
+	 */
+	@SuppressWarnings("nls")
+	public static final IntList wrap(final int[] elements, final int size)
+	{
+		Validate.notNull(elements, "Elements cannot be null!");
+		Validate.isTrue(size >= 0 && size <= elements.length, "Invalid list size: " + size);
+
+		final IntList list = new IntList(0);
+		list.elements = elements;
+		list.size = size;
+
+		return list;
+	}
+
+	/**
+	 * Appends a value.
+	 * <p>
+	 * @param value Value.
+	 */
+	public final void add(final int value)
+	{
+		if (size == elements.length)
+		{
+			ensureCapacity(size + 1);
+		}
+		elements[size++] = value;
+	}
+
+	/**
+	 * Appends a run of values.
+	 * <p>
+	 * @param values Values.
+	 * @param offset Offset of the first value.
+	 * @param length Number of values.
+	 */
+	public final void addAll(final int[] values, final int offset, final int length)
+	{
+		ensureCapacity(size + length);
+		System.arraycopy(values, offset, elements, size, length);
+		size += length;
+	}
+
+	/**
+	 * Returns the value at the given index.
+	 * <p>
+	 * @param index Index.
+	 * @return Value.
+	 */
+	public final int get(final int index)
+	{
+		checkIndex(index);
+
+		return elements[index];
+	}
+
+	/**
+	 * Replaces the value at the given index.
+	 * <p>
+	 * @param index Index.
+	 * @param value Value.
+	 * @return Previous value.
+	 */
+	public final int set(final int index, final int value)
+	{
+		checkIndex(index);
+
+		final int previous = elements[index];
+		elements[index] = value;
+
+		return previous;
+	}
+
+	/**
+	 * Removes the value at the given index.
+	 * <p>
+	 * @param index Index.
+	 * @return Removed value.
+	 */
+	public final int removeAt(final int index)
+	{
+		checkIndex(index);
+
+		final int previous = elements[index];
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		size--;
+
+		return previous;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of a value.
+	 * <p>
+	 * @param value Value.
+	 * @return Index or {@code -1} if the list does not contain the value.
+	 */
+	public final int indexOf(final int value)
+	{
+		for (int i = 0; i < size; i++)
+		{
+			if (elements[i] == value)
+			{
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns if the list contains a value.
+	 * <p>
+	 * @param value Value.
+	 * @return {@code True} if the list contains the value, {@code false}
+	 * otherwise.
+	 */
+	public final boolean contains(final int value)
+	{
+		return indexOf(value) >= 0;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 * <p>
+	 * @return Number of elements.
+	 */
+	public final int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns if the list is empty.
+	 * <p>
+	 * @return {@code True} if the list is empty, {@code false} otherwise.
+	 */
+	public final boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the elements (the capacity is kept).
+	 */
+	public final void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Ensures the list can hold the given number of elements without growing.
+	 * <p>
+	 * @param capacity Minimum capacity.
+	 */
+	public final void ensureCapacity(final int capacity)
+	{
+		if (capacity > elements.length)
+		{
+			elements = Arrays.copyOf(elements, Math.max(capacity, elements.length + (elements.length >> 1) + 1));
+		}
+	}
+
+	/**
+	 * Returns the backing array. Only the first {@link #size()} elements are
+	 * used and the array is replaced when the list grows, it must therefore
+	 * only be read and not be kept.
+	 * <p>
+	 * @return Backing array.
+	 */
+	public final int[] getBuffer()
+	{
+		return elements;
+	}
+
+	/**
+	 * Returns a copy of the elements.
+	 * <p>
+	 * @return Array of elements.
+	 */
+	public final int[] toArray()
+	{
+		return Arrays.copyOf(elements, size);
+	}
+
+	@Override
+	public final boolean equals(final Object object)
+	{
+		if (this == object)
+		{
+			return true;
+		}
+		if (!(object instanceof IntList))
+		{
+			return false;
+		}
+
+		final IntList other = (IntList) object;
+		if (size != other.size)
+		{
+			return false;
+		}
+		for (int i = 0; i < size; i++)
+		{
+			if (elements[i] != other.elements[i])
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public final int hashCode()
+	{
+		int hash = 1;
+		for (int i = 0; i < size; i++)
+		{
+			hash = 31 * hash + elements[i];
+		}
+
+		return hash;
+	}
+
+	@Override
+	public final String toString()
+	{
+		return Arrays.toString(toArray());
+	}
+
+	/**
+	 * Checks an index.
+	 * <p>
+	 * @param index Index.
+	 */
+	@SuppressWarnings("nls")
+	private final void checkIndex(final int index)
+	{
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+	}
+
+	/**
+	 * Writes the used elements only.
+	 * <p>
+	 * @param stream Object output stream.
+	 * @throws IOException Thrown if the list cannot be written.
+	 */
+	private void writeObject(final ObjectOutputStream stream) throws IOException
+	{
+		stream.defaultWriteObject();
+		stream.writeInt(size);
+		for (int i = 0; i < size; i++)
+		{
+			stream.writeInt(elements[i]);
+		}
+	}
+
+	/**
+	 * Reads the elements.
+	 * <p>
+	 * @param stream Object input stream.
+	 * @throws IOException Thrown if the list cannot be read.
+	 * @throws ClassNotFoundException Thrown if a class cannot be found.
+	 */
+	private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException
+	{
+		stream.defaultReadObject();
+		size = stream.readInt();
+		elements = new int[size];
+		for (int i = 0; i < size; i++)
+		{
+			elements[i] = stream.readInt();
+		}
+	}
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.collection;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A set of {@code long} values which does not box its elements.
+ * <p>
+ * Values are stored in an open addressing table using linear probing, the
+ * value {@code 0} (which marks the free slots) is tracked separately.
+ * Removals shift the following entries back so that no tombstone is left
+ * in the table. Can be used as message content, the codecs encode it as a
+ * sorted run of packed deltas.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class LongSet implements Serializable
+{
+	/**
+	 * Default serialization identifier.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Default expected number of elements.
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Maximum ratio of used slots before the table grows.
+	 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**
+	 * Table of values ({@code 0} marks a free slot).
+	 */
+	private transient long[] keys;
+
+	/**
+	 * Whether the set contains the value {@code 0}.
+	 */
+	private transient boolean hasZero;
+
+	/**
+	 * Number of elements (including {@code 0}).
+	 */
+	private transient int size;
+
+	/**
+	 * Number of used slots above which the table grows.
+	 */
+	private transient int threshold;
+
+	/**
+	 * Creates a new set with the default capacity.
+	 */
+	public LongSet()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new set.
+	 * <p>
+	 * @param capacity Expected number of elements.
+	 */
+	@SuppressWarnings("nls")
+	public LongSet(final int capacity)
+	{
+		Validate.isTrue(capacity >= 0, "Set capacity cannot be negative!");
+
+		allocate(tableSize(capacity));
+	}
+
+	/**
+	 * Adds a value.
+	 * <p>
+	 * @param value Value.
+	 * @return {@code True} if the value was added, {@code false} if the set
+	 * already contained it.
+	 */
+	public final boolean add(final long value)
+	{
+		if (value == 0)
+		{
+			if (hasZero)
+			{
+				return false;
+			}
+			hasZero = true;
+			size++;
+			return true;
+		}
+
+		final int mask = keys.length - 1;
+		int slot = mix(value) & mask;
+		while (keys[slot] != 0)
+		{
+			if (keys[slot] == value)
+			{
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = value;
+		if (++size > threshold)
+		{
+			rehash(keys.length << 1);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns if the set contains a value.
+	 * <p>
+	 * @param value Value.
+	 * @return {@code True} if the set contains the value, {@code false}
+	 * otherwise.
+	 */
+	public final boolean contains(final long value)
+	{
+		if (value == 0)
+		{
+			return hasZero;
+		}
+
+		final int mask = keys.length - 1;
+		int slot = mix(value) & mask;
+		while (keys[slot] != 0)
+		{
+			if (keys[slot] == value)
+			{
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Removes a value.
+	 * <p>
+	 * @param value Value.
+	 * @return {@code True} if the value was removed, {@code false} if the set
+	 * did not contain it.
+	 */
+	public final boolean remove(final long value)
+	{
+		if (value == 0)
+		{
+			if (!hasZero)
+			{
+				return false;
+			}
+			hasZero = false;
+			size--;
+			return true;
+		}
+
+		final int mask = keys.length - 1;
+		int slot = mix(value) & mask;
+		while (keys[slot] != 0)
+		{
+			if (keys[slot] == value)
+			{
+				shift(slot);
+				size--;
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 * <p>
+	 * @return Number of elements.
+	 */
+	public final int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns if the set is empty.
+	 * <p>
+	 * @return {@code True} if the set is empty, {@code false} otherwise.
+	 */
+	public final boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the elements (the capacity is kept).
+	 */
+	public final void clear()
+	{
+		Arrays.fill(keys, 0);
+		hasZero = false;
+		size = 0;
+	}
+
+	/**
+	 * Returns the elements (in no particular order).
+	 * <p>
+	 * @return Array of elements.
+	 */
+	public final long[] toArray()
+	{
+		final long[] values = new long[size];
+
+		int index = 0;
+		if (hasZero)
+		{
+			values[index++] = 0;
+		}
+		for (long key : keys)
+		{
+			if (key != 0)
+			{
+				values[index++] = key;
+			}
+		}
+
+		return values;
+	}
+
+	@Override
+	public final boolean equals(final Object object)
+	{
+		if (this == object)
+		{
+			return true;
+		}
+		if (!(object instanceof LongSet))
+		{
+			return false;
+		}
+
+		final LongSet other = (LongSet) object;
+		if (size != other.size || hasZero != other.hasZero)
+		{
+			return false;
+		}
+		for (long key : keys)
+		{
+			if (key != 0 && !other.contains(key))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public final int hashCode()
+	{
+		int hash = 0;
+		for (long key : keys)
+		{
+			hash += (int) (key ^ (key >>> 32));
+		}
+
+		return hash;
+	}
+
+	@Override
+	public final String toString()
+	{
+		return Arrays.toString(toArray());
+	}
+
+	/**
+	 * Returns the table slot of a value.
+	 * <p>
+	 * @param value Value.
+	 * @return Hash code spreading the value bits over the low bits.
+	 */
+	private static final int mix(final long value)
+	{
+		final long hash = value * 0x9E3779B97F4A7C15L;
+
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * Returns the table size (a power of two) for an expected number of
+	 * elements.
+	 * <p>
+	 * @param capacity Expected number of elements.
+	 * @return Table size.
+	 */
+	private static final int tableSize(final int capacity)
+	{
+		final int needed = (int) Math.min(1L << 30, (long) Math.ceil(Math.max(capacity, 2) / LOAD_FACTOR));
+
+		return Integer.highestOneBit(needed - 1) << 1;
+	}
+
+	/**
+	 * Allocates an empty table.
+	 * <p>
+	 * @param length Table size (a power of two).
+	 */
+	private final void allocate(final int length)
+	{
+		keys = new long[length];
+		threshold = (int) (length * LOAD_FACTOR);
+	}
+
+	/**
+	 * Grows the table.
+	 * <p>
+	 * @param length New table size (a power of two).
+	 */
+	private final void rehash(final int length)
+	{
+		final long[] previous = keys;
+		allocate(length);
+
+		final int mask = length - 1;
+		for (long key : previous)
+		{
+			if (key != 0)
+			{
+				int slot = mix(key) & mask;
+				while (keys[slot] != 0)
+				{
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+			}
+		}
+	}
+
+	/**
+	 * Frees a slot, shifting back the following entries of its probe chain.
+	 * <p>
+	 * @param position Slot to free.
+	 */
+	private final void shift(final int position)
+	{
+		final int mask = keys.length - 1;
+
+		int last = position;
+		int slot = position;
+		while (true)
+		{
+			slot = (slot + 1) & mask;
+			final long key = keys[slot];
+			if (key == 0)
+			{
+				keys[last] = 0;
+				return;
+			}
+
+			// Move the entry back unless its ideal slot lies between the freed slot and its slot.
+			final int ideal = mix(key) & mask;
+			if (last <= slot ? last >= ideal || ideal > slot : last >= ideal && ideal > slot)
+			{
+				keys[last] = key;
+				last = slot;
+			}
+		}
+	}
+
+	/**
+	 * Writes the elements.
+	 * <p>
+	 * @param stream Object output stream.
+	 * @throws IOException Thrown if the set cannot be written.
+	 */
+	private void writeObject(final ObjectOutputStream stream) throws IOException
+	{
+		stream.defaultWriteObject();
+		stream.writeInt(size);
+		for (long value : toArray())
+		{
+			stream.writeLong(value);
+		}
+	}
+
+	/**
+	 * Reads the elements.
+	 * <p>
+	 * @param stream Object input stream.
+	 * @throws IOException Thrown if the set cannot be read.
+	 * @throws ClassNotFoundException Thrown if a class cannot be found.
+	 */
+	private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException
+	{
+		stream.defaultReadObject();
+
+		final int count = stream.readInt();
+		allocate(tableSize(count));
+		for (int i = 0; i < count; i++)
+		{
+			add(stream.readLong());
+		}
+	}
+}
@@ -11,6 +11,8 @@
  */
 package org.heliosphere.drake.base.message;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -18,8 +20,11 @@ import java.nio.charset.Charset;
 import lombok.EqualsAndHashCode;
 
 import org.apache.log4j.Logger;
+import org.heliosphere.drake.base.codec.DataDecodingException;
+import org.heliosphere.drake.base.codec.ICodec;
 import org.heliosphere.drake.base.exception.NotImplementedException;
 import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.factory.IResettable;
 import org.heliosphere.drake.base.message.manager.IMessageManager;
 import org.heliosphere.drake.base.message.manager.MessageManagerException;
 import org.heliosphere.drake.base.message.type.IMessageType;
@@ -60,6 +65,17 @@ public abstract class AbstractMessage implements IMessage
 	 */
 	protected Object content = null;
 
+	/**
+	 * Encoded form of the content not yet decoded (when the message has been
+	 * decoded from an envelope).
+	 */
+	private transient ByteBuffer encodedContent = null;
+
+	/**
+	 * Codec used to decode the encoded content.
+	 */
+	private transient ICodec contentCodec = null;
+
 	/**
 	 * Message type (its definition).
 	 */
@@ -70,6 +86,11 @@ public abstract class AbstractMessage implements IMessage
 	 */
 	private long creationTime = 0L;
 
+	/**
+	 * Correlation identifier ({@code 0} if the message is not correlated).
+	 */
+	private long correlationId = 0L;
+
 	/**
 	 * Default immutable charset for encoding/decoding strings in message
 	 * header.
@@ -81,7 +102,7 @@ public abstract class AbstractMessage implements IMessage
 	 * Default charset for encoding/decoding strings in message content.
 	 */
 	@SuppressWarnings("nls")
-	private transient Charset contentCharset = Charset.forName("UTF-16LE");
+	private transient Charset contentCharset = Charset.forName("UTF-8");
 
 	/**
 	 * Creates a new message.
@@ -118,7 +139,6 @@ public abstract class AbstractMessage implements IMessage
 	public AbstractMessage(final int messageId) throws MessageException, MessageManagerException
 	{
 		this(((IMessageManager) Manager.getManager(IMessageManager.class)).getMessage(messageId));
-		initializeMessageData();
 	}
 
 	/**
@@ -345,6 +365,18 @@ public abstract class AbstractMessage implements IMessage
 		return array;
 	}
 
+	@Override
+	public final long getCorrelationId()
+	{
+		return correlationId;
+	}
+
+	@Override
+	public final void setCorrelationId(final long correlationId)
+	{
+		this.correlationId = correlationId;
+	}
+
 	@Override
 	public final Charset getContentCharset()
 	{
@@ -365,12 +397,121 @@ public abstract class AbstractMessage implements IMessage
 		contentCharset = charset;
 	}
 
+	@SuppressWarnings("nls")
 	@Override
 	public Object getContent()
 	{
+		if (encodedContent != null)
+		{
+			try
+			{
+				content = contentCodec.decodeData(encodedContent.duplicate());
+			}
+			catch (final DataDecodingException e)
+			{
+				throw new IllegalStateException("Cannot decode content of message: " + type + " due to: " + e.getMessage(), e);
+			}
+
+			encodedContent = null;
+			contentCodec = null;
+		}
+
 		return content;
 	}
 
+	/**
+	 * Sets the encoded form of the content. The content will only be decoded
+	 * (and the data object instantiated) on the first call to
+	 * {@link #getContent()}.
+	 * <p>
+	 * @param encoded {@link ByteBuffer} containing exclusively the encoded form
+	 * of the content. The buffer must not be modified afterwards.
+	 * @param codec {@link ICodec} used to decode the content.
+	 */
+	public final void setEncodedContent(final ByteBuffer encoded, final ICodec codec)
+	{
+		encodedContent = encoded;
+		contentCodec = codec;
+		content = null;
+	}
+
+	/**
+	 * Returns the encoded form of the content if the content has not yet been
+	 * decoded and has been encoded by the given codec, so it can be written
+	 * again as is.
+	 * <p>
+	 * @param codec {@link ICodec} the content is about to be encoded with.
+	 * @return Read-only {@link ByteBuffer} containing the encoded form of the
+	 * content or {@code null} if the content is already decoded or has been
+	 * encoded by another codec.
+	 */
+	public final ByteBuffer getEncodedContent(final ICodec codec)
+	{
+		final ByteBuffer encoded = encodedContent;
+
+		return encoded == null || contentCodec != codec ? null : encoded.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns if the content is still in its encoded form (it has not been
+	 * accessed since the message was decoded).
+	 * <p>
+	 * @return {@code True} if the content has not yet been decoded.
+	 */
+	public final boolean isContentEncoded()
+	{
+		return encodedContent != null;
+	}
+
+	/**
+	 * Sets the message type and creation time stamp of a message decoded from
+	 * an envelope.
+	 * <p>
+	 * @param messageType Message type.
+	 * @param timeStamp Message creation time expressed in milliseconds.
+	 */
+	public final void setHeader(final Enum<? extends IMessageType> messageType, final long timeStamp)
+	{
+		type = messageType;
+		creationTime = timeStamp;
+	}
+
+	/**
+	 * Resets the message before it is given back to a pool. A content
+	 * implementing {@link IResettable} is reset and kept, any other content is
+	 * dropped.
+	 */
+	public final void reset()
+	{
+		buffer = null;
+		encodedContent = null;
+		contentCodec = null;
+		contentCharset = headerCharset;
+		correlationId = 0L;
+
+		if (content instanceof IResettable)
+		{
+			((IResettable) content).reset();
+		}
+		else
+		{
+			content = null;
+		}
+	}
+
+	/**
+	 * Decodes the content (if not yet decoded) before the message is written
+	 * using the standard Java serialization.
+	 * <p>
+	 * @param stream Output stream.
+	 * @throws IOException Thrown if an error occurs while writing the message.
+	 */
+	private void writeObject(final ObjectOutputStream stream) throws IOException
+	{
+		getContent();
+		stream.defaultWriteObject();
+	}
+
 	@Override
 	public IEntity getSender() throws NotImplementedException
 	{
@@ -93,4 +93,21 @@ public interface IMessage extends Serializable
 	 * @param charset {@link Charset} used for string encoding/decoding.
 	 */
 	public void setContentCharset(final Charset charset);
+
+	/**
+	 * Returns the correlation identifier of the message. A request carries a
+	 * positive identifier, the response to a request carries the negated
+	 * identifier of the request and an uncorrelated message carries {@code 0}.
+	 * <p>
+	 * @return Correlation identifier.
+	 */
+	public long getCorrelationId();
+
+	/**
+	 * Sets the correlation identifier of the message.
+	 * <p>
+	 * @param correlationId Correlation identifier (see
+	 * {@link #getCorrelationId()}).
+	 */
+	public void setCorrelationId(final long correlationId);
 }
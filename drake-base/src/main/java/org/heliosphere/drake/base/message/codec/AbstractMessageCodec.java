@@ -0,0 +1,119 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
+import org.heliosphere.drake.base.message.IMessage;
+
+/**
+ * Base class for message codecs not able to encode a message directly into a
+ * target buffer. Encoding into a target (or pooled) buffer is done by encoding
+ * the message and then copying the encoded form into the target buffer.
+ * Encoding several messages is done by encoding each message and then copying
+ * the encoded forms as frames into a single buffer.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public abstract class AbstractMessageCodec implements IMessageCodec
+{
+	@SuppressWarnings("nls")
+	@Override
+	public int encodeMessage(final IMessage message, final ByteBuffer target) throws MessageEncodingException
+	{
+		final ByteBuffer encoded = encodeMessage(message);
+		final int length = encoded.remaining();
+
+		if (length > target.remaining())
+		{
+			throw new MessageEncodingException("Cannot encode message due to: target buffer too small [required=" + length + ", remaining=" + target.remaining() + "]");
+		}
+
+		target.put(encoded);
+
+		return length;
+	}
+
+	@Override
+	public PooledBuffer encodeMessage(final IMessage message, final BufferArena arena) throws MessageEncodingException
+	{
+		final ByteBuffer encoded = encodeMessage(message);
+		final PooledBuffer buffer = arena.allocate(encoded.remaining());
+
+		buffer.getBuffer().put(encoded).flip();
+
+		return buffer;
+	}
+
+	@Override
+	public ByteBuffer encodeMessages(final List<IMessage> messages) throws MessageEncodingException
+	{
+		final ByteBuffer[] encoded = new ByteBuffer[messages.size()];
+		final ByteBuffer buffer = ByteBuffer.allocate(encodeAll(messages, encoded));
+
+		writeFrames(buffer, encoded);
+		buffer.flip();
+
+		return buffer;
+	}
+
+	@Override
+	public PooledBuffer encodeMessages(final List<IMessage> messages, final BufferArena arena) throws MessageEncodingException
+	{
+		final ByteBuffer[] encoded = new ByteBuffer[messages.size()];
+		final PooledBuffer buffer = arena.allocate(encodeAll(messages, encoded));
+
+		writeFrames(buffer.getBuffer(), encoded);
+		buffer.getBuffer().flip();
+
+		return buffer;
+	}
+
+	/**
+	 * Encodes each message of a list.
+	 * <p>
+	 * @param messages List of {@link IMessage} to encode.
+	 * @param encoded Array receiving the encoded form of each message.
+	 * @return Total length of the frames.
+	 * @throws MessageEncodingException Thrown if an error occurs while trying
+	 * to encode one of the messages.
+	 */
+	private final int encodeAll(final List<IMessage> messages, final ByteBuffer[] encoded) throws MessageEncodingException
+	{
+		int length = 0;
+		for (int i = 0; i < encoded.length; i++)
+		{
+			encoded[i] = encodeMessage(messages.get(i));
+			length += MessageFrame.getLength(encoded[i].remaining());
+		}
+
+		return length;
+	}
+
+	/**
+	 * Writes the encoded messages as frames.
+	 * <p>
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param encoded Encoded form of the messages.
+	 */
+	private static final void writeFrames(final ByteBuffer target, final ByteBuffer[] encoded)
+	{
+		for (ByteBuffer message : encoded)
+		{
+			MessageFrame.write(target, message);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,333 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.codec.io.VarInt;
+
+/**
+ * Reassembles the encoded messages split into chunk frames by a
+ * {@link MessageChunker}.
+ * <p>
+ * The buffer of a message is allocated with its exact length when its first
+ * chunk is received and filled as the following chunks are received. The total
+ * length of the messages being reassembled is bounded: a chunk that would
+ * exceed the bound is rejected along with its stream. Chunks of several
+ * streams can be interleaved, the chunks of a stream must be received in
+ * order. A stream not receiving any chunk within the stream timeout is
+ * discarded (checked when a chunk is added), so a stream which never
+ * completes does not hold its share of the bound for the life of the
+ * session.
+ * <p>
+ * An assembler is not thread-safe and is usually owned by a
+ * {@link FrameDecoder}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class ChunkAssembler
+{
+	/**
+	 * Default time after which a stream not receiving any chunk is discarded
+	 * (in milliseconds).
+	 */
+	public static final long DEFAULT_STREAM_TIMEOUT = 30 * 1000;
+
+	/**
+	 * Maximum total length of the messages being reassembled.
+	 */
+	private final int maxPendingLength;
+
+	/**
+	 * Time after which a stream not receiving any chunk is discarded (in
+	 * nanoseconds).
+	 */
+	private final long streamTimeout;
+
+	/**
+	 * Messages being reassembled (by stream identifier).
+	 */
+	private final Map<Integer, Stream> streams = new HashMap<>();
+
+	/**
+	 * Total length of the messages being reassembled.
+	 */
+	private int pendingLength = 0;
+
+	/**
+	 * Messages being reassembled when the state has been marked (see
+	 * {@link #mark()}) or {@code null} if not marked.
+	 */
+	private Map<Integer, Stream> markedStreams = null;
+
+	/**
+	 * Total length of the messages being reassembled when the state has been
+	 * marked.
+	 */
+	private int markedPendingLength = 0;
+
+	/**
+	 * Creates a new chunk assembler.
+	 * <p>
+	 * @param maxPendingLength Maximum total length of the messages being
+	 * reassembled.
+	 */
+	public ChunkAssembler(final int maxPendingLength)
+	{
+		this(maxPendingLength, DEFAULT_STREAM_TIMEOUT);
+	}
+
+	/**
+	 * Creates a new chunk assembler.
+	 * <p>
+	 * @param maxPendingLength Maximum total length of the messages being
+	 * reassembled.
+	 * @param streamTimeout Time after which a stream not receiving any chunk
+	 * is discarded (in milliseconds).
+	 */
+	@SuppressWarnings("nls")
+	public ChunkAssembler(final int maxPendingLength, final long streamTimeout)
+	{
+		Validate.isTrue(maxPendingLength > 0, "Maximum pending length must be greater than zero!");
+		Validate.isTrue(streamTimeout > 0, "Stream timeout must be greater than zero!");
+
+		this.maxPendingLength = maxPendingLength;
+		this.streamTimeout = TimeUnit.MILLISECONDS.toNanos(streamTimeout);
+	}
+
+	/**
+	 * Adds a chunk record (see {@link MessageFrame}).
+	 * <p>
+	 * @param record {@link ByteBuffer} containing the chunk record between its
+	 * position and its limit. Its position is advanced to its limit.
+	 * @return {@link ByteBuffer} containing the reassembled encoded message if
+	 * the chunk is the last one of its stream, {@code null} otherwise.
+	 * @throws MessageDecodingException Thrown if the chunk is malformed, out
+	 * of sequence or exceeds the reassembly bound (the stream is discarded).
+	 */
+	@SuppressWarnings("nls")
+	public final ByteBuffer add(final ByteBuffer record) throws MessageDecodingException
+	{
+		final int streamId;
+		final int index;
+		final int total;
+		try
+		{
+			streamId = VarInt.readInt(record);
+			index = VarInt.readInt(record);
+			total = VarInt.readInt(record);
+		}
+		catch (final IllegalArgumentException e)
+		{
+			record.position(record.limit());
+			throw new MessageDecodingException("Cannot decode chunk due to: " + e.getMessage());
+		}
+
+		final long now = System.nanoTime();
+		expire(now);
+
+		final Integer key = Integer.valueOf(streamId);
+		Stream stream = streams.get(key);
+
+		try
+		{
+			if (stream == null)
+			{
+				if (index != 0)
+				{
+					throw new MessageDecodingException("Cannot decode chunk due to: missing first chunk [stream=" + streamId + ", index=" + index + "]");
+				}
+				if (total <= 0 || total > maxPendingLength - pendingLength)
+				{
+					throw new MessageDecodingException("Cannot decode chunk due to: reassembly bound exceeded [stream=" + streamId + ", length=" + total + ", pending=" + pendingLength + ", max=" + maxPendingLength + "]");
+				}
+
+				stream = new Stream(total);
+				streams.put(key, stream);
+				pendingLength += total;
+			}
+			else if (index != stream.next || total != stream.data.length)
+			{
+				discard(key);
+				throw new MessageDecodingException("Cannot decode chunk due to: chunk out of sequence [stream=" + streamId + ", expected.index=" + stream.next + ", index=" + index + "]");
+			}
+
+			if (record.remaining() > stream.data.length - stream.length)
+			{
+				discard(key);
+				throw new MessageDecodingException("Cannot decode chunk due to: chunk exceeds message length [stream=" + streamId + ", index=" + index + "]");
+			}
+
+			final int length = record.remaining();
+			record.get(stream.data, stream.length, length);
+			stream.length += length;
+			stream.next++;
+			stream.updated = now;
+
+			if (stream.length < stream.data.length)
+			{
+				return null;
+			}
+
+			discard(key);
+
+			return ByteBuffer.wrap(stream.data);
+		}
+		finally
+		{
+			record.position(record.limit());
+		}
+	}
+
+	/**
+	 * Returns the total length of the messages being reassembled.
+	 * <p>
+	 * @return Length in bytes.
+	 */
+	public final int getPendingLength()
+	{
+		return pendingLength;
+	}
+
+	/**
+	 * Discards all the messages being reassembled.
+	 */
+	public final void reset()
+	{
+		streams.clear();
+		pendingLength = 0;
+		markedStreams = null;
+	}
+
+	/**
+	 * Saves the state of the messages being reassembled so that it can be
+	 * restored by {@link #rollback()}. The bytes already received are not
+	 * copied: the chunks added after the mark only write beyond them.
+	 */
+	public final void mark()
+	{
+		markedStreams = new HashMap<>(streams);
+		markedPendingLength = pendingLength;
+		for (Stream stream : streams.values())
+		{
+			stream.markedLength = stream.length;
+			stream.markedNext = stream.next;
+		}
+	}
+
+	/**
+	 * Restores the state saved by the last {@link #mark()}. The chunks added
+	 * since the mark are forgotten, so they can be added again.
+	 */
+	public final void rollback()
+	{
+		if (markedStreams == null)
+		{
+			return;
+		}
+
+		streams.clear();
+		streams.putAll(markedStreams);
+		pendingLength = markedPendingLength;
+		for (Stream stream : streams.values())
+		{
+			stream.length = stream.markedLength;
+			stream.next = stream.markedNext;
+		}
+	}
+
+	/**
+	 * Discards the streams which did not receive any chunk within the stream
+	 * timeout.
+	 * <p>
+	 * @param now Current time (in nanoseconds).
+	 */
+	private final void expire(final long now)
+	{
+		final Iterator<Stream> iterator = streams.values().iterator();
+		while (iterator.hasNext())
+		{
+			final Stream stream = iterator.next();
+			if (now - stream.updated > streamTimeout)
+			{
+				iterator.remove();
+				pendingLength -= stream.data.length;
+			}
+		}
+	}
+
+	/**
+	 * Discards a stream.
+	 * <p>
+	 * @param key Stream identifier.
+	 */
+	private final void discard(final Integer key)
+	{
+		final Stream stream = streams.remove(key);
+		if (stream != null)
+		{
+			pendingLength -= stream.data.length;
+		}
+	}
+
+	/**
+	 * Message being reassembled.
+	 */
+	private static final class Stream
+	{
+		/**
+		 * Encoded message.
+		 */
+		final byte[] data;
+
+		/**
+		 * Number of bytes received.
+		 */
+		int length = 0;
+
+		/**
+		 * Index of the next expected chunk.
+		 */
+		int next = 0;
+
+		/**
+		 * Time at which the last chunk has been received (in nanoseconds).
+		 */
+		long updated = System.nanoTime();
+
+		/**
+		 * Number of bytes received when the state has been marked.
+		 */
+		int markedLength = 0;
+
+		/**
+		 * Index of the next expected chunk when the state has been marked.
+		 */
+		int markedNext = 0;
+
+		/**
+		 * Creates a new stream.
+		 * <p>
+		 * @param total Length of the encoded message.
+		 */
+		Stream(final int total)
+		{
+			this.data = new byte[total];
+		}
+	}
+}
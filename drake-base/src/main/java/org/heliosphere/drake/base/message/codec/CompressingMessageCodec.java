@@ -0,0 +1,258 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.codec.DataDecodingException;
+import org.heliosphere.drake.base.codec.compression.CompressionStatistics;
+import org.heliosphere.drake.base.codec.compression.ICompressor;
+import org.heliosphere.drake.base.codec.io.VarInt;
+import org.heliosphere.drake.base.message.IMessage;
+
+/**
+ * A message codec adding a compression stage to another message codec.
+ * <p>
+ * Each encoded message is prefixed by a flags byte which lowest bit tells if
+ * the message is compressed. Messages whose encoded form is smaller than the
+ * threshold (or which do not shrink) are written untouched after the flags
+ * byte. Compressed messages are written as:<br>
+ * <ul>
+ * <li>Flags (byte)</li>
+ * <li>Length of the encoded message (variable length integer)</li>
+ * <li>Length of the compressed message (variable length integer)</li>
+ * <li>Compressed message</li>
+ * </ul>
+ * <p>
+ * The codec is thread-safe if the wrapped codec and the compressor are. Its
+ * {@link CompressionStatistics} count the bytes before and after
+ * compression, so one instance is usually created for each session.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class CompressingMessageCodec extends AbstractMessageCodec
+{
+	/**
+	 * Default minimum length of an encoded message to be compressed.
+	 */
+	public static final int DEFAULT_THRESHOLD = 512;
+
+	/**
+	 * Flag set when the message is compressed.
+	 */
+	public static final byte FLAG_COMPRESSED = 0x01;
+
+	/**
+	 * Maximum length of a decompressed message (protects against corrupted
+	 * or malicious length prefixes).
+	 */
+	private static final int MAX_LENGTH = FrameDecoder.DEFAULT_MAX_FRAME_LENGTH;
+
+	/**
+	 * Wrapped message codec.
+	 */
+	private final IMessageCodec codec;
+
+	/**
+	 * Compressor.
+	 */
+	private final ICompressor compressor;
+
+	/**
+	 * Minimum length of an encoded message to be compressed.
+	 */
+	private final int threshold;
+
+	/**
+	 * Compression statistics.
+	 */
+	private final CompressionStatistics statistics = new CompressionStatistics();
+
+	/**
+	 * Creates a new compressing message codec.
+	 * <p>
+	 * @param codec {@link IMessageCodec} to wrap.
+	 * @param compressor {@link ICompressor} to use.
+	 * @param threshold Minimum length of an encoded message to be compressed.
+	 */
+	@SuppressWarnings("nls")
+	public CompressingMessageCodec(final IMessageCodec codec, final ICompressor compressor, final int threshold)
+	{
+		Validate.notNull(codec, "Message codec cannot be null!");
+		Validate.notNull(compressor, "Compressor cannot be null!");
+		Validate.isTrue(threshold >= 0, "Compression threshold cannot be negative!");
+
+		this.codec = codec;
+		this.compressor = compressor;
+		this.threshold = threshold;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final IMessage decodeMessage(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		final int start = encoded.position();
+
+		try
+		{
+			final byte flags = encoded.get();
+			if ((flags & FLAG_COMPRESSED) == 0)
+			{
+				final IMessage message = codec.decodeMessage(encoded);
+				final int length = encoded.position() - start;
+				statistics.recordDecoded(length, length - 1);
+
+				return message;
+			}
+
+			final int length = VarInt.readInt(encoded);
+			final int compressedLength = VarInt.readInt(encoded);
+			if (length < 0 || length > MAX_LENGTH || compressedLength < 0 || compressedLength > encoded.remaining())
+			{
+				throw new MessageDecodingException("Cannot decode message due to: invalid compressed message lengths [length=" + length + ", compressed=" + compressedLength + ", remaining=" + encoded.remaining() + "]");
+			}
+
+			final byte[] source;
+			final int offset;
+			if (encoded.hasArray())
+			{
+				source = encoded.array();
+				offset = encoded.arrayOffset() + encoded.position();
+			}
+			else
+			{
+				source = new byte[compressedLength];
+				offset = 0;
+				encoded.duplicate().get(source);
+			}
+
+			final byte[] target = new byte[length];
+			compressor.decompress(source, offset, compressedLength, target, 0, length);
+			encoded.position(encoded.position() + compressedLength);
+
+			statistics.recordDecoded(encoded.position() - start, length);
+
+			return codec.decodeMessage(ByteBuffer.wrap(target));
+		}
+		catch (final MessageDecodingException e)
+		{
+			encoded.position(start);
+			throw e;
+		}
+		catch (final DataDecodingException e)
+		{
+			encoded.position(start);
+			throw new MessageDecodingException(e.getMessage(), e);
+		}
+		catch (final RuntimeException e)
+		{
+			log.error(e);
+			encoded.position(start);
+			throw new MessageDecodingException("Cannot decode message due to: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public final ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	{
+		final ByteBuffer encoded = codec.encodeMessage(message);
+		final int length = encoded.remaining();
+
+		if (length >= threshold)
+		{
+			final ByteBuffer compressed = compress(encoded);
+			if (compressed != null)
+			{
+				statistics.recordEncoded(length, compressed.remaining(), true);
+
+				return compressed;
+			}
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(1 + length);
+		buffer.put((byte) 0);
+		buffer.put(encoded);
+		buffer.flip();
+
+		statistics.recordEncoded(length, buffer.remaining(), false);
+
+		return buffer;
+	}
+
+	/**
+	 * Compresses an encoded message.
+	 * <p>
+	 * @param encoded {@link ByteBuffer} containing the encoded message.
+	 * @return {@link ByteBuffer} containing the compressed message (flags and
+	 * lengths included) or {@code null} if the compressed form is not smaller
+	 * than the encoded form.
+	 */
+	private final ByteBuffer compress(final ByteBuffer encoded)
+	{
+		final int length = encoded.remaining();
+
+		final byte[] source;
+		final int offset;
+		if (encoded.hasArray())
+		{
+			source = encoded.array();
+			offset = encoded.arrayOffset() + encoded.position();
+		}
+		else
+		{
+			source = new byte[length];
+			offset = 0;
+			encoded.duplicate().get(source);
+		}
+
+		// Compress directly after the largest possible header.
+		final int header = 1 + VarInt.MAX_INT_SIZE * 2;
+		final byte[] target = new byte[header + compressor.getMaxCompressedLength(length)];
+		final int compressedLength = compressor.compress(source, offset, length, target, header);
+		if (compressedLength < 0)
+		{
+			return null;
+		}
+
+		final int used = 1 + VarInt.sizeOf(length) + VarInt.sizeOf(compressedLength);
+		if (used + compressedLength >= 1 + length)
+		{
+			return null;
+		}
+
+		// Write the actual header just before the compressed data.
+		final ByteBuffer buffer = ByteBuffer.wrap(target);
+		buffer.position(header - used);
+		buffer.put(FLAG_COMPRESSED);
+		VarInt.writeInt(buffer, length);
+		VarInt.writeInt(buffer, compressedLength);
+		buffer.position(header - used);
+		buffer.limit(header + compressedLength);
+
+		return buffer.slice();
+	}
+
+	/**
+	 * Returns the compression statistics of this codec.
+	 * <p>
+	 * @return {@link CompressionStatistics}.
+	 */
+	public final CompressionStatistics getStatistics()
+	{
+		return statistics;
+	}
+}
@@ -0,0 +1,657 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.codec.io.VarInt;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+/**
+ * A message codec sending only the differences between a message and a
+ * previous message of the same type on the same session.
+ * <p>
+ * For each delta encoded message type, the sender numbers the encoded forms
+ * (as produced by the wrapped codec) and the receiver acknowledges each
+ * encoded form it decodes. A message is sent either as a snapshot (full
+ * encoded form) or as a delta: the list of the byte ranges that changed since
+ * the base, the last encoded form acknowledged by the receiver. As the base
+ * is always a message the receiver has decoded and is named by the delta,
+ * messages can be lost (such as the messages of an aborted transaction) or
+ * received in another order than the one they have been encoded in (such as
+ * the messages of transactions committing in another order). A snapshot is
+ * sent when no base is acknowledged yet, when the length of the encoded form
+ * changed, when the delta would not be smaller, when the base is
+ * {@link #HISTORY_LENGTH} messages old or more (the receiver may no longer
+ * keep it, such as when the traffic is one way and no acknowledgement is
+ * received) and every {@code keyframeInterval} messages so that a receiver
+ * which lost the base (reported as a decoding error) recovers.
+ * <p>
+ * Encoded forms start with the acknowledgements of the messages received
+ * from the peer (number of acknowledgements followed by the message
+ * identifier and sequence number of each one) and a kind byte:<br>
+ * <ul>
+ * <li>{@link #KIND_PLAIN}: the encoded form of the wrapped codec follows</li>
+ * <li>{@link #KIND_SNAPSHOT}: message identifier, sequence number, length and
+ * encoded form (variable length integers)</li>
+ * <li>{@link #KIND_DELTA}: message identifier, sequence number, sequence
+ * number of the base, length, number of patches and for each patch the
+ * number of unchanged bytes since the previous patch, the patch length and
+ * the patch bytes</li>
+ * </ul>
+ * <p>
+ * Both sides keep the last {@link #HISTORY_LENGTH} encoded forms of each
+ * type. The receiver also keeps the last base named by a delta, whatever its
+ * age, as the sender keeps using it until a newer form is acknowledged. The
+ * state is specific to a session, so one instance must be created
+ * for each session.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class DeltaMessageCodec extends AbstractMessageCodec
+{
+	/**
+	 * Default number of messages of a type after which a snapshot is sent.
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+
+	/**
+	 * Number of encoded forms of a type kept by each side: the sent forms not
+	 * yet acknowledged and the received forms which can be used as a base.
+	 */
+	public static final int HISTORY_LENGTH = 16;
+
+	/**
+	 * Message not delta encoded.
+	 */
+	public static final byte KIND_PLAIN = 0;
+
+	/**
+	 * Full encoded form of a message.
+	 */
+	public static final byte KIND_SNAPSHOT = 1;
+
+	/**
+	 * Differences with the base of the message type.
+	 */
+	public static final byte KIND_DELTA = 2;
+
+	/**
+	 * Minimum number of unchanged bytes between two changed ranges for them
+	 * to be sent as two patches (otherwise they are merged).
+	 */
+	private static final int MIN_GAP = 4;
+
+	/**
+	 * Wrapped message codec.
+	 */
+	private final IMessageCodec codec;
+
+	/**
+	 * Identifiers of the delta encoded message types.
+	 */
+	private final Set<Integer> messageIds;
+
+	/**
+	 * Number of messages of a type after which a snapshot is sent.
+	 */
+	private final int keyframeInterval;
+
+	/**
+	 * State of the outgoing messages (by message identifier).
+	 */
+	private final ConcurrentMap<Integer, State> outgoing = new ConcurrentHashMap<>();
+
+	/**
+	 * State of the incoming messages (by message identifier).
+	 */
+	private final ConcurrentMap<Integer, State> incoming = new ConcurrentHashMap<>();
+
+	/**
+	 * Acknowledgements of the incoming messages to send (message identifier in
+	 * the upper 32 bits, sequence number in the lower ones).
+	 */
+	private List<Long> acknowledgements = new ArrayList<>();
+
+	/**
+	 * Creates a new delta message codec.
+	 * <p>
+	 * @param codec {@link IMessageCodec} to wrap.
+	 * @param messageIds Identifiers of the message types to delta encode.
+	 * @param keyframeInterval Number of messages of a type after which a
+	 * snapshot is sent.
+	 */
+	@SuppressWarnings("nls")
+	public DeltaMessageCodec(final IMessageCodec codec, final Set<Integer> messageIds, final int keyframeInterval)
+	{
+		Validate.notNull(codec, "Message codec cannot be null!");
+		Validate.notNull(messageIds, "Message identifiers cannot be null!");
+		Validate.isTrue(keyframeInterval > 0, "Keyframe interval must be greater than zero!");
+
+		this.codec = codec;
+		this.messageIds = Collections.unmodifiableSet(new HashSet<>(messageIds));
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final IMessage decodeMessage(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		final int start = encoded.position();
+
+		try
+		{
+			final int count = VarInt.readInt(encoded);
+			if (count < 0 || count > encoded.remaining())
+			{
+				throw new MessageDecodingException("Cannot decode message due to: invalid acknowledgement count: " + count);
+			}
+			for (int i = 0; i < count; i++)
+			{
+				final Integer messageId = Integer.valueOf(VarInt.readInt(encoded));
+				acknowledge(messageId, VarInt.readInt(encoded));
+			}
+
+			final byte kind = encoded.get();
+			if (kind == KIND_PLAIN)
+			{
+				return codec.decodeMessage(encoded);
+			}
+
+			final Integer messageId = Integer.valueOf(VarInt.readInt(encoded));
+			final int sequence = VarInt.readInt(encoded);
+			final int baseSequence = kind == KIND_DELTA ? VarInt.readInt(encoded) : 0;
+			final int length = VarInt.readInt(encoded);
+			if (length < 0 || length > FrameDecoder.DEFAULT_MAX_FRAME_LENGTH)
+			{
+				throw new MessageDecodingException("Cannot decode message due to: invalid length: " + length);
+			}
+
+			final State state = getState(incoming, messageId);
+			final byte[] bytes;
+
+			synchronized (state)
+			{
+				if (kind == KIND_SNAPSHOT)
+				{
+					bytes = new byte[length];
+					encoded.get(bytes);
+				}
+				else if (kind == KIND_DELTA)
+				{
+					final byte[] base = state.history.get(Integer.valueOf(baseSequence));
+					if (base == null || base.length != length)
+					{
+						skipPatches(encoded);
+						throw new MessageDecodingException("Cannot decode message due to: delta base mismatch [message.id=" + messageId + ", sequence=" + sequence + ", base.sequence=" + baseSequence + "]");
+					}
+
+					bytes = applyPatches(encoded, base);
+				}
+				else
+				{
+					throw new MessageDecodingException("Cannot decode message due to: unknown kind: " + kind);
+				}
+
+				if (kind == KIND_DELTA)
+				{
+					// The sender keeps using this base until a newer form is acknowledged.
+					state.baseSequence = Math.max(state.baseSequence, baseSequence);
+				}
+
+				// Decoding the same message twice (a retried task) stores and acknowledges the same form again.
+				state.sequence = Math.max(state.sequence, sequence);
+				state.history.put(Integer.valueOf(sequence), bytes);
+				trimReceived(state);
+			}
+
+			synchronized (this)
+			{
+				acknowledgements.add(Long.valueOf((long) messageId.intValue() << 32 | sequence & 0xFFFFFFFFL));
+			}
+
+			return codec.decodeMessage(ByteBuffer.wrap(bytes));
+		}
+		catch (final MessageDecodingException e)
+		{
+			throw e;
+		}
+		catch (final RuntimeException e)
+		{
+			log.error(e);
+			encoded.position(start);
+			throw new MessageDecodingException("Cannot decode message due to: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public final ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	{
+		final Integer messageId = Integer.valueOf(((IMessageType) message.getMessageType()).getMessageId());
+		final ByteBuffer encoded = codec.encodeMessage(message);
+		final List<Long> acknowledged = drainAcknowledgements();
+
+		if (!messageIds.contains(messageId))
+		{
+			final ByteBuffer buffer = ByteBuffer.allocate(getSectionLength(acknowledged) + 1 + encoded.remaining());
+			writeSection(buffer, acknowledged);
+			buffer.put(KIND_PLAIN);
+			buffer.put(encoded);
+			buffer.flip();
+
+			return buffer;
+		}
+
+		final byte[] bytes = new byte[encoded.remaining()];
+		encoded.get(bytes);
+
+		final State state = getState(outgoing, messageId);
+		synchronized (state)
+		{
+			ByteBuffer buffer = null;
+
+			final int sequence = state.sequence + 1;
+			final boolean keyframe = state.sinceSnapshot + 1 >= keyframeInterval;
+			final boolean stale = sequence - state.baseSequence >= HISTORY_LENGTH;
+			if (state.base != null && state.base.length == bytes.length && !keyframe && !stale)
+			{
+				buffer = encodeDelta(acknowledged, messageId.intValue(), sequence, state.baseSequence, state.base, bytes);
+			}
+
+			if (buffer == null)
+			{
+				buffer = encodeSnapshot(acknowledged, messageId.intValue(), sequence, bytes);
+				state.sinceSnapshot = 0;
+			}
+			else
+			{
+				state.sinceSnapshot++;
+			}
+
+			// The form becomes a base candidate, used once the receiver acknowledges it.
+			state.sequence = sequence;
+			state.history.put(Integer.valueOf(sequence), bytes);
+			trim(state.history);
+
+			return buffer;
+		}
+	}
+
+	/**
+	 * Forgets the state of all the message types so that the next message of
+	 * each type is sent as a snapshot (used when the session is re-established).
+	 */
+	public final void reset()
+	{
+		outgoing.clear();
+		incoming.clear();
+		drainAcknowledgements();
+	}
+
+	/**
+	 * Records the acknowledgement of an outgoing message by the receiver: the
+	 * acknowledged form becomes the base of the next deltas of its type.
+	 * Acknowledgements of forms older than the current base or no longer kept
+	 * are ignored.
+	 * <p>
+	 * @param messageId Message identifier.
+	 * @param sequence Sequence number of the acknowledged form.
+	 */
+	private final void acknowledge(final Integer messageId, final int sequence)
+	{
+		final State state = outgoing.get(messageId);
+		if (state == null)
+		{
+			return;
+		}
+
+		synchronized (state)
+		{
+			final byte[] bytes = state.history.get(Integer.valueOf(sequence));
+			if (bytes == null)
+			{
+				return;
+			}
+
+			state.base = bytes;
+			state.baseSequence = sequence;
+
+			// The forms are kept in sequence order, older ones can no longer become the base.
+			final Iterator<Integer> iterator = state.history.keySet().iterator();
+			while (iterator.hasNext())
+			{
+				final boolean acknowledged = iterator.next().intValue() == sequence;
+				iterator.remove();
+				if (acknowledged)
+				{
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns and forgets the acknowledgements to send.
+	 * <p>
+	 * @return List of acknowledgements.
+	 */
+	private final synchronized List<Long> drainAcknowledgements()
+	{
+		if (acknowledgements.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final List<Long> drained = acknowledgements;
+		acknowledgements = new ArrayList<>();
+
+		return drained;
+	}
+
+	/**
+	 * Returns the length of an acknowledgement section.
+	 * <p>
+	 * @param acknowledged Acknowledgements.
+	 * @return Length in bytes.
+	 */
+	private static final int getSectionLength(final List<Long> acknowledged)
+	{
+		int length = VarInt.sizeOf(acknowledged.size());
+		for (int i = 0; i < acknowledged.size(); i++)
+		{
+			final long value = acknowledged.get(i).longValue();
+			length += VarInt.sizeOf((int) (value >>> 32)) + VarInt.sizeOf((int) value);
+		}
+
+		return length;
+	}
+
+	/**
+	 * Writes an acknowledgement section.
+	 * <p>
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param acknowledged Acknowledgements.
+	 */
+	private static final void writeSection(final ByteBuffer target, final List<Long> acknowledged)
+	{
+		VarInt.writeInt(target, acknowledged.size());
+		for (int i = 0; i < acknowledged.size(); i++)
+		{
+			final long value = acknowledged.get(i).longValue();
+			VarInt.writeInt(target, (int) (value >>> 32));
+			VarInt.writeInt(target, (int) value);
+		}
+	}
+
+	/**
+	 * Encodes a snapshot.
+	 * <p>
+	 * @param acknowledged Acknowledgements to send.
+	 * @param messageId Message identifier.
+	 * @param sequence Sequence number.
+	 * @param bytes Encoded form of the message.
+	 * @return {@link ByteBuffer} containing the snapshot.
+	 */
+	private static final ByteBuffer encodeSnapshot(final List<Long> acknowledged, final int messageId, final int sequence, final byte[] bytes)
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(getSectionLength(acknowledged) + 1 + VarInt.sizeOf(messageId) + VarInt.sizeOf(sequence) + VarInt.sizeOf(bytes.length) + bytes.length);
+		writeSection(buffer, acknowledged);
+		buffer.put(KIND_SNAPSHOT);
+		VarInt.writeInt(buffer, messageId);
+		VarInt.writeInt(buffer, sequence);
+		VarInt.writeInt(buffer, bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+
+		return buffer;
+	}
+
+	/**
+	 * Encodes a delta.
+	 * <p>
+	 * @param acknowledged Acknowledgements to send.
+	 * @param messageId Message identifier.
+	 * @param sequence Sequence number.
+	 * @param baseSequence Sequence number of the base.
+	 * @param base Encoded form of the base.
+	 * @param bytes Encoded form of the message (same length as the base).
+	 * @return {@link ByteBuffer} containing the delta or {@code null} if the
+	 * delta is not smaller than the snapshot.
+	 */
+	private static final ByteBuffer encodeDelta(final List<Long> acknowledged, final int messageId, final int sequence, final int baseSequence, final byte[] base, final byte[] bytes)
+	{
+		final int header = 1 + VarInt.sizeOf(messageId) + VarInt.sizeOf(sequence) + VarInt.sizeOf(baseSequence) + VarInt.sizeOf(bytes.length);
+		final int limit = header + bytes.length;
+
+		// Patches are first written to a scratch buffer as their count is only known at the end.
+		final ByteBuffer patches = ByteBuffer.allocate(limit + VarInt.MAX_INT_SIZE * 2);
+		int count = 0;
+		int previous = 0;
+		int index = 0;
+
+		while (index < bytes.length)
+		{
+			if (bytes[index] == base[index])
+			{
+				index++;
+				continue;
+			}
+
+			// Extend the changed range, merging ranges separated by small gaps.
+			final int from = index;
+			int to = index + 1;
+			int gap = 0;
+			for (int i = to; i < bytes.length && gap < MIN_GAP; i++)
+			{
+				if (bytes[i] == base[i])
+				{
+					gap++;
+				}
+				else
+				{
+					gap = 0;
+					to = i + 1;
+				}
+			}
+
+			if (patches.position() + VarInt.MAX_INT_SIZE * 2 + (to - from) > limit)
+			{
+				return null;
+			}
+
+			VarInt.writeInt(patches, from - previous);
+			VarInt.writeInt(patches, to - from);
+			patches.put(bytes, from, to - from);
+
+			count++;
+			previous = to;
+			index = to;
+		}
+
+		patches.flip();
+		if (header + VarInt.sizeOf(count) + patches.remaining() >= limit)
+		{
+			return null;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(getSectionLength(acknowledged) + header + VarInt.sizeOf(count) + patches.remaining());
+		writeSection(buffer, acknowledged);
+		buffer.put(KIND_DELTA);
+		VarInt.writeInt(buffer, messageId);
+		VarInt.writeInt(buffer, sequence);
+		VarInt.writeInt(buffer, baseSequence);
+		VarInt.writeInt(buffer, bytes.length);
+		VarInt.writeInt(buffer, count);
+		buffer.put(patches);
+		buffer.flip();
+
+		return buffer;
+	}
+	/**
+	 * Applies the patches of a delta to the previous encoded form.
+	 * <p>
+	 * @param encoded {@link ByteBuffer} positioned on the patches.
+	 * @param last Encoded form of the base.
+	 * @return New encoded form.
+	 * @throws MessageDecodingException Thrown if a patch is out of bounds.
+	 */
+	@SuppressWarnings("nls")
+	private static final byte[] applyPatches(final ByteBuffer encoded, final byte[] last) throws MessageDecodingException
+	{
+		final byte[] bytes = last.clone();
+		final int count = VarInt.readInt(encoded);
+
+		int index = 0;
+		for (int i = 0; i < count; i++)
+		{
+			index += VarInt.readInt(encoded);
+			final int length = VarInt.readInt(encoded);
+			if (index < 0 || length < 0 || index + length > bytes.length)
+			{
+				throw new MessageDecodingException("Cannot decode message due to: patch out of bounds [index=" + index + ", length=" + length + "]");
+			}
+
+			encoded.get(bytes, index, length);
+			index += length;
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Skips the patches of a delta which cannot be applied.
+	 * <p>
+	 * @param encoded {@link ByteBuffer} positioned on the patches.
+	 */
+	private static final void skipPatches(final ByteBuffer encoded)
+	{
+		final int count = VarInt.readInt(encoded);
+		for (int i = 0; i < count; i++)
+		{
+			VarInt.readInt(encoded);
+			final int length = VarInt.readInt(encoded);
+			encoded.position(encoded.position() + length);
+		}
+	}
+
+	/**
+	 * Returns the state of a message type, creating it if needed.
+	 * <p>
+	 * @param states States by message identifier.
+	 * @param messageId Message identifier.
+	 * @return {@link State}.
+	 */
+	private static final State getState(final ConcurrentMap<Integer, State> states, final Integer messageId)
+	{
+		State state = states.get(messageId);
+		if (state == null)
+		{
+			state = new State();
+
+			final State existing = states.putIfAbsent(messageId, state);
+			if (existing != null)
+			{
+				state = existing;
+			}
+		}
+
+		return state;
+	}
+
+	/**
+	 * Forgets the oldest encoded forms beyond {@link #HISTORY_LENGTH}.
+	 * <p>
+	 * @param history Encoded forms by sequence number (in insertion order).
+	 */
+	private static final void trim(final Map<Integer, byte[]> history)
+	{
+		final Iterator<Integer> iterator = history.keySet().iterator();
+		while (history.size() > HISTORY_LENGTH && iterator.hasNext())
+		{
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Forgets the received encoded forms which are {@link #HISTORY_LENGTH}
+	 * messages older than the last received one, except the last base named
+	 * by a delta.
+	 * <p>
+	 * @param state State of the incoming messages of a type.
+	 */
+	private static final void trimReceived(final State state)
+	{
+		final Iterator<Integer> iterator = state.history.keySet().iterator();
+		while (iterator.hasNext())
+		{
+			final int sequence = iterator.next().intValue();
+			if (state.sequence - sequence >= HISTORY_LENGTH && sequence != state.baseSequence)
+			{
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * State of a message type.
+	 */
+	private static final class State
+	{
+		/**
+		 * Encoded forms by sequence number: sent forms not yet acknowledged on
+		 * the sending side, received forms on the receiving side (see
+		 * {@link DeltaMessageCodec#trimReceived(State)}).
+		 */
+		final Map<Integer, byte[]> history = new LinkedHashMap<>();
+
+		/**
+		 * Encoded form of the base (last form acknowledged by the receiver) on
+		 * the sending side.
+		 */
+		byte[] base = null;
+
+		/**
+		 * Sequence number of the base: last form acknowledged by the receiver
+		 * on the sending side, last base named by a delta on the receiving
+		 * side.
+		 */
+		int baseSequence = 0;
+
+		/**
+		 * Sequence number of the last encoded form on the sending side, of the
+		 * last received form on the receiving side.
+		 */
+		int sequence = 0;
+
+		/**
+		 * Number of deltas sent since the last snapshot.
+		 */
+		int sinceSnapshot = 0;
+	}
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.codec.dictionary.DictionaryStringSerializer;
+import org.heliosphere.drake.base.codec.dictionary.StringDictionary;
+import org.heliosphere.drake.base.codec.io.VarInt;
+import org.heliosphere.drake.base.message.IMessage;
+
+/**
+ * A message codec replacing the strings already exchanged on a session by
+ * references to a {@link StringDictionary}.
+ * <p>
+ * The codec holds one dictionary for each direction of the session and binds
+ * it to the current thread while the wrapped codec encodes or decodes a
+ * message, so the strings are written by the {@link DictionaryStringSerializer}
+ * registered in the {@code Kryo} based codecs. The content of the decoded
+ * messages is decoded eagerly as the dictionary must be updated when the
+ * message is received.
+ * <p>
+ * Each encoded message starts with a control section confirming the
+ * definitions received from the peer and releasing the strings evicted from
+ * the outgoing dictionary:<br>
+ * <ul>
+ * <li>Number of confirmed identifiers followed by the identifiers (variable
+ * length integers)</li>
+ * <li>Number of released identifiers followed by the identifiers (variable
+ * length integers)</li>
+ * <li>Encoded form of the wrapped codec</li>
+ * </ul>
+ * <p>
+ * As a string is only referenced once its definition has been confirmed, the
+ * messages do not need to be received in the order they are encoded and can
+ * be lost: this is the case on the server where the messages are sent when
+ * the transaction sending them commits (transactions may commit in another
+ * order than the one they encoded their messages in, or abort). The
+ * dictionaries are specific to a session, so one instance must be created
+ * for each session and both peers must enable the dictionary. A stateless
+ * instance (see {@link #DictionaryMessageCodec(IMessageCodec)}) writes all the
+ * strings in full and can be shared to encode a message once for several
+ * sessions.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class DictionaryMessageCodec extends AbstractMessageCodec
+{
+	/**
+	 * Wrapped message codec.
+	 */
+	private final IMessageCodec codec;
+
+	/**
+	 * Dictionary of the outgoing strings ({@code null} if the codec is
+	 * stateless).
+	 */
+	private final StringDictionary outgoing;
+
+	/**
+	 * Dictionary of the incoming strings ({@code null} if the codec is
+	 * stateless).
+	 */
+	private final StringDictionary incoming;
+
+	/**
+	 * Creates a new stateless dictionary message codec writing all the strings
+	 * in full and empty control sections, so its encoded form can be decoded
+	 * by the dictionary message codec of any session.
+	 * <p>
+	 * @param codec {@link IMessageCodec} to wrap.
+	 */
+	@SuppressWarnings("nls")
+	public DictionaryMessageCodec(final IMessageCodec codec)
+	{
+		Validate.notNull(codec, "Message codec cannot be null!");
+
+		this.codec = codec;
+		this.outgoing = null;
+		this.incoming = null;
+	}
+
+	/**
+	 * Creates a new dictionary message codec.
+	 * <p>
+	 * @param codec {@link IMessageCodec} to wrap.
+	 * @param capacity Number of outgoing strings held by the dictionary
+	 * ({@code 0} to send all the strings in full).
+	 * @param maxLength Maximum length of a string to be held by the dictionary.
+	 */
+	@SuppressWarnings("nls")
+	public DictionaryMessageCodec(final IMessageCodec codec, final int capacity, final int maxLength)
+	{
+		Validate.notNull(codec, "Message codec cannot be null!");
+
+		this.codec = codec;
+		this.outgoing = new StringDictionary(capacity, maxLength);
+		this.incoming = new StringDictionary(0, maxLength);
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final IMessage decodeMessage(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		final int start = encoded.position();
+
+		try
+		{
+			final int confirmed = readCount(encoded);
+			if (outgoing == null)
+			{
+				// Stateless, the control sections are skipped and no reference can be resolved.
+				skip(encoded, confirmed);
+				skip(encoded, readCount(encoded));
+
+				return codec.decodeMessage(encoded);
+			}
+
+			synchronized (outgoing)
+			{
+				for (int i = 0; i < confirmed; i++)
+				{
+					outgoing.confirm(VarInt.readInt(encoded));
+				}
+			}
+
+			synchronized (incoming)
+			{
+				final int released = readCount(encoded);
+				for (int i = 0; i < released; i++)
+				{
+					incoming.release(VarInt.readInt(encoded));
+				}
+
+				final StringDictionary previous = DictionaryStringSerializer.bind(incoming);
+				try
+				{
+					final IMessage message = codec.decodeMessage(encoded);
+
+					// Lazily decoded contents must be decoded while the dictionary is bound.
+					message.getContent();
+
+					return message;
+				}
+				catch (final IllegalStateException e)
+				{
+					throw new MessageDecodingException("Cannot decode message content due to: " + e.getMessage(), e);
+				}
+				finally
+				{
+					DictionaryStringSerializer.bind(previous);
+				}
+			}
+		}
+		catch (final MessageDecodingException e)
+		{
+			throw e;
+		}
+		catch (final RuntimeException e)
+		{
+			encoded.position(start);
+			throw new MessageDecodingException("Cannot decode message dictionary section due to: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public final ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	{
+		if (outgoing == null)
+		{
+			final ByteBuffer encoded = codec.encodeMessage(message);
+			final ByteBuffer buffer = ByteBuffer.allocate(2 + encoded.remaining());
+			writeSection(buffer, Collections.<Integer> emptyList());
+			writeSection(buffer, Collections.<Integer> emptyList());
+			buffer.put(encoded);
+			buffer.flip();
+
+			return buffer;
+		}
+
+		final ByteBuffer encoded;
+		final List<Integer> released;
+
+		synchronized (outgoing)
+		{
+			final StringDictionary previous = DictionaryStringSerializer.bind(outgoing);
+			try
+			{
+				// A failed message leaves unconfirmed definitions only, they are sent again by the next messages.
+				encoded = codec.encodeMessage(message);
+				released = outgoing.drainReleased();
+			}
+			finally
+			{
+				DictionaryStringSerializer.bind(previous);
+			}
+		}
+
+		final List<Integer> confirmed;
+		synchronized (incoming)
+		{
+			confirmed = incoming.drainAcknowledgements();
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(getSectionLength(confirmed) + getSectionLength(released) + encoded.remaining());
+		writeSection(buffer, confirmed);
+		writeSection(buffer, released);
+		buffer.put(encoded);
+		buffer.flip();
+
+		return buffer;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final int encodeMessage(final IMessage message, final ByteBuffer target) throws MessageEncodingException
+	{
+		final int start = target.position();
+		final List<Integer> confirmed;
+		final List<Integer> released;
+
+		if (outgoing == null)
+		{
+			confirmed = Collections.emptyList();
+			released = Collections.emptyList();
+		}
+		else
+		{
+			synchronized (incoming)
+			{
+				confirmed = incoming.drainAcknowledgements();
+			}
+			synchronized (outgoing)
+			{
+				released = outgoing.drainReleased();
+			}
+		}
+
+		// The control sections come first so the message is encoded directly into the target buffer.
+		final int length = getSectionLength(confirmed) + getSectionLength(released);
+		if (length > target.remaining())
+		{
+			throw new MessageEncodingException("Cannot encode message due to: target buffer too small [required=" + length + ", remaining=" + target.remaining() + "]");
+		}
+		writeSection(target, confirmed);
+		writeSection(target, released);
+
+		if (outgoing == null)
+		{
+			return length + encode(message, target, start);
+		}
+
+		synchronized (outgoing)
+		{
+			final StringDictionary previous = DictionaryStringSerializer.bind(outgoing);
+			try
+			{
+				// Confirmations lost with a failed message are sent again by the peer, lost releases only delay the peer cleanup.
+				return length + encode(message, target, start);
+			}
+			finally
+			{
+				DictionaryStringSerializer.bind(previous);
+			}
+		}
+	}
+
+	/**
+	 * Encodes a message into a target buffer after its control sections,
+	 * restoring the position of the target buffer if the encoding fails.
+	 * <p>
+	 * @param message {@link IMessage} to encode.
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param start Position of the target buffer before the control sections.
+	 * @return Length of the encoded message (control sections excluded).
+	 * @throws MessageEncodingException Thrown if the message cannot be encoded.
+	 */
+	private final int encode(final IMessage message, final ByteBuffer target, final int start) throws MessageEncodingException
+	{
+		try
+		{
+			return codec.encodeMessage(message, target);
+		}
+		catch (final MessageEncodingException | RuntimeException e)
+		{
+			target.position(start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of outgoing strings currently held by the dictionary.
+	 * <p>
+	 * @return Number of strings.
+	 */
+	public final int getDictionarySize()
+	{
+		if (outgoing == null)
+		{
+			return 0;
+		}
+
+		synchronized (outgoing)
+		{
+			return outgoing.size();
+		}
+	}
+
+	/**
+	 * Returns the number of incoming strings currently held by the dictionary.
+	 * <p>
+	 * @return Number of strings.
+	 */
+	public final int getIncomingDictionarySize()
+	{
+		if (incoming == null)
+		{
+			return 0;
+		}
+
+		synchronized (incoming)
+		{
+			return incoming.getDefinitionCount();
+		}
+	}
+
+	/**
+	 * Reads the number of identifiers of a control section.
+	 * <p>
+	 * @param encoded {@link ByteBuffer} to read from.
+	 * @return Number of identifiers.
+	 * @throws MessageDecodingException Thrown if the number is invalid.
+	 */
+	@SuppressWarnings("nls")
+	private static final int readCount(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		final int count = VarInt.readInt(encoded);
+		if (count < 0 || count > encoded.remaining())
+		{
+			throw new MessageDecodingException("Cannot decode message due to: invalid dictionary section length: " + count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Skips the identifiers of a control section.
+	 * <p>
+	 * @param encoded {@link ByteBuffer} to read from.
+	 * @param count Number of identifiers.
+	 */
+	private static final void skip(final ByteBuffer encoded, final int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			VarInt.readInt(encoded);
+		}
+	}
+
+	/**
+	 * Returns the length of a control section.
+	 * <p>
+	 * @param identifiers Identifiers of the section.
+	 * @return Length in bytes.
+	 */
+	private static final int getSectionLength(final List<Integer> identifiers)
+	{
+		int length = VarInt.sizeOf(identifiers.size());
+		for (int i = 0; i < identifiers.size(); i++)
+		{
+			length += VarInt.sizeOf(identifiers.get(i).intValue());
+		}
+
+		return length;
+	}
+
+	/**
+	 * Writes a control section.
+	 * <p>
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param identifiers Identifiers of the section.
+	 */
+	private static final void writeSection(final ByteBuffer target, final List<Integer> identifiers)
+	{
+		VarInt.writeInt(target, identifiers.size());
+		for (int i = 0; i < identifiers.size(); i++)
+		{
+			VarInt.writeInt(target, identifiers.get(i).intValue());
+		}
+	}
+}
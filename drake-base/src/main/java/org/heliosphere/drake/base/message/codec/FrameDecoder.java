@@ -0,0 +1,405 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.IMessage;
+
+/**
+ * A streaming decoder of message frames (see {@link MessageFrame}).
+ * <p>
+ * Buffers received from the network are fed to the decoder using
+ * {@link #feed(ByteBuffer)} and the decoded messages are then pulled one by
+ * one using {@link #next()}. A buffer can contain several frames and a frame
+ * can be split over several buffers: the bytes of an incomplete frame are kept
+ * by the decoder until the remaining bytes are fed. Messages split into chunk
+ * frames are reassembled by a {@link ChunkAssembler} bounded by the maximum
+ * frame length.
+ * <p>
+ * The messages of a fed buffer must be pulled before the buffer is modified
+ * by its owner (the decoder only copies the bytes of incomplete frames). A
+ * decoder is not thread-safe and is usually associated to one session.
+ * <p>
+ * When the reads are fed within transactions which can be aborted and
+ * retried, {@link #feed(ByteBuffer, long)} restores the state of the decoder
+ * before a read fed again, so that its bytes are not fed twice.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class FrameDecoder
+{
+	/**
+	 * Default maximum length of a frame (16 MB).
+	 */
+	public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+	/**
+	 * Initial size of the buffer holding incomplete frames.
+	 */
+	private static final int PENDING_ALLOCATION_SIZE = 1024;
+
+	/**
+	 * Message codec used to decode the frames.
+	 */
+	private final IMessageCodec codec;
+
+	/**
+	 * Maximum length of a frame.
+	 */
+	private final int maxFrameLength;
+
+	/**
+	 * Assembler of the messages split into chunk frames.
+	 */
+	private final ChunkAssembler assembler;
+
+	/**
+	 * Buffer holding the bytes of an incomplete frame (allocated on first
+	 * need, always in read mode).
+	 */
+	private ByteBuffer pending = null;
+
+	/**
+	 * Buffer currently decoded (either the last fed buffer or the pending
+	 * buffer).
+	 */
+	private ByteBuffer current = null;
+
+	/**
+	 * Sequence number of the last read fed using
+	 * {@link #feed(ByteBuffer, long)} ({@code -1} if none).
+	 */
+	private long markedSequence = -1;
+
+	/**
+	 * Bytes of the incomplete frame before the last read fed using
+	 * {@link #feed(ByteBuffer, long)}.
+	 */
+	private byte[] markedPending = null;
+
+	/**
+	 * Creates a new frame decoder.
+	 * <p>
+	 * @param codec {@link IMessageCodec} used to decode the frames.
+	 */
+	public FrameDecoder(final IMessageCodec codec)
+	{
+		this(codec, DEFAULT_MAX_FRAME_LENGTH);
+	}
+
+	/**
+	 * Creates a new frame decoder.
+	 * <p>
+	 * @param codec {@link IMessageCodec} used to decode the frames.
+	 * @param maxFrameLength Maximum length of a frame. A longer frame is
+	 * considered as a corruption of the stream.
+	 */
+	@SuppressWarnings("nls")
+	public FrameDecoder(final IMessageCodec codec, final int maxFrameLength)
+	{
+		Validate.notNull(codec, "Message codec cannot be null!");
+		Validate.isTrue(maxFrameLength > 0, "Maximum frame length must be greater than zero!");
+
+		this.codec = codec;
+		this.maxFrameLength = maxFrameLength;
+		this.assembler = new ChunkAssembler(maxFrameLength);
+	}
+
+	/**
+	 * Feeds the decoder with bytes received from the network. The position of
+	 * the buffer is advanced as the frames are decoded.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} containing the received bytes between
+	 * its position and its limit.
+	 */
+	public final void feed(final ByteBuffer buffer)
+	{
+		stash();
+
+		if (pending != null && pending.hasRemaining())
+		{
+			// Complete the pending frame.
+			ensurePendingCapacity(pending.remaining() + buffer.remaining());
+			pending.compact();
+			pending.put(buffer);
+			pending.flip();
+			current = pending;
+		}
+		else
+		{
+			current = buffer;
+		}
+	}
+
+	/**
+	 * Feeds the decoder with a read identified by a sequence number. If the
+	 * sequence number is the one of the last fed read (the transaction which
+	 * fed it has been aborted and the read is fed again), the decoder is first
+	 * restored to its state before that read. The messages of the previous
+	 * read must have been pulled.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} containing the received bytes between
+	 * its position and its limit.
+	 * @param sequence Sequence number of the read (number of reads fed before
+	 * it within committed transactions).
+	 */
+	public final void feed(final ByteBuffer buffer, final long sequence)
+	{
+		if (sequence == markedSequence)
+		{
+			rollback();
+		}
+		else
+		{
+			mark(sequence);
+		}
+
+		feed(buffer);
+	}
+
+	/**
+	 * Decodes the next message.
+	 * <p>
+	 * If the frame of the next message cannot be decoded, the frame is skipped
+	 * (so that the next call decodes the following frame) and an exception is
+	 * thrown.
+	 * <p>
+	 * @return Decoded {@link IMessage} or {@code null} if no complete frame is
+	 * available.
+	 * @throws MessageDecodingException Thrown if the next frame cannot be
+	 * decoded or if the stream is corrupted.
+	 */
+	public final IMessage next() throws MessageDecodingException
+	{
+		while (current != null && current.hasRemaining())
+		{
+			final int start = current.position();
+			int length = readLength();
+			final boolean chunk = length == MessageFrame.CHUNK_MARKER;
+			if (chunk)
+			{
+				length = readLength();
+			}
+
+			if (length < 0 || length > current.remaining())
+			{
+				// Incomplete frame, wait for more bytes.
+				current.position(start);
+				stash();
+				return null;
+			}
+
+			final int end = current.position() + length;
+			final ByteBuffer frame = current.duplicate();
+			frame.limit(end);
+			current.position(end);
+
+			if (!chunk)
+			{
+				return codec.decodeMessage(frame);
+			}
+
+			final ByteBuffer encoded = assembler.add(frame);
+			if (encoded != null)
+			{
+				return codec.decodeMessage(encoded);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads a frame length prefix from the current buffer.
+	 * <p>
+	 * @return Length or {@code -1} if the length prefix is incomplete.
+	 * @throws MessageDecodingException Thrown if the length prefix is
+	 * malformed or exceeds the maximum frame length (the stream is reset).
+	 */
+	@SuppressWarnings("nls")
+	private final int readLength() throws MessageDecodingException
+	{
+		final int length;
+		try
+		{
+			length = MessageFrame.readLength(current);
+		}
+		catch (final MessageDecodingException e)
+		{
+			reset();
+			throw e;
+		}
+
+		if (length > maxFrameLength)
+		{
+			reset();
+			throw new MessageDecodingException("Cannot decode frame due to: frame length: " + length + " exceeds maximum: " + maxFrameLength);
+		}
+
+		return length;
+	}
+
+	/**
+	 * Feeds the decoder and decodes all the complete frames. Frames that
+	 * cannot be decoded are skipped.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} containing the received bytes.
+	 * @return List of decoded messages.
+	 * @throws MessageDecodingException Thrown if the stream is corrupted.
+	 */
+	public final List<IMessage> decode(final ByteBuffer buffer) throws MessageDecodingException
+	{
+		final List<IMessage> messages = new ArrayList<>();
+
+		feed(buffer);
+		while (current != null && current.hasRemaining())
+		{
+			final int position = current.position();
+			try
+			{
+				final IMessage message = next();
+				if (message == null)
+				{
+					break;
+				}
+				messages.add(message);
+			}
+			catch (final MessageDecodingException e)
+			{
+				if (current == null || current.position() == position)
+				{
+					throw e;
+				}
+			}
+		}
+
+		return messages;
+	}
+
+	/**
+	 * Returns if the decoder holds the bytes of an incomplete frame or of a
+	 * message being reassembled.
+	 * <p>
+	 * @return {@code True} if an incomplete frame is pending.
+	 */
+	public final boolean hasPending()
+	{
+		return (current != null && current.hasRemaining()) || (pending != null && pending.hasRemaining()) || assembler.getPendingLength() > 0;
+	}
+
+	/**
+	 * Discards the pending bytes and the messages being reassembled.
+	 */
+	public final void reset()
+	{
+		assembler.reset();
+		if (pending != null)
+		{
+			pending.clear();
+			pending.flip();
+		}
+		current = null;
+		markedSequence = -1;
+		markedPending = null;
+	}
+
+	/**
+	 * Saves the state of the decoder before a read.
+	 * <p>
+	 * @param sequence Sequence number of the read.
+	 */
+	private final void mark(final long sequence)
+	{
+		stash();
+
+		markedSequence = sequence;
+		markedPending = null;
+		if (current != null && current.hasRemaining())
+		{
+			markedPending = new byte[current.remaining()];
+			current.duplicate().get(markedPending);
+		}
+		assembler.mark();
+	}
+
+	/**
+	 * Restores the state of the decoder saved before the last read.
+	 */
+	private final void rollback()
+	{
+		current = null;
+		if (pending != null)
+		{
+			pending.clear();
+			pending.flip();
+		}
+
+		if (markedPending != null)
+		{
+			ensurePendingCapacity(markedPending.length);
+			pending.clear();
+			pending.put(markedPending);
+			pending.flip();
+			current = pending;
+		}
+		assembler.rollback();
+	}
+
+	/**
+	 * Copies the remaining bytes of the last fed buffer into the pending
+	 * buffer so that the fed buffer can be reused by its owner.
+	 */
+	private final void stash()
+	{
+		if (current == null || current == pending || !current.hasRemaining())
+		{
+			return;
+		}
+
+		ensurePendingCapacity(current.remaining());
+		pending.clear();
+		pending.put(current);
+		pending.flip();
+		current = pending;
+	}
+
+	/**
+	 * Ensures the pending buffer can hold the given number of bytes. The
+	 * pending bytes are preserved.
+	 * <p>
+	 * @param capacity Required capacity.
+	 */
+	private final void ensurePendingCapacity(final int capacity)
+	{
+		if (pending == null)
+		{
+			pending = ByteBuffer.allocate(Math.max(PENDING_ALLOCATION_SIZE, capacity));
+			pending.flip();
+		}
+		else if (pending.capacity() < capacity)
+		{
+			final ByteBuffer buffer = ByteBuffer.allocate(Math.max(pending.capacity() * 2, capacity));
+			buffer.put(pending);
+			buffer.flip();
+			if (current == pending)
+			{
+				current = buffer;
+			}
+			pending = buffer;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+/**
+ * Interface implemented by the message codecs observing the messages encoded
+ * and decoded by another message codec without changing their encoded form.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface IDelegatingMessageCodec extends IMessageCodec
+{
+	/**
+	 * Returns the wrapped message codec.
+	 * <p>
+	 * @return {@link IMessageCodec}.
+	 */
+	IMessageCodec getDelegate();
+}
@@ -12,7 +12,10 @@
 package org.heliosphere.drake.base.message.codec;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
 import org.heliosphere.drake.base.message.IMessage;
 
 /**
@@ -27,7 +30,8 @@ public interface IMessageCodec
 	 * Decodes a message.
 	 * <p>
 	 * @param encoded {@link ByteBuffer} containing the encoded form of the
-	 * message to decode.
+	 * message to decode. The message is read starting at the current position
+	 * of the buffer and the position is advanced by the number of bytes read.
 	 * @return Decoded {@link IMessage}.
 	 * @throws MessageDecodingException Thrown if an error occurs while trying
 	 * to decode the message.
@@ -43,4 +47,62 @@ public interface IMessageCodec
 	 * to encode the message.
 	 */
 	ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException;
+
+	/**
+	 * Encodes a message directly into the given buffer.
+	 * <p>
+	 * The message is written starting at the current position of the target
+	 * buffer and the position is advanced by the number of bytes written. The
+	 * target buffer can be a heap or a direct buffer.
+	 * <p>
+	 * @param message {@link IMessage} to encode.
+	 * @param target {@link ByteBuffer} to write the encoded form of the message
+	 * to.
+	 * @return Number of bytes written into the target buffer.
+	 * @throws MessageEncodingException Thrown if an error occurs while trying
+	 * to encode the message or if the target buffer is too small.
+	 */
+	int encodeMessage(final IMessage message, final ByteBuffer target) throws MessageEncodingException;
+
+	/**
+	 * Encodes a message into a direct buffer allocated from the given arena.
+	 * <p>
+	 * The returned buffer is ready to be read (position is zero and limit is
+	 * the length of the encoded form) and must be released by the caller once
+	 * the session write completed.
+	 * <p>
+	 * @param message {@link IMessage} to encode.
+	 * @param arena {@link BufferArena} to allocate the buffer from.
+	 * @return {@link PooledBuffer} containing the encoded form of the message.
+	 * @throws MessageEncodingException Thrown if an error occurs while trying
+	 * to encode the message.
+	 */
+	PooledBuffer encodeMessage(final IMessage message, final BufferArena arena) throws MessageEncodingException;
+
+	/**
+	 * Encodes several messages into one buffer, each message being written as
+	 * a frame (see {@link MessageFrame}). The frames can be decoded using a
+	 * {@link FrameDecoder}.
+	 * <p>
+	 * @param messages List of {@link IMessage} to encode.
+	 * @return A {@link ByteBuffer} containing the frames, ready to be read.
+	 * @throws MessageEncodingException Thrown if an error occurs while trying
+	 * to encode one of the messages.
+	 */
+	ByteBuffer encodeMessages(final List<IMessage> messages) throws MessageEncodingException;
+
+	/**
+	 * Encodes several messages into one direct buffer allocated from the given
+	 * arena, each message being written as a frame (see {@link MessageFrame}).
+	 * <p>
+	 * The returned buffer is ready to be read and must be released by the
+	 * caller once the session write completed.
+	 * <p>
+	 * @param messages List of {@link IMessage} to encode.
+	 * @param arena {@link BufferArena} to allocate the buffer from.
+	 * @return {@link PooledBuffer} containing the frames.
+	 * @throws MessageEncodingException Thrown if an error occurs while trying
+	 * to encode one of the messages.
+	 */
+	PooledBuffer encodeMessages(final List<IMessage> messages, final BufferArena arena) throws MessageEncodingException;
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.journal.MessageJournal;
+import org.heliosphere.drake.base.message.journal.type.JournalDirectionType;
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+/**
+ * A message codec appending the encoded form of the messages encoded and
+ * decoded by another message codec to a {@link MessageJournal}.
+ * <p>
+ * A message which cannot be journaled is still encoded or decoded (the error
+ * is logged), so a failing journal never breaks a session. Messages encoded
+ * or decoded within a transaction are held by a journal batch until the
+ * transaction commits (see {@link MessageJournal#openBatch()}).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class JournalingMessageCodec extends AbstractMessageCodec implements IDelegatingMessageCodec
+{
+	/**
+	 * Wrapped message codec.
+	 */
+	private final IMessageCodec codec;
+
+	/**
+	 * Message journal.
+	 */
+	private final MessageJournal journal;
+
+	/**
+	 * Name of the session.
+	 */
+	private final String session;
+
+	/**
+	 * Creates a new journaling message codec.
+	 * <p>
+	 * @param codec {@link IMessageCodec} to wrap.
+	 * @param journal {@link MessageJournal} to append the messages to.
+	 * @param session Name of the session (can be {@code null}).
+	 */
+	@SuppressWarnings("nls")
+	public JournalingMessageCodec(final IMessageCodec codec, final MessageJournal journal, final String session)
+	{
+		Validate.notNull(codec, "Message codec cannot be null!");
+		Validate.notNull(journal, "Message journal cannot be null!");
+
+		this.codec = codec;
+		this.journal = journal;
+		this.session = session;
+	}
+
+	@Override
+	public final IMessageCodec getDelegate()
+	{
+		return codec;
+	}
+
+	@Override
+	public final IMessage decodeMessage(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		final ByteBuffer payload = encoded.duplicate();
+
+		final IMessage message = codec.decodeMessage(encoded);
+
+		payload.limit(encoded.position());
+		append(JournalDirectionType.INBOUND, message, payload);
+
+		return message;
+	}
+
+	@Override
+	public final ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	{
+		final ByteBuffer encoded = codec.encodeMessage(message);
+
+		append(JournalDirectionType.OUTBOUND, message, encoded);
+
+		return encoded;
+	}
+
+	/**
+	 * Appends a message to the journal.
+	 * <p>
+	 * @param direction Direction of the message.
+	 * @param message Message.
+	 * @param payload Encoded form of the message.
+	 */
+	@SuppressWarnings("nls")
+	private final void append(final JournalDirectionType direction, final IMessage message, final ByteBuffer payload)
+	{
+		try
+		{
+			journal.append(direction, session, ((IMessageType) message.getMessageType()).getMessageId(), payload);
+		}
+		catch (final IOException e)
+		{
+			log.error("Cannot journal message [session=" + session + ", type=" + message.getMessageType() + "] due to: " + e.getMessage());
+		}
+	}
+}
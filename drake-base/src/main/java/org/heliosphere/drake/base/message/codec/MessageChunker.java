@@ -0,0 +1,204 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Splits buffers of message frames into bounded network writes.
+ * <p>
+ * Consecutive frames are grouped into writes of at most the chunk size
+ * (without any copy) and each frame longer than the chunk size is split into
+ * chunk frames (see {@link MessageFrame}) carrying a stream identifier and a
+ * sequence number, reassembled by the receiving {@link FrameDecoder}. The
+ * order of the frames is preserved so that the session codecs decode the
+ * messages in the order they have been encoded.
+ * <p>
+ * A chunker is thread-safe.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MessageChunker
+{
+	/**
+	 * Default chunk size (in bytes).
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 32 * 1024;
+
+	/**
+	 * Minimum chunk size (in bytes).
+	 */
+	public static final int MIN_CHUNK_SIZE = 256;
+
+	/**
+	 * Maximum size of a network write.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Next stream identifier.
+	 */
+	private final AtomicInteger streams = new AtomicInteger();
+
+	/**
+	 * Creates a new message chunker.
+	 * <p>
+	 * @param chunkSize Maximum size of a network write (in bytes).
+	 */
+	@SuppressWarnings("nls")
+	public MessageChunker(final int chunkSize)
+	{
+		Validate.isTrue(chunkSize >= MIN_CHUNK_SIZE, "Chunk size must be at least " + MIN_CHUNK_SIZE + " bytes!");
+
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Returns the maximum size of a network write.
+	 * <p>
+	 * @return Chunk size (in bytes).
+	 */
+	public final int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * Splits a buffer of frames into network writes.
+	 * <p>
+	 * @param frames {@link ByteBuffer} containing the frames between its
+	 * position and its limit. Its position is not modified.
+	 * @return Buffers to write in order (the given buffer itself if it does
+	 * not exceed the chunk size, otherwise slices of it and chunk frames).
+	 * @throws MessageEncodingException Thrown if the given buffer does not
+	 * contain complete frames.
+	 */
+	@SuppressWarnings("nls")
+	public final List<ByteBuffer> split(final ByteBuffer frames) throws MessageEncodingException
+	{
+		if (frames.remaining() <= chunkSize)
+		{
+			return Collections.singletonList(frames);
+		}
+
+		final List<ByteBuffer> writes = new ArrayList<>();
+		final ByteBuffer buffer = frames.duplicate();
+		int batch = buffer.position();
+
+		try
+		{
+			while (buffer.hasRemaining())
+			{
+				final int start = buffer.position();
+				final int length = MessageFrame.readLength(buffer);
+				if (length < 0 || length > buffer.remaining())
+				{
+					throw new MessageEncodingException("Cannot split frames due to: incomplete frame at: " + start);
+				}
+
+				final int end = buffer.position() + length;
+				if (end - batch <= chunkSize)
+				{
+					// The frame joins the current write.
+					buffer.position(end);
+					continue;
+				}
+
+				if (start > batch)
+				{
+					writes.add(slice(buffer, batch, start));
+				}
+
+				if (end - start <= chunkSize)
+				{
+					batch = start;
+				}
+				else
+				{
+					final ByteBuffer encoded = buffer.duplicate();
+					encoded.limit(end);
+					split(writes, encoded);
+					batch = end;
+				}
+
+				buffer.position(end);
+			}
+		}
+		catch (final MessageDecodingException e)
+		{
+			throw new MessageEncodingException("Cannot split frames due to: " + e.getMessage());
+		}
+
+		if (buffer.position() > batch)
+		{
+			writes.add(slice(buffer, batch, buffer.position()));
+		}
+
+		return writes;
+	}
+
+	/**
+	 * Splits an encoded message into chunk frames.
+	 * <p>
+	 * @param writes List of the writes to append the chunk frames to.
+	 * @param encoded {@link ByteBuffer} containing the encoded message.
+	 */
+	private final void split(final List<ByteBuffer> writes, final ByteBuffer encoded)
+	{
+		final int streamId = streams.getAndIncrement() & Integer.MAX_VALUE;
+		final int total = encoded.remaining();
+
+		// Room left for the chunk data once the (largest) chunk header is written.
+		final int header = MessageFrame.getChunkLength(streamId, Integer.MAX_VALUE, total, chunkSize) - chunkSize;
+		final int data = chunkSize - header;
+
+		int index = 0;
+		while (encoded.hasRemaining())
+		{
+			final int length = Math.min(data, encoded.remaining());
+			final ByteBuffer chunk = encoded.duplicate();
+			chunk.limit(chunk.position() + length);
+
+			final ByteBuffer write = ByteBuffer.allocate(MessageFrame.getChunkLength(streamId, index, total, length));
+			MessageFrame.writeChunk(write, streamId, index, total, chunk);
+			write.flip();
+			writes.add(write);
+
+			encoded.position(encoded.position() + length);
+			index++;
+		}
+	}
+
+	/**
+	 * Returns a slice of a buffer.
+	 * <p>
+	 * @param buffer {@link ByteBuffer}.
+	 * @param start Start position.
+	 * @param end End position.
+	 * @return {@link ByteBuffer} sharing the content of the given buffer.
+	 */
+	private static final ByteBuffer slice(final ByteBuffer buffer, final int start, final int end)
+	{
+		final ByteBuffer slice = buffer.duplicate();
+		slice.limit(end);
+		slice.position(start);
+
+		return slice.slice();
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+
+import org.heliosphere.drake.base.codec.io.VarInt;
+
+/**
+ * Helper methods to write and read message frames.
+ * <p>
+ * A frame is made of the length of the encoded message (variable length
+ * integer) followed by the encoded message. Several frames can be written one
+ * after the other in the same buffer so that several messages can be sent
+ * within a single network write.
+ * <p>
+ * An encoded message too large to be sent at once is split into chunk frames
+ * (see {@link MessageChunker}). A chunk frame starts with a zero length (no
+ * message is encoded with zero bytes) followed by the length of the chunk
+ * record and the chunk record: stream identifier, chunk index and total
+ * length of the encoded message (variable length integers) followed by the
+ * chunk bytes.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MessageFrame
+{
+	/**
+	 * Length prefix introducing a chunk frame.
+	 */
+	public static final int CHUNK_MARKER = 0;
+
+	/**
+	 * Helper class, cannot be instantiated.
+	 */
+	private MessageFrame()
+	{
+		// Empty
+	}
+
+	/**
+	 * Returns the length of a frame.
+	 * <p>
+	 * @param length Length of the encoded message.
+	 * @return Length of the frame (length prefix included).
+	 */
+	public static final int getLength(final int length)
+	{
+		return VarInt.sizeOf(length) + length;
+	}
+
+	/**
+	 * Returns the length of a chunk frame.
+	 * <p>
+	 * @param streamId Stream identifier.
+	 * @param index Chunk index.
+	 * @param totalLength Total length of the encoded message.
+	 * @param length Length of the chunk.
+	 * @return Length of the chunk frame.
+	 */
+	public static final int getChunkLength(final int streamId, final int index, final int totalLength, final int length)
+	{
+		final int record = VarInt.sizeOf(streamId) + VarInt.sizeOf(index) + VarInt.sizeOf(totalLength) + length;
+
+		return VarInt.sizeOf(CHUNK_MARKER) + getLength(record);
+	}
+
+	/**
+	 * Writes a chunk frame at the current position of a buffer.
+	 * <p>
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param streamId Stream identifier.
+	 * @param index Chunk index.
+	 * @param totalLength Total length of the encoded message.
+	 * @param encoded {@link ByteBuffer} containing the chunk bytes between its
+	 * position and its limit. Its position is not modified.
+	 */
+	public static final void writeChunk(final ByteBuffer target, final int streamId, final int index, final int totalLength, final ByteBuffer encoded)
+	{
+		VarInt.writeInt(target, CHUNK_MARKER);
+		VarInt.writeInt(target, VarInt.sizeOf(streamId) + VarInt.sizeOf(index) + VarInt.sizeOf(totalLength) + encoded.remaining());
+		VarInt.writeInt(target, streamId);
+		VarInt.writeInt(target, index);
+		VarInt.writeInt(target, totalLength);
+		target.put(encoded.duplicate());
+	}
+
+	/**
+	 * Writes a frame at the current position of a buffer.
+	 * <p>
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param encoded {@link ByteBuffer} containing the encoded message between
+	 * its position and its limit. Its position is not modified.
+	 */
+	public static final void write(final ByteBuffer target, final ByteBuffer encoded)
+	{
+		VarInt.writeInt(target, encoded.remaining());
+		target.put(encoded.duplicate());
+	}
+
+	/**
+	 * Writes a frame at the current position of a buffer.
+	 * <p>
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param encoded Array containing the encoded message.
+	 * @param offset Offset of the encoded message in the array.
+	 * @param length Length of the encoded message.
+	 */
+	public static final void write(final ByteBuffer target, final byte[] encoded, final int offset, final int length)
+	{
+		VarInt.writeInt(target, length);
+		target.put(encoded, offset, length);
+	}
+
+	/**
+	 * Reads the length prefix of a frame. If the buffer does not contain the
+	 * complete length prefix, the position of the buffer is not modified.
+	 * <p>
+	 * @param buffer {@link ByteBuffer} to read from.
+	 * @return Length of the encoded message or {@code -1} if the buffer does
+	 * not contain the complete length prefix.
+	 * @throws MessageDecodingException Thrown if the length prefix is
+	 * malformed.
+	 */
+	@SuppressWarnings("nls")
+	public static final int readLength(final ByteBuffer buffer) throws MessageDecodingException
+	{
+		final int start = buffer.position();
+		int length = 0;
+
+		for (int shift = 0; shift < 32; shift += 7)
+		{
+			if (!buffer.hasRemaining())
+			{
+				buffer.position(start);
+				return -1;
+			}
+
+			final byte b = buffer.get();
+			length |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				if (length < 0)
+				{
+					break;
+				}
+				return length;
+			}
+		}
+
+		throw new MessageDecodingException("Malformed frame length prefix!");
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.codec;
+
+import java.nio.ByteBuffer;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.metrics.MessageMetrics;
+
+/**
+ * A message codec recording the {@link MessageMetrics} of the messages
+ * encoded and decoded by another message codec.
+ * <p>
+ * The recorded sizes are the ones of the encoded form produced by the wrapped
+ * codec (so after compression when the wrapped codec compresses). Messages
+ * encoded as a batch are metered one by one.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MeteringMessageCodec extends AbstractMessageCodec implements IDelegatingMessageCodec
+{
+	/**
+	 * Wrapped message codec.
+	 */
+	private final IMessageCodec codec;
+
+	/**
+	 * Message metrics.
+	 */
+	private final MessageMetrics metrics;
+
+	/**
+	 * Creates a new metering message codec.
+	 * <p>
+	 * @param codec {@link IMessageCodec} to wrap.
+	 */
+	@SuppressWarnings("nls")
+	public MeteringMessageCodec(final IMessageCodec codec)
+	{
+		Validate.notNull(codec, "Message codec cannot be null!");
+
+		this.codec = codec;
+		this.metrics = MessageMetrics.getInstance();
+	}
+
+	@Override
+	public final IMessageCodec getDelegate()
+	{
+		return codec;
+	}
+
+	@Override
+	public final IMessage decodeMessage(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		final int start = encoded.position();
+		final long time = System.nanoTime();
+
+		final IMessage message = codec.decodeMessage(encoded);
+
+		metrics.recordReceived(message.getMessageType(), encoded.position() - start, System.nanoTime() - time);
+
+		return message;
+	}
+
+	@Override
+	public final ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	{
+		final long time = System.nanoTime();
+
+		final ByteBuffer encoded = codec.encodeMessage(message);
+
+		metrics.recordSent(message.getMessageType(), encoded.remaining(), System.nanoTime() - time);
+
+		return encoded;
+	}
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.dispatch;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.log4j.Log4j;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.dispatch.type.OverflowPolicyType;
+import org.heliosphere.drake.base.message.metrics.MessageMetrics;
+import org.heliosphere.drake.base.player.IEntity;
+
+/**
+ * A single threaded lane of a {@link MessageDispatcher}.
+ * <p>
+ * The messages dispatched to a lane are handled one at a time, in the order
+ * they have been accepted, by the thread owned by the lane. The lane keeps
+ * the statistics of its queue.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class DispatchLane implements Runnable
+{
+	/**
+	 * Task used to stop the lane thread once the pending messages have been
+	 * handled.
+	 */
+	private static final Task STOP = new Task(null, null);
+
+	/**
+	 * Interval at which an idle lane checks if it has been stopped (in
+	 * milliseconds), as the stop task can be dropped by a concurrent
+	 * {@link OverflowPolicyType#DROP_OLDEST} dispatch.
+	 */
+	private static final long STOP_CHECK_INTERVAL = 100;
+
+	/**
+	 * Lane index.
+	 */
+	private final int index;
+
+	/**
+	 * Queue of the messages waiting to be handled.
+	 */
+	private final BlockingQueue<Task> queue;
+
+	/**
+	 * Policy applied when the queue is full.
+	 */
+	private final OverflowPolicyType policy;
+
+	/**
+	 * Lane thread.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Highest number of messages observed waiting in the queue.
+	 */
+	private final AtomicInteger maxDepth = new AtomicInteger();
+
+	/**
+	 * Number of messages accepted by the lane.
+	 */
+	private final AtomicLong accepted = new AtomicLong();
+
+	/**
+	 * Number of messages dropped by the lane.
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Number of messages handled by the lane.
+	 */
+	private final AtomicLong handled = new AtomicLong();
+
+	/**
+	 * Number of messages whose handling failed.
+	 */
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * Is the lane accepting messages?
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Creates and starts a new dispatch lane.
+	 * <p>
+	 * @param name Name prefix of the lane thread.
+	 * @param index Lane index.
+	 * @param capacity Capacity of the lane queue.
+	 * @param policy Policy applied when the queue is full.
+	 */
+	DispatchLane(final String name, final int index, final int capacity, final OverflowPolicyType policy)
+	{
+		this.index = index;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.policy = policy;
+		this.thread = new Thread(this, name + index);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Queues a message to be handled by an entity.
+	 * <p>
+	 * @param entity Entity handling the message.
+	 * @param message Message to handle.
+	 * @return {@code True} if the message has been accepted, {@code false} if
+	 * it has been dropped.
+	 */
+	final boolean offer(final IEntity entity, final IMessage message)
+	{
+		if (!running)
+		{
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		final Task task = new Task(entity, message);
+		boolean done = queue.offer(task);
+		if (!done)
+		{
+			switch (policy)
+			{
+				case BLOCK:
+					try
+					{
+						queue.put(task);
+						done = true;
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+					break;
+
+				case DROP_OLDEST:
+					while (!done)
+					{
+						if (queue.poll() != null)
+						{
+							dropped.incrementAndGet();
+						}
+						done = queue.offer(task);
+					}
+					break;
+
+				case DROP_NEWEST:
+				default:
+					break;
+			}
+		}
+
+		if (!done)
+		{
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		accepted.incrementAndGet();
+		updateMaxDepth(queue.size());
+
+		return true;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final void run()
+	{
+		while (true)
+		{
+			final Task task;
+			try
+			{
+				task = queue.poll(STOP_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				// Only a stop ends the lane.
+				continue;
+			}
+
+			if (task == STOP)
+			{
+				return;
+			}
+
+			if (task == null)
+			{
+				// Stopped and drained (the stop task may have been dropped).
+				if (!running && queue.isEmpty())
+				{
+					return;
+				}
+
+				continue;
+			}
+
+			final long time = System.nanoTime();
+			try
+			{
+				task.entity.handleMessage(task.message);
+			}
+			catch (RuntimeException e)
+			{
+				failed.incrementAndGet();
+				log.error("Cannot handle message [lane=" + index + ", type=" + task.message.getMessageType() + "] due to: " + e.getMessage(), e);
+			}
+			handled.incrementAndGet();
+			MessageMetrics.getInstance().recordHandled(task.message.getMessageType(), System.nanoTime() - time);
+		}
+	}
+
+	/**
+	 * Stops the lane once the messages already accepted are handled.
+	 * <p>
+	 * @param timeout Maximum time to wait for the lane thread to end (in
+	 * milliseconds).
+	 * @return {@code True} if the lane thread ended, {@code false} otherwise.
+	 * @throws InterruptedException Thrown if the calling thread is interrupted
+	 * while waiting.
+	 */
+	final boolean stop(final long timeout) throws InterruptedException
+	{
+		running = false;
+
+		// The stop task only wakes the lane up, an idle lane also ends once stopped and drained.
+		if (!queue.offer(STOP, timeout, TimeUnit.MILLISECONDS))
+		{
+			return false;
+		}
+		thread.join(timeout);
+
+		return !thread.isAlive();
+	}
+
+	/**
+	 * Records a queue depth.
+	 * <p>
+	 * @param depth Queue depth.
+	 */
+	private final void updateMaxDepth(final int depth)
+	{
+		int current = maxDepth.get();
+		while (depth > current && !maxDepth.compareAndSet(current, depth))
+		{
+			current = maxDepth.get();
+		}
+	}
+
+	/**
+	 * Returns the lane index.
+	 * <p>
+	 * @return Lane index.
+	 */
+	public final int getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * Returns the number of messages waiting in the lane queue.
+	 * <p>
+	 * @return Queue depth.
+	 */
+	public final int getQueueDepth()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * Returns the highest number of messages observed waiting in the lane
+	 * queue.
+	 * <p>
+	 * @return Maximum queue depth.
+	 */
+	public final int getMaxQueueDepth()
+	{
+		return maxDepth.get();
+	}
+
+	/**
+	 * Returns the capacity of the lane queue.
+	 * <p>
+	 * @return Queue capacity.
+	 */
+	public final int getQueueCapacity()
+	{
+		return queue.size() + queue.remainingCapacity();
+	}
+
+	/**
+	 * Returns the number of messages accepted by the lane.
+	 * <p>
+	 * @return Number of accepted messages.
+	 */
+	public final long getAcceptedCount()
+	{
+		return accepted.get();
+	}
+
+	/**
+	 * Returns the number of messages dropped by the lane.
+	 * <p>
+	 * @return Number of dropped messages.
+	 */
+	public final long getDroppedCount()
+	{
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the number of messages handled by the lane.
+	 * <p>
+	 * @return Number of handled messages.
+	 */
+	public final long getHandledCount()
+	{
+		return handled.get();
+	}
+
+	/**
+	 * Returns the number of messages whose handling failed.
+	 * <p>
+	 * @return Number of failed messages.
+	 */
+	public final long getFailedCount()
+	{
+		return failed.get();
+	}
+
+	/**
+	 * A message waiting to be handled.
+	 */
+	private static final class Task
+	{
+		/**
+		 * Entity handling the message.
+		 */
+		private final IEntity entity;
+
+		/**
+		 * Message to handle.
+		 */
+		private final IMessage message;
+
+		/**
+		 * Creates a new task.
+		 * <p>
+		 * @param entity Entity handling the message.
+		 * @param message Message to handle.
+		 */
+		Task(final IEntity entity, final IMessage message)
+		{
+			this.entity = entity;
+			this.message = message;
+		}
+	}
+}
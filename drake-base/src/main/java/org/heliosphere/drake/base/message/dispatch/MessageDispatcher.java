@@ -0,0 +1,208 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.dispatch.type.OverflowPolicyType;
+import org.heliosphere.drake.base.player.IEntity;
+
+/**
+ * Dispatches the received messages to a fixed number of single threaded
+ * lanes.
+ * <p>
+ * The sender of a message is hashed onto a lane, so the messages of a given
+ * sender are always handled in their reception order by the same thread
+ * while the messages of different senders are handled in parallel. Each lane
+ * has a bounded queue; the {@link OverflowPolicyType} defines what happens
+ * when a message is dispatched to a full lane.
+ * <p>
+ * The messages are handled outside of any transaction, so the dispatcher is
+ * only used by the client.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MessageDispatcher
+{
+	/**
+	 * Default capacity of a lane queue.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	/**
+	 * Name prefix of the lane threads.
+	 */
+	@SuppressWarnings("nls")
+	private static final String THREAD_NAME = "drake-dispatch-lane-";
+
+	/**
+	 * Dispatch lanes.
+	 */
+	private final DispatchLane[] lanes;
+
+	/**
+	 * Policy applied when a lane queue is full.
+	 */
+	private final OverflowPolicyType policy;
+
+	/**
+	 * Creates and starts a new message dispatcher.
+	 * <p>
+	 * @param laneCount Number of lanes.
+	 * @param capacity Capacity of each lane queue.
+	 * @param policy Policy applied when a lane queue is full.
+	 */
+	@SuppressWarnings("nls")
+	public MessageDispatcher(final int laneCount, final int capacity, final OverflowPolicyType policy)
+	{
+		Validate.isTrue(laneCount > 0, "Number of lanes must be greater than zero!");
+		Validate.isTrue(capacity > 0, "Lane queue capacity must be greater than zero!");
+		Validate.notNull(policy, "Overflow policy cannot be null!");
+
+		this.policy = policy;
+		this.lanes = new DispatchLane[laneCount];
+		for (int i = 0; i < laneCount; i++)
+		{
+			lanes[i] = new DispatchLane(THREAD_NAME, i, capacity, policy);
+		}
+	}
+
+	/**
+	 * Dispatches a message to the lane of its sender.
+	 * <p>
+	 * @param sender Key identifying the sender (the messages dispatched with
+	 * equal keys are handled in order).
+	 * @param entity Entity handling the message.
+	 * @param message Message to handle.
+	 * @return {@code True} if the message has been accepted, {@code false} if
+	 * it has been dropped.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean dispatch(final Object sender, final IEntity entity, final IMessage message)
+	{
+		Validate.notNull(sender, "Sender cannot be null!");
+		Validate.notNull(entity, "Entity cannot be null!");
+		Validate.notNull(message, "Message cannot be null!");
+
+		return getLane(sender).offer(entity, message);
+	}
+
+	/**
+	 * Returns the lane of a sender.
+	 * <p>
+	 * @param sender Key identifying the sender.
+	 * @return {@link DispatchLane}.
+	 */
+	public final DispatchLane getLane(final Object sender)
+	{
+		int hash = sender.hashCode();
+		hash ^= (hash >>> 16);
+
+		return lanes[(hash & Integer.MAX_VALUE) % lanes.length];
+	}
+
+	/**
+	 * Returns the dispatch lanes.
+	 * <p>
+	 * @return Unmodifiable list of lanes.
+	 */
+	public final List<DispatchLane> getLanes()
+	{
+		final List<DispatchLane> list = new ArrayList<>(lanes.length);
+		Collections.addAll(list, lanes);
+
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Returns the number of lanes.
+	 * <p>
+	 * @return Number of lanes.
+	 */
+	public final int getLaneCount()
+	{
+		return lanes.length;
+	}
+
+	/**
+	 * Returns the policy applied when a lane queue is full.
+	 * <p>
+	 * @return {@link OverflowPolicyType}.
+	 */
+	public final OverflowPolicyType getOverflowPolicy()
+	{
+		return policy;
+	}
+
+	/**
+	 * Returns the number of messages waiting in all the lanes.
+	 * <p>
+	 * @return Total queue depth.
+	 */
+	public final int getQueueDepth()
+	{
+		int depth = 0;
+		for (DispatchLane lane : lanes)
+		{
+			depth += lane.getQueueDepth();
+		}
+
+		return depth;
+	}
+
+	/**
+	 * Returns the number of messages dropped by all the lanes.
+	 * <p>
+	 * @return Number of dropped messages.
+	 */
+	public final long getDroppedCount()
+	{
+		long count = 0;
+		for (DispatchLane lane : lanes)
+		{
+			count += lane.getDroppedCount();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Stops the lanes once the messages already accepted are handled. The
+	 * messages dispatched afterwards are dropped.
+	 * <p>
+	 * @param timeout Maximum time to wait for each lane (in milliseconds).
+	 * @return {@code True} if all the lanes ended, {@code false} otherwise.
+	 */
+	public final boolean shutdown(final long timeout)
+	{
+		boolean stopped = true;
+		for (DispatchLane lane : lanes)
+		{
+			try
+			{
+				stopped &= lane.stop(timeout);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		return stopped;
+	}
+}
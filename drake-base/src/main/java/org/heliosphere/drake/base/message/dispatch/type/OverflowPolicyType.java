@@ -0,0 +1,39 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.dispatch.type;
+
+/**
+ * Enumeration of the policies applied when a message is dispatched to a lane
+ * whose queue is full.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public enum OverflowPolicyType
+{
+	/**
+	 * The dispatching thread waits until the lane has room for the message
+	 * (back-pressure on the receiving thread).
+	 */
+	BLOCK,
+
+	/**
+	 * The dispatched message is dropped.
+	 */
+	DROP_NEWEST,
+
+	/**
+	 * The oldest message waiting in the lane is dropped to make room for the
+	 * dispatched message.
+	 */
+	DROP_OLDEST;
+}
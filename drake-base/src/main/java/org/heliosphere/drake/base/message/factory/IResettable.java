@@ -0,0 +1,31 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.factory;
+
+/**
+ * Interface that message data classes can implement to be reused by the
+ * pooled messages.
+ * <p>
+ * When a pooled message is released, a content implementing this interface
+ * is reset and kept by the message instead of being dropped, so acquiring the
+ * message again does not instantiate a new content.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface IResettable
+{
+	/**
+	 * Resets the object to the state of a newly created instance.
+	 */
+	void reset();
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.factory;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.AbstractMessage;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+/**
+ * Factory creating the messages of a registered message type.
+ * <p>
+ * The message and data constructors are resolved once, when the message type
+ * is registered, and invoked through method handles. When the message class
+ * extends {@link AbstractMessage} and provides a public no-argument
+ * constructor, the message is created without querying the message manager
+ * again; otherwise the constructor taking the message identifier is used.
+ * <p>
+ * Messages can optionally be taken from a per-thread pool using
+ * {@link #acquire()} and given back using {@link #release(IMessage)}. A
+ * released message must not be used anymore by the caller. Pooling is
+ * disabled while the pool size is {@code 0} (the default).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MessageFactory
+{
+	/**
+	 * Default number of released messages kept by each thread for each message
+	 * type.
+	 */
+	public static final int DEFAULT_POOL_SIZE = 0;
+
+	/**
+	 * Type of the message constructor once adapted.
+	 */
+	private static final MethodType MESSAGE_TYPE = MethodType.methodType(AbstractMessage.class);
+
+	/**
+	 * Type of the data constructor once adapted.
+	 */
+	private static final MethodType DATA_TYPE = MethodType.methodType(Object.class);
+
+	/**
+	 * Number of released messages kept by each thread for each message type.
+	 */
+	private static volatile int poolSize = DEFAULT_POOL_SIZE;
+
+	/**
+	 * Message type.
+	 */
+	private final Enum<? extends IMessageType> type;
+
+	/**
+	 * Message class.
+	 */
+	private final Class<? extends IMessage> messageClass;
+
+	/**
+	 * Message no-argument constructor or {@code null} if the message class does
+	 * not extend {@link AbstractMessage} or does not provide one.
+	 */
+	private final MethodHandle messageConstructor;
+
+	/**
+	 * Message constructor taking the message identifier (used when
+	 * {@link #messageConstructor} is not available).
+	 */
+	private final Constructor<? extends IMessage> identifierConstructor;
+
+	/**
+	 * Data no-argument constructor or {@code null} if the data class does not
+	 * provide one.
+	 */
+	private final MethodHandle dataConstructor;
+
+	/**
+	 * Released messages of the calling thread.
+	 */
+	private final ThreadLocal<ArrayDeque<AbstractMessage>> pool = new ThreadLocal<ArrayDeque<AbstractMessage>>()
+	{
+		@Override
+		protected ArrayDeque<AbstractMessage> initialValue()
+		{
+			return new ArrayDeque<>();
+		}
+	};
+
+	/**
+	 * Creates a new message factory.
+	 * <p>
+	 * @param type Message type.
+	 */
+	@SuppressWarnings("nls")
+	public MessageFactory(final Enum<? extends IMessageType> type)
+	{
+		Validate.notNull(type, "Message type cannot be null!");
+
+		this.type = type;
+		this.messageClass = ((IMessageType) type).getMessageClass();
+		this.messageConstructor = AbstractMessage.class.isAssignableFrom(messageClass) ? findConstructor(messageClass, MESSAGE_TYPE) : null;
+		this.identifierConstructor = messageConstructor == null ? findIdentifierConstructor(messageClass) : null;
+		this.dataConstructor = findConstructor(((IMessageType) type).getDataClass(), DATA_TYPE);
+	}
+
+	/**
+	 * Sets the number of released messages kept by each thread for each
+	 * message type.
+	 * <p>
+	 * @param size Pool size ({@code 0} to disable pooling).
+	 */
+	@SuppressWarnings("nls")
+	public static final void setPoolSize(final int size)
+	{
+		Validate.isTrue(size >= 0, "Pool size cannot be negative!");
+
+		poolSize = size;
+	}
+
+	/**
+	 * Returns the number of released messages kept by each thread for each
+	 * message type.
+	 * <p>
+	 * @return Pool size.
+	 */
+	public static final int getPoolSize()
+	{
+		return poolSize;
+	}
+
+	/**
+	 * Returns the message type.
+	 * <p>
+	 * @return Message type.
+	 */
+	public final Enum<? extends IMessageType> getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Creates a new message with a new content.
+	 * <p>
+	 * @return Message.
+	 * @throws MessageException Thrown if the message or its content
+	 * cannot be created.
+	 */
+	@SuppressWarnings("nls")
+	public final IMessage create() throws MessageException
+	{
+		if (messageConstructor == null)
+		{
+			return createByIdentifier();
+		}
+
+		final AbstractMessage message = allocate();
+		message.setHeader(type, message.getCreationTime());
+		message.setContent(createData());
+
+		return message;
+	}
+
+	/**
+	 * Creates a new message without content nor header (used by the codecs to
+	 * decode a message).
+	 * <p>
+	 * @return Message.
+	 * @throws MessageException Thrown if the message class does not
+	 * extend {@link AbstractMessage} or does not provide a public no-argument
+	 * constructor.
+	 */
+	@SuppressWarnings("nls")
+	public final AbstractMessage allocate() throws MessageException
+	{
+		if (messageConstructor == null)
+		{
+			throw new MessageException("Cannot create message of type: " + type.name() + " because message class: " + messageClass.getName() + " does not extend: " + AbstractMessage.class.getName() + " or has no public no-argument constructor!");
+		}
+
+		try
+		{
+			return (AbstractMessage) messageConstructor.invokeExact();
+		}
+		catch (Error e)
+		{
+			throw e;
+		}
+		catch (Exception e)
+		{
+			throw new MessageException("Cannot create message of type: " + type.name() + " due to: " + e.getMessage(), e);
+		}
+		catch (Throwable e)
+		{
+			throw new MessageException("Cannot create message of type: " + type.name() + " due to: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns a message taken from the pool of the calling thread or a new
+	 * message if the pool is empty. The message must be given back using
+	 * {@link #release(IMessage)} once it is not used anymore.
+	 * <p>
+	 * @return Message.
+	 * @throws MessageException Thrown if the message or its content
+	 * cannot be created.
+	 */
+	public final IMessage acquire() throws MessageException
+	{
+		final AbstractMessage message = poolSize > 0 ? pool.get().pollFirst() : null;
+		if (message == null)
+		{
+			return create();
+		}
+
+		message.setHeader(type, System.currentTimeMillis());
+		if (message.getContent() == null)
+		{
+			message.setContent(createData());
+		}
+
+		return message;
+	}
+
+	/**
+	 * Gives back a message to the pool of the calling thread. The message is
+	 * reset; its content is kept if it implements {@link IResettable}.
+	 * <p>
+	 * @param message Message acquired from this factory.
+	 * @return {@code True} if the message has been pooled, {@code false} if it
+	 * has been dropped (pooling disabled, pool full or message not created by
+	 * this factory).
+	 */
+	public final boolean release(final IMessage message)
+	{
+		if (message == null || message.getClass() != messageClass || message.getMessageType() != type || messageConstructor == null)
+		{
+			return false;
+		}
+
+		final ArrayDeque<AbstractMessage> messages = pool.get();
+		if (messages.size() >= poolSize)
+		{
+			return false;
+		}
+
+		final AbstractMessage pooled = (AbstractMessage) message;
+		pooled.reset();
+		messages.offerFirst(pooled);
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of messages held by the pool of the calling thread.
+	 * <p>
+	 * @return Number of pooled messages.
+	 */
+	public final int getPooledCount()
+	{
+		return pool.get().size();
+	}
+
+	/**
+	 * Creates a new message using the constructor taking the message
+	 * identifier.
+	 * <p>
+	 * @return Message.
+	 * @throws MessageException Thrown if the message cannot be created.
+	 */
+	@SuppressWarnings("nls")
+	private final IMessage createByIdentifier() throws MessageException
+	{
+		if (identifierConstructor == null)
+		{
+			throw new MessageException("Cannot create message of type: " + type.name() + " because message class: " + messageClass.getName() + " has no usable constructor!");
+		}
+
+		try
+		{
+			return identifierConstructor.newInstance(Integer.valueOf(((IMessageType) type).getMessageId()));
+		}
+		catch (Exception e)
+		{
+			throw new MessageException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Creates a new message content.
+	 * <p>
+	 * @return Content.
+	 * @throws MessageException Thrown if the content cannot be created.
+	 */
+	@SuppressWarnings("nls")
+	private final Object createData() throws MessageException
+	{
+		final Class<? extends Serializable> dataClass = ((IMessageType) type).getDataClass();
+		if (dataConstructor == null)
+		{
+			throw new MessageException("Cannot create content of message: " + type.name() + " because data class: " + dataClass.getName() + " has no public no-argument constructor!");
+		}
+
+		try
+		{
+			return dataConstructor.invokeExact();
+		}
+		catch (Error e)
+		{
+			throw e;
+		}
+		catch (Exception e)
+		{
+			throw new MessageException("Cannot create content of message: " + type.name() + " due to: " + e.getMessage(), e);
+		}
+		catch (Throwable e)
+		{
+			throw new MessageException("Cannot create content of message: " + type.name() + " due to: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the public no-argument constructor of a class adapted to a given
+	 * type.
+	 * <p>
+	 * @param clazz Class.
+	 * @param adapted Type of the returned method handle.
+	 * @return Constructor or {@code null} if the class does not provide one.
+	 */
+	private static final MethodHandle findConstructor(final Class<?> clazz, final MethodType adapted)
+	{
+		try
+		{
+			return MethodHandles.publicLookup().findConstructor(clazz, MethodType.methodType(void.class)).asType(adapted);
+		}
+		catch (NoSuchMethodException | IllegalAccessException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the constructor of a message class taking the message
+	 * identifier.
+	 * <p>
+	 * @param messageClass Message class.
+	 * @return Constructor or {@code null} if the message class does not
+	 * provide one.
+	 */
+	private static final Constructor<? extends IMessage> findIdentifierConstructor(final Class<? extends IMessage> messageClass)
+	{
+		try
+		{
+			return messageClass.getConstructor(int.class);
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.handler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.application.IApplication;
+import org.heliosphere.drake.base.message.IMessage;
+
+/**
+ * Pre-bound invoker of a message handler.
+ * <p>
+ * The invoker is created once, when the message type is registered, so that
+ * dispatching a message neither looks up the handler method nor uses
+ * reflection. A handler class declaring no instance field is considered
+ * stateless and a single instance of it is shared by all the dispatches
+ * (the handler must then be thread safe). A new instance of a stateful handler
+ * is created for each message through a pre-resolved constructor handle.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MessageHandlerInvoker
+{
+	/**
+	 * Type of the handler constructor once adapted to the handler interface.
+	 */
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(IMessageHandler.class);
+
+	/**
+	 * Handler class.
+	 */
+	private final Class<? extends IMessageHandler> handlerClass;
+
+	/**
+	 * Handler no-argument constructor.
+	 */
+	private final MethodHandle constructor;
+
+	/**
+	 * Shared handler instance or {@code null} if the handler is stateful.
+	 */
+	private final IMessageHandler handler;
+
+	/**
+	 * Creates a new message handler invoker.
+	 * <p>
+	 * @param handlerClass Handler class.
+	 * @throws NoSuchMethodException Thrown if the handler class does not
+	 * provide a public no-argument constructor.
+	 * @throws IllegalAccessException Thrown if the handler constructor cannot
+	 * be accessed.
+	 */
+	@SuppressWarnings("nls")
+	public MessageHandlerInvoker(final Class<? extends IMessageHandler> handlerClass) throws NoSuchMethodException, IllegalAccessException
+	{
+		Validate.notNull(handlerClass, "Handler class cannot be null!");
+
+		this.handlerClass = handlerClass;
+		this.constructor = MethodHandles.publicLookup().findConstructor(handlerClass, MethodType.methodType(void.class)).asType(CONSTRUCTOR_TYPE);
+		this.handler = isStateless(handlerClass) ? newInstance() : null;
+	}
+
+	/**
+	 * Returns the handler class.
+	 * <p>
+	 * @return Handler class.
+	 */
+	public final Class<? extends IMessageHandler> getHandlerClass()
+	{
+		return handlerClass;
+	}
+
+	/**
+	 * Returns if the handler instance is shared by the dispatches.
+	 * <p>
+	 * @return {@code True} if the handler is stateless, {@code false}
+	 * otherwise.
+	 */
+	public final boolean isShared()
+	{
+		return handler != null;
+	}
+
+	/**
+	 * Dispatches a message to its handler.
+	 * <p>
+	 * @param application Parent application.
+	 * @param message Message to handle.
+	 */
+	public final void invoke(final IApplication application, final IMessage message)
+	{
+		final IMessageHandler target = handler != null ? handler : newInstance();
+
+		target.handleMessage(application, message);
+	}
+
+	/**
+	 * Creates a new handler instance.
+	 * <p>
+	 * @return Handler.
+	 */
+	@SuppressWarnings("nls")
+	private final IMessageHandler newInstance()
+	{
+		try
+		{
+			return (IMessageHandler) constructor.invokeExact();
+		}
+		catch (RuntimeException | Error e)
+		{
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			throw new IllegalStateException("Cannot create message handler: " + handlerClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Returns if a handler class (and its super classes) declares no instance
+	 * field.
+	 * <p>
+	 * @param handlerClass Handler class.
+	 * @return {@code True} if the handler is stateless, {@code false}
+	 * otherwise.
+	 */
+	private static final boolean isStateless(final Class<?> handlerClass)
+	{
+		for (Class<?> current = handlerClass; current != null && current != Object.class; current = current.getSuperclass())
+		{
+			for (Field field : current.getDeclaredFields())
+			{
+				if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic())
+				{
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.journal;
+
+import org.heliosphere.drake.base.message.MessageException;
+
+/**
+ * Interface that classes handling the records replayed by a
+ * {@link JournalReplayer} must implement.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface IJournalRecordHandler
+{
+	/**
+	 * Handles a replayed record.
+	 * <p>
+	 * @param record {@link JournalRecord} to handle.
+	 * @throws MessageException Thrown if the record cannot be handled (the
+	 * replay is stopped).
+	 */
+	void handle(final JournalRecord record) throws MessageException;
+}
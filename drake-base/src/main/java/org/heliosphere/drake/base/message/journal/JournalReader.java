@@ -0,0 +1,186 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.journal.type.JournalDirectionType;
+
+/**
+ * Reads the records of a {@link MessageJournal} in the order they have been
+ * appended. The segments are memory-mapped, so the payload of a record is a
+ * view of the segment and is not copied.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class JournalReader implements Closeable
+{
+	/**
+	 * Segment files to read.
+	 */
+	private final List<File> files;
+
+	/**
+	 * Index of the next segment file to read.
+	 */
+	private int index = 0;
+
+	/**
+	 * Segment being read or {@code null} if the next segment must be opened.
+	 */
+	private MappedByteBuffer segment = null;
+
+	/**
+	 * Creates a new journal reader reading all the segments of a directory.
+	 * <p>
+	 * @param directory Directory of the segment files.
+	 * @throws IOException Thrown if the directory cannot be read.
+	 */
+	@SuppressWarnings("nls")
+	public JournalReader(final File directory) throws IOException
+	{
+		Validate.notNull(directory, "Journal directory cannot be null!");
+
+		final File[] segments = directory.listFiles(new FileFilter()
+		{
+			@Override
+			public boolean accept(final File file)
+			{
+				return file.isFile() && file.getName().endsWith(MessageJournal.SEGMENT_EXTENSION);
+			}
+		});
+
+		if (segments == null)
+		{
+			throw new IOException("Cannot read journal directory: " + directory.getAbsolutePath());
+		}
+
+		// Segment names sort in writing order.
+		Arrays.sort(segments);
+		this.files = Collections.unmodifiableList(Arrays.asList(segments));
+	}
+
+	/**
+	 * Creates a new journal reader reading the given segments.
+	 * <p>
+	 * @param segments Segment files (in writing order).
+	 */
+	@SuppressWarnings("nls")
+	public JournalReader(final List<File> segments)
+	{
+		Validate.notNull(segments, "Journal segments cannot be null!");
+
+		this.files = Collections.unmodifiableList(new ArrayList<>(segments));
+	}
+
+	/**
+	 * Returns the segment files read.
+	 * <p>
+	 * @return List of segment files.
+	 */
+	public final List<File> getSegments()
+	{
+		return files;
+	}
+
+	/**
+	 * Reads the next record.
+	 * <p>
+	 * @return {@link JournalRecord} or {@code null} if all the records have
+	 * been read.
+	 * @throws IOException Thrown if a segment cannot be read or contains a
+	 * corrupted record.
+	 */
+	@SuppressWarnings("nls")
+	public final JournalRecord next() throws IOException
+	{
+		while (true)
+		{
+			if (segment == null)
+			{
+				if (index >= files.size())
+				{
+					return null;
+				}
+				segment = open(files.get(index++));
+			}
+
+			// A zero length marks the unused end of the segment.
+			final int length = segment.remaining() < 4 ? 0 : segment.getInt();
+			if (length == 0)
+			{
+				segment = null;
+				continue;
+			}
+
+			final int start = segment.position();
+			if (length < MessageJournal.HEADER_LENGTH || length > segment.remaining())
+			{
+				throw new IOException("Corrupted journal record [segment=" + files.get(index - 1).getName() + ", position=" + (start - 4) + ", length=" + length + "]");
+			}
+
+			final long timestamp = segment.getLong();
+			final int direction = segment.get();
+			final int messageId = segment.getInt();
+			final int nameLength = segment.getShort() & MessageJournal.MAX_SESSION_LENGTH;
+			if (direction < 0 || direction >= JournalDirectionType.values().length || MessageJournal.HEADER_LENGTH + nameLength > length)
+			{
+				throw new IOException("Corrupted journal record [segment=" + files.get(index - 1).getName() + ", position=" + (start - 4) + "]");
+			}
+
+			final byte[] name = new byte[nameLength];
+			segment.get(name);
+
+			final ByteBuffer payload = segment.slice();
+			payload.limit(start + length - segment.position());
+			segment.position(start + length);
+
+			return new JournalRecord(timestamp, JournalDirectionType.values()[direction], new String(name, MessageJournal.UTF8), messageId, payload);
+		}
+	}
+
+	@Override
+	public final void close()
+	{
+		segment = null;
+		index = files.size();
+	}
+
+	/**
+	 * Maps a segment file.
+	 * <p>
+	 * @param file Segment file.
+	 * @return {@link MappedByteBuffer}.
+	 * @throws IOException Thrown if the segment cannot be mapped.
+	 */
+	private static final MappedByteBuffer open(final File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.journal;
+
+import java.nio.ByteBuffer;
+
+import org.heliosphere.drake.base.message.journal.type.JournalDirectionType;
+
+/**
+ * A message read from a {@link MessageJournal}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class JournalRecord
+{
+	/**
+	 * Time the message has been journaled (in milliseconds since the epoch).
+	 */
+	private final long timestamp;
+
+	/**
+	 * Direction of the message.
+	 */
+	private final JournalDirectionType direction;
+
+	/**
+	 * Name of the session the message has been exchanged on.
+	 */
+	private final String session;
+
+	/**
+	 * Message identifier.
+	 */
+	private final int messageId;
+
+	/**
+	 * Encoded form of the message (as exchanged on the session).
+	 */
+	private final ByteBuffer payload;
+
+	/**
+	 * Creates a new journal record.
+	 * <p>
+	 * @param timestamp Time the message has been journaled.
+	 * @param direction Direction of the message.
+	 * @param session Name of the session.
+	 * @param messageId Message identifier.
+	 * @param payload Encoded form of the message.
+	 */
+	JournalRecord(final long timestamp, final JournalDirectionType direction, final String session, final int messageId, final ByteBuffer payload)
+	{
+		this.timestamp = timestamp;
+		this.direction = direction;
+		this.session = session;
+		this.messageId = messageId;
+		this.payload = payload;
+	}
+
+	/**
+	 * Returns the time the message has been journaled.
+	 * <p>
+	 * @return Time in milliseconds since the epoch.
+	 */
+	public final long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	/**
+	 * Returns the direction of the message.
+	 * <p>
+	 * @return {@link JournalDirectionType}.
+	 */
+	public final JournalDirectionType getDirection()
+	{
+		return direction;
+	}
+
+	/**
+	 * Returns the name of the session the message has been exchanged on.
+	 * <p>
+	 * @return Session name (empty if unknown).
+	 */
+	public final String getSession()
+	{
+		return session;
+	}
+
+	/**
+	 * Returns the message identifier.
+	 * <p>
+	 * @return Message identifier.
+	 */
+	public final int getMessageId()
+	{
+		return messageId;
+	}
+
+	/**
+	 * Returns the encoded form of the message, as produced by the session
+	 * codec. The returned buffer is a read-only view of the journal segment.
+	 * <p>
+	 * @return {@link ByteBuffer}.
+	 */
+	public final ByteBuffer getPayload()
+	{
+		return payload.asReadOnlyBuffer();
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "[timestamp=" + timestamp + ", direction=" + direction + ", session=" + session + ", message.id=" + messageId + ", length=" + payload.remaining() + "]";
+	}
+}
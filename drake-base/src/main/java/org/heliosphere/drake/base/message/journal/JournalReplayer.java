@@ -0,0 +1,99 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.journal;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.MessageException;
+
+/**
+ * Replays the records of a journal, either at the pace they have been
+ * journaled (possibly accelerated) or as fast as possible.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class JournalReplayer
+{
+	/**
+	 * Reader of the journal to replay.
+	 */
+	private final JournalReader reader;
+
+	/**
+	 * Replay speed.
+	 */
+	private final double speed;
+
+	/**
+	 * Creates a new journal replayer.
+	 * <p>
+	 * @param reader {@link JournalReader} of the journal to replay.
+	 * @param speed Replay speed: {@code 1} replays the records at the pace
+	 * they have been journaled, {@code 2} twice as fast, etc. A speed of
+	 * {@code 0} replays the records as fast as possible.
+	 */
+	@SuppressWarnings("nls")
+	public JournalReplayer(final JournalReader reader, final double speed)
+	{
+		Validate.notNull(reader, "Journal reader cannot be null!");
+		Validate.isTrue(speed >= 0, "Replay speed cannot be negative!");
+
+		this.reader = reader;
+		this.speed = speed;
+	}
+
+	/**
+	 * Replays the records of the journal.
+	 * <p>
+	 * @param handler {@link IJournalRecordHandler} handling the records.
+	 * @return Number of replayed records.
+	 * @throws IOException Thrown if the journal cannot be read.
+	 * @throws MessageException Thrown if the handler fails to handle a record.
+	 * @throws InterruptedException Thrown if the replay is interrupted.
+	 */
+	@SuppressWarnings("nls")
+	public final long replay(final IJournalRecordHandler handler) throws IOException, MessageException, InterruptedException
+	{
+		Validate.notNull(handler, "Journal record handler cannot be null!");
+
+		final long start = System.nanoTime();
+		long first = -1;
+		long count = 0;
+
+		JournalRecord record;
+		while ((record = reader.next()) != null)
+		{
+			if (speed > 0)
+			{
+				if (first < 0)
+				{
+					first = record.getTimestamp();
+				}
+
+				final long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(record.getTimestamp() - first) / speed);
+				final long delay = due - System.nanoTime();
+				if (delay > 0)
+				{
+					TimeUnit.NANOSECONDS.sleep(delay);
+				}
+			}
+
+			handler.handle(record);
+			count++;
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.journal.type.JournalDirectionType;
+
+/**
+ * An append-only journal of the encoded messages exchanged on the sessions.
+ * <p>
+ * Records are appended to memory-mapped segment files of a fixed size, so
+ * appending a record is a memory copy (the only system calls are made when a
+ * segment is created or flushed). A new segment is created when the current
+ * one is full. Each record is written as:<br>
+ * <ul>
+ * <li>Length of the record following this field (int)</li>
+ * <li>Timestamp in milliseconds (long)</li>
+ * <li>Direction (byte, ordinal of {@link JournalDirectionType})</li>
+ * <li>Message identifier (int)</li>
+ * <li>Length of the session name (unsigned short) and UTF-8 session name</li>
+ * <li>Encoded form of the message</li>
+ * </ul>
+ * The unused end of a segment is filled with zeros, so a zero length ends the
+ * segment. Segments are named {@code journal-<creation time>-<index>.journal}
+ * so the segments of a journal sort in writing order.
+ * <p>
+ * The records appended by a thread while a batch is open on it (see
+ * {@link #openBatch()}) are held until the batch is committed (see
+ * {@link #commitBatch(long)}), so a server only journals the messages of the
+ * tasks which committed: the batch of an aborted (and retried) task is never
+ * committed and is dropped after {@link #BATCH_TIMEOUT}.
+ * <p>
+ * A journal is thread-safe.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class MessageJournal implements Closeable
+{
+	/**
+	 * Default size of a segment (in bytes).
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Minimum size of a segment (in bytes).
+	 */
+	public static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+	/**
+	 * Extension of the segment files.
+	 */
+	@SuppressWarnings("nls")
+	public static final String SEGMENT_EXTENSION = ".journal";
+
+	/**
+	 * Time after which a batch not committed is dropped (in milliseconds).
+	 */
+	public static final long BATCH_TIMEOUT = 60 * 1000;
+
+	/**
+	 * Length of the fixed part of a record (after the record length).
+	 */
+	static final int HEADER_LENGTH = 8 + 1 + 4 + 2;
+
+	/**
+	 * Maximum length of a session name (in bytes).
+	 */
+	static final int MAX_SESSION_LENGTH = 0xFFFF;
+
+	/**
+	 * Charset of the session names.
+	 */
+	@SuppressWarnings("nls")
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Directory of the segment files.
+	 */
+	private final File directory;
+
+	/**
+	 * Prefix of the segment file names.
+	 */
+	private final String prefix;
+
+	/**
+	 * Size of a segment.
+	 */
+	private final int segmentSize;
+
+	/**
+	 * Current segment or {@code null} if no record has been appended yet.
+	 */
+	private MappedByteBuffer segment = null;
+
+	/**
+	 * Number of segments created.
+	 */
+	private int segmentCount = 0;
+
+	/**
+	 * Number of records appended.
+	 */
+	private long recordCount = 0;
+
+	/**
+	 * Is the journal closed?
+	 */
+	private boolean closed = false;
+
+	/**
+	 * Name of the last journaled session.
+	 */
+	private String lastSession = null;
+
+	/**
+	 * Encoded name of the last journaled session.
+	 */
+	private byte[] lastSessionBytes = null;
+
+	/**
+	 * Batches opened and not committed yet (by identifier, in opening order).
+	 */
+	private final Map<Long, Batch> batches = new LinkedHashMap<>();
+
+	/**
+	 * Batch open on the current thread.
+	 */
+	private final ThreadLocal<Batch> current = new ThreadLocal<>();
+
+	/**
+	 * Last assigned batch identifier.
+	 */
+	private long lastBatch = 0;
+
+	/**
+	 * Creates a new message journal.
+	 * <p>
+	 * @param directory Directory of the segment files (created if necessary).
+	 * @param segmentSize Size of a segment (in bytes).
+	 * @throws IOException Thrown if the directory cannot be created.
+	 */
+	@SuppressWarnings("nls")
+	public MessageJournal(final File directory, final int segmentSize) throws IOException
+	{
+		Validate.notNull(directory, "Journal directory cannot be null!");
+		Validate.isTrue(segmentSize >= MIN_SEGMENT_SIZE, "Journal segment size must be at least " + MIN_SEGMENT_SIZE + " bytes!");
+
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Cannot create journal directory: " + directory.getAbsolutePath());
+		}
+
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.prefix = "journal-" + System.currentTimeMillis();
+	}
+
+	/**
+	 * Appends a message to the journal.
+	 * <p>
+	 * @param direction Direction of the message.
+	 * @param session Name of the session (can be {@code null}).
+	 * @param messageId Message identifier.
+	 * @param payload Encoded form of the message (its position is left
+	 * unchanged).
+	 * @throws IOException Thrown if the journal is closed or if a new segment
+	 * cannot be created.
+	 */
+	public final void append(final JournalDirectionType direction, final String session, final int messageId, final ByteBuffer payload) throws IOException
+	{
+		final Batch batch = current.get();
+		if (batch != null)
+		{
+			// The payload can be a pooled buffer, a copy is held.
+			final ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+			copy.put(payload.duplicate()).flip();
+			batch.records.add(new JournalRecord(System.currentTimeMillis(), direction, session, messageId, copy));
+			return;
+		}
+
+		write(System.currentTimeMillis(), direction, session, messageId, payload);
+	}
+
+	/**
+	 * Opens a batch on the calling thread: the records appended by the thread
+	 * are held until the batch is committed.
+	 * <p>
+	 * @return Batch identifier or {@code -1} if a batch is already open on the
+	 * thread (the records being held by that batch).
+	 */
+	public final synchronized long openBatch()
+	{
+		if (current.get() != null)
+		{
+			return -1;
+		}
+
+		// Batches are kept in opening order, the batches of aborted tasks are the oldest ones.
+		final long now = System.currentTimeMillis();
+		final Iterator<Batch> iterator = batches.values().iterator();
+		while (iterator.hasNext() && now - iterator.next().opened > BATCH_TIMEOUT)
+		{
+			iterator.remove();
+		}
+
+		final Batch batch = new Batch(++lastBatch, now);
+		batches.put(Long.valueOf(batch.id), batch);
+		current.set(batch);
+
+		return batch.id;
+	}
+
+	/**
+	 * Closes a batch on the calling thread, the following records being
+	 * appended directly. The records of the batch are still held until the
+	 * batch is committed.
+	 * <p>
+	 * @param id Batch identifier (see {@link #openBatch()}).
+	 */
+	public final void closeBatch(final long id)
+	{
+		final Batch batch = current.get();
+		if (batch != null && batch.id == id)
+		{
+			current.remove();
+		}
+	}
+
+	/**
+	 * Appends the records held by a batch.
+	 * <p>
+	 * @param id Batch identifier (see {@link #openBatch()}).
+	 * @return Number of records appended ({@code 0} if the batch is unknown
+	 * or has been dropped).
+	 * @throws IOException Thrown if the journal is closed or if a new segment
+	 * cannot be created.
+	 */
+	public final synchronized int commitBatch(final long id) throws IOException
+	{
+		final Batch batch = batches.remove(Long.valueOf(id));
+		if (batch == null)
+		{
+			return 0;
+		}
+
+		for (JournalRecord record : batch.records)
+		{
+			write(record.getTimestamp(), record.getDirection(), record.getSession(), record.getMessageId(), record.getPayload());
+		}
+
+		return batch.records.size();
+	}
+
+	/**
+	 * Writes a record.
+	 * <p>
+	 * @param timestamp Time the message has been journaled.
+	 * @param direction Direction of the message.
+	 * @param session Name of the session (can be {@code null}).
+	 * @param messageId Message identifier.
+	 * @param payload Encoded form of the message (its position is left
+	 * unchanged).
+	 * @throws IOException Thrown if the journal is closed or if a new segment
+	 * cannot be created.
+	 */
+	@SuppressWarnings("nls")
+	private final synchronized void write(final long timestamp, final JournalDirectionType direction, final String session, final int messageId, final ByteBuffer payload) throws IOException
+	{
+		if (closed)
+		{
+			throw new IOException("Message journal is closed!");
+		}
+
+		final byte[] name = encode(session);
+		final int length = HEADER_LENGTH + name.length + payload.remaining();
+
+		if (segment == null || segment.remaining() < 4 + length)
+		{
+			roll(4 + length);
+		}
+
+		segment.putInt(length);
+		segment.putLong(timestamp);
+		segment.put((byte) direction.ordinal());
+		segment.putInt(messageId);
+		segment.putShort((short) name.length);
+		segment.put(name);
+		segment.put(payload.duplicate());
+
+		recordCount++;
+	}
+
+	/**
+	 * Forces the content of the current segment to the storage device.
+	 */
+	public final synchronized void flush()
+	{
+		if (segment != null)
+		{
+			segment.force();
+		}
+	}
+
+	@Override
+	public final synchronized void close()
+	{
+		if (!closed)
+		{
+			flush();
+			segment = null;
+			closed = true;
+		}
+	}
+
+	/**
+	 * Returns the directory of the segment files.
+	 * <p>
+	 * @return Directory.
+	 */
+	public final File getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Returns the number of segments created.
+	 * <p>
+	 * @return Number of segments.
+	 */
+	public final synchronized int getSegmentCount()
+	{
+		return segmentCount;
+	}
+
+	/**
+	 * Returns the number of records appended.
+	 * <p>
+	 * @return Number of records.
+	 */
+	public final synchronized long getRecordCount()
+	{
+		return recordCount;
+	}
+
+	/**
+	 * Returns the encoded form of a session name. The last encoded name is
+	 * kept as the messages of a session usually come in sequence.
+	 * <p>
+	 * @param session Session name (can be {@code null}).
+	 * @return Encoded session name.
+	 */
+	@SuppressWarnings("nls")
+	private final byte[] encode(final String session)
+	{
+		final String name = session == null ? "" : session;
+		if (!name.equals(lastSession))
+		{
+			final byte[] bytes = name.getBytes(UTF8);
+
+			lastSession = name;
+			lastSessionBytes = bytes.length > MAX_SESSION_LENGTH ? Arrays.copyOf(bytes, MAX_SESSION_LENGTH) : bytes;
+		}
+
+		return lastSessionBytes;
+	}
+
+	/**
+	 * Creates a new segment.
+	 * <p>
+	 * @param required Number of bytes required by the record to append.
+	 * @throws IOException Thrown if the segment cannot be created.
+	 */
+	@SuppressWarnings("nls")
+	private final void roll(final int required) throws IOException
+	{
+		if (segment != null)
+		{
+			segment.force();
+		}
+
+		final File file = new File(directory, String.format("%s-%06d%s", prefix, Integer.valueOf(segmentCount), SEGMENT_EXTENSION));
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			// The mapping stays valid once the channel is closed.
+			segment = channel.map(MapMode.READ_WRITE, 0, Math.max(segmentSize, required));
+		}
+		segmentCount++;
+
+		log.info("Message journal segment created [file=" + file.getAbsolutePath() + "]");
+	}
+
+	/**
+	 * Records held until committed.
+	 */
+	private static final class Batch
+	{
+		/**
+		 * Batch identifier.
+		 */
+		final long id;
+
+		/**
+		 * Time the batch has been opened (in milliseconds since the epoch).
+		 */
+		final long opened;
+
+		/**
+		 * Held records.
+		 */
+		final List<JournalRecord> records = new ArrayList<>();
+
+		/**
+		 * Creates a new batch.
+		 * <p>
+		 * @param id Batch identifier.
+		 * @param opened Time the batch has been opened.
+		 */
+		Batch(final long id, final long opened)
+		{
+			this.id = id;
+			this.opened = opened;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.journal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.journal.type.JournalDirectionType;
+import org.heliosphere.drake.base.message.journal.type.ReplayModeType;
+import org.heliosphere.drake.base.message.manager.MessageManagerException;
+import org.heliosphere.drake.base.player.IEntity;
+
+/**
+ * A journal record handler decoding the replayed messages of one direction
+ * and feeding them to an entity, which either handles them (as if they had
+ * been received) or sends them to its counterpart.
+ * <p>
+ * The journaled payloads are the encoded forms produced by the session codecs,
+ * which hold a per session state (string dictionaries, delta snapshots), so
+ * each journaled session is decoded by its own (not journaled) session codec
+ * and the journal must be replayed from the start of the sessions.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class SessionReplayHandler implements IJournalRecordHandler
+{
+	/**
+	 * Direction of the replayed messages.
+	 */
+	private final JournalDirectionType direction;
+
+	/**
+	 * Entity the decoded messages are fed to.
+	 */
+	private final IEntity target;
+
+	/**
+	 * Way the decoded messages are fed to the entity.
+	 */
+	private final ReplayModeType mode;
+
+	/**
+	 * Session codecs (by session name).
+	 */
+	private final Map<String, IMessageCodec> codecs = new HashMap<>();
+
+	/**
+	 * Creates a new session replay handler.
+	 * <p>
+	 * @param direction Direction of the messages to replay (the other records
+	 * are ignored).
+	 * @param target {@link IEntity} the decoded messages are fed to.
+	 * @param mode Way the decoded messages are fed to the entity.
+	 */
+	@SuppressWarnings("nls")
+	public SessionReplayHandler(final JournalDirectionType direction, final IEntity target, final ReplayModeType mode)
+	{
+		Validate.notNull(direction, "Journal direction cannot be null!");
+		Validate.notNull(target, "Target entity cannot be null!");
+		Validate.notNull(mode, "Replay mode cannot be null!");
+
+		this.direction = direction;
+		this.target = target;
+		this.mode = mode;
+	}
+
+	@Override
+	public final void handle(final JournalRecord record) throws MessageException
+	{
+		if (record.getDirection() != direction)
+		{
+			return;
+		}
+
+		IMessageCodec codec = codecs.get(record.getSession());
+		if (codec == null)
+		{
+			try
+			{
+				codec = Manager.getMessageManager().createSessionCodec();
+			}
+			catch (final MessageManagerException e)
+			{
+				throw new MessageException(e);
+			}
+			codecs.put(record.getSession(), codec);
+		}
+
+		final IMessage message = codec.decodeMessage(record.getPayload());
+		if (mode == ReplayModeType.SEND)
+		{
+			target.sendMessage(message);
+		}
+		else
+		{
+			target.handleMessage(message);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.journal.type;
+
+/**
+ * Enumeration of the directions of the journaled messages.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public enum JournalDirectionType
+{
+	/**
+	 * Message received (decoded) on a session.
+	 */
+	INBOUND,
+
+	/**
+	 * Message sent (encoded) on a session.
+	 */
+	OUTBOUND;
+}
@@ -14,12 +14,24 @@ package org.heliosphere.drake.base.message.manager;
 import java.io.Serializable;
 import java.util.List;
 
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.codec.catalog.IClassCatalog;
+import org.heliosphere.drake.base.codec.provider.CodecBenchmarkResult;
+import org.heliosphere.drake.base.codec.provider.ICodecProvider;
 import org.heliosphere.drake.base.codec.type.CodecType;
 import org.heliosphere.drake.base.manager.IManager;
 import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.codec.FrameDecoder;
 import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.codec.MessageChunker;
 import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.dispatch.MessageDispatcher;
+import org.heliosphere.drake.base.message.factory.MessageFactory;
 import org.heliosphere.drake.base.message.handler.IMessageHandler;
+import org.heliosphere.drake.base.message.journal.MessageJournal;
+import org.heliosphere.drake.base.message.outbound.IOutboundSink;
+import org.heliosphere.drake.base.message.outbound.OutboundQueue;
+import org.heliosphere.drake.base.message.request.RequestTracker;
 import org.heliosphere.drake.base.message.type.IMessageCategoryType;
 import org.heliosphere.drake.base.message.type.IMessageType;
 
@@ -50,19 +62,65 @@ public interface IMessageManager extends IManager
 	/**
 	 * Sets the message encoder type to use.
 	 * <p>
-	 * @param type Message encoder type to use.
+	 * @param type Message encoder type to use ({@link CodecType#CUSTOM}
+	 * cannot be selected, see {@link #setMessageCodecProvider(String)}).
 	 */
 	void setMessageCodecType(final CodecType type);
 
 	/**
 	 * Returns the encoder type used by the message manager.
 	 * <p>
-	 * @return {@link CodecType}.
+	 * @return {@link CodecType} or {@link CodecType#CUSTOM} if the codec
+	 * provider in use is not a built-in one.
 	 */
 	CodecType getMessageCodecType();
 
 	/**
-	 * Returns the message encoder used to encode and decode messages.
+	 * Sets the codec provider to use.
+	 * <p>
+	 * @param name Name of the codec provider (see {@link ICodecProvider}).
+	 * @throws MessageManagerException Thrown if no codec provider has this
+	 * name.
+	 */
+	void setMessageCodecProvider(final String name) throws MessageManagerException;
+
+	/**
+	 * Returns the codec provider used by the message manager.
+	 * <p>
+	 * @return {@link ICodecProvider}.
+	 */
+	ICodecProvider getMessageCodecProvider();
+
+	/**
+	 * Benchmarks the available codec providers on sample messages of the
+	 * registered message protocols.
+	 * <p>
+	 * @return Results ranked from the fastest provider to the slowest one.
+	 * @throws MessageManagerException Thrown if no message protocol is
+	 * registered or if a sample message cannot be created.
+	 */
+	List<CodecBenchmarkResult> benchmarkCodecs() throws MessageManagerException;
+
+	/**
+	 * Returns the splitter of the large messages into bounded network writes.
+	 * <p>
+	 * @return {@link MessageChunker}.
+	 */
+	MessageChunker getMessageChunker();
+
+	/**
+	 * Returns the dispatcher handling the received messages on parallel lanes.
+	 * Only used by the client: the lanes run outside of any transaction, so
+	 * the server handles the received messages within the session tasks.
+	 * <p>
+	 * @return {@link MessageDispatcher} or {@code null} if the received
+	 * messages are handled on the receiving thread.
+	 */
+	MessageDispatcher getMessageDispatcher();
+
+	/**
+	 * Returns the message encoder used to encode and decode messages. The
+	 * returned codec is thread-safe and can be shared.
 	 * <p>
 	 * @return {@link IMessageCodec}.
 	 * @throws MessageManagerException Thrown if an error occured while
@@ -70,12 +128,129 @@ public interface IMessageManager extends IManager
 	 */
 	IMessageCodec getMessageCodec() throws MessageManagerException;
 
-	//	/**
-	//	 * Returns the data encoder/decoder used by the message manager.
-	//	 * <p>
-	//	 * @return {@link ICodec}.
-	//	 */
-	//	ICodec getDataCodec();
+	/**
+	 * Creates a message codec dedicated to a session. If a compression
+	 * algorithm is configured, the shared message codec is wrapped into a
+	 * compression stage having its own statistics, otherwise the shared
+	 * message codec is returned.
+	 * <p>
+	 * @return {@link IMessageCodec}.
+	 * @throws MessageManagerException Thrown if an error occured while
+	 * creating the message codec.
+	 */
+	IMessageCodec createSessionCodec() throws MessageManagerException;
+
+	/**
+	 * Creates a message codec dedicated to a named session (see
+	 * {@link #createSessionCodec()}). If a message journal is configured, the
+	 * messages exchanged on the session are journaled under its name.
+	 * <p>
+	 * @param sessionName Session name.
+	 * @return {@link IMessageCodec}.
+	 * @throws MessageManagerException Thrown if an error occured while
+	 * creating the message codec.
+	 */
+	IMessageCodec createSessionCodec(final String sessionName) throws MessageManagerException;
+
+	/**
+	 * Returns the journal of the messages exchanged on the sessions.
+	 * <p>
+	 * @return {@link MessageJournal} or {@code null} if the messages are not
+	 * journaled.
+	 */
+	MessageJournal getMessageJournal();
+
+	/**
+	 * Creates a message codec used to encode a message once for several
+	 * sessions. The codec keeps no per session state (strings are written in
+	 * full and messages are never delta encoded) but its encoded form can be
+	 * decoded by any session codec.
+	 * <p>
+	 * @return {@link IMessageCodec}.
+	 * @throws MessageManagerException Thrown if an error occured while
+	 * creating the message codec.
+	 */
+	IMessageCodec createBroadcastCodec() throws MessageManagerException;
+
+	/**
+	 * Returns the message codec dedicated to the given session, creating it
+	 * (see {@link #createSessionCodec(String)}) on first call. The codec is kept until
+	 * the session is released.
+	 * <p>
+	 * @param sessionName Unique name of the session.
+	 * @return {@link IMessageCodec}.
+	 * @throws MessageManagerException Thrown if an error occured while
+	 * creating the message codec.
+	 */
+	IMessageCodec getSessionCodec(final String sessionName) throws MessageManagerException;
+
+	/**
+	 * Returns the frame decoder of the messages received on the given
+	 * session, creating it (with the codec returned by
+	 * {@link #getSessionCodec(String)}) on first call. The decoder keeps the
+	 * partial frames and chunks received between two reads, so it is kept
+	 * until the session is released.
+	 * <p>
+	 * @param sessionName Unique name of the session.
+	 * @return {@link FrameDecoder}.
+	 * @throws MessageManagerException Thrown if an error occured while
+	 * creating the message codec.
+	 */
+	FrameDecoder getSessionDecoder(final String sessionName) throws MessageManagerException;
+
+	/**
+	 * Releases the message codec and the frame decoder dedicated to the given
+	 * session.
+	 * <p>
+	 * @param sessionName Unique name of the session.
+	 */
+	void releaseSessionCodec(final String sessionName);
+
+	/**
+	 * Creates a tracker of the in-flight requests of a session using the
+	 * configured request timeout and maximum number of in-flight requests.
+	 * <p>
+	 * @return {@link RequestTracker}.
+	 */
+	RequestTracker createRequestTracker();
+
+	/**
+	 * Returns the tracker of the in-flight requests of the given session,
+	 * creating it on first call. The tracker is kept until the session is
+	 * released.
+	 * <p>
+	 * @param sessionName Unique name of the session.
+	 * @return {@link RequestTracker}.
+	 */
+	RequestTracker getRequestTracker(final String sessionName);
+
+	/**
+	 * Releases the tracker of the in-flight requests of the given session,
+	 * cancelling the requests still waiting for their response.
+	 * <p>
+	 * @param sessionName Unique name of the session.
+	 */
+	void releaseRequestTracker(final String sessionName);
+
+	/**
+	 * Creates an outbound queue using the configured capacity, coalescing
+	 * budget and back pressure policy. The queue is drained by the outbound
+	 * writer threads shared by all the queues.
+	 * <p>
+	 * @param name Name of the queue.
+	 * @param sink {@link IOutboundSink} writing the batches of messages.
+	 * @return {@link OutboundQueue} or {@code null} if the outbound queues are
+	 * disabled (the messages being then written synchronously).
+	 */
+	OutboundQueue createOutboundQueue(final String name, final IOutboundSink sink);
+
+	/**
+	 * Returns the data encoder/decoder used by the message manager. The
+	 * returned codec is thread-safe and can be shared.
+	 * <p>
+	 * @return {@link ICodec}.
+	 */
+	ICodec getDataCodec();
 
 	//	/**
 	//	 * Returns the message serializer. Uses the standard Java serialization
@@ -85,6 +260,15 @@ public interface IMessageManager extends IManager
 	//	 */
 	//	IMessageCodec getMessageSerializer();
 
+	/**
+	 * Returns the class catalog containing the classes of the registered
+	 * message protocols. Its content is applied to the message and data
+	 * codecs.
+	 * <p>
+	 * @return {@link IClassCatalog}.
+	 */
+	IClassCatalog getClassCatalog();
+
 	//	/**
 	//	 * Sets the class catalog used by data encoder/decoder.
 	//	 * <p>
@@ -230,4 +414,35 @@ public interface IMessageManager extends IManager
 	 * message failed.
 	 */
 	IMessage createMessage(final int messageId) throws MessageManagerException;
+
+	/**
+	 * Returns a message taken from the pool of the calling thread (or a new
+	 * message if the pool is empty). The message should be given back using
+	 * {@link #releaseMessage(IMessage)} once it is not used anymore.
+	 * <p>
+	 * @param messageType Message type to create.
+	 * @return Message.
+	 * @throws MessageManagerException Thrown in case the creation of the
+	 * message failed.
+	 */
+	IMessage acquireMessage(final Enum<? extends IMessageType> messageType) throws MessageManagerException;
+
+	/**
+	 * Gives back a message to the pool of the calling thread. The message must
+	 * not be used anymore by the caller.
+	 * <p>
+	 * @param message Message to release.
+	 * @return {@code True} if the message has been pooled, {@code false} if it
+	 * has been dropped.
+	 */
+	boolean releaseMessage(final IMessage message);
+
+	/**
+	 * Returns the factory of a registered message type.
+	 * <p>
+	 * @param messageId Message identifier.
+	 * @return {@link MessageFactory} or {@code null} if the message identifier
+	 * is not registered.
+	 */
+	MessageFactory getMessageFactory(final int messageId);
 }
@@ -11,29 +11,68 @@
  */
 package org.heliosphere.drake.base.message.manager;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import lombok.extern.log4j.Log4j;
 
 import org.apache.commons.configuration.Configuration;
-import org.apache.commons.lang.Validate;
-import org.heliosphere.drake.base.application.IApplication;
 import org.heliosphere.drake.base.application.type.ApplicationPropertiesType;
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.codec.catalog.ClassCatalog;
+import org.heliosphere.drake.base.codec.catalog.IClassCatalog;
+import org.heliosphere.drake.base.codec.compression.DeflateCompressor;
+import org.heliosphere.drake.base.codec.compression.ICompressor;
+import org.heliosphere.drake.base.codec.compression.Lz4Compressor;
+import org.heliosphere.drake.base.codec.dictionary.StringDictionary;
+import org.heliosphere.drake.base.codec.generated.GeneratedSerializerRegistry;
+import org.heliosphere.drake.base.codec.pool.CodecPool;
+import org.heliosphere.drake.base.codec.pool.ICodecFactory;
+import org.heliosphere.drake.base.codec.pool.PooledDataCodec;
+import org.heliosphere.drake.base.codec.pool.PooledMessageCodec;
+import org.heliosphere.drake.base.codec.primitive.PrimitiveSerializers;
+import org.heliosphere.drake.base.codec.provider.CodecBenchmark;
+import org.heliosphere.drake.base.codec.provider.CodecBenchmarkResult;
+import org.heliosphere.drake.base.codec.provider.CodecContext;
+import org.heliosphere.drake.base.codec.provider.CodecProviderRegistry;
+import org.heliosphere.drake.base.codec.provider.GeneratedCodecProvider;
+import org.heliosphere.drake.base.codec.provider.ICodecProvider;
 import org.heliosphere.drake.base.codec.type.CodecType;
+import org.heliosphere.drake.base.codec.type.CompressionType;
 import org.heliosphere.drake.base.manager.Manager;
 import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.codec.CompressingMessageCodec;
+import org.heliosphere.drake.base.message.codec.DeltaMessageCodec;
+import org.heliosphere.drake.base.message.codec.DictionaryMessageCodec;
+import org.heliosphere.drake.base.message.codec.FrameDecoder;
+import org.heliosphere.drake.base.message.codec.IDelegatingMessageCodec;
 import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.codec.JournalingMessageCodec;
+import org.heliosphere.drake.base.message.codec.MessageChunker;
 import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.codec.MeteringMessageCodec;
+import org.heliosphere.drake.base.message.dispatch.MessageDispatcher;
+import org.heliosphere.drake.base.message.dispatch.type.OverflowPolicyType;
+import org.heliosphere.drake.base.message.factory.MessageFactory;
 import org.heliosphere.drake.base.message.handler.IMessageHandler;
-import org.heliosphere.drake.base.message.serializer.JavaMessageSerializer;
-import org.heliosphere.drake.base.message.serializer.KryoMessageSerializer;
+import org.heliosphere.drake.base.message.journal.MessageJournal;
+import org.heliosphere.drake.base.message.metrics.MessageMetrics;
+import org.heliosphere.drake.base.message.outbound.IOutboundSink;
+import org.heliosphere.drake.base.message.outbound.OutboundQueue;
+import org.heliosphere.drake.base.message.outbound.type.BackPressurePolicyType;
+import org.heliosphere.drake.base.message.request.RequestTracker;
 import org.heliosphere.drake.base.message.type.IMessageCategoryType;
 import org.heliosphere.drake.base.message.type.IMessageType;
 
@@ -47,55 +86,131 @@ import org.heliosphere.drake.base.message.type.IMessageType;
 public class MessageManager implements IMessageManager
 {
 	/**
-	 * Collection of registered messages by their identifier.
+	 * Snapshot of the registered messages (replaced as a whole each time a
+	 * message protocol is registered).
 	 */
-	Map<Integer, Enum<? extends IMessageType>> byMessageId = new HashMap<>();
+	private volatile MessageRegistry registry = MessageRegistry.EMPTY;
 
 	/**
-	 * Collection of registered messages by their name.
+	 * Message codec (used to encode and decode messages). This is a pooled
+	 * codec that can be shared between threads.
 	 */
-	Map<String, Enum<? extends IMessageType>> byMessageName = new HashMap<>();
+	private volatile PooledMessageCodec messageCodec = null;
 
 	/**
-	 * Collection of registered messages by their category.
+	 * Data codec (used to encode and decode message data). This is a pooled
+	 * codec that can be shared between threads.
 	 */
-	Map<Enum<? extends IMessageCategoryType>, List<Enum<? extends IMessageType>>> byMessageCategory = new HashMap<>();
+	private volatile PooledDataCodec dataCodec = null;
 
 	/**
-	 * Collection of registered messages by their message class.
+	 * Provider of the message and data codecs.
 	 */
-	Map<Class<? extends IMessage>, List<Enum<? extends IMessageType>>> byMessageClass = new HashMap<>();
+	private volatile ICodecProvider codecProvider = null;
 
 	/**
-	 * Collection of registered messages by their message data class.
+	 * Number of pre-warmed codec instances per available processor.
 	 */
-	Map<Class<? extends Serializable>, List<Enum<? extends IMessageType>>> byDataClass = new HashMap<>();
+	private int codecPoolSize = CodecPool.DEFAULT_INSTANCES_PER_CORE;
 
 	/**
-	 * Collection of registered messages by their message handler class.
+	 * Class catalog containing the classes of the registered message
+	 * protocols.
 	 */
-	Map<Class<? extends IMessageHandler>, List<Enum<? extends IMessageType>>> byHandlerClass = new HashMap<>();
+	private final IClassCatalog catalog = new ClassCatalog();
 
 	/**
-	 * Message codec (used to encode and decode messages).
+	 * Compressor applied to the encoded messages (shared by the sessions) or
+	 * {@code null} if the messages are not compressed.
 	 */
-	private IMessageCodec messageCodec = null;
+	private volatile ICompressor compressor = null;
 
 	/**
-	 * Default message codec to use.
+	 * Minimum length of an encoded message to be compressed.
 	 */
-	private CodecType messageCodecType = CodecType.KRYO;
+	private int compressionThreshold = CompressingMessageCodec.DEFAULT_THRESHOLD;
+
+	/**
+	 * Number of strings held by the session string dictionaries ({@code 0}
+	 * if the sessions do not use a string dictionary).
+	 */
+	private int dictionarySize = 0;
+
+	/**
+	 * Maximum length of a string held by the session string dictionaries.
+	 */
+	private int dictionaryMaxLength = StringDictionary.DEFAULT_MAX_LENGTH;
+
+	/**
+	 * Identifiers of the message types to delta encode.
+	 */
+	private volatile Set<Integer> deltaMessageIds = Collections.emptySet();
+
+	/**
+	 * Number of delta encoded messages of a type after which a snapshot is
+	 * sent.
+	 */
+	private int deltaKeyframeInterval = DeltaMessageCodec.DEFAULT_KEYFRAME_INTERVAL;
+
+	/**
+	 * Splitter of the large messages into bounded network writes.
+	 */
+	private volatile MessageChunker chunker = new MessageChunker(MessageChunker.DEFAULT_CHUNK_SIZE);
+
+	/**
+	 * Dispatcher of the received messages or {@code null} if the messages are
+	 * handled on the receiving thread.
+	 */
+	private volatile MessageDispatcher dispatcher = null;
+
+	/**
+	 * Journal of the messages exchanged on the sessions or {@code null} if the
+	 * messages are not journaled.
+	 */
+	private volatile MessageJournal journal = null;
+
+	/**
+	 * Message codecs dedicated to the sessions (by session name).
+	 */
+	private final ConcurrentMap<String, IMessageCodec> sessionCodecs = new ConcurrentHashMap<>();
+
+	/**
+	 * Frame decoders of the messages received on the sessions (by session
+	 * name).
+	 */
+	private final ConcurrentMap<String, FrameDecoder> sessionDecoders = new ConcurrentHashMap<>();
+
+	/**
+	 * Default timeout (in milliseconds) of the requests.
+	 */
+	private long requestTimeout = RequestTracker.DEFAULT_TIMEOUT;
+
+	/**
+	 * Maximum number of in-flight requests of a session.
+	 */
+	private int maxInFlightRequests = RequestTracker.DEFAULT_MAX_IN_FLIGHT;
+
+	/**
+	 * Trackers of the in-flight requests of the sessions (by session name).
+	 */
+	private final ConcurrentMap<String, RequestTracker> requestTrackers = new ConcurrentHashMap<>();
+
+	/**
+	 * Capacity of the outbound queues ({@code 0} if the messages are written
+	 * synchronously).
+	 */
+	private int outboundCapacity = OutboundQueue.DEFAULT_CAPACITY;
+
+	/**
+	 * Coalescing budget (in microseconds) of the outbound queues.
+	 */
+	private long outboundBudget = OutboundQueue.DEFAULT_COALESCE_BUDGET;
+
+	/**
+	 * Policy applied when an outbound queue is full.
+	 */
+	private BackPressurePolicyType outboundPolicy = BackPressurePolicyType.FAIL_FAST;
 
-	//	/**
-	//	 * Class catalog.
-	//	 */
-	//	private IClassCatalog catalog = null;
-	//
-	//	/**
-	//	 * Data codec (used to encode and decode message data).
-	//	 */
-	//	private ICodec dataCodec = null;
-	//
 	//	/**
 	//	 * Message serializer.
 	//	 */
@@ -113,7 +228,371 @@ public class MessageManager implements IMessageManager
 	{
 		//			initializeDataCodec(configuration);
 		//			initializeMessageCodec(configuration);
+		initializeBufferArena(configuration);
+		initializeClassCatalog(configuration);
+		initializeCodecPool(configuration);
+		initializeChunker(configuration);
+		initializeDispatcher(configuration);
+		initializeCompression(configuration);
+		initializeDictionary(configuration);
+		initializeArrayPacking(configuration);
+		initializeMessagePool(configuration);
+		initializeMetrics(configuration);
+		initializeJournal(configuration);
+		initializeRequests(configuration);
+		initializeOutbound(configuration);
+		initializeCodecProvider(configuration);
 		initializeMessageProtocol(configuration);
+		initializeDelta(configuration);
+
+		// Pre-warm the codec pools.
+		createCodecs();
+
+		initializeCodecBenchmark(configuration);
+	}
+
+	/**
+	 * Initializes the buffer arena used to allocate encoded messages.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the buffer arena.
+	 */
+	private final void initializeBufferArena(final Configuration configuration)
+	{
+		BufferArena.getDefault().setLeakDetection(configuration.getBoolean(ApplicationPropertiesType.ApplicationBufferLeakDetection.getValue(), false));
+	}
+
+	/**
+	 * Initializes the size of the codec pools.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the codec pools.
+	 */
+	private final void initializeCodecPool(final Configuration configuration)
+	{
+		final int size = configuration.getInt(ApplicationPropertiesType.ApplicationMessageCodecPoolSize.getValue(), CodecPool.DEFAULT_INSTANCES_PER_CORE);
+		if (size > 0)
+		{
+			codecPoolSize = size;
+		}
+	}
+
+	/**
+	 * Initializes the splitting of the large messages into chunks.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the message chunker.
+	 */
+	private final void initializeChunker(final Configuration configuration)
+	{
+		final int size = configuration.getInt(ApplicationPropertiesType.ApplicationMessageChunkSize.getValue(), MessageChunker.DEFAULT_CHUNK_SIZE);
+		if (size >= MessageChunker.MIN_CHUNK_SIZE)
+		{
+			chunker = new MessageChunker(size);
+		}
+	}
+
+	/**
+	 * Initializes the dispatch lanes of the received messages.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the message dispatcher.
+	 * @throws MessageManagerException Thrown if the overflow policy is
+	 * unknown.
+	 */
+	@SuppressWarnings("nls")
+	private final void initializeDispatcher(final Configuration configuration) throws MessageManagerException
+	{
+		final String type = configuration.getString(ApplicationPropertiesType.ApplicationMessageDispatchOverflowPolicy.getValue(), OverflowPolicyType.BLOCK.name());
+
+		final OverflowPolicyType policy;
+		try
+		{
+			policy = OverflowPolicyType.valueOf(type.trim().toUpperCase());
+		}
+		catch (final IllegalArgumentException e)
+		{
+			throw new MessageManagerException("Unknown message dispatch overflow policy: " + type);
+		}
+
+		final int lanes = configuration.getInt(ApplicationPropertiesType.ApplicationMessageDispatchLanes.getValue(), 0);
+		final int capacity = configuration.getInt(ApplicationPropertiesType.ApplicationMessageDispatchQueueCapacity.getValue(), MessageDispatcher.DEFAULT_QUEUE_CAPACITY);
+
+		if (dispatcher != null)
+		{
+			dispatcher.shutdown(0);
+		}
+		dispatcher = lanes > 0 ? new MessageDispatcher(lanes, capacity > 0 ? capacity : MessageDispatcher.DEFAULT_QUEUE_CAPACITY, policy) : null;
+	}
+
+	/**
+	 * Initializes the compression stage applied to the encoded messages.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the compression stage.
+	 * @throws MessageManagerException Thrown if the compression algorithm is
+	 * unknown.
+	 */
+	@SuppressWarnings("nls")
+	private final void initializeCompression(final Configuration configuration) throws MessageManagerException
+	{
+		final String type = configuration.getString(ApplicationPropertiesType.ApplicationMessageCompressionType.getValue(), CompressionType.NONE.name());
+
+		final CompressionType compressionType;
+		try
+		{
+			compressionType = CompressionType.valueOf(type.trim().toUpperCase());
+		}
+		catch (final IllegalArgumentException e)
+		{
+			throw new MessageManagerException("Unknown message compression type: " + type);
+		}
+
+		switch (compressionType)
+		{
+			case DEFLATE:
+				compressor = new DeflateCompressor();
+				break;
+
+			case LZ4:
+				compressor = new Lz4Compressor();
+				break;
+
+			case NONE:
+			default:
+				compressor = null;
+				break;
+		}
+
+		final int threshold = configuration.getInt(ApplicationPropertiesType.ApplicationMessageCompressionThreshold.getValue(), CompressingMessageCodec.DEFAULT_THRESHOLD);
+		if (threshold >= 0)
+		{
+			compressionThreshold = threshold;
+		}
+	}
+
+	/**
+	 * Initializes the codec provider.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the codec provider.
+	 * @throws MessageManagerException Thrown if the codec provider is not
+	 * available.
+	 */
+	private final void initializeCodecProvider(final Configuration configuration) throws MessageManagerException
+	{
+		codecProvider = findCodecProvider(configuration.getString(ApplicationPropertiesType.ApplicationMessageEncoderType.getValue(), CodecType.KRYO.name()));
+	}
+
+	/**
+	 * Runs the codec benchmark if requested. Must be called once the message
+	 * protocols are registered.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the codec benchmark.
+	 * @throws MessageManagerException Thrown if the sample messages cannot be
+	 * created.
+	 */
+	@SuppressWarnings("nls")
+	private final void initializeCodecBenchmark(final Configuration configuration) throws MessageManagerException
+	{
+		if (configuration.getBoolean(ApplicationPropertiesType.ApplicationMessageCodecBenchmark.getValue(), false))
+		{
+			for (CodecBenchmarkResult result : benchmarkCodecs())
+			{
+				log.info("Codec benchmark " + result);
+			}
+		}
+	}
+
+	/**
+	 * Initializes the string dictionaries of the sessions.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the string dictionaries.
+	 */
+	private final void initializeDictionary(final Configuration configuration)
+	{
+		// The dictionary is only installed when configured, as it adds a copy of each encoded message.
+		final int size = configuration.getInt(ApplicationPropertiesType.ApplicationMessageDictionarySize.getValue(), 0);
+		if (size >= 0 && size <= StringDictionary.MAX_CAPACITY)
+		{
+			dictionarySize = size;
+		}
+
+		final int length = configuration.getInt(ApplicationPropertiesType.ApplicationMessageDictionaryMaxLength.getValue(), StringDictionary.DEFAULT_MAX_LENGTH);
+		if (length > 0)
+		{
+			dictionaryMaxLength = length;
+		}
+	}
+
+	/**
+	 * Initializes the size of the per-thread message pools.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the message pools.
+	 */
+	private final void initializeMessagePool(final Configuration configuration)
+	{
+		final int size = configuration.getInt(ApplicationPropertiesType.ApplicationMessagePoolSize.getValue(), MessageFactory.DEFAULT_POOL_SIZE);
+		if (size >= 0)
+		{
+			MessageFactory.setPoolSize(size);
+		}
+	}
+
+	/**
+	 * Initializes the recording of the per message type metrics.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the message metrics.
+	 */
+	private final void initializeMetrics(final Configuration configuration)
+	{
+		final MessageMetrics metrics = MessageMetrics.getInstance();
+
+		metrics.setEnabled(configuration.getBoolean(ApplicationPropertiesType.ApplicationMessageMetricsEnabled.getValue(), true));
+		metrics.setJmxEnabled(metrics.isEnabled() && configuration.getBoolean(ApplicationPropertiesType.ApplicationMessageMetricsJmx.getValue(), true));
+	}
+
+	/**
+	 * Initializes the journal of the messages exchanged on the sessions.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the message journal.
+	 * @throws MessageManagerException Thrown if the journal directory cannot
+	 * be created.
+	 */
+	@SuppressWarnings("nls")
+	private final void initializeJournal(final Configuration configuration) throws MessageManagerException
+	{
+		if (journal != null)
+		{
+			journal.close();
+			journal = null;
+		}
+
+		final String directory = configuration.getString(ApplicationPropertiesType.ApplicationMessageJournalDirectory.getValue(), "");
+		if (directory.trim().isEmpty())
+		{
+			return;
+		}
+
+		final int size = configuration.getInt(ApplicationPropertiesType.ApplicationMessageJournalSegmentSize.getValue(), MessageJournal.DEFAULT_SEGMENT_SIZE);
+		try
+		{
+			journal = new MessageJournal(new File(directory.trim()), Math.max(size, MessageJournal.MIN_SEGMENT_SIZE));
+		}
+		catch (final IOException e)
+		{
+			throw new MessageManagerException("Cannot create message journal due to: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Initializes the settings of the requests sent by the sessions.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the requests.
+	 */
+	private final void initializeRequests(final Configuration configuration)
+	{
+		final long timeout = configuration.getLong(ApplicationPropertiesType.ApplicationMessageRequestTimeout.getValue(), RequestTracker.DEFAULT_TIMEOUT);
+		if (timeout > 0)
+		{
+			requestTimeout = timeout;
+		}
+
+		final int max = configuration.getInt(ApplicationPropertiesType.ApplicationMessageRequestMaxInFlight.getValue(), RequestTracker.DEFAULT_MAX_IN_FLIGHT);
+		if (max > 0)
+		{
+			maxInFlightRequests = max;
+		}
+	}
+
+	/**
+	 * Initializes the settings of the outbound queues.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the outbound queues.
+	 * @throws MessageManagerException Thrown if the back pressure policy is
+	 * unknown.
+	 */
+	@SuppressWarnings("nls")
+	private final void initializeOutbound(final Configuration configuration) throws MessageManagerException
+	{
+		final String type = configuration.getString(ApplicationPropertiesType.ApplicationMessageOutboundPolicy.getValue(), BackPressurePolicyType.FAIL_FAST.name());
+		try
+		{
+			outboundPolicy = BackPressurePolicyType.valueOf(type.trim().toUpperCase());
+		}
+		catch (final IllegalArgumentException e)
+		{
+			throw new MessageManagerException("Unknown outbound back pressure policy: " + type);
+		}
+
+		outboundCapacity = Math.max(0, configuration.getInt(ApplicationPropertiesType.ApplicationMessageOutboundQueueCapacity.getValue(), OutboundQueue.DEFAULT_CAPACITY));
+		outboundBudget = Math.max(0, configuration.getLong(ApplicationPropertiesType.ApplicationMessageOutboundCoalesceBudget.getValue(), OutboundQueue.DEFAULT_COALESCE_BUDGET));
+	}
+
+	/**
+	 * Initializes the encoding of the sorted primitive arrays. Must be called
+	 * before the codecs are created.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the encoding of the primitive arrays.
+	 */
+	private final void initializeArrayPacking(final Configuration configuration)
+	{
+		PrimitiveSerializers.setArrayPacking(configuration.getBoolean(ApplicationPropertiesType.ApplicationMessageArrayPacking.getValue(), true));
+	}
+
+	/**
+	 * Initializes the delta encoding of the messages. Must be called once the
+	 * message protocols are registered.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the delta encoding.
+	 * @throws MessageManagerException Thrown if a message type to delta encode
+	 * is not registered.
+	 */
+	@SuppressWarnings("nls")
+	private final void initializeDelta(final Configuration configuration) throws MessageManagerException
+	{
+		final Set<Integer> ids = new HashSet<>();
+		for (String name : configuration.getStringArray(ApplicationPropertiesType.ApplicationMessageDeltaTypes.getValue()))
+		{
+			if (name.trim().isEmpty())
+			{
+				continue;
+			}
+
+			final MessageRegistration registration = registry.get(name.trim());
+			if (registration == null)
+			{
+				throw new MessageManagerException("Cannot delta encode message type: " + name.trim() + " because it is not registered!");
+			}
+			ids.add(Integer.valueOf(registration.getMessageId()));
+		}
+		deltaMessageIds = ids;
+
+		final int interval = configuration.getInt(ApplicationPropertiesType.ApplicationMessageDeltaKeyframeInterval.getValue(), DeltaMessageCodec.DEFAULT_KEYFRAME_INTERVAL);
+		if (interval > 0)
+		{
+			deltaKeyframeInterval = interval;
+		}
+	}
+
+	/**
+	 * Initializes the class catalog.
+	 * <p>
+	 * @param configuration {@link Configuration} containing the properties
+	 * necessary to initialize the class catalog.
+	 */
+	private final void initializeClassCatalog(final Configuration configuration)
+	{
+		catalog.setRegistrationRequired(configuration.getBoolean(ApplicationPropertiesType.ApplicationMessageCodecRegistrationRequired.getValue(), false));
 	}
 
 	//	/**
@@ -201,29 +680,29 @@ public class MessageManager implements IMessageManager
 
 	@SuppressWarnings("nls")
 	@Override
-	public synchronized final Object handleMessage(final IMessage message) throws MessageDecodingException
+	public final Object handleMessage(final IMessage message) throws MessageDecodingException
 	{
-		Object object = null;
-		Method method = null;
-		Object result = null;
-
-		Class<? extends IMessageHandler> handlerClass = ((IMessageType) message.getMessageType()).getHandlerClass();
+		final MessageRegistration registration = registry.get(message.getMessageType());
+		if (registration == null)
+		{
+			throw new MessageDecodingException("Cannot handle message of type: " + message.getMessageType().name() + ". The message type is not registered!");
+		}
 
+		final long time = System.nanoTime();
 		try
 		{
-			object = handlerClass.getConstructor().newInstance();
-			method = object.getClass().getMethod("handleMessage", IApplication.class, IMessage.class);
-			if (method != null)
-			{
-				result = method.invoke(object, Manager.getApplication(), message);
-			}
+			registration.getHandler().invoke(Manager.getApplication(), message);
 		}
 		catch (Exception e)
 		{
 			throw new MessageDecodingException(e.getMessage());
 		}
+		finally
+		{
+			MessageMetrics.getInstance().recordHandled(message.getMessageType(), System.nanoTime() - time);
+		}
 
-		return result;
+		return null;
 	}
 
 	//	/**
@@ -268,117 +747,234 @@ public class MessageManager implements IMessageManager
 
 	@SuppressWarnings({ "nls", "unchecked" })
 	@Override
-	public final void registerMessage(final Class<? extends IMessageType> protocolClass) throws MessageManagerException
+	public final synchronized void registerMessage(final Class<? extends IMessageType> protocolClass) throws MessageManagerException
 	{
-		Validate.notNull(protocolClass, "Message enumeration class cannot be null");
-		Validate.isTrue(protocolClass.isEnum(), "Message enumeration class: " + protocolClass.getName() + " is not an enumeration!");
-
-		int id = 0;
-		Enum<? extends IMessageCategoryType> category;
-		Class<? extends IMessage> messageClass;
-		Class<? extends Serializable> dataClass;
-		Class<? extends IMessageHandler> handlerClass;
+		// The new snapshot is only published once the whole protocol is valid.
+		final MessageRegistry updated = registry.register(protocolClass);
+		registry = updated;
 
-		/*
-		 * For the given enumeration, all the enumerated values are supposed to
-		 * be message definitions, so register all enumerated values.
-		 */
-
-		Enum<? extends IMessageType>[] types = (Enum<? extends IMessageType>[]) protocolClass.getEnumConstants();
+		final Enum<? extends IMessageType>[] types = (Enum<? extends IMessageType>[]) protocolClass.getEnumConstants();
 		for (Enum<? extends IMessageType> type : types)
 		{
-			// Does this message definition in conflict with another entry?
+			log.info("Message registered " + updated.get(type));
+		}
 
-			id = ((IMessageType) type).getMessageId();
-			category = ((IMessageType) type).getCategory();
-			messageClass = ((IMessageType) type).getMessageClass();
-			dataClass = ((IMessageType) type).getDataClass();
-			handlerClass = ((IMessageType) type).getHandlerClass();
+		registerClasses(protocolClass, types);
+	}
 
-			// Ensure the message identifier is not already registered
-			if (byMessageId.containsKey(Integer.valueOf(id)))
-			{
-				throw new MessageManagerException("Cannot register message enumeration class: " + protocolClass + " because message identifier: " + id + " is already registered!");
-			}
+	/**
+	 * Returns the snapshot of the registered messages.
+	 * <p>
+	 * @return {@link MessageRegistry}.
+	 */
+	public final MessageRegistry getMessageRegistry()
+	{
+		return registry;
+	}
 
-			// Ensure the enumerated value name is not already registered
-			if (byMessageName.containsKey(type.name()))
+	/**
+	 * Registers the classes of a message protocol into the class catalog and
+	 * refreshes the codecs accordingly.
+	 * <p>
+	 * The classes are registered in the order of the message identifiers (and
+	 * not in the declaration order of the enumerated values) so that a client
+	 * and a server registering the same protocol hold the same class
+	 * identifiers.
+	 * <p>
+	 * @param protocolClass Enumeration containing the message definitions.
+	 * @param types Message definitions.
+	 */
+	@SuppressWarnings("nls")
+	private final synchronized void registerClasses(final Class<? extends IMessageType> protocolClass, final Enum<? extends IMessageType>[] types)
+	{
+		final Enum<? extends IMessageType>[] sorted = Arrays.copyOf(types, types.length);
+		Arrays.sort(sorted, new Comparator<Enum<? extends IMessageType>>()
+		{
+			@Override
+			public int compare(final Enum<? extends IMessageType> first, final Enum<? extends IMessageType> second)
 			{
-				throw new MessageManagerException("Cannot register message enumeration class: " + protocolClass + " because message name: " + type.name() + " is already registered!");
+				final int a = ((IMessageType) first).getMessageId();
+				final int b = ((IMessageType) second).getMessageId();
+
+				return a < b ? -1 : (a == b ? 0 : 1);
 			}
+		});
 
-			// Register message by its identifier.
-			byMessageId.put(Integer.valueOf(id), type);
-
-			// Register message by its name.
-			byMessageName.put(type.name(), type);
+		catalog.register(protocolClass);
+		for (Enum<? extends IMessageType> type : sorted)
+		{
+			catalog.register(((IMessageType) type).getMessageClass());
+			catalog.register(((IMessageType) type).getDataClass());
 
-			// Register the message by its category.
-			List<Enum<? extends IMessageType>> listByCategory = byMessageCategory.get(category);
-			if (listByCategory == null)
+			if (getMessageCodecProvider() instanceof GeneratedCodecProvider && catalog.isRegistered(((IMessageType) type).getDataClass()) && !GeneratedSerializerRegistry.getInstance().contains(((IMessageType) type).getDataClass()))
 			{
-				listByCategory = new ArrayList<>();
+				log.warn("No generated serializer found, reflective serializer used instead [message=" + type.name() + ", data.class=" + ((IMessageType) type).getDataClass().getName() + "]");
 			}
-			listByCategory.add(type);
-			byMessageCategory.put(category, listByCategory);
+		}
 
-			// Register the message by its message class.
-			List<Enum<? extends IMessageType>> listByMessageClass = byMessageClass.get(messageClass);
-			if (listByMessageClass == null)
-			{
-				listByMessageClass = new ArrayList<>();
-			}
-			listByMessageClass.add(type);
-			byMessageClass.put(messageClass, listByMessageClass);
+		// Codecs created before the registration do not know the new classes.
+		if (messageCodec != null)
+		{
+			createCodecs();
+		}
+	}
 
-			// Register the message by its data class.
-			List<Enum<? extends IMessageType>> listByDataClass = byDataClass.get(dataClass);
-			if (listByDataClass == null)
-			{
-				listByDataClass = new ArrayList<>();
-			}
-			listByDataClass.add(type);
-			byDataClass.put(dataClass, listByDataClass);
+	@Override
+	public final boolean isRegistered(final int messageId)
+	{
+		return registry.get(messageId) != null;
+	}
+
+	@Override
+	public final boolean isRegistered(final String messageName)
+	{
+		return registry.get(messageName) != null;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final synchronized void setMessageCodecType(final CodecType codec)
+	{
+		if (codec == CodecType.CUSTOM)
+		{
+			throw new IllegalArgumentException("Codec type: " + codec + " cannot be selected, select the codec provider by name!");
+		}
+
+		final ICodecProvider provider = CodecProviderRegistry.getInstance().getProvider(codec.name());
+		if (provider == null)
+		{
+			throw new IllegalStateException("No codec provider available for codec type: " + codec);
+		}
+
+		codecProvider = provider;
+
+		createCodecs();
+	}
+
+	@Override
+	public final synchronized void setMessageCodecProvider(final String name) throws MessageManagerException
+	{
+		codecProvider = findCodecProvider(name);
 
-			// Register the message by its handler class.
-			List<Enum<? extends IMessageType>> listByHandlerClass = byHandlerClass.get(dataClass);
-			if (listByHandlerClass == null)
+		createCodecs();
+	}
+
+	/**
+	 * Returns the codec provider having the given name.
+	 * <p>
+	 * @param name Name of the codec provider.
+	 * @return {@link ICodecProvider}.
+	 * @throws MessageManagerException Thrown if no codec provider has this
+	 * name.
+	 */
+	@SuppressWarnings("nls")
+	private final ICodecProvider findCodecProvider(final String name) throws MessageManagerException
+	{
+		final ICodecProvider provider = CodecProviderRegistry.getInstance().getProvider(name);
+		if (provider == null)
+		{
+			final List<String> names = new ArrayList<>();
+			for (ICodecProvider available : CodecProviderRegistry.getInstance().getProviders())
 			{
-				listByHandlerClass = new ArrayList<>();
+				names.add(available.getName());
 			}
-			listByHandlerClass.add(type);
-			byHandlerClass.put(handlerClass, listByHandlerClass);
 
-			log.info("Message registered [id=" + id + ", name=" + type.name() + ", category=" + category + ", message.class=" + messageClass.getName() + ", data.class=" + dataClass.getName() + ", handler.class=" + handlerClass.getName() + "]");
+			throw new MessageManagerException("Unknown codec provider: " + name + " (available providers: " + names + ")");
 		}
+
+		log.info("Codec provider selected [name=" + provider.getName() + ", thread.safe=" + provider.isThreadSafe() + ", zero.copy=" + provider.isZeroCopy() + ", schema.required=" + provider.isSchemaRequired() + "]");
+
+		return provider;
 	}
 
 	@Override
-	public final boolean isRegistered(final int messageId)
+	public final ICodecProvider getMessageCodecProvider()
 	{
-		return byMessageId.containsKey(Integer.valueOf(messageId));
+		ICodecProvider provider = codecProvider;
+		if (provider == null)
+		{
+			synchronized (this)
+			{
+				if (codecProvider == null)
+				{
+					codecProvider = CodecProviderRegistry.getInstance().getProvider(CodecType.KRYO.name());
+				}
+				provider = codecProvider;
+			}
+		}
+
+		return provider;
 	}
 
+	@SuppressWarnings("nls")
 	@Override
-	public final boolean isRegistered(final String messageName)
+	public final List<CodecBenchmarkResult> benchmarkCodecs() throws MessageManagerException
 	{
-		return byMessageName.containsKey(messageName);
+		final List<Enum<? extends IMessageType>> types = registry.getTypes();
+		if (types.isEmpty())
+		{
+			throw new MessageManagerException("Cannot benchmark codecs: no message protocol registered!");
+		}
+
+		final List<IMessage> samples = new ArrayList<>(types.size());
+		for (Enum<? extends IMessageType> type : types)
+		{
+			samples.add(createMessage(type));
+		}
+
+		final CodecBenchmark benchmark = new CodecBenchmark(samples, CodecBenchmark.DEFAULT_WARMUP_ROUNDS, CodecBenchmark.DEFAULT_ROUNDS);
+
+		return benchmark.run(CodecProviderRegistry.getInstance().getProviders(), new CodecContext(catalog, this, null));
 	}
 
-	@Override
-	public final void setMessageCodecType(final CodecType codec)
+	/**
+	 * Creates the pooled message and data codecs according to the message
+	 * codec type, the codec pool size and the class catalog.
+	 */
+	private final synchronized void createCodecs()
 	{
-		messageCodecType = codec;
+		final ICodecProvider provider = getMessageCodecProvider();
+		final CodecContext dataContext = new CodecContext(catalog, this, null);
+		final ICodecFactory<ICodec> dataFactory = new ICodecFactory<ICodec>()
+		{
+			@Override
+			public ICodec create()
+			{
+				return provider.createDataCodec(dataContext);
+			}
+		};
 
-		switch (codec)
+		// The data codec is created first as the envelope codec relies on it.
+		if (dataCodec == null)
 		{
-			case JAVA:
-				messageCodec = new JavaMessageSerializer();
-				break;
+			dataCodec = new PooledDataCodec(dataFactory, codecPoolSize);
+		}
+		else
+		{
+			dataCodec.setFactory(dataFactory, codecPoolSize);
+		}
 
-			case KRYO:
-				messageCodec = new KryoMessageSerializer();
-				break;
+		final CodecContext context = new CodecContext(catalog, this, dataCodec);
+		final ICodecFactory<IMessageCodec> messageFactory = new ICodecFactory<IMessageCodec>()
+		{
+			@Override
+			public IMessageCodec create()
+			{
+				return provider.createMessageCodec(context);
+			}
+		};
+
+		// Thread safe codecs do not need more than one instance per processor.
+		final int messagePoolSize = provider.isThreadSafe() ? 1 : codecPoolSize;
+
+		// Codecs handed out before keep working, only their pool is replaced.
+		if (messageCodec == null)
+		{
+			messageCodec = new PooledMessageCodec(new CodecPool<>(messageFactory, messagePoolSize));
+		}
+		else
+		{
+			messageCodec.setPool(new CodecPool<>(messageFactory, messagePoolSize));
 		}
 	}
 
@@ -399,29 +995,247 @@ public class MessageManager implements IMessageManager
 	@Override
 	public final CodecType getMessageCodecType()
 	{
-		return messageCodecType;
+		final String name = getMessageCodecProvider().getName();
+		for (CodecType type : CodecType.values())
+		{
+			if (type.name().equals(name))
+			{
+				return type;
+			}
+		}
+
+		return CodecType.CUSTOM;
 	}
 
+	@SuppressWarnings("nls")
 	@Override
-	public final synchronized IMessageCodec getMessageCodec() throws MessageManagerException
+	public final IMessageCodec getMessageCodec() throws MessageManagerException
 	{
-		switch (messageCodecType)
+		PooledMessageCodec codec = messageCodec;
+		if (codec == null)
 		{
-			case JAVA:
-				return new JavaMessageSerializer();
+			synchronized (this)
+			{
+				if (messageCodec == null)
+				{
+					createCodecs();
+				}
+				codec = messageCodec;
+			}
+		}
 
-			case KRYO:
-				return new KryoMessageSerializer();
+		if (codec == null)
+		{
+			throw new MessageManagerException("No message codec type defined!");
 		}
 
-		throw new MessageManagerException("No message codec type defined!");
+		return codec;
 	}
 
-	//	@Override
-	//	public final ICodec getDataCodec()
-	//	{
-	//		return dataCodec;
-	//	}
+	@Override
+	public final IMessageCodec createSessionCodec() throws MessageManagerException
+	{
+		IMessageCodec codec = getMessageCodec();
+
+		// Without a string dictionary, the messages are encoded directly into the target buffers.
+		if (dictionarySize > 0)
+		{
+			codec = new DictionaryMessageCodec(codec, dictionarySize, dictionaryMaxLength);
+		}
+
+		// Delta encoding is applied first so the compression works on the deltas.
+		final Set<Integer> ids = deltaMessageIds;
+		if (!ids.isEmpty())
+		{
+			codec = new DeltaMessageCodec(codec, ids, deltaKeyframeInterval);
+		}
+
+		final ICompressor current = compressor;
+		if (current != null)
+		{
+			codec = new CompressingMessageCodec(codec, current, compressionThreshold);
+		}
+
+		// Metering is applied last so the recorded sizes are the ones sent on the wire.
+		return MessageMetrics.getInstance().isEnabled() ? new MeteringMessageCodec(codec) : codec;
+	}
+
+	@Override
+	public final IMessageCodec createSessionCodec(final String sessionName) throws MessageManagerException
+	{
+		final IMessageCodec codec = createSessionCodec();
+		final MessageJournal current = journal;
+
+		// Journaling is applied last so the journaled messages are the ones exchanged on the wire.
+		return current == null ? codec : new JournalingMessageCodec(codec, current, sessionName);
+	}
+
+	@Override
+	public final MessageJournal getMessageJournal()
+	{
+		return journal;
+	}
+
+	@Override
+	public final IMessageCodec createBroadcastCodec() throws MessageManagerException
+	{
+		IMessageCodec codec = getMessageCodec();
+
+		// A stateless string dictionary writes the strings in full, with the control sections expected by the sessions.
+		if (dictionarySize > 0)
+		{
+			codec = new DictionaryMessageCodec(codec);
+		}
+
+		// Messages are sent as plain messages, leaving the delta states of the sessions untouched.
+		if (!deltaMessageIds.isEmpty())
+		{
+			codec = new DeltaMessageCodec(codec, Collections.<Integer> emptySet(), deltaKeyframeInterval);
+		}
+
+		final ICompressor current = compressor;
+		if (current != null)
+		{
+			codec = new CompressingMessageCodec(codec, current, compressionThreshold);
+		}
+
+		return MessageMetrics.getInstance().isEnabled() ? new MeteringMessageCodec(codec) : codec;
+	}
+
+	@Override
+	public final IMessageCodec getSessionCodec(final String sessionName) throws MessageManagerException
+	{
+		IMessageCodec codec = sessionCodecs.get(sessionName);
+		if (codec == null)
+		{
+			codec = createSessionCodec(sessionName);
+
+			final IMessageCodec existing = sessionCodecs.putIfAbsent(sessionName, codec);
+			if (existing != null)
+			{
+				codec = existing;
+			}
+		}
+
+		return codec;
+	}
+
+	@Override
+	public final FrameDecoder getSessionDecoder(final String sessionName) throws MessageManagerException
+	{
+		FrameDecoder decoder = sessionDecoders.get(sessionName);
+		if (decoder == null)
+		{
+			decoder = new FrameDecoder(getSessionCodec(sessionName));
+
+			final FrameDecoder existing = sessionDecoders.putIfAbsent(sessionName, decoder);
+			if (existing != null)
+			{
+				decoder = existing;
+			}
+		}
+
+		return decoder;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final void releaseSessionCodec(final String sessionName)
+	{
+		sessionDecoders.remove(sessionName);
+
+		IMessageCodec codec = sessionCodecs.remove(sessionName);
+		while (codec instanceof IDelegatingMessageCodec)
+		{
+			codec = ((IDelegatingMessageCodec) codec).getDelegate();
+		}
+
+		if (codec instanceof CompressingMessageCodec)
+		{
+			log.info("Session released [name=" + sessionName + ", statistics=" + ((CompressingMessageCodec) codec).getStatistics() + "]");
+		}
+	}
+
+	@Override
+	public final RequestTracker createRequestTracker()
+	{
+		return new RequestTracker(maxInFlightRequests, requestTimeout);
+	}
+
+	@Override
+	public final RequestTracker getRequestTracker(final String sessionName)
+	{
+		RequestTracker tracker = requestTrackers.get(sessionName);
+		if (tracker == null)
+		{
+			tracker = createRequestTracker();
+
+			final RequestTracker existing = requestTrackers.putIfAbsent(sessionName, tracker);
+			if (existing != null)
+			{
+				tracker = existing;
+			}
+		}
+
+		return tracker;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final void releaseRequestTracker(final String sessionName)
+	{
+		final RequestTracker tracker = requestTrackers.remove(sessionName);
+		if (tracker != null)
+		{
+			final int count = tracker.cancelAll();
+			if (count > 0)
+			{
+				log.info("Session requests cancelled [name=" + sessionName + ", count=" + count + "]");
+			}
+		}
+	}
+
+	@Override
+	public final OutboundQueue createOutboundQueue(final String name, final IOutboundSink sink)
+	{
+		if (outboundCapacity == 0)
+		{
+			return null;
+		}
+
+		return new OutboundQueue(name, sink, outboundCapacity, outboundBudget, OutboundQueue.DEFAULT_MAX_BATCH, outboundPolicy);
+	}
+
+	@Override
+	public final MessageDispatcher getMessageDispatcher()
+	{
+		return dispatcher;
+	}
+
+	@Override
+	public final MessageChunker getMessageChunker()
+	{
+		return chunker;
+	}
+
+	@Override
+	public final ICodec getDataCodec()
+	{
+		PooledDataCodec codec = dataCodec;
+		if (codec == null)
+		{
+			synchronized (this)
+			{
+				if (dataCodec == null)
+				{
+					createCodecs();
+				}
+				codec = dataCodec;
+			}
+		}
+
+		return codec;
+	}
 
 	//	@Override
 	//	public final IMessageCodec getMessageSerializer()
@@ -435,45 +1249,50 @@ public class MessageManager implements IMessageManager
 	//		dataCodec.setClassCatalog(catalog);
 	//	}
 
-	//	public final IClassCatalog getClassCatalog()
-	//	{
-	//		return catalog;
-	//	}
+	@Override
+	public final IClassCatalog getClassCatalog()
+	{
+		return catalog;
+	}
 
 	@Override
 	public final List<Enum<? extends IMessageType>> getRegisteredMessageByCategory(final Enum<? extends IMessageCategoryType> messageCategory)
 	{
-		return Collections.unmodifiableList(byMessageCategory.get(messageCategory));
+		return registry.getByCategory(messageCategory);
 	}
 
 	@Override
 	public final List<Enum<? extends IMessageType>> getRegisteredMessageByMessageClass(final Class<? extends IMessage> messageClass)
 	{
-		return Collections.unmodifiableList(byMessageClass.get(messageClass));
+		return registry.getByMessageClass(messageClass);
 	}
 
 	@Override
 	public final List<Enum<? extends IMessageType>> getRegisteredMessageByDataClass(final Class<? extends Serializable> dataClass)
 	{
-		return Collections.unmodifiableList(byDataClass.get(dataClass));
+		return registry.getByDataClass(dataClass);
 	}
 
 	@Override
 	public final List<Enum<? extends IMessageType>> getRegisteredMessageByHandlerClass(final Class<? extends IMessageHandler> handlerClass)
 	{
-		return Collections.unmodifiableList(byHandlerClass.get(handlerClass));
+		return registry.getByHandlerClass(handlerClass);
 	}
 
 	@Override
 	public final Enum<? extends IMessageType> getMessage(final int messageId) throws MessageManagerException
 	{
-		return byMessageId.get(Integer.valueOf(messageId));
+		final MessageRegistration registration = registry.get(messageId);
+
+		return registration != null ? registration.getType() : null;
 	}
 
 	@Override
 	public final Enum<? extends IMessageType> getMessage(final String messageName) throws MessageManagerException
 	{
-		return byMessageName.get(messageName);
+		final MessageRegistration registration = registry.get(messageName);
+
+		return registration != null ? registration.getType() : null;
 	}
 
 	//	@Override
@@ -482,81 +1301,112 @@ public class MessageManager implements IMessageManager
 	//		return messageCodec.decodeMessage(encoded);
 	//	}
 
+	@SuppressWarnings("nls")
+	@Override
+	public final IMessage createMessage(final int messageId) throws MessageManagerException
+	{
+		final MessageRegistration registration = registry.get(messageId);
+		if (registration == null)
+		{
+			throw new MessageManagerException("Cannot create message with identifier: " + messageId + ". The message type is not registered!");
+		}
+
+		return createMessage(registration);
+	}
+
 	@Override
-	public final synchronized IMessage createMessage(final int messageId) throws MessageManagerException
+	public final IMessage createMessage(final Enum<? extends IMessageType> messageType) throws MessageManagerException
 	{
-		return createMessage(byMessageId.get(Integer.valueOf(messageId)));
+		return createMessage(getRegistration(messageType));
 	}
 
 	@SuppressWarnings("nls")
 	@Override
-	public final synchronized IMessage createMessage(final Enum<? extends IMessageType> messageType) throws MessageManagerException
+	public final IMessage acquireMessage(final Enum<? extends IMessageType> messageType) throws MessageManagerException
 	{
-		IMessage message = null;
-		int messageId;
-		String messageName;
-		Enum<? extends IMessageCategoryType> messageCategory;
-		Class<? extends IMessage> messageClass;
-		Class<? extends Serializable> dataClass;
-		Class<? extends IMessageHandler> handlerClass;
+		try
+		{
+			return getRegistration(messageType).getFactory().acquire();
+		}
+		catch (MessageException e)
+		{
+			throw new MessageManagerException("Cannot create message of type: " + messageType.name() + " due to: " + e.getMessage(), e);
+		}
+	}
 
-		// Does the message definition registered?
-		int id = ((IMessageType) messageType).getMessageId();
-		Enum<? extends IMessageType> type = byMessageId.get(Integer.valueOf(id));
-		if (type != null)
-		{
-			messageId = ((IMessageType) type).getMessageId();
-			messageCategory = ((IMessageType) type).getCategory();
-			messageClass = ((IMessageType) type).getMessageClass();
-			dataClass = ((IMessageType) type).getDataClass();
-			handlerClass = ((IMessageType) type).getHandlerClass();
-			messageName = type.name();
-
-			// Categories must be the same 
-			if (messageCategory != ((IMessageType) messageType).getCategory())
-			{
-				throw new MessageManagerException("Cannot create message of type: " + messageType.getClass().getName() + " ; " + messageType.name());
-			}
+	@Override
+	public final boolean releaseMessage(final IMessage message)
+	{
+		if (message == null || message.getMessageType() == null)
+		{
+			return false;
+		}
 
-			// Message class must be the same 
-			if (messageClass != ((IMessageType) messageType).getMessageClass())
-			{
-				throw new MessageManagerException("Cannot create message of type: " + messageType.getClass().getName() + " ; " + messageType.name());
-			}
+		final MessageRegistration registration = registry.get(message.getMessageType());
 
-			// Data class must be the same 
-			if (dataClass != ((IMessageType) messageType).getDataClass())
-			{
-				throw new MessageManagerException("Cannot create message of type: " + messageType.getClass().getName() + " ; " + messageType.name());
-			}
+		return registration != null && registration.getFactory().release(message);
+	}
 
-			// Handler class must be the same 
-			if (handlerClass != ((IMessageType) messageType).getHandlerClass())
-			{
-				throw new MessageManagerException("Cannot create message of type: " + messageType.getClass().getName() + " ; " + messageType.name());
-			}
+	@Override
+	public final MessageFactory getMessageFactory(final int messageId)
+	{
+		final MessageRegistration registration = registry.get(messageId);
 
-			// Message name must be the same 
-			if (!messageName.equals(messageType.name()))
-			{
-				throw new MessageManagerException("Cannot create message of type: " + messageType.getClass().getName() + " ; " + messageType.name());
-			}
+		return registration != null ? registration.getFactory() : null;
+	}
+
+	/**
+	 * Returns the registration of a message type.
+	 * <p>
+	 * @param messageType Message type.
+	 * @return {@link MessageRegistration}.
+	 * @throws MessageManagerException Thrown if the message type is not
+	 * registered or if its definition does not match the registered one.
+	 */
+	@SuppressWarnings("nls")
+	private final MessageRegistration getRegistration(final Enum<? extends IMessageType> messageType) throws MessageManagerException
+	{
+		// A registered enumerated value does not need to be validated again.
+		MessageRegistration registration = registry.get(messageType);
+		if (registration != null)
+		{
+			return registration;
 		}
-		else
+
+		// Does the message definition registered?
+		registration = registry.get(((IMessageType) messageType).getMessageId());
+		if (registration == null)
 		{
 			throw new MessageManagerException("Cannot create message of type: " + messageType.getClass().getName() + " ; " + messageType.name() + ". The message type is not registered!");
 		}
 
+		// Category, classes and name must be the same
+		if (!registration.matches(messageType))
+		{
+			throw new MessageManagerException("Cannot create message of type: " + messageType.getClass().getName() + " ; " + messageType.name());
+		}
+
+		return registration;
+	}
+
+	/**
+	 * Creates a new empty message of a registered message type.
+	 * <p>
+	 * @param registration Registration of the message type.
+	 * @return Message.
+	 * @throws MessageManagerException Thrown in case the creation of the
+	 * message failed.
+	 */
+	@SuppressWarnings("nls")
+	private final static IMessage createMessage(final MessageRegistration registration) throws MessageManagerException
+	{
 		try
 		{
-			Constructor<?> ctor = messageClass.getConstructor(int.class);
-			message = (IMessage) ctor.newInstance(Integer.valueOf(messageId));
+			return registration.getFactory().create();
 		}
-		catch (Exception e)
+		catch (MessageException e)
 		{
-			throw new MessageManagerException(e.getMessage());
+			throw new MessageManagerException("Cannot create message of type: " + registration.getName() + " due to: " + e.getMessage(), e);
 		}
-
-		return message;
 	}
 }
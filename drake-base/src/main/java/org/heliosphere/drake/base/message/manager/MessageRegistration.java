@@ -0,0 +1,213 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.manager;
+
+import java.io.Serializable;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.factory.MessageFactory;
+import org.heliosphere.drake.base.message.handler.IMessageHandler;
+import org.heliosphere.drake.base.message.handler.MessageHandlerInvoker;
+import org.heliosphere.drake.base.message.type.IMessageCategoryType;
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+/**
+ * Immutable metadata of a registered message type.
+ * <p>
+ * The metadata are resolved once, when the message protocol is registered, so
+ * that the hot paths (decoding, dispatching and creating messages) do not have
+ * to query the message type enumeration nor to use reflection lookups.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MessageRegistration
+{
+	/**
+	 * Message type.
+	 */
+	private final Enum<? extends IMessageType> type;
+
+	/**
+	 * Message identifier.
+	 */
+	private final int messageId;
+
+	/**
+	 * Message category.
+	 */
+	private final Enum<? extends IMessageCategoryType> category;
+
+	/**
+	 * Message class.
+	 */
+	private final Class<? extends IMessage> messageClass;
+
+	/**
+	 * Message data class.
+	 */
+	private final Class<? extends Serializable> dataClass;
+
+	/**
+	 * Message handler class.
+	 */
+	private final Class<? extends IMessageHandler> handlerClass;
+
+	/**
+	 * Message handler invoker.
+	 */
+	private final MessageHandlerInvoker handler;
+
+	/**
+	 * Message factory.
+	 */
+	private final MessageFactory factory;
+
+	/**
+	 * Creates a new message registration.
+	 * <p>
+	 * @param type Message type.
+	 * @throws NoSuchMethodException Thrown if the handler class does not
+	 * provide a public no-argument constructor.
+	 * @throws IllegalAccessException Thrown if the handler constructor cannot
+	 * be accessed.
+	 */
+	public MessageRegistration(final Enum<? extends IMessageType> type) throws NoSuchMethodException, IllegalAccessException
+	{
+		final IMessageType definition = (IMessageType) type;
+
+		this.type = type;
+		this.messageId = definition.getMessageId();
+		this.category = definition.getCategory();
+		this.messageClass = definition.getMessageClass();
+		this.dataClass = definition.getDataClass();
+		this.handlerClass = definition.getHandlerClass();
+		this.handler = new MessageHandlerInvoker(handlerClass);
+		this.factory = new MessageFactory(type);
+	}
+
+	/**
+	 * Returns the message type.
+	 * <p>
+	 * @return Message type.
+	 */
+	public final Enum<? extends IMessageType> getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Returns the message identifier.
+	 * <p>
+	 * @return Message identifier.
+	 */
+	public final int getMessageId()
+	{
+		return messageId;
+	}
+
+	/**
+	 * Returns the message name.
+	 * <p>
+	 * @return Message name.
+	 */
+	public final String getName()
+	{
+		return type.name();
+	}
+
+	/**
+	 * Returns the message category.
+	 * <p>
+	 * @return Message category.
+	 */
+	public final Enum<? extends IMessageCategoryType> getCategory()
+	{
+		return category;
+	}
+
+	/**
+	 * Returns the message class.
+	 * <p>
+	 * @return Message class.
+	 */
+	public final Class<? extends IMessage> getMessageClass()
+	{
+		return messageClass;
+	}
+
+	/**
+	 * Returns the message data class.
+	 * <p>
+	 * @return Message data class.
+	 */
+	public final Class<? extends Serializable> getDataClass()
+	{
+		return dataClass;
+	}
+
+	/**
+	 * Returns the message handler class.
+	 * <p>
+	 * @return Message handler class.
+	 */
+	public final Class<? extends IMessageHandler> getHandlerClass()
+	{
+		return handlerClass;
+	}
+
+	/**
+	 * Returns the message handler invoker.
+	 * <p>
+	 * @return {@link MessageHandlerInvoker}.
+	 */
+	public final MessageHandlerInvoker getHandler()
+	{
+		return handler;
+	}
+
+	/**
+	 * Returns the message factory.
+	 * <p>
+	 * @return {@link MessageFactory}.
+	 */
+	public final MessageFactory getFactory()
+	{
+		return factory;
+	}
+
+	/**
+	 * Returns if a message type has the same definition than this
+	 * registration.
+	 * <p>
+	 * @param other Message type.
+	 * @return {@code True} if the definitions match, {@code false} otherwise.
+	 */
+	public final boolean matches(final Enum<? extends IMessageType> other)
+	{
+		if (other == type)
+		{
+			return true;
+		}
+
+		final IMessageType definition = (IMessageType) other;
+
+		return definition.getMessageId() == messageId && definition.getCategory() == category && definition.getMessageClass() == messageClass && definition.getDataClass() == dataClass && definition.getHandlerClass() == handlerClass && type.name().equals(other.name());
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "[id=" + messageId + ", name=" + type.name() + ", category=" + category + ", message.class=" + messageClass.getName() + ", data.class=" + dataClass.getName() + ", handler.class=" + handlerClass.getName() + "]";
+	}
+}
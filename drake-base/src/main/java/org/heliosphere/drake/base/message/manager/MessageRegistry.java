@@ -0,0 +1,413 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.manager;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.handler.IMessageHandler;
+import org.heliosphere.drake.base.message.type.IMessageCategoryType;
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+/**
+ * Immutable snapshot of the registered message types.
+ * <p>
+ * Message types having an identifier in the range {@code [0, DENSE_LIMIT[}
+ * are indexed by a dense array, the other ones by a sorted array searched by
+ * dichotomy, so that looking up a message by its identifier neither allocates
+ * nor locks. Registering a message protocol does not modify a snapshot but
+ * creates a new one which is then published by the {@link MessageManager}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MessageRegistry
+{
+	/**
+	 * Exclusive upper bound of the message identifiers held by the dense index.
+	 */
+	public static final int DENSE_LIMIT = 4096;
+
+	/**
+	 * Empty registry.
+	 */
+	public static final MessageRegistry EMPTY = new MessageRegistry(Collections.<MessageRegistration> emptyList());
+
+	/**
+	 * Orders the registrations by message identifier.
+	 */
+	private static final Comparator<MessageRegistration> BY_ID = new Comparator<MessageRegistration>()
+	{
+		@Override
+		public int compare(final MessageRegistration first, final MessageRegistration second)
+		{
+			final int a = first.getMessageId();
+			final int b = second.getMessageId();
+
+			return a < b ? -1 : (a == b ? 0 : 1);
+		}
+	};
+
+	/**
+	 * Registrations ordered by message identifier.
+	 */
+	private final List<MessageRegistration> registrations;
+
+	/**
+	 * Message types ordered by message identifier.
+	 */
+	private final List<Enum<? extends IMessageType>> types;
+
+	/**
+	 * Registrations indexed by message identifier (dense part).
+	 */
+	private final MessageRegistration[] dense;
+
+	/**
+	 * Sorted identifiers of the registrations out of the dense range.
+	 */
+	private final int[] sparseIds;
+
+	/**
+	 * Registrations out of the dense range (in the order of {@link #sparseIds}).
+	 */
+	private final MessageRegistration[] sparse;
+
+	/**
+	 * Registrations by message name.
+	 */
+	private final Map<String, MessageRegistration> byName = new HashMap<>();
+
+	/**
+	 * Message types by category (one {@link EnumMap} per category
+	 * enumeration class).
+	 */
+	private final Map<Class<?>, Map<Enum<?>, List<Enum<? extends IMessageType>>>> byCategory = new HashMap<>();
+
+	/**
+	 * Message types without category.
+	 */
+	private final List<Enum<? extends IMessageType>> uncategorized;
+
+	/**
+	 * Message types by message class.
+	 */
+	private final Map<Class<? extends IMessage>, List<Enum<? extends IMessageType>>> byMessageClass = new HashMap<>();
+
+	/**
+	 * Message types by data class.
+	 */
+	private final Map<Class<? extends Serializable>, List<Enum<? extends IMessageType>>> byDataClass = new HashMap<>();
+
+	/**
+	 * Message types by handler class.
+	 */
+	private final Map<Class<? extends IMessageHandler>, List<Enum<? extends IMessageType>>> byHandlerClass = new HashMap<>();
+
+	/**
+	 * Creates a new message registry.
+	 * <p>
+	 * @param registrations Registrations (with unique identifiers and names).
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private MessageRegistry(final List<MessageRegistration> registrations)
+	{
+		final MessageRegistration[] sorted = registrations.toArray(new MessageRegistration[registrations.size()]);
+		Arrays.sort(sorted, BY_ID);
+
+		this.registrations = Collections.unmodifiableList(Arrays.asList(sorted));
+
+		int max = -1;
+		int outside = 0;
+		final List<Enum<? extends IMessageType>> all = new ArrayList<>(sorted.length);
+		final List<Enum<? extends IMessageType>> none = new ArrayList<>();
+		for (MessageRegistration registration : sorted)
+		{
+			final int id = registration.getMessageId();
+			if (id >= 0 && id < DENSE_LIMIT)
+			{
+				max = Math.max(max, id);
+			}
+			else
+			{
+				outside++;
+			}
+
+			all.add(registration.getType());
+			byName.put(registration.getName(), registration);
+
+			final Enum<? extends IMessageCategoryType> category = registration.getCategory();
+			if (category == null)
+			{
+				none.add(registration.getType());
+			}
+			else
+			{
+				Map<Enum<?>, List<Enum<? extends IMessageType>>> categories = byCategory.get(category.getDeclaringClass());
+				if (categories == null)
+				{
+					categories = new EnumMap(category.getDeclaringClass());
+					byCategory.put(category.getDeclaringClass(), categories);
+				}
+				add(categories, category, registration.getType());
+			}
+
+			add(byMessageClass, registration.getMessageClass(), registration.getType());
+			add(byDataClass, registration.getDataClass(), registration.getType());
+			add(byHandlerClass, registration.getHandlerClass(), registration.getType());
+		}
+
+		this.types = Collections.unmodifiableList(all);
+		this.uncategorized = Collections.unmodifiableList(none);
+		this.dense = new MessageRegistration[max + 1];
+		this.sparseIds = new int[outside];
+		this.sparse = new MessageRegistration[outside];
+
+		int index = 0;
+		for (MessageRegistration registration : sorted)
+		{
+			final int id = registration.getMessageId();
+			if (id >= 0 && id < DENSE_LIMIT)
+			{
+				dense[id] = registration;
+			}
+			else
+			{
+				sparseIds[index] = id;
+				sparse[index++] = registration;
+			}
+		}
+	}
+
+	/**
+	 * Creates a new registry containing the message types of this registry
+	 * and the ones of the given message protocol. This registry is left
+	 * untouched.
+	 * <p>
+	 * @param protocolClass Enumeration containing the message definitions.
+	 * @return New {@link MessageRegistry}.
+	 * @throws MessageManagerException Thrown if a message definition conflicts
+	 * with an already registered one or if its handler cannot be resolved.
+	 */
+	@SuppressWarnings({ "nls", "unchecked" })
+	public final MessageRegistry register(final Class<? extends IMessageType> protocolClass) throws MessageManagerException
+	{
+		Validate.notNull(protocolClass, "Message enumeration class cannot be null");
+		Validate.isTrue(protocolClass.isEnum(), "Message enumeration class: " + protocolClass.getName() + " is not an enumeration!");
+
+		final List<MessageRegistration> merged = new ArrayList<>(registrations);
+		final Map<Integer, MessageRegistration> ids = new HashMap<>();
+		final Map<String, MessageRegistration> names = new HashMap<>(byName);
+		for (MessageRegistration registration : registrations)
+		{
+			ids.put(Integer.valueOf(registration.getMessageId()), registration);
+		}
+
+		for (Enum<? extends IMessageType> type : (Enum<? extends IMessageType>[]) protocolClass.getEnumConstants())
+		{
+			final int id = ((IMessageType) type).getMessageId();
+
+			// Ensure the message identifier is not already registered
+			if (ids.containsKey(Integer.valueOf(id)))
+			{
+				throw new MessageManagerException("Cannot register message enumeration class: " + protocolClass + " because message identifier: " + id + " is already registered!");
+			}
+
+			// Ensure the enumerated value name is not already registered
+			if (names.containsKey(type.name()))
+			{
+				throw new MessageManagerException("Cannot register message enumeration class: " + protocolClass + " because message name: " + type.name() + " is already registered!");
+			}
+
+			final MessageRegistration registration;
+			try
+			{
+				registration = new MessageRegistration(type);
+			}
+			catch (NoSuchMethodException | IllegalAccessException e)
+			{
+				throw new MessageManagerException("Cannot register message enumeration class: " + protocolClass + " because handler class: " + ((IMessageType) type).getHandlerClass().getName() + " of message: " + type.name() + " cannot be instantiated!", e);
+			}
+
+			ids.put(Integer.valueOf(id), registration);
+			names.put(type.name(), registration);
+			merged.add(registration);
+		}
+
+		return new MessageRegistry(merged);
+	}
+
+	/**
+	 * Returns the registration of a message identifier.
+	 * <p>
+	 * @param messageId Message identifier.
+	 * @return {@link MessageRegistration} or {@code null} if the message
+	 * identifier is not registered.
+	 */
+	public final MessageRegistration get(final int messageId)
+	{
+		if (messageId >= 0 && messageId < dense.length)
+		{
+			return dense[messageId];
+		}
+
+		final int index = Arrays.binarySearch(sparseIds, messageId);
+
+		return index >= 0 ? sparse[index] : null;
+	}
+
+	/**
+	 * Returns the registration of a message name.
+	 * <p>
+	 * @param messageName Message name.
+	 * @return {@link MessageRegistration} or {@code null} if the message name
+	 * is not registered.
+	 */
+	public final MessageRegistration get(final String messageName)
+	{
+		return byName.get(messageName);
+	}
+
+	/**
+	 * Returns the registration of a message type.
+	 * <p>
+	 * @param type Message type.
+	 * @return {@link MessageRegistration} or {@code null} if the message type
+	 * is not registered.
+	 */
+	public final MessageRegistration get(final Enum<? extends IMessageType> type)
+	{
+		final MessageRegistration registration = get(((IMessageType) type).getMessageId());
+
+		return registration != null && registration.getType() == type ? registration : null;
+	}
+
+	/**
+	 * Returns the registrations ordered by message identifier.
+	 * <p>
+	 * @return Unmodifiable list of registrations.
+	 */
+	public final List<MessageRegistration> getRegistrations()
+	{
+		return registrations;
+	}
+
+	/**
+	 * Returns the message types ordered by message identifier.
+	 * <p>
+	 * @return Unmodifiable list of message types.
+	 */
+	public final List<Enum<? extends IMessageType>> getTypes()
+	{
+		return types;
+	}
+
+	/**
+	 * Returns the number of registered message types.
+	 * <p>
+	 * @return Number of message types.
+	 */
+	public final int size()
+	{
+		return registrations.size();
+	}
+
+	/**
+	 * Returns the message types of a category.
+	 * <p>
+	 * @param category Message category.
+	 * @return Unmodifiable list of message types.
+	 */
+	public final List<Enum<? extends IMessageType>> getByCategory(final Enum<? extends IMessageCategoryType> category)
+	{
+		if (category == null)
+		{
+			return uncategorized;
+		}
+
+		final Map<Enum<?>, List<Enum<? extends IMessageType>>> categories = byCategory.get(category.getDeclaringClass());
+
+		return categories == null ? Collections.<Enum<? extends IMessageType>> emptyList() : nonNull(categories.get(category));
+	}
+
+	/**
+	 * Returns the message types of a message class.
+	 * <p>
+	 * @param messageClass Message class.
+	 * @return Unmodifiable list of message types.
+	 */
+	public final List<Enum<? extends IMessageType>> getByMessageClass(final Class<? extends IMessage> messageClass)
+	{
+		return nonNull(byMessageClass.get(messageClass));
+	}
+
+	/**
+	 * Returns the message types of a data class.
+	 * <p>
+	 * @param dataClass Message data class.
+	 * @return Unmodifiable list of message types.
+	 */
+	public final List<Enum<? extends IMessageType>> getByDataClass(final Class<? extends Serializable> dataClass)
+	{
+		return nonNull(byDataClass.get(dataClass));
+	}
+
+	/**
+	 * Returns the message types of a handler class.
+	 * <p>
+	 * @param handlerClass Message handler class.
+	 * @return Unmodifiable list of message types.
+	 */
+	public final List<Enum<? extends IMessageType>> getByHandlerClass(final Class<? extends IMessageHandler> handlerClass)
+	{
+		return nonNull(byHandlerClass.get(handlerClass));
+	}
+
+	/**
+	 * Adds a message type to the (unmodifiable) list associated to a key.
+	 * <p>
+	 * @param map Map of lists.
+	 * @param key Key.
+	 * @param type Message type.
+	 */
+	private static final <K> void add(final Map<K, List<Enum<? extends IMessageType>>> map, final K key, final Enum<? extends IMessageType> type)
+	{
+		final List<Enum<? extends IMessageType>> current = map.get(key);
+		final List<Enum<? extends IMessageType>> list = new ArrayList<>(current == null ? 1 : current.size() + 1);
+		if (current != null)
+		{
+			list.addAll(current);
+		}
+		list.add(type);
+		map.put(key, Collections.unmodifiableList(list));
+	}
+
+	/**
+	 * Returns the given list or an empty list if {@code null}.
+	 * <p>
+	 * @param list List.
+	 * @return List.
+	 */
+	private static final List<Enum<? extends IMessageType>> nonNull(final List<Enum<? extends IMessageType>> list)
+	{
+		return list == null ? Collections.<Enum<? extends IMessageType>> emptyList() : list;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.metrics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of positive {@code long} values.
+ * <p>
+ * Values are counted in log-linear buckets: each power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so a value is known with a
+ * relative precision better than 1/{@value #SUB_BUCKETS} whatever its
+ * magnitude (in the same way as an {@code HdrHistogram}). Each thread records
+ * into its own recorder (a single writer array, without any contention) and
+ * the recorders are merged when a {@link HistogramSnapshot} is taken.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class Histogram
+{
+	/**
+	 * Number of bits of the linear sub-buckets.
+	 */
+	private static final int SUB_BITS = 4;
+
+	/**
+	 * Number of linear sub-buckets of each power of two.
+	 */
+	public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/**
+	 * Number of buckets.
+	 */
+	public static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BITS) * SUB_BUCKETS;
+
+	/**
+	 * Index of the sum of the recorded values in a recorder array.
+	 */
+	private static final int SUM = BUCKETS;
+
+	/**
+	 * Index of the highest recorded value in a recorder array.
+	 */
+	private static final int MAX = BUCKETS + 1;
+
+	/**
+	 * Recorders of all the threads having recorded a value.
+	 */
+	private final Queue<AtomicLongArray> recorders = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Recorder of the calling thread.
+	 */
+	private final ThreadLocal<AtomicLongArray> recorder = new ThreadLocal<AtomicLongArray>()
+	{
+		@Override
+		protected AtomicLongArray initialValue()
+		{
+			final AtomicLongArray array = new AtomicLongArray(BUCKETS + 2);
+			recorders.add(array);
+
+			return array;
+		}
+	};
+
+	/**
+	 * Records a value. Negative values are recorded as {@code 0}.
+	 * <p>
+	 * @param value Value to record.
+	 */
+	public final void record(final long value)
+	{
+		final long positive = value < 0 ? 0 : value;
+		final AtomicLongArray array = recorder.get();
+
+		// The calling thread is the only writer of its recorder.
+		final int index = getIndex(positive);
+		array.lazySet(index, array.get(index) + 1);
+		array.lazySet(SUM, array.get(SUM) + positive);
+		if (positive > array.get(MAX))
+		{
+			array.lazySet(MAX, positive);
+		}
+	}
+
+	/**
+	 * Returns a snapshot merging the recorders of all the threads.
+	 * <p>
+	 * @return {@link HistogramSnapshot}.
+	 */
+	public final HistogramSnapshot snapshot()
+	{
+		final long[] counts = new long[BUCKETS];
+		long sum = 0;
+		long max = 0;
+
+		for (AtomicLongArray array : recorders)
+		{
+			for (int i = 0; i < BUCKETS; i++)
+			{
+				counts[i] += array.get(i);
+			}
+			sum += array.get(SUM);
+			max = Math.max(max, array.get(MAX));
+		}
+
+		return new HistogramSnapshot(counts, sum, max);
+	}
+
+	/**
+	 * Resets the histogram. Values recorded concurrently may be lost.
+	 */
+	public final void reset()
+	{
+		for (AtomicLongArray array : recorders)
+		{
+			for (int i = 0; i < array.length(); i++)
+			{
+				array.set(i, 0);
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the bucket counting a value.
+	 * <p>
+	 * @param value Positive value.
+	 * @return Bucket index.
+	 */
+	static final int getIndex(final long value)
+	{
+		if (value < SUB_BUCKETS)
+		{
+			return (int) value;
+		}
+
+		final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+
+		return SUB_BUCKETS + (shift << SUB_BITS) + (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+
+	/**
+	 * Returns the lowest value counted by a bucket.
+	 * <p>
+	 * @param index Bucket index.
+	 * @return Lowest value.
+	 */
+	static final long getLowestValue(final int index)
+	{
+		if (index < SUB_BUCKETS)
+		{
+			return index;
+		}
+
+		final int shift = (index - SUB_BUCKETS) >>> SUB_BITS;
+		final int sub = (index - SUB_BUCKETS) & (SUB_BUCKETS - 1);
+
+		return (long) (SUB_BUCKETS + sub) << shift;
+	}
+
+	/**
+	 * Returns the highest value counted by a bucket.
+	 * <p>
+	 * @param index Bucket index.
+	 * @return Highest value.
+	 */
+	static final long getHighestValue(final int index)
+	{
+		return index == BUCKETS - 1 ? Long.MAX_VALUE : getLowestValue(index + 1) - 1;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.metrics;
+
+/**
+ * An immutable snapshot of a {@link Histogram}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class HistogramSnapshot
+{
+	/**
+	 * Number of values counted by each bucket.
+	 */
+	private final long[] counts;
+
+	/**
+	 * Number of recorded values.
+	 */
+	private final long count;
+
+	/**
+	 * Sum of the recorded values.
+	 */
+	private final long sum;
+
+	/**
+	 * Highest recorded value.
+	 */
+	private final long max;
+
+	/**
+	 * Creates a new histogram snapshot.
+	 * <p>
+	 * @param counts Number of values counted by each bucket.
+	 * @param sum Sum of the recorded values.
+	 * @param max Highest recorded value.
+	 */
+	HistogramSnapshot(final long[] counts, final long sum, final long max)
+	{
+		long total = 0;
+		for (long value : counts)
+		{
+			total += value;
+		}
+
+		this.counts = counts;
+		this.count = total;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 * <p>
+	 * @return Number of values.
+	 */
+	public final long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the sum of the recorded values.
+	 * <p>
+	 * @return Sum.
+	 */
+	public final long getSum()
+	{
+		return sum;
+	}
+
+	/**
+	 * Returns the highest recorded value.
+	 * <p>
+	 * @return Highest value.
+	 */
+	public final long getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Returns the mean of the recorded values.
+	 * <p>
+	 * @return Mean or {@code 0} if no value has been recorded.
+	 */
+	public final double getMean()
+	{
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Returns the value below which a given percentage of the recorded values
+	 * fall. The value is the highest value of the bucket containing the
+	 * percentile (and never exceeds the highest recorded value).
+	 * <p>
+	 * @param percentile Percentile (between {@code 0} and {@code 100}).
+	 * @return Value at the percentile or {@code 0} if no value has been
+	 * recorded.
+	 */
+	public final long getValueAtPercentile(final double percentile)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		final double bounded = Math.min(Math.max(percentile, 0), 100);
+		final long rank = Math.max(1, (long) Math.ceil(bounded / 100 * count));
+
+		long cumulated = 0;
+		for (int i = 0; i < counts.length; i++)
+		{
+			cumulated += counts[i];
+			if (cumulated >= rank)
+			{
+				return Math.min(Histogram.getHighestValue(i), max);
+			}
+		}
+
+		return max;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "[count=" + count + ", mean=" + String.format("%.1f", Double.valueOf(getMean())) + ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99) + ", max=" + max + "]";
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Summary of a {@link HistogramSnapshot} exposed through JMX (as an open type
+ * composite data).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class HistogramSummary
+{
+	/**
+	 * Number of recorded values.
+	 */
+	private final long count;
+
+	/**
+	 * Mean of the recorded values.
+	 */
+	private final double mean;
+
+	/**
+	 * Median of the recorded values.
+	 */
+	private final long median;
+
+	/**
+	 * 90th percentile of the recorded values.
+	 */
+	private final long percentile90;
+
+	/**
+	 * 99th percentile of the recorded values.
+	 */
+	private final long percentile99;
+
+	/**
+	 * Highest recorded value.
+	 */
+	private final long max;
+
+	/**
+	 * Creates a new histogram summary.
+	 * <p>
+	 * @param count Number of recorded values.
+	 * @param mean Mean of the recorded values.
+	 * @param median Median of the recorded values.
+	 * @param percentile90 90th percentile of the recorded values.
+	 * @param percentile99 99th percentile of the recorded values.
+	 * @param max Highest recorded value.
+	 */
+	@SuppressWarnings("nls")
+	@ConstructorProperties({ "count", "mean", "median", "percentile90", "percentile99", "max" })
+	public HistogramSummary(final long count, final double mean, final long median, final long percentile90, final long percentile99, final long max)
+	{
+		this.count = count;
+		this.mean = mean;
+		this.median = median;
+		this.percentile90 = percentile90;
+		this.percentile99 = percentile99;
+		this.max = max;
+	}
+
+	/**
+	 * Creates a new histogram summary.
+	 * <p>
+	 * @param snapshot {@link HistogramSnapshot} to summarize.
+	 */
+	public HistogramSummary(final HistogramSnapshot snapshot)
+	{
+		this(snapshot.getCount(), snapshot.getMean(), snapshot.getValueAtPercentile(50), snapshot.getValueAtPercentile(90), snapshot.getValueAtPercentile(99), snapshot.getMax());
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 * <p>
+	 * @return Number of values.
+	 */
+	public final long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the mean of the recorded values.
+	 * <p>
+	 * @return Mean.
+	 */
+	public final double getMean()
+	{
+		return mean;
+	}
+
+	/**
+	 * Returns the median of the recorded values.
+	 * <p>
+	 * @return Median.
+	 */
+	public final long getMedian()
+	{
+		return median;
+	}
+
+	/**
+	 * Returns the 90th percentile of the recorded values.
+	 * <p>
+	 * @return 90th percentile.
+	 */
+	public final long getPercentile90()
+	{
+		return percentile90;
+	}
+
+	/**
+	 * Returns the 99th percentile of the recorded values.
+	 * <p>
+	 * @return 99th percentile.
+	 */
+	public final long getPercentile99()
+	{
+		return percentile99;
+	}
+
+	/**
+	 * Returns the highest recorded value.
+	 * <p>
+	 * @return Highest value.
+	 */
+	public final long getMax()
+	{
+		return max;
+	}
+}
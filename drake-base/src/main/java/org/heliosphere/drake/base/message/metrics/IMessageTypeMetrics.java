@@ -0,0 +1,93 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.metrics;
+
+import javax.management.MXBean;
+
+/**
+ * Management interface of the metrics of a message type. Times are expressed
+ * in nanoseconds and sizes in bytes.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@MXBean
+public interface IMessageTypeMetrics
+{
+	/**
+	 * Returns the name of the message type.
+	 * <p>
+	 * @return Message type name.
+	 */
+	String getName();
+
+	/**
+	 * Returns the identifier of the message type.
+	 * <p>
+	 * @return Message identifier.
+	 */
+	int getMessageId();
+
+	/**
+	 * Returns the number of messages received (decoded).
+	 * <p>
+	 * @return Number of received messages.
+	 */
+	long getReceivedCount();
+
+	/**
+	 * Returns the number of messages sent (encoded).
+	 * <p>
+	 * @return Number of sent messages.
+	 */
+	long getSentCount();
+
+	/**
+	 * Returns the summary of the decoding times.
+	 * <p>
+	 * @return {@link HistogramSummary}.
+	 */
+	HistogramSummary getDecodeTime();
+
+	/**
+	 * Returns the summary of the encoding times.
+	 * <p>
+	 * @return {@link HistogramSummary}.
+	 */
+	HistogramSummary getEncodeTime();
+
+	/**
+	 * Returns the summary of the handling times.
+	 * <p>
+	 * @return {@link HistogramSummary}.
+	 */
+	HistogramSummary getHandlerTime();
+
+	/**
+	 * Returns the summary of the sizes of the received messages.
+	 * <p>
+	 * @return {@link HistogramSummary}.
+	 */
+	HistogramSummary getReceivedSize();
+
+	/**
+	 * Returns the summary of the sizes of the sent messages.
+	 * <p>
+	 * @return {@link HistogramSummary}.
+	 */
+	HistogramSummary getSentSize();
+
+	/**
+	 * Resets the metrics.
+	 */
+	void reset();
+}
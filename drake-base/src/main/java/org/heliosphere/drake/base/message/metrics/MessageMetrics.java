@@ -0,0 +1,309 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.log4j.Log4j;
+
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+/**
+ * Registry of the metrics of the message types.
+ * <p>
+ * Metrics are created the first time a message of a type is recorded and, if
+ * enabled, registered as platform MXBeans named
+ * {@code org.heliosphere.drake:type=MessageMetrics,name=<message type>}.
+ * Recording is lock-free and can be disabled as a whole.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class MessageMetrics
+{
+	/**
+	 * Domain of the JMX object names.
+	 */
+	@SuppressWarnings("nls")
+	public static final String JMX_DOMAIN = "org.heliosphere.drake";
+
+	/**
+	 * Singleton instance.
+	 */
+	private static volatile MessageMetrics instance = null;
+
+	/**
+	 * Is the recording of the metrics enabled?
+	 */
+	private volatile boolean enabled = true;
+
+	/**
+	 * Are the metrics registered as MXBeans?
+	 */
+	private volatile boolean jmx = false;
+
+	/**
+	 * Metrics by message type.
+	 */
+	private final ConcurrentMap<Enum<? extends IMessageType>, MessageTypeMetrics> metrics = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the message metrics instance.
+	 * <p>
+	 * @return {@link MessageMetrics}.
+	 */
+	public static final MessageMetrics getInstance()
+	{
+		if (instance == null)
+		{
+			synchronized (MessageMetrics.class)
+			{
+				if (instance == null)
+				{
+					instance = new MessageMetrics();
+				}
+			}
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Creates the message metrics.
+	 */
+	private MessageMetrics()
+	{
+		// Singleton.
+	}
+
+	/**
+	 * Returns if the recording of the metrics is enabled.
+	 * <p>
+	 * @return {@code True} if enabled, {@code false} otherwise.
+	 */
+	public final boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the recording of the metrics.
+	 * <p>
+	 * @param enabled {@code True} to enable, {@code false} to disable.
+	 */
+	public final void setEnabled(final boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Enables or disables the registration of the metrics as MXBeans. Metrics
+	 * already created are registered (or unregistered) immediately.
+	 * <p>
+	 * @param jmx {@code True} to register the metrics, {@code false}
+	 * otherwise.
+	 */
+	public final synchronized void setJmxEnabled(final boolean jmx)
+	{
+		if (this.jmx == jmx)
+		{
+			return;
+		}
+
+		this.jmx = jmx;
+		for (MessageTypeMetrics current : metrics.values())
+		{
+			if (jmx)
+			{
+				register(current);
+			}
+			else
+			{
+				unregister(current);
+			}
+		}
+	}
+
+	/**
+	 * Records a received message.
+	 * <p>
+	 * @param type Message type.
+	 * @param size Encoded size of the message.
+	 * @param nanos Decoding time in nanoseconds.
+	 */
+	public final void recordReceived(final Enum<? extends IMessageType> type, final int size, final long nanos)
+	{
+		if (enabled && type != null)
+		{
+			getMetrics(type).recordReceived(size, nanos);
+		}
+	}
+
+	/**
+	 * Records a sent message.
+	 * <p>
+	 * @param type Message type.
+	 * @param size Encoded size of the message.
+	 * @param nanos Encoding time in nanoseconds.
+	 */
+	public final void recordSent(final Enum<? extends IMessageType> type, final int size, final long nanos)
+	{
+		if (enabled && type != null)
+		{
+			getMetrics(type).recordSent(size, nanos);
+		}
+	}
+
+	/**
+	 * Records a handled message.
+	 * <p>
+	 * @param type Message type.
+	 * @param nanos Handling time in nanoseconds.
+	 */
+	public final void recordHandled(final Enum<? extends IMessageType> type, final long nanos)
+	{
+		if (enabled && type != null)
+		{
+			getMetrics(type).recordHandled(nanos);
+		}
+	}
+
+	/**
+	 * Returns the metrics of a message type (created if necessary).
+	 * <p>
+	 * @param type Message type.
+	 * @return {@link MessageTypeMetrics}.
+	 */
+	public final MessageTypeMetrics getMetrics(final Enum<? extends IMessageType> type)
+	{
+		MessageTypeMetrics current = metrics.get(type);
+		if (current == null)
+		{
+			current = new MessageTypeMetrics(type);
+
+			final MessageTypeMetrics existing = metrics.putIfAbsent(type, current);
+			if (existing != null)
+			{
+				return existing;
+			}
+
+			if (jmx)
+			{
+				register(current);
+			}
+		}
+
+		return current;
+	}
+
+	/**
+	 * Returns the metrics of all the recorded message types sorted by
+	 * message identifier.
+	 * <p>
+	 * @return List of {@link MessageTypeMetrics}.
+	 */
+	public final List<MessageTypeMetrics> getMetrics()
+	{
+		final List<MessageTypeMetrics> list = new ArrayList<>(metrics.values());
+		Collections.sort(list, new Comparator<MessageTypeMetrics>()
+		{
+			@Override
+			public int compare(final MessageTypeMetrics first, final MessageTypeMetrics second)
+			{
+				return Integer.compare(first.getMessageId(), second.getMessageId());
+			}
+		});
+
+		return list;
+	}
+
+	/**
+	 * Resets the metrics of all the message types.
+	 */
+	public final void reset()
+	{
+		for (MessageTypeMetrics current : metrics.values())
+		{
+			current.reset();
+		}
+	}
+
+	/**
+	 * Registers the metrics of a message type as a platform MXBean.
+	 * <p>
+	 * @param metrics {@link MessageTypeMetrics} to register.
+	 */
+	@SuppressWarnings("nls")
+	private static final void register(final MessageTypeMetrics metrics)
+	{
+		try
+		{
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = getObjectName(metrics);
+			if (!server.isRegistered(name))
+			{
+				server.registerMBean(metrics, name);
+			}
+		}
+		catch (final JMException e)
+		{
+			log.warn("Unable to register message metrics [type=" + metrics.getName() + "] due to: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Unregisters the MXBean of the metrics of a message type.
+	 * <p>
+	 * @param metrics {@link MessageTypeMetrics} to unregister.
+	 */
+	@SuppressWarnings("nls")
+	private static final void unregister(final MessageTypeMetrics metrics)
+	{
+		try
+		{
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = getObjectName(metrics);
+			if (server.isRegistered(name))
+			{
+				server.unregisterMBean(name);
+			}
+		}
+		catch (final JMException e)
+		{
+			log.warn("Unable to unregister message metrics [type=" + metrics.getName() + "] due to: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the JMX object name of the metrics of a message type.
+	 * <p>
+	 * @param metrics {@link MessageTypeMetrics}.
+	 * @return {@link ObjectName}.
+	 * @throws JMException Thrown if the object name is malformed.
+	 */
+	@SuppressWarnings("nls")
+	private static final ObjectName getObjectName(final MessageTypeMetrics metrics) throws JMException
+	{
+		return new ObjectName(JMX_DOMAIN + ":type=MessageMetrics,name=" + ObjectName.quote(metrics.getName()));
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+/**
+ * Metrics of a message type: number of received and sent messages,
+ * distributions of the decoding, encoding and handling times and of the
+ * encoded sizes.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MessageTypeMetrics implements IMessageTypeMetrics
+{
+	/**
+	 * Message type.
+	 */
+	private final Enum<? extends IMessageType> type;
+
+	/**
+	 * Number of received messages.
+	 */
+	private final AtomicLong received = new AtomicLong();
+
+	/**
+	 * Number of sent messages.
+	 */
+	private final AtomicLong sent = new AtomicLong();
+
+	/**
+	 * Decoding times.
+	 */
+	private final Histogram decodeTime = new Histogram();
+
+	/**
+	 * Encoding times.
+	 */
+	private final Histogram encodeTime = new Histogram();
+
+	/**
+	 * Handling times.
+	 */
+	private final Histogram handlerTime = new Histogram();
+
+	/**
+	 * Sizes of the received messages.
+	 */
+	private final Histogram receivedSize = new Histogram();
+
+	/**
+	 * Sizes of the sent messages.
+	 */
+	private final Histogram sentSize = new Histogram();
+
+	/**
+	 * Creates new metrics for a message type.
+	 * <p>
+	 * @param type Message type.
+	 */
+	MessageTypeMetrics(final Enum<? extends IMessageType> type)
+	{
+		this.type = type;
+	}
+
+	/**
+	 * Returns the message type.
+	 * <p>
+	 * @return Message type.
+	 */
+	public final Enum<? extends IMessageType> getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Records a received message.
+	 * <p>
+	 * @param size Encoded size of the message.
+	 * @param nanos Decoding time in nanoseconds.
+	 */
+	final void recordReceived(final int size, final long nanos)
+	{
+		received.incrementAndGet();
+		receivedSize.record(size);
+		decodeTime.record(nanos);
+	}
+
+	/**
+	 * Records a sent message.
+	 * <p>
+	 * @param size Encoded size of the message.
+	 * @param nanos Encoding time in nanoseconds.
+	 */
+	final void recordSent(final int size, final long nanos)
+	{
+		sent.incrementAndGet();
+		sentSize.record(size);
+		encodeTime.record(nanos);
+	}
+
+	/**
+	 * Records a handled message.
+	 * <p>
+	 * @param nanos Handling time in nanoseconds.
+	 */
+	final void recordHandled(final long nanos)
+	{
+		handlerTime.record(nanos);
+	}
+
+	@Override
+	public final String getName()
+	{
+		return type.name();
+	}
+
+	@Override
+	public final int getMessageId()
+	{
+		return ((IMessageType) type).getMessageId();
+	}
+
+	@Override
+	public final long getReceivedCount()
+	{
+		return received.get();
+	}
+
+	@Override
+	public final long getSentCount()
+	{
+		return sent.get();
+	}
+
+	@Override
+	public final HistogramSummary getDecodeTime()
+	{
+		return new HistogramSummary(decodeTime.snapshot());
+	}
+
+	@Override
+	public final HistogramSummary getEncodeTime()
+	{
+		return new HistogramSummary(encodeTime.snapshot());
+	}
+
+	@Override
+	public final HistogramSummary getHandlerTime()
+	{
+		return new HistogramSummary(handlerTime.snapshot());
+	}
+
+	@Override
+	public final HistogramSummary getReceivedSize()
+	{
+		return new HistogramSummary(receivedSize.snapshot());
+	}
+
+	@Override
+	public final HistogramSummary getSentSize()
+	{
+		return new HistogramSummary(sentSize.snapshot());
+	}
+
+	/**
+	 * Returns a snapshot of the decoding times.
+	 * <p>
+	 * @return {@link HistogramSnapshot}.
+	 */
+	public final HistogramSnapshot getDecodeTimeSnapshot()
+	{
+		return decodeTime.snapshot();
+	}
+
+	/**
+	 * Returns a snapshot of the encoding times.
+	 * <p>
+	 * @return {@link HistogramSnapshot}.
+	 */
+	public final HistogramSnapshot getEncodeTimeSnapshot()
+	{
+		return encodeTime.snapshot();
+	}
+
+	/**
+	 * Returns a snapshot of the handling times.
+	 * <p>
+	 * @return {@link HistogramSnapshot}.
+	 */
+	public final HistogramSnapshot getHandlerTimeSnapshot()
+	{
+		return handlerTime.snapshot();
+	}
+
+	/**
+	 * Returns a snapshot of the sizes of the received messages.
+	 * <p>
+	 * @return {@link HistogramSnapshot}.
+	 */
+	public final HistogramSnapshot getReceivedSizeSnapshot()
+	{
+		return receivedSize.snapshot();
+	}
+
+	/**
+	 * Returns a snapshot of the sizes of the sent messages.
+	 * <p>
+	 * @return {@link HistogramSnapshot}.
+	 */
+	public final HistogramSnapshot getSentSizeSnapshot()
+	{
+		return sentSize.snapshot();
+	}
+
+	@Override
+	public final void reset()
+	{
+		received.set(0);
+		sent.set(0);
+		decodeTime.reset();
+		encodeTime.reset();
+		handlerTime.reset();
+		receivedSize.reset();
+		sentSize.reset();
+	}
+}
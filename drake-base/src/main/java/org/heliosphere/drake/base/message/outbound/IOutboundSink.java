@@ -0,0 +1,36 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.outbound;
+
+import java.util.List;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
+
+/**
+ * Interface that the destinations of an {@link OutboundQueue} must implement.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface IOutboundSink
+{
+	/**
+	 * Encodes and writes a batch of messages within a single network write.
+	 * Called by the writer of the queue only, one batch at a time (the
+	 * successive batches can be written by different writer threads).
+	 * <p>
+	 * @param messages Messages to write.
+	 * @throws MessageException Thrown if the messages cannot be written.
+	 */
+	void write(final List<IMessage> messages) throws MessageException;
+}
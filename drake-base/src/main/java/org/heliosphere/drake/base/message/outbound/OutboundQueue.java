@@ -0,0 +1,575 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.outbound;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.outbound.type.BackPressurePolicyType;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A bounded queue of outbound messages drained by a writer executor shared by
+ * the queues.
+ * <p>
+ * Sending a message only queues it, so the sending threads (user interface,
+ * game logic) never wait for the network. The first message queued while the
+ * queue is idle schedules a drain after the coalescing budget; the drain
+ * collects the waiting messages (up to the maximum batch size) and hands the
+ * whole batch to its {@link IOutboundSink} which writes it as a single frame
+ * set, and is scheduled again right away while messages are waiting. At most
+ * one drain of a queue is scheduled at a time, so messages are written in the
+ * order they have been queued, and the writer threads are shared by all the
+ * queues (a thousand simulated players do not need a thousand threads).
+ * <p>
+ * When the queue is full, the {@link BackPressurePolicyType} of the queue
+ * decides whether the sending thread waits, the oldest waiting message is
+ * dropped or the send fails.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class OutboundQueue implements Runnable
+{
+	/**
+	 * Default capacity of the queue.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Default coalescing budget (in microseconds).
+	 */
+	public static final long DEFAULT_COALESCE_BUDGET = 500;
+
+	/**
+	 * Default maximum number of messages written within a single batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH = 256;
+
+	/**
+	 * Name of the queue.
+	 */
+	private final String name;
+
+	/**
+	 * Sink writing the batches of messages.
+	 */
+	private final IOutboundSink sink;
+
+	/**
+	 * Executor running the drains of the queue.
+	 */
+	private final ScheduledExecutorService writer;
+
+	/**
+	 * Queue of the messages waiting to be written.
+	 */
+	private final BlockingQueue<IMessage> queue;
+
+	/**
+	 * Policy applied when the queue is full.
+	 */
+	private final BackPressurePolicyType policy;
+
+	/**
+	 * Time the writer waits for more messages before writing a batch (in
+	 * nanoseconds).
+	 */
+	private final long budget;
+
+	/**
+	 * Maximum number of messages written within a single batch.
+	 */
+	private final int maxBatch;
+
+	/**
+	 * Is a drain of the queue scheduled (or running)?
+	 */
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/**
+	 * Drain scheduled after the coalescing budget, {@code null} if none.
+	 */
+	private volatile ScheduledFuture<?> delayed = null;
+
+	/**
+	 * Highest number of messages observed waiting in the queue.
+	 */
+	private final AtomicInteger maxDepth = new AtomicInteger();
+
+	/**
+	 * Number of messages accepted by the queue.
+	 */
+	private final AtomicLong accepted = new AtomicLong();
+
+	/**
+	 * Number of messages dropped by the queue.
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Number of messages rejected by the queue.
+	 */
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * Number of messages written.
+	 */
+	private final AtomicLong written = new AtomicLong();
+
+	/**
+	 * Number of batches written.
+	 */
+	private final AtomicLong batches = new AtomicLong();
+
+	/**
+	 * Number of messages whose write failed.
+	 */
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * Is the queue accepting messages?
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Creates a new outbound queue drained by the shared outbound writers.
+	 * <p>
+	 * @param name Name of the queue.
+	 * @param sink {@link IOutboundSink} writing the batches of messages.
+	 * @param capacity Capacity of the queue.
+	 * @param budget Time the writer waits for more messages before writing a
+	 * batch (in microseconds, {@code 0} to only coalesce the messages already
+	 * waiting).
+	 * @param maxBatch Maximum number of messages written within a single batch.
+	 * @param policy Policy applied when the queue is full.
+	 */
+	public OutboundQueue(final String name, final IOutboundSink sink, final int capacity, final long budget, final int maxBatch, final BackPressurePolicyType policy)
+	{
+		this(WriterHolder.WRITER, name, sink, capacity, budget, maxBatch, policy);
+	}
+
+	/**
+	 * Creates a new outbound queue.
+	 * <p>
+	 * @param writer {@link ScheduledExecutorService} running the drains of
+	 * the queue.
+	 * @param name Name of the queue.
+	 * @param sink {@link IOutboundSink} writing the batches of messages.
+	 * @param capacity Capacity of the queue.
+	 * @param budget Time the writer waits for more messages before writing a
+	 * batch (in microseconds, {@code 0} to only coalesce the messages already
+	 * waiting).
+	 * @param maxBatch Maximum number of messages written within a single batch.
+	 * @param policy Policy applied when the queue is full.
+	 */
+	@SuppressWarnings("nls")
+	public OutboundQueue(final ScheduledExecutorService writer, final String name, final IOutboundSink sink, final int capacity, final long budget, final int maxBatch, final BackPressurePolicyType policy)
+	{
+		Validate.notNull(writer, "Outbound writer cannot be null!");
+		Validate.notNull(sink, "Outbound sink cannot be null!");
+		Validate.notNull(policy, "Back pressure policy cannot be null!");
+		Validate.isTrue(capacity > 0, "Outbound queue capacity must be greater than zero!");
+		Validate.isTrue(budget >= 0, "Coalescing budget cannot be negative!");
+		Validate.isTrue(maxBatch > 0, "Maximum batch size must be greater than zero!");
+
+		this.writer = writer;
+		this.name = name;
+		this.sink = sink;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.policy = policy;
+		this.budget = TimeUnit.MICROSECONDS.toNanos(budget);
+		this.maxBatch = maxBatch;
+	}
+
+	/**
+	 * Queues a message to be written.
+	 * <p>
+	 * @param message Message to write.
+	 * @return {@code True} if the message has been accepted, {@code false} if
+	 * it has been dropped (queue stopped).
+	 * @throws MessageException Thrown if the queue is full and its policy is
+	 * {@link BackPressurePolicyType#FAIL_FAST}, or if the sending thread is
+	 * interrupted while waiting with the {@link BackPressurePolicyType#BLOCK}
+	 * policy.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean offer(final IMessage message) throws MessageException
+	{
+		Validate.notNull(message, "Message cannot be null!");
+
+		if (!running)
+		{
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		boolean done = queue.offer(message);
+		if (!done)
+		{
+			switch (policy)
+			{
+				case BLOCK:
+					try
+					{
+						queue.put(message);
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						rejected.incrementAndGet();
+						throw new MessageException("Cannot send message due to: interrupted while waiting for the outbound queue [type=" + message.getMessageType() + "]");
+					}
+					break;
+
+				case DROP_OLDEST:
+					while (!done)
+					{
+						if (queue.poll() != null)
+						{
+							dropped.incrementAndGet();
+						}
+						done = queue.offer(message);
+					}
+					break;
+
+				case FAIL_FAST:
+				default:
+					rejected.incrementAndGet();
+					throw new MessageException("Cannot send message due to: outbound queue full [capacity=" + getQueueCapacity() + ", type=" + message.getMessageType() + "]");
+			}
+		}
+
+		accepted.incrementAndGet();
+		updateMaxDepth(queue.size());
+		schedule(budget);
+
+		return true;
+	}
+
+	/**
+	 * Queues a list of messages to be written. The messages are queued one at
+	 * a time, so with the {@link BackPressurePolicyType#FAIL_FAST} policy the
+	 * messages preceding the rejected one remain queued.
+	 * <p>
+	 * @param messages Messages to write.
+	 * @return {@code True} if all the messages have been accepted,
+	 * {@code false} otherwise.
+	 * @throws MessageException Thrown if a message cannot be queued.
+	 */
+	public final boolean offer(final List<IMessage> messages) throws MessageException
+	{
+		boolean done = true;
+		for (IMessage message : messages)
+		{
+			done &= offer(message);
+		}
+
+		return done;
+	}
+
+	/**
+	 * Writes a batch of the waiting messages. Called by the writer executor.
+	 */
+	@SuppressWarnings("nls")
+	@Override
+	public final void run()
+	{
+		delayed = null;
+
+		final List<IMessage> batch = new ArrayList<>(Math.min(maxBatch, queue.size()));
+		queue.drainTo(batch, maxBatch);
+
+		if (!batch.isEmpty())
+		{
+			try
+			{
+				sink.write(batch);
+				written.addAndGet(batch.size());
+				batches.incrementAndGet();
+			}
+			catch (MessageException | RuntimeException e)
+			{
+				failed.addAndGet(batch.size());
+				log.error("Cannot write outbound messages [queue=" + name + ", count=" + batch.size() + "] due to: " + e.getMessage(), e);
+			}
+		}
+
+		// Messages queued during the write are written by the next drain, without waiting for the budget.
+		scheduled.set(false);
+		if (!queue.isEmpty())
+		{
+			schedule(0);
+		}
+
+		synchronized (this)
+		{
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Schedules a drain of the queue if none is scheduled yet.
+	 * <p>
+	 * @param delay Delay before the drain (in nanoseconds).
+	 */
+	private final void schedule(final long delay)
+	{
+		if (!scheduled.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		try
+		{
+			if (delay > 0)
+			{
+				delayed = writer.schedule(this, delay, TimeUnit.NANOSECONDS);
+			}
+			else
+			{
+				writer.execute(this);
+			}
+		}
+		catch (final RejectedExecutionException e)
+		{
+			scheduled.set(false);
+			throw e;
+		}
+	}
+
+	/**
+	 * Stops the queue once the messages already accepted are written: the
+	 * queue no longer accepts messages and a drain waiting for the coalescing
+	 * budget is run right away. Once the queue is drained or the timeout
+	 * elapsed, the messages still queued are dropped (releasing the senders
+	 * waiting for room in the queue).
+	 * <p>
+	 * @param timeout Maximum time to wait for the queue to be drained (in
+	 * milliseconds).
+	 * @return {@code True} if the queue has been drained, {@code false}
+	 * otherwise.
+	 * @throws InterruptedException Thrown if the calling thread is interrupted
+	 * while waiting.
+	 */
+	public final boolean stop(final long timeout) throws InterruptedException
+	{
+		running = false;
+
+		// Do not wait for the coalescing budget of a pending drain.
+		final ScheduledFuture<?> pending = delayed;
+		if (pending != null && pending.cancel(false))
+		{
+			writer.execute(this);
+		}
+
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		boolean drained;
+		synchronized (this)
+		{
+			while (!(drained = !scheduled.get() && queue.isEmpty()))
+			{
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+				{
+					break;
+				}
+
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+		}
+
+		dropped.addAndGet(queue.size());
+		queue.clear();
+
+		return drained;
+	}
+
+	/**
+	 * Records a queue depth.
+	 * <p>
+	 * @param depth Queue depth.
+	 */
+	private final void updateMaxDepth(final int depth)
+	{
+		int current = maxDepth.get();
+		while (depth > current && !maxDepth.compareAndSet(current, depth))
+		{
+			current = maxDepth.get();
+		}
+	}
+
+	/**
+	 * Returns the policy applied when the queue is full.
+	 * <p>
+	 * @return {@link BackPressurePolicyType}.
+	 */
+	public final BackPressurePolicyType getPolicy()
+	{
+		return policy;
+	}
+
+	/**
+	 * Returns the number of messages waiting to be written.
+	 * <p>
+	 * @return Queue depth.
+	 */
+	public final int getQueueDepth()
+	{
+		return queue.size();
+	}
+
+	/**
+	 * Returns the highest number of messages observed waiting to be written.
+	 * <p>
+	 * @return Maximum queue depth.
+	 */
+	public final int getMaxQueueDepth()
+	{
+		return maxDepth.get();
+	}
+
+	/**
+	 * Returns the capacity of the queue.
+	 * <p>
+	 * @return Queue capacity.
+	 */
+	public final int getQueueCapacity()
+	{
+		return queue.size() + queue.remainingCapacity();
+	}
+
+	/**
+	 * Returns the number of messages accepted by the queue.
+	 * <p>
+	 * @return Number of accepted messages.
+	 */
+	public final long getAcceptedCount()
+	{
+		return accepted.get();
+	}
+
+	/**
+	 * Returns the number of messages dropped by the queue.
+	 * <p>
+	 * @return Number of dropped messages.
+	 */
+	public final long getDroppedCount()
+	{
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the number of messages rejected by the queue.
+	 * <p>
+	 * @return Number of rejected messages.
+	 */
+	public final long getRejectedCount()
+	{
+		return rejected.get();
+	}
+
+	/**
+	 * Returns the number of messages written.
+	 * <p>
+	 * @return Number of written messages.
+	 */
+	public final long getWrittenCount()
+	{
+		return written.get();
+	}
+
+	/**
+	 * Returns the number of batches written (each batch being a single
+	 * network write).
+	 * <p>
+	 * @return Number of written batches.
+	 */
+	public final long getBatchCount()
+	{
+		return batches.get();
+	}
+
+	/**
+	 * Returns the number of messages whose write failed.
+	 * <p>
+	 * @return Number of failed messages.
+	 */
+	public final long getFailedCount()
+	{
+		return failed.get();
+	}
+
+	/**
+	 * Returns the name of the queue.
+	 * <p>
+	 * @return Queue name.
+	 */
+	public final String getName()
+	{
+		return name;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "depth=" + getQueueDepth() + ", maxDepth=" + getMaxQueueDepth() + ", capacity=" + getQueueCapacity() + ", accepted=" + getAcceptedCount() + ", written=" + getWrittenCount() + ", batches=" + getBatchCount() + ", dropped=" + getDroppedCount() + ", rejected=" + getRejectedCount() + ", failed=" + getFailedCount();
+	}
+
+	/**
+	 * Holder of the outbound writer shared by the queues (created on first
+	 * use).
+	 */
+	private static final class WriterHolder
+	{
+		/**
+		 * Shared outbound writer.
+		 */
+		private static final ScheduledThreadPoolExecutor WRITER = createWriter();
+
+		/**
+		 * Creates the shared outbound writer, with one thread per processor
+		 * (at least two).
+		 * <p>
+		 * @return Outbound writer.
+		 */
+		@SuppressWarnings("nls")
+		private static ScheduledThreadPoolExecutor createWriter()
+		{
+			final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+			final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactoryBuilder().setNameFormat("drake-outbound-writer-%d").setDaemon(true).build());
+
+			// Stopping a queue cancels its pending drain, the cancelled drains must not pile up.
+			executor.setRemoveOnCancelPolicy(true);
+
+			return executor;
+		}
+	}
+}
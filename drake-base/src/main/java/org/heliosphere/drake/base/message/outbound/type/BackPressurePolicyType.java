@@ -0,0 +1,38 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.outbound.type;
+
+/**
+ * Enumeration of the policies applied when a message is sent while the
+ * outbound queue is full.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public enum BackPressurePolicyType
+{
+	/**
+	 * The sending thread waits until the queue has room for the message.
+	 */
+	BLOCK,
+
+	/**
+	 * The oldest message waiting in the queue is dropped to make room for the
+	 * sent message.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * The send fails immediately with an exception.
+	 */
+	FAIL_FAST;
+}
@@ -0,0 +1,605 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.request;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Tracker of the in-flight requests of a session.
+ * <p>
+ * Registering a request assigns it a positive correlation identifier and
+ * returns a {@link ListenableFuture} completed by the response carrying the
+ * negated identifier (see {@link #correlate(IMessage, IMessage)}). The future
+ * fails with a {@link TimeoutException} if no response is received in time and
+ * is cancelled if the session is disconnected (see {@link #cancelAll()}); it
+ * can also be cancelled by the caller. The number of in-flight requests is
+ * bounded so a peer not answering cannot make the table grow without limit.
+ * <p>
+ * A request sent within a transaction (server side) is prepared (see
+ * {@link #prepare(IMessage)}) and only becomes in-flight once confirmed after
+ * the transaction commits (see {@link #confirm(long)}), its timeout being then
+ * fired by the caller (see {@link #expire(long)}). The requests of aborted
+ * transactions are never confirmed, they do not hold a permit and are dropped
+ * once the default timeout elapsed.
+ * <p>
+ * The futures are completed on the thread receiving the responses (or on the
+ * timer thread for the timeouts of registered requests), so long running
+ * callbacks must be given an executor of their own.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class RequestTracker
+{
+	/**
+	 * Default request timeout (in milliseconds).
+	 */
+	public static final long DEFAULT_TIMEOUT = 30000;
+
+	/**
+	 * Default maximum number of in-flight requests.
+	 */
+	public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+	/**
+	 * Timer firing the request timeouts.
+	 */
+	private final ScheduledExecutorService timer;
+
+	/**
+	 * Maximum number of in-flight requests.
+	 */
+	private final int maxInFlight;
+
+	/**
+	 * Default request timeout (in milliseconds).
+	 */
+	private final long timeout;
+
+	/**
+	 * In-flight requests (by correlation identifier).
+	 */
+	private final ConcurrentMap<Long, PendingRequest> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Permits bounding the number of in-flight requests.
+	 */
+	private final Semaphore permits;
+
+	/**
+	 * Prepared requests in preparation order, to drop the ones never
+	 * confirmed.
+	 */
+	private final Queue<PendingRequest> prepared = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Last assigned correlation identifier.
+	 */
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Creates a new request tracker with the default settings.
+	 */
+	public RequestTracker()
+	{
+		this(DEFAULT_MAX_IN_FLIGHT, DEFAULT_TIMEOUT);
+	}
+
+	/**
+	 * Creates a new request tracker using the shared request timer.
+	 * <p>
+	 * @param maxInFlight Maximum number of in-flight requests.
+	 * @param timeout Default request timeout (in milliseconds).
+	 */
+	public RequestTracker(final int maxInFlight, final long timeout)
+	{
+		this(TimerHolder.TIMER, maxInFlight, timeout);
+	}
+
+	/**
+	 * Creates a new request tracker.
+	 * <p>
+	 * @param timer {@link ScheduledExecutorService} firing the request
+	 * timeouts.
+	 * @param maxInFlight Maximum number of in-flight requests.
+	 * @param timeout Default request timeout (in milliseconds).
+	 */
+	@SuppressWarnings("nls")
+	public RequestTracker(final ScheduledExecutorService timer, final int maxInFlight, final long timeout)
+	{
+		Validate.notNull(timer, "Request timer cannot be null!");
+		Validate.isTrue(maxInFlight > 0, "Maximum number of in-flight requests must be greater than zero!");
+		Validate.isTrue(timeout > 0, "Request timeout must be greater than zero!");
+
+		this.timer = timer;
+		this.maxInFlight = maxInFlight;
+		this.timeout = timeout;
+		this.permits = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Returns if a message is a request.
+	 * <p>
+	 * @param message {@link IMessage}.
+	 * @return {@code True} if the message is a request, {@code false}
+	 * otherwise.
+	 */
+	public static boolean isRequest(final IMessage message)
+	{
+		return message.getCorrelationId() > 0;
+	}
+
+	/**
+	 * Returns if a message is a response to a request.
+	 * <p>
+	 * @param message {@link IMessage}.
+	 * @return {@code True} if the message is a response, {@code false}
+	 * otherwise.
+	 */
+	public static boolean isResponse(final IMessage message)
+	{
+		return message.getCorrelationId() < 0;
+	}
+
+	/**
+	 * Marks a message as being the response to a request.
+	 * <p>
+	 * @param request Received request.
+	 * @param response Response to send back.
+	 */
+	@SuppressWarnings("nls")
+	public static void correlate(final IMessage request, final IMessage response)
+	{
+		Validate.isTrue(isRequest(request), "Message is not a request!");
+
+		response.setCorrelationId(-request.getCorrelationId());
+	}
+
+	/**
+	 * Registers a request using the default timeout. Must be called before the
+	 * request is sent as the correlation identifier is set on the request.
+	 * <p>
+	 * @param request Request to register.
+	 * @return {@link ListenableFuture} completed by the response.
+	 * @throws MessageException Thrown if the maximum number of in-flight
+	 * requests is reached.
+	 */
+	public final ListenableFuture<IMessage> register(final IMessage request) throws MessageException
+	{
+		return register(request, timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Registers a request. Must be called before the request is sent as the
+	 * correlation identifier is set on the request.
+	 * <p>
+	 * @param request Request to register.
+	 * @param requestTimeout Request timeout.
+	 * @param unit Unit of the request timeout.
+	 * @return {@link ListenableFuture} completed by the response.
+	 * @throws MessageException Thrown if the maximum number of in-flight
+	 * requests is reached.
+	 */
+	@SuppressWarnings("nls")
+	public final ListenableFuture<IMessage> register(final IMessage request, final long requestTimeout, final TimeUnit unit) throws MessageException
+	{
+		Validate.notNull(request, "Request cannot be null!");
+		Validate.isTrue(requestTimeout > 0, "Request timeout must be greater than zero!");
+
+		if (!permits.tryAcquire())
+		{
+			throw new MessageException("Cannot send request due to: too many in-flight requests [max=" + maxInFlight + ", type=" + request.getMessageType() + "]");
+		}
+
+		final PendingRequest entry = add(request, true);
+
+		final Long id = entry.id;
+		final Enum<? extends IMessageType> type = request.getMessageType();
+		entry.timeout = timer.schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (remove(id) != null)
+				{
+					entry.future.setException(new TimeoutException("Request timed out [id=" + id + ", type=" + type + ", timeout=" + unit.toMillis(requestTimeout) + "ms]"));
+				}
+			}
+		}, requestTimeout, unit);
+
+		return entry.future;
+	}
+
+	/**
+	 * Prepares a request sent within a transaction. Must be called before the
+	 * request is sent as the correlation identifier is set on the request. The
+	 * request is not in-flight until confirmed (see {@link #confirm(long)})
+	 * once the transaction committed, but it can already be completed by a
+	 * response.
+	 * <p>
+	 * @param request Request to prepare.
+	 * @return {@link ListenableFuture} completed by the response.
+	 * @throws MessageException Thrown if the maximum number of in-flight
+	 * requests is reached.
+	 */
+	@SuppressWarnings("nls")
+	public final ListenableFuture<IMessage> prepare(final IMessage request) throws MessageException
+	{
+		Validate.notNull(request, "Request cannot be null!");
+
+		dropUnconfirmed();
+
+		if (permits.availablePermits() == 0)
+		{
+			throw new MessageException("Cannot send request due to: too many in-flight requests [max=" + maxInFlight + ", type=" + request.getMessageType() + "]");
+		}
+
+		final PendingRequest entry = add(request, false);
+		prepared.add(entry);
+
+		return entry.future;
+	}
+
+	/**
+	 * Confirms a prepared request once the transaction sending it committed,
+	 * the request becoming in-flight. The request fails if the maximum number
+	 * of in-flight requests is reached in the meantime.
+	 * <p>
+	 * @param correlationId Correlation identifier of the request.
+	 * @return {@code True} if the request is in-flight, {@code false} if it is
+	 * already completed or failed.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean confirm(final long correlationId)
+	{
+		final Long id = Long.valueOf(correlationId);
+		final PendingRequest entry = pending.get(id);
+		if (entry == null)
+		{
+			return false;
+		}
+
+		synchronized (entry)
+		{
+			if (entry.removed)
+			{
+				return false;
+			}
+			if (permits.tryAcquire())
+			{
+				entry.confirmed = true;
+				return true;
+			}
+		}
+
+		fail(correlationId, new MessageException("Cannot send request due to: too many in-flight requests [max=" + maxInFlight + ", id=" + id + "]"));
+
+		return false;
+	}
+
+	/**
+	 * Fails a confirmed request with a {@link TimeoutException} if it is still
+	 * in-flight. Called by the owner of a confirmed request when its timeout
+	 * elapsed.
+	 * <p>
+	 * @param correlationId Correlation identifier of the request.
+	 * @return {@code True} if the request timed out, {@code false} if it is
+	 * already completed.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean expire(final long correlationId)
+	{
+		return fail(correlationId, new TimeoutException("Request timed out [id=" + correlationId + "]"));
+	}
+
+	/**
+	 * Completes the request matching a response.
+	 * <p>
+	 * @param response Received message.
+	 * @return {@code True} if the message is a response (in which case it must
+	 * not be handled any further), {@code false} otherwise. A response whose
+	 * request is no longer in-flight (timed out or cancelled) is dropped.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean complete(final IMessage response)
+	{
+		if (!isResponse(response))
+		{
+			return false;
+		}
+
+		final PendingRequest entry = remove(Long.valueOf(-response.getCorrelationId()));
+		if (entry == null)
+		{
+			log.debug("Late response dropped [id=" + -response.getCorrelationId() + ", type=" + response.getMessageType() + "]");
+		}
+		else
+		{
+			entry.future.set(response);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Fails a registered request, for instance because it could not be sent.
+	 * <p>
+	 * @param request Registered request.
+	 * @param cause Cause of the failure.
+	 */
+	public final void fail(final IMessage request, final Throwable cause)
+	{
+		fail(request.getCorrelationId(), cause);
+	}
+
+	/**
+	 * Fails a request.
+	 * <p>
+	 * @param correlationId Correlation identifier of the request.
+	 * @param cause Cause of the failure.
+	 * @return {@code True} if the request failed, {@code false} if it is
+	 * already completed.
+	 */
+	private final boolean fail(final long correlationId, final Throwable cause)
+	{
+		final PendingRequest entry = remove(Long.valueOf(correlationId));
+		if (entry != null)
+		{
+			entry.future.setException(cause);
+		}
+
+		return entry != null;
+	}
+
+	/**
+	 * Cancels all the in-flight requests. Called when the session is
+	 * disconnected as no response can be received anymore.
+	 * <p>
+	 * @return Number of cancelled requests.
+	 */
+	public final int cancelAll()
+	{
+		int count = 0;
+		for (Long id : pending.keySet())
+		{
+			final PendingRequest entry = remove(id);
+			if (entry != null && entry.future.cancel(false))
+			{
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the number of in-flight requests (prepared requests not yet
+	 * confirmed are not counted).
+	 * <p>
+	 * @return Number of in-flight requests.
+	 */
+	public final int getInFlightCount()
+	{
+		return maxInFlight - permits.availablePermits();
+	}
+
+	/**
+	 * Returns the default request timeout.
+	 * <p>
+	 * @return Timeout in milliseconds.
+	 */
+	public final long getTimeout()
+	{
+		return timeout;
+	}
+
+	/**
+	 * Assigns a correlation identifier to a request and adds it to the
+	 * pending requests.
+	 * <p>
+	 * @param request Request.
+	 * @param confirmed Whether the request is in-flight (holds a permit).
+	 * @return {@link PendingRequest}.
+	 */
+	private final PendingRequest add(final IMessage request, final boolean confirmed)
+	{
+		final Long id = Long.valueOf(nextId());
+		final PendingRequest entry = new PendingRequest(id);
+		entry.confirmed = confirmed;
+
+		request.setCorrelationId(id.longValue());
+		pending.put(id, entry);
+
+		// A request cancelled by the caller is no longer in-flight.
+		entry.future.addListener(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (entry.future.isCancelled())
+				{
+					remove(id);
+				}
+			}
+		}, MoreExecutors.sameThreadExecutor());
+
+		return entry;
+	}
+
+	/**
+	 * Drops the prepared requests not confirmed within the default timeout
+	 * (the requests of aborted transactions).
+	 */
+	@SuppressWarnings("nls")
+	private final void dropUnconfirmed()
+	{
+		final long now = System.nanoTime();
+
+		PendingRequest entry;
+		while ((entry = prepared.peek()) != null && now - entry.created > TimeUnit.MILLISECONDS.toNanos(timeout))
+		{
+			prepared.remove(entry);
+			if (!entry.confirmed)
+			{
+				fail(entry.id.longValue(), new TimeoutException("Request not confirmed [id=" + entry.id + "]"));
+			}
+		}
+	}
+
+	/**
+	 * Returns the next correlation identifier (always positive).
+	 * <p>
+	 * @return Correlation identifier.
+	 */
+	private final long nextId()
+	{
+		long id;
+		do
+		{
+			id = sequence.incrementAndGet() & Long.MAX_VALUE;
+		}
+		while (id == 0);
+
+		return id;
+	}
+
+	/**
+	 * Removes a request from the in-flight requests. A request is removed
+	 * before its future is completed, so only the caller succeeding in the
+	 * removal completes it and the in-flight count is up to date once the
+	 * future is done.
+	 * <p>
+	 * @param id Correlation identifier of the request.
+	 * @return Removed {@link PendingRequest} or {@code null} if the request is
+	 * no longer in-flight.
+	 */
+	private final PendingRequest remove(final Long id)
+	{
+		final PendingRequest entry = pending.remove(id);
+		if (entry != null)
+		{
+			synchronized (entry)
+			{
+				entry.removed = true;
+				if (entry.confirmed)
+				{
+					permits.release();
+				}
+			}
+
+			final ScheduledFuture<?> task = entry.timeout;
+			if (task != null)
+			{
+				task.cancel(false);
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * An in-flight request.
+	 */
+	private static final class PendingRequest
+	{
+		/**
+		 * Correlation identifier.
+		 */
+		private final Long id;
+
+		/**
+		 * Time at which the request has been added (in nanoseconds).
+		 */
+		private final long created = System.nanoTime();
+
+		/**
+		 * Future completed by the response.
+		 */
+		private final SettableFuture<IMessage> future = SettableFuture.create();
+
+		/**
+		 * Timeout task.
+		 */
+		private volatile ScheduledFuture<?> timeout;
+
+		/**
+		 * Whether the request is in-flight (holds a permit).
+		 */
+		private volatile boolean confirmed = false;
+
+		/**
+		 * Whether the request has been removed from the pending requests.
+		 */
+		private boolean removed = false;
+
+		/**
+		 * Creates a new pending request.
+		 * <p>
+		 * @param id Correlation identifier.
+		 */
+		PendingRequest(final Long id)
+		{
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Holder of the request timer shared by the trackers (created on first
+	 * use).
+	 */
+	private static final class TimerHolder
+	{
+		/**
+		 * Shared request timer.
+		 */
+		private static final ScheduledThreadPoolExecutor TIMER = createTimer();
+
+		/**
+		 * Creates the shared request timer.
+		 * <p>
+		 * @return Request timer.
+		 */
+		@SuppressWarnings("nls")
+		private static ScheduledThreadPoolExecutor createTimer()
+		{
+			final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("drake-request-timer-%d").setDaemon(true).build());
+
+			// Most requests are answered before their timeout, so the cancelled timeouts must not pile up.
+			executor.setRemoveOnCancelPolicy(true);
+
+			return executor;
+		}
+	}
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.message.serializer;
+
+import java.nio.ByteBuffer;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
+import org.heliosphere.drake.base.codec.DataEncodingException;
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.codec.io.VarInt;
+import org.heliosphere.drake.base.message.AbstractMessage;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.codec.AbstractMessageCodec;
+import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.codec.MessageEncodingException;
+import org.heliosphere.drake.base.message.factory.MessageFactory;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+import org.heliosphere.drake.base.message.type.IMessageType;
+
+/**
+ * A message serializer encoding messages into a compact binary envelope.
+ * <p>
+ * The envelope contains:<br>
+ * <ul>
+ * <li>Envelope version (byte)</li>
+ * <li>Flags (byte)</li>
+ * <li>Message identifier (variable length integer)</li>
+ * <li>Message creation time stamp as a zig-zag encoded delta from a reference
+ * time (variable length long)</li>
+ * <li>Correlation identifier as a zig-zag encoded variable length long (only
+ * if the {@link #FLAG_CORRELATION} flag is set)</li>
+ * <li>Length of the content (variable length integer) and the content encoded
+ * by the data codec (only if the {@link #FLAG_CONTENT} flag is set)</li>
+ * </ul>
+ * <p>
+ * When decoding, only the header is decoded: the content is kept in its
+ * encoded form and is decoded (and the data object instantiated) the first
+ * time it is accessed, so routing a message by its identifier is cheap. A
+ * message decoded but whose content has not been accessed is re-encoded
+ * without decoding its content, as long as it is re-encoded with the data
+ * codec it was decoded with (any other data codec may not produce the same
+ * bytes, the content is then decoded and encoded again).
+ * <p>
+ * The serializer is stateless and can be shared between threads as long as
+ * the data codec can be.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class EnvelopeMessageSerializer extends AbstractMessageCodec
+{
+	/**
+	 * Envelope version.
+	 */
+	public static final byte VERSION = 1;
+
+	/**
+	 * Flag set when the envelope contains a content.
+	 */
+	public static final byte FLAG_CONTENT = 0x01;
+
+	/**
+	 * Flag set when the envelope contains a correlation identifier.
+	 */
+	public static final byte FLAG_CORRELATION = 0x02;
+
+	/**
+	 * Default reference time (2013-01-01T00:00:00Z) the message creation time
+	 * stamps are encoded from.
+	 */
+	public static final long EPOCH = 1356998400000L;
+
+	/**
+	 * Message manager used to resolve the message identifiers.
+	 */
+	private final IMessageManager manager;
+
+	/**
+	 * Data codec used to encode and decode the message contents.
+	 */
+	private final ICodec dataCodec;
+
+	/**
+	 * Reference time the message creation time stamps are encoded from.
+	 */
+	private final long referenceTime;
+
+	/**
+	 * Creates a new envelope message serializer using the default reference
+	 * time.
+	 * <p>
+	 * @param manager {@link IMessageManager} used to resolve the message
+	 * identifiers.
+	 * @param dataCodec {@link ICodec} used to encode and decode the message
+	 * contents.
+	 */
+	public EnvelopeMessageSerializer(final IMessageManager manager, final ICodec dataCodec)
+	{
+		this(manager, dataCodec, EPOCH);
+	}
+
+	/**
+	 * Creates a new envelope message serializer.
+	 * <p>
+	 * @param manager {@link IMessageManager} used to resolve the message
+	 * identifiers.
+	 * @param dataCodec {@link ICodec} used to encode and decode the message
+	 * contents.
+	 * @param referenceTime Reference time (in milliseconds) the message creation
+	 * time stamps are encoded from. Both peers must use the same reference
+	 * time.
+	 */
+	@SuppressWarnings("nls")
+	public EnvelopeMessageSerializer(final IMessageManager manager, final ICodec dataCodec, final long referenceTime)
+	{
+		Validate.notNull(manager, "Message manager cannot be null!");
+		Validate.notNull(dataCodec, "Data codec cannot be null!");
+
+		this.manager = manager;
+		this.dataCodec = dataCodec;
+		this.referenceTime = referenceTime;
+	}
+
+	/**
+	 * Returns the identifier of the message contained in an envelope without
+	 * decoding the envelope. The position of the buffer is not modified.
+	 * <p>
+	 * @param encoded {@link ByteBuffer} containing the envelope starting at its
+	 * current position.
+	 * @return Message identifier.
+	 * @throws MessageDecodingException Thrown if the buffer does not contain a
+	 * valid envelope header.
+	 */
+	@SuppressWarnings("nls")
+	public static final int peekMessageId(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		final ByteBuffer header = encoded.duplicate();
+
+		try
+		{
+			checkVersion(header.get());
+			header.get();
+
+			return VarInt.readInt(header);
+		}
+		catch (final MessageDecodingException e)
+		{
+			throw e;
+		}
+		catch (final Exception e)
+		{
+			throw new MessageDecodingException("Cannot read message identifier due to: " + e.getMessage(), e);
+		}
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final IMessage decodeMessage(final ByteBuffer encoded) throws MessageDecodingException
+	{
+		try
+		{
+			checkVersion(encoded.get());
+
+			final byte flags = encoded.get();
+			final int messageId = VarInt.readInt(encoded);
+			final long creationTime = referenceTime + VarInt.decodeZigZag(VarInt.readLong(encoded));
+
+			final MessageFactory factory = manager.getMessageFactory(messageId);
+			if (factory == null)
+			{
+				throw new MessageDecodingException("Cannot decode message due to: message identifier: " + messageId + " is not registered!");
+			}
+
+			final AbstractMessage message = factory.allocate();
+			message.setHeader(factory.getType(), creationTime);
+
+			if ((flags & FLAG_CORRELATION) != 0)
+			{
+				message.setCorrelationId(VarInt.decodeZigZag(VarInt.readLong(encoded)));
+			}
+
+			if ((flags & FLAG_CONTENT) != 0)
+			{
+				final int length = VarInt.readInt(encoded);
+				if (length < 0 || length > encoded.remaining())
+				{
+					throw new MessageDecodingException("Cannot decode message due to: invalid content length: " + length + " [remaining=" + encoded.remaining() + "]");
+				}
+
+				// The content is copied as the source buffer is usually reused.
+				final byte[] content = new byte[length];
+				encoded.get(content);
+				message.setEncodedContent(ByteBuffer.wrap(content), dataCodec);
+			}
+
+			return message;
+		}
+		catch (final MessageDecodingException e)
+		{
+			throw e;
+		}
+		catch (final Exception e)
+		{
+			log.error(e);
+			throw new MessageDecodingException("Cannot decode message due to: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public final ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	{
+		final ByteBuffer content = encodeContent(message);
+		final ByteBuffer buffer = ByteBuffer.allocate(getLength(message, content));
+
+		write(buffer, message, content);
+		buffer.flip();
+
+		return buffer;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final int encodeMessage(final IMessage message, final ByteBuffer target) throws MessageEncodingException
+	{
+		final ByteBuffer content = encodeContent(message);
+		final int length = getLength(message, content);
+
+		if (length > target.remaining())
+		{
+			throw new MessageEncodingException("Cannot encode message due to: target buffer too small [required=" + length + ", remaining=" + target.remaining() + "]");
+		}
+
+		write(target, message, content);
+
+		return length;
+	}
+
+	@Override
+	public final PooledBuffer encodeMessage(final IMessage message, final BufferArena arena) throws MessageEncodingException
+	{
+		final ByteBuffer content = encodeContent(message);
+		final PooledBuffer buffer = arena.allocate(getLength(message, content));
+
+		write(buffer.getBuffer(), message, content);
+		buffer.getBuffer().flip();
+
+		return buffer;
+	}
+
+	/**
+	 * Encodes the content of a message.
+	 * <p>
+	 * @param message {@link IMessage} to encode the content.
+	 * @return {@link ByteBuffer} containing the encoded content or {@code null}
+	 * if the message has no content.
+	 * @throws MessageEncodingException Thrown if an error occurs while encoding
+	 * the content.
+	 */
+	@SuppressWarnings("nls")
+	private final ByteBuffer encodeContent(final IMessage message) throws MessageEncodingException
+	{
+		if (message instanceof AbstractMessage)
+		{
+			// Content never decoded by the same data codec, no need to encode it again.
+			final ByteBuffer encoded = ((AbstractMessage) message).getEncodedContent(dataCodec);
+			if (encoded != null)
+			{
+				return encoded;
+			}
+		}
+
+		final Object content = message.getContent();
+		if (content == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return dataCodec.encodeData(content);
+		}
+		catch (final DataEncodingException e)
+		{
+			throw new MessageEncodingException("Cannot encode message content due to: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the length of the envelope of a message.
+	 * <p>
+	 * @param message {@link IMessage} to encode.
+	 * @param content Encoded content of the message (can be {@code null}).
+	 * @return Length of the envelope in bytes.
+	 */
+	private final int getLength(final IMessage message, final ByteBuffer content)
+	{
+		int length = 2;
+		length += VarInt.sizeOf(((IMessageType) message.getMessageType()).getMessageId());
+		length += VarInt.sizeOf(VarInt.encodeZigZag(message.getCreationTime() - referenceTime));
+		if (message.getCorrelationId() != 0)
+		{
+			length += VarInt.sizeOf(VarInt.encodeZigZag(message.getCorrelationId()));
+		}
+		if (content != null)
+		{
+			length += VarInt.sizeOf(content.remaining()) + content.remaining();
+		}
+
+		return length;
+	}
+
+	/**
+	 * Writes the envelope of a message.
+	 * <p>
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param message {@link IMessage} to encode.
+	 * @param content Encoded content of the message (can be {@code null}).
+	 */
+	private final void write(final ByteBuffer target, final IMessage message, final ByteBuffer content)
+	{
+		final long correlationId = message.getCorrelationId();
+
+		target.put(VERSION);
+		target.put((byte) ((content != null ? FLAG_CONTENT : 0) | (correlationId != 0 ? FLAG_CORRELATION : 0)));
+		VarInt.writeInt(target, ((IMessageType) message.getMessageType()).getMessageId());
+		VarInt.writeLong(target, VarInt.encodeZigZag(message.getCreationTime() - referenceTime));
+		if (correlationId != 0)
+		{
+			VarInt.writeLong(target, VarInt.encodeZigZag(correlationId));
+		}
+		if (content != null)
+		{
+			VarInt.writeInt(target, content.remaining());
+			target.put(content.duplicate());
+		}
+	}
+
+	/**
+	 * Checks the version of an envelope.
+	 * <p>
+	 * @param version Envelope version.
+	 * @throws MessageDecodingException Thrown if the version is not supported.
+	 */
+	@SuppressWarnings("nls")
+	private static final void checkVersion(final byte version) throws MessageDecodingException
+	{
+		if (version != VERSION)
+		{
+			throw new MessageDecodingException("Cannot decode message due to: unsupported envelope version: " + version);
+		}
+	}
+}
@@ -22,7 +22,7 @@ import java.nio.ByteBuffer;
 import lombok.extern.log4j.Log4j;
 
 import org.heliosphere.drake.base.message.IMessage;
-import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.codec.AbstractMessageCodec;
 import org.heliosphere.drake.base.message.codec.MessageDecodingException;
 import org.heliosphere.drake.base.message.codec.MessageEncodingException;
 
@@ -36,7 +36,7 @@ import org.heliosphere.drake.base.message.codec.MessageEncodingException;
  * @version 1.0.0
  */
 @Log4j
-public final class JavaMessageSerializer implements IMessageCodec
+public final class JavaMessageSerializer extends AbstractMessageCodec
 {
 	/**
 	 * Byte array input stream.
@@ -11,19 +11,24 @@
  */
 package org.heliosphere.drake.base.message.serializer;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 import lombok.extern.log4j.Log4j;
 
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
+import org.heliosphere.drake.base.codec.catalog.IClassCatalog;
+import org.heliosphere.drake.base.codec.dictionary.DictionaryStringSerializer;
+import org.heliosphere.drake.base.codec.generated.GeneratedSerializerRegistry;
+import org.heliosphere.drake.base.codec.io.ByteBufferInputStream;
+import org.heliosphere.drake.base.codec.primitive.PrimitiveSerializers;
 import org.heliosphere.drake.base.message.IMessage;
 import org.heliosphere.drake.base.message.Message;
 import org.heliosphere.drake.base.message.codec.IMessageCodec;
 import org.heliosphere.drake.base.message.codec.MessageDecodingException;
 import org.heliosphere.drake.base.message.codec.MessageEncodingException;
+import org.heliosphere.drake.base.message.codec.MessageFrame;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
@@ -31,6 +36,17 @@ import com.esotericsoftware.kryo.io.Output;
 
 /**
  * A {@code Kryo} serializer for message encoding and decoding.
+ * <p>
+ * The serializer reads from and writes to the given {@link ByteBuffer}
+ * directly (honouring its position and limit) without intermediate streams or
+ * arrays: heap buffers are used as the {@code Kryo} input or output backing
+ * array and direct buffers are accessed through a reusable stream adapter.
+ * The growable output grows on demand and is released once it exceeds
+ * {@link #MAX_RETAINED_SIZE} so that a large message does not pin a large
+ * buffer in every pooled instance.
+ * <p>
+ * An instance of this serializer is not thread-safe and must be confined to
+ * one thread at a time (see {@code CodecPool}).
  * <hr>
  * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
  * @version 1.0.0
@@ -39,34 +55,45 @@ import com.esotericsoftware.kryo.io.Output;
 public final class KryoMessageSerializer implements IMessageCodec
 {
 	/**
-	 * Byte array input stream.
+	 * Default buffer allocation size.
 	 */
-	private ByteArrayInputStream bais;
+	private static final int BUFFER_ALLOCATION_SIZE = 4096;
 
 	/**
-	 * Byte array output stream.
+	 * Maximum size of the growable output buffer kept between two encodings.
 	 */
-	private ByteArrayOutputStream baos;
+	public static final int MAX_RETAINED_SIZE = 64 * 1024;
 
-	//	/**
-	//	 * Object input stream.
-	//	 */
-	//	private ObjectInputStream ois;
+	/**
+	 * Empty array used to unbind the inputs and outputs from the last buffer.
+	 */
+	private static final byte[] EMPTY = new byte[0];
+
+	/**
+	 * Input used to read messages from heap buffers.
+	 */
+	private final Input input = new Input();
+
+	/**
+	 * Input used to read messages from direct buffers.
+	 */
+	private final Input streamInput = new Input(BUFFER_ALLOCATION_SIZE);
 
 	/**
-	 * Array of bytes.
+	 * Stream adapter used to read messages from direct buffers.
 	 */
-	private byte[] bytes;
+	private final ByteBufferInputStream stream = new ByteBufferInputStream();
 
 	/**
-	 * Output stream.
+	 * Growable output used to encode messages when the target buffer cannot
+	 * be written directly.
 	 */
-	Output output;
+	private Output output = new Output(BUFFER_ALLOCATION_SIZE, -1);
 
 	/**
-	 * Input stream.
+	 * Output used to write messages directly into heap buffers.
 	 */
-	Input input;
+	private final Output arrayOutput = new Output();
 
 	/**
 	 * Kryo object.
@@ -79,6 +106,35 @@ public final class KryoMessageSerializer implements IMessageCodec
 	public KryoMessageSerializer()
 	{
 		kryo = new Kryo();
+		kryo.register(String.class, new DictionaryStringSerializer());
+		PrimitiveSerializers.apply(kryo);
+	}
+
+	/**
+	 * Creates a new Kryo serializer registering the classes of the given
+	 * class catalog.
+	 * <p>
+	 * @param catalog {@link IClassCatalog} containing the classes to register.
+	 */
+	public KryoMessageSerializer(final IClassCatalog catalog)
+	{
+		this();
+		catalog.apply(kryo);
+	}
+
+	/**
+	 * Creates a new Kryo serializer registering the classes of the given
+	 * class catalog and using the compile time generated serializers of the
+	 * given registry for the registered classes having one.
+	 * <p>
+	 * @param catalog {@link IClassCatalog} containing the classes to register.
+	 * @param registry {@link GeneratedSerializerRegistry} containing the
+	 * generated serializers.
+	 */
+	public KryoMessageSerializer(final IClassCatalog catalog, final GeneratedSerializerRegistry registry)
+	{
+		this(catalog);
+		registry.apply(kryo, catalog);
 	}
 
 	@SuppressWarnings("nls")
@@ -86,55 +142,264 @@ public final class KryoMessageSerializer implements IMessageCodec
 	public IMessage decodeMessage(final ByteBuffer encoded) throws MessageDecodingException
 	{
 		IMessage message = null;
+		final int start = encoded.position();
 
 		try
 		{
-			bytes = new byte[encoded.remaining()];
-			encoded.get(bytes, 0, bytes.length);
-
-			bais = new ByteArrayInputStream(bytes);
-			input = new Input(bais);
+			if (encoded.hasArray())
+			{
+				final int offset = encoded.arrayOffset() + start;
+				input.setBuffer(encoded.array(), offset, encoded.remaining());
+				message = kryo.readObject(input, Message.class);
+				encoded.position(start + input.position() - offset);
+			}
+			else
+			{
+				stream.setBuffer(encoded);
+				streamInput.setInputStream(stream);
+				message = kryo.readObject(streamInput, Message.class);
 
-			message = kryo.readObject(input, Message.class);
+				// The input may have read ahead, only consume the message bytes.
+				encoded.position(start + (int) streamInput.total());
+			}
 		}
 		catch (final Exception e)
 		{
 			log.error(e);
+			encoded.position(start);
 			throw new MessageDecodingException("Cannot decode message due to: " + e.getMessage());
 		}
 		finally
 		{
-			try
+			input.setBuffer(EMPTY, 0, 0);
+			stream.setBuffer(null);
+		}
+
+		return message;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	{
+		try
+		{
+			output.clear();
+			write(output, message);
+		}
+		catch (final Exception e)
+		{
+			log.error(e);
+			shrinkOutput();
+			throw new MessageEncodingException("Cannot encode message due to: " + e.getMessage());
+		}
+
+		final ByteBuffer encoded = ByteBuffer.wrap(output.toBytes());
+		shrinkOutput();
+
+		return encoded;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public int encodeMessage(final IMessage message, final ByteBuffer target) throws MessageEncodingException
+	{
+		final int start = target.position();
+		int length = 0;
+
+		try
+		{
+			if (target.hasArray() && target.arrayOffset() + target.limit() == target.array().length)
 			{
-				input.close();
-				bais.close();
+				// The output cannot go beyond the limit of the target buffer, write into it directly.
+				final byte[] array = target.array();
+				arrayOutput.setBuffer(array, array.length);
+				arrayOutput.setPosition(target.arrayOffset() + start);
+				write(arrayOutput, message);
+				length = arrayOutput.position() - target.arrayOffset() - start;
+				target.position(start + length);
 			}
-			catch (final IOException ioe)
+			else
 			{
-				// Do nothing.
+				output.clear();
+				write(output, message);
+				length = output.position();
+				if (length > target.remaining())
+				{
+					throw new MessageEncodingException("Cannot encode message due to: target buffer too small [required=" + length + ", remaining=" + target.remaining() + "]");
+				}
+				target.put(output.getBuffer(), 0, length);
 			}
 		}
+		catch (final MessageEncodingException e)
+		{
+			throw e;
+		}
+		catch (final Exception e)
+		{
+			log.error(e);
+			target.position(start);
+			throw new MessageEncodingException("Cannot encode message due to: " + e.getMessage());
+		}
+		finally
+		{
+			arrayOutput.setBuffer(EMPTY, 0);
+			shrinkOutput();
+		}
 
-		return message;
+		return length;
 	}
 
 	@SuppressWarnings("nls")
 	@Override
-	public ByteBuffer encodeMessage(final IMessage message) throws MessageEncodingException
+	public PooledBuffer encodeMessage(final IMessage message, final BufferArena arena) throws MessageEncodingException
 	{
 		try
 		{
-			baos = new ByteArrayOutputStream();
-			final DataOutputStream data = new DataOutputStream(baos);
-			output = new Output(data);
-			kryo.writeObject(output, message);
+			output.clear();
+			write(output, message);
 		}
 		catch (final Exception e)
 		{
 			log.error(e);
+			shrinkOutput();
 			throw new MessageEncodingException("Cannot encode message due to: " + e.getMessage());
 		}
 
-		return ByteBuffer.wrap(output.toBytes());
+		final PooledBuffer buffer = arena.allocate(output.position());
+		buffer.getBuffer().put(output.getBuffer(), 0, output.position()).flip();
+		shrinkOutput();
+
+		return buffer;
+	}
+
+	@Override
+	public ByteBuffer encodeMessages(final List<IMessage> messages) throws MessageEncodingException
+	{
+		final int[] ends = encodeAll(messages);
+		final ByteBuffer buffer = ByteBuffer.allocate(getFramesLength(ends));
+
+		writeFrames(buffer, ends);
+		buffer.flip();
+		shrinkOutput();
+
+		return buffer;
+	}
+
+	@Override
+	public PooledBuffer encodeMessages(final List<IMessage> messages, final BufferArena arena) throws MessageEncodingException
+	{
+		final int[] ends = encodeAll(messages);
+		final PooledBuffer buffer = arena.allocate(getFramesLength(ends));
+
+		writeFrames(buffer.getBuffer(), ends);
+		buffer.getBuffer().flip();
+		shrinkOutput();
+
+		return buffer;
+	}
+
+	/**
+	 * Encodes all the messages one after the other into the output.
+	 * <p>
+	 * @param messages List of {@link IMessage} to encode.
+	 * @return End offset of each encoded message in the output.
+	 * @throws MessageEncodingException Thrown if an error occurs while trying
+	 * to encode one of the messages.
+	 */
+	@SuppressWarnings("nls")
+	private final int[] encodeAll(final List<IMessage> messages) throws MessageEncodingException
+	{
+		final int[] ends = new int[messages.size()];
+
+		try
+		{
+			output.clear();
+			for (int i = 0; i < ends.length; i++)
+			{
+				write(output, messages.get(i));
+				ends[i] = output.position();
+			}
+		}
+		catch (final Exception e)
+		{
+			log.error(e);
+			shrinkOutput();
+			throw new MessageEncodingException("Cannot encode messages due to: " + e.getMessage());
+		}
+
+		return ends;
+	}
+
+	/**
+	 * Writes a message. The content of a message decoded from an envelope is
+	 * decoded first as its encoded form is transient and would otherwise be
+	 * written as a {@code null} content.
+	 * <p>
+	 * @param target {@link Output} to write to.
+	 * @param message {@link IMessage} to write.
+	 */
+	private final void write(final Output target, final IMessage message)
+	{
+		message.getContent();
+		kryo.writeObject(target, message);
+	}
+
+	/**
+	 * Releases the growable output once it exceeds {@link #MAX_RETAINED_SIZE}.
+	 * Must be called once the encoded bytes have been copied out of it.
+	 */
+	private final void shrinkOutput()
+	{
+		if (output.getBuffer().length > MAX_RETAINED_SIZE)
+		{
+			output = new Output(BUFFER_ALLOCATION_SIZE, -1);
+		}
+	}
+
+	/**
+	 * Returns the size of the growable output buffer currently retained.
+	 * <p>
+	 * @return Retained output size (in bytes).
+	 */
+	public final int getRetainedSize()
+	{
+		return output.getBuffer().length;
+	}
+
+	/**
+	 * Returns the total length of the frames of the messages encoded in the
+	 * output.
+	 * <p>
+	 * @param ends End offset of each encoded message in the output.
+	 * @return Length of the frames.
+	 */
+	private static final int getFramesLength(final int[] ends)
+	{
+		int length = 0;
+		int start = 0;
+		for (int end : ends)
+		{
+			length += MessageFrame.getLength(end - start);
+			start = end;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Writes the messages encoded in the output as frames.
+	 * <p>
+	 * @param target {@link ByteBuffer} to write to.
+	 * @param ends End offset of each encoded message in the output.
+	 */
+	private final void writeFrames(final ByteBuffer target, final int[] ends)
+	{
+		int start = 0;
+		for (int end : ends)
+		{
+			MessageFrame.write(target, output.getBuffer(), start, end - start);
+			start = end;
+		}
 	}
-}
+}
\ No newline at end of file
@@ -11,6 +11,8 @@
  */
 package org.heliosphere.drake.base.player;
 
+import java.util.List;
+
 import org.heliosphere.drake.base.message.IMessage;
 import org.heliosphere.drake.base.message.MessageException;
 
@@ -36,6 +38,16 @@ public interface IEntity
 	 */
 	void sendMessage(final IMessage message) throws MessageException;
 
+	/**
+	 * Sends several messages over the network to this entity counterpart
+	 * within a single network write.
+	 * <p>
+	 * @param messages List of {@link IMessage} to send.
+	 * @throws MessageException Thrown if an error occurs while sending the
+	 * messages.
+	 */
+	void sendMessages(final List<IMessage> messages) throws MessageException;
+
 	/**
 	 * Handles a message.
 	 * <p>
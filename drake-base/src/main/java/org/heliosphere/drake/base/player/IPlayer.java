@@ -12,9 +12,14 @@
 package org.heliosphere.drake.base.player;
 
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
 import org.heliosphere.drake.base.player.status.IPlayerStatusType;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Interface defining the behavior of a player.
  * <hr>
@@ -50,4 +55,40 @@ public interface IPlayer extends IEntity
 	 * @param status Player status.
 	 */
 	void setStatus(final Enum<? extends IPlayerStatusType> status);
+
+	/**
+	 * Sends a request to this player counterpart using the default request
+	 * timeout.
+	 * <p>
+	 * @param request {@link IMessage} to send.
+	 * @return {@link ListenableFuture} completed by the response, failed with a
+	 * {@code TimeoutException} if no response is received in time and
+	 * cancelled if the player is disconnected.
+	 * @throws MessageException Thrown if the request cannot be sent or if the
+	 * maximum number of in-flight requests is reached.
+	 */
+	ListenableFuture<IMessage> sendRequest(final IMessage request) throws MessageException;
+
+	/**
+	 * Sends a request to this player counterpart.
+	 * <p>
+	 * @param request {@link IMessage} to send.
+	 * @param timeout Request timeout.
+	 * @param unit Unit of the request timeout.
+	 * @return {@link ListenableFuture} completed by the response, failed with a
+	 * {@code TimeoutException} if no response is received in time and
+	 * cancelled if the player is disconnected.
+	 * @throws MessageException Thrown if the request cannot be sent or if the
+	 * maximum number of in-flight requests is reached.
+	 */
+	ListenableFuture<IMessage> sendRequest(final IMessage request, final long timeout, final TimeUnit unit) throws MessageException;
+
+	/**
+	 * Sends the response to a request received from this player counterpart.
+	 * <p>
+	 * @param request Received request.
+	 * @param response {@link IMessage} to send back.
+	 * @throws MessageException Thrown if the response cannot be sent.
+	 */
+	void sendResponse(final IMessage request, final IMessage response) throws MessageException;
 }
@@ -642,7 +642,143 @@ public enum BundleBase implements IBundle
 	/**
 	 * Property defining the data encoder algorithm type.
 	 */
-	PropertyApplicationDataEncoderAlgorithmType("property.application.data.encoder.algorithm.type");
+	PropertyApplicationDataEncoderAlgorithmType("property.application.data.encoder.algorithm.type"),
+
+	/**
+	 * Property defining the number of pre-warmed codec instances per available
+	 * processor.
+	 */
+	PropertyApplicationMessageCodecPoolSize("property.application.message.codec.pool.size"),
+
+	/**
+	 * Property defining if the leak detection of the message buffers is
+	 * enabled.
+	 */
+	PropertyApplicationBufferLeakDetection("property.application.buffer.leak.detection"),
+
+	/**
+	 * Property defining if the registration of the exchanged classes is
+	 * required by the message codecs.
+	 */
+	PropertyApplicationMessageCodecRegistrationRequired("property.application.message.codec.registration.required"),
+
+	/**
+	 * Property defining the compression algorithm applied to the encoded
+	 * messages.
+	 */
+	PropertyApplicationMessageCompressionType("property.application.message.compression.type"),
+
+	/**
+	 * Property defining the minimum size of an encoded message to be
+	 * compressed.
+	 */
+	PropertyApplicationMessageCompressionThreshold("property.application.message.compression.threshold"),
+
+	/**
+	 * Property defining the names of the message types to delta encode.
+	 */
+	PropertyApplicationMessageDeltaTypes("property.application.message.delta.types"),
+
+	/**
+	 * Property defining the number of delta encoded messages after which a
+	 * snapshot is sent.
+	 */
+	PropertyApplicationMessageDeltaKeyframeInterval("property.application.message.delta.keyframe.interval"),
+
+	/**
+	 * Property defining the number of strings held by the session string
+	 * dictionaries.
+	 */
+	PropertyApplicationMessageDictionarySize("property.application.message.dictionary.size"),
+
+	/**
+	 * Property defining the maximum length of a string held by the session
+	 * string dictionaries.
+	 */
+	PropertyApplicationMessageDictionaryMaxLength("property.application.message.dictionary.max.length"),
+
+	/**
+	 * Property defining if the codec providers are benchmarked at startup.
+	 */
+	PropertyApplicationMessageCodecBenchmark("property.application.message.codec.benchmark"),
+
+	/**
+	 * Property defining the maximum size of a network write.
+	 */
+	PropertyApplicationMessageChunkSize("property.application.message.chunk.size"),
+
+	/**
+	 * Property defining if the sorted int and long arrays are delta packed.
+	 */
+	PropertyApplicationMessageArrayPacking("property.application.message.array.packing"),
+
+	/**
+	 * Property defining the number of message dispatch lanes.
+	 */
+	PropertyApplicationMessageDispatchLanes("property.application.message.dispatch.lanes"),
+
+	/**
+	 * Property defining the capacity of a message dispatch lane.
+	 */
+	PropertyApplicationMessageDispatchQueueCapacity("property.application.message.dispatch.queue.capacity"),
+
+	/**
+	 * Property defining the overflow policy of the message dispatch lanes.
+	 */
+	PropertyApplicationMessageDispatchOverflowPolicy("property.application.message.dispatch.overflow.policy"),
+
+	/**
+	 * Property defining the size of the message pools.
+	 */
+	PropertyApplicationMessagePoolSize("property.application.message.pool.size"),
+
+	/**
+	 * Message metrics enabled property.
+	 */
+	PropertyApplicationMessageMetricsEnabled("property.application.message.metrics.enabled"),
+
+	/**
+	 * Message metrics JMX property.
+	 */
+	PropertyApplicationMessageMetricsJmx("property.application.message.metrics.jmx"),
+
+	/**
+	 * Message journal directory property.
+	 */
+	PropertyApplicationMessageJournalDirectory("property.application.message.journal.directory"),
+
+	/**
+	 * Message journal segment size property.
+	 */
+	PropertyApplicationMessageJournalSegmentSize("property.application.message.journal.segment.size"),
+
+	/**
+	 * Property defining the default timeout (in milliseconds) of the requests.
+	 */
+	PropertyApplicationMessageRequestTimeout("property.application.message.request.timeout"),
+
+	/**
+	 * Property defining the maximum number of in-flight requests of a session.
+	 */
+	PropertyApplicationMessageRequestMaxInFlight("property.application.message.request.max.inflight"),
+
+	/**
+	 * Capacity of the outbound message queue of a client player (0 to write the
+	 * messages synchronously).
+	 */
+	PropertyApplicationMessageOutboundQueueCapacity("property.application.message.outbound.queue.capacity"),
+
+	/**
+	 * Time the outbound writer waits for more messages before writing a batch
+	 * (in microseconds).
+	 */
+	PropertyApplicationMessageOutboundCoalesceBudget("property.application.message.outbound.coalesce.budget"),
+
+	/**
+	 * Policy applied when the outbound message queue is full (BLOCK,
+	 * DROP_OLDEST or FAIL_FAST).
+	 */
+	PropertyApplicationMessageOutboundPolicy("property.application.message.outbound.policy");
 
 	/**
 	 * Resource bundle key.
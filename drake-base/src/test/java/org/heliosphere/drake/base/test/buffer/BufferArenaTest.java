@@ -0,0 +1,123 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms. You should have
+ * received a copy of the license with the project artefact binaries and/or
+ * sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.buffer;
+
+import java.nio.ByteBuffer;
+
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the buffer arena.
+ * <hr>
+ * @author Resse Christophe, Heliosphere Corp. 2010-2012
+ * @version 1.0.0
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public final class BufferArenaTest
+{
+	/**
+	 * Test the allocation of buffers from the size classes.
+	 */
+	@Test
+	public final void allocate()
+	{
+		BufferArena arena = new BufferArena(BufferArena.DEFAULT_SLAB_SIZE, 4);
+
+		PooledBuffer small = arena.allocate(100);
+		Assert.assertTrue(small.getBuffer().isDirect());
+		Assert.assertEquals(256, small.capacity());
+		Assert.assertEquals(100, small.getBuffer().limit());
+		Assert.assertEquals(0, small.getBuffer().position());
+
+		PooledBuffer medium = arena.allocate(1025);
+		Assert.assertEquals(2048, medium.capacity());
+
+		PooledBuffer large = arena.allocate(100000);
+		Assert.assertEquals(100000, large.capacity());
+		Assert.assertEquals(1, arena.getUnpooledCount());
+
+		small.release();
+		medium.release();
+		large.release();
+	}
+
+	/**
+	 * Test that released buffers are reused.
+	 */
+	@Test
+	public final void reuse()
+	{
+		BufferArena arena = new BufferArena(BufferArena.DEFAULT_SLAB_SIZE, 4);
+
+		PooledBuffer first = arena.allocate(512);
+		ByteBuffer memory = first.getBuffer();
+		Assert.assertTrue(first.release());
+
+		PooledBuffer second = arena.allocate(400);
+		Assert.assertSame(memory, second.getBuffer());
+		Assert.assertEquals(400, second.getBuffer().limit());
+		Assert.assertEquals(1, arena.getSlabCount());
+
+		second.release();
+	}
+
+	/**
+	 * Test the reference counting of buffers.
+	 */
+	@Test
+	public final void referenceCount()
+	{
+		BufferArena arena = new BufferArena(BufferArena.DEFAULT_SLAB_SIZE, 4);
+
+		PooledBuffer buffer = arena.allocate(64).retain();
+		Assert.assertEquals(2, buffer.getReferenceCount());
+		Assert.assertFalse(buffer.release());
+		Assert.assertTrue(buffer.release());
+
+		try
+		{
+			buffer.release();
+			Assert.fail("Releasing a released buffer must fail!");
+		}
+		catch (IllegalStateException e)
+		{
+			// Expected.
+		}
+	}
+
+	/**
+	 * Test the detection of buffers garbage collected without being released.
+	 * <p>
+	 * @throws InterruptedException Thrown if the test is interrupted.
+	 */
+	@Test
+	public final void leakDetection() throws InterruptedException
+	{
+		BufferArena arena = new BufferArena(BufferArena.DEFAULT_SLAB_SIZE, 4);
+		arena.setLeakDetection(true);
+
+		arena.allocate(64).release();
+		arena.allocate(64); // Leaked.
+
+		for (int i = 0; i < 50 && arena.getLeakCount() == 0; i++)
+		{
+			System.gc();
+			Thread.sleep(20);
+			arena.reportLeaks();
+		}
+
+		Assert.assertEquals(1, arena.getLeakCount());
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.codec;
+
+import org.heliosphere.drake.base.codec.provider.CodecProviderRegistry;
+import org.heliosphere.drake.base.codec.provider.ICodecProvider;
+import org.heliosphere.drake.base.codec.provider.KryoCodecProvider;
+import org.heliosphere.drake.base.codec.type.CodecType;
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+import org.heliosphere.drake.base.message.manager.MessageManagerException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the discovery and the selection of the codec providers.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class CodecProviderRegistryTest
+{
+	/**
+	 * Test that the built-in providers and the provider listed in the test
+	 * resources are discovered.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void discovery()
+	{
+		final CodecProviderRegistry registry = CodecProviderRegistry.getInstance();
+
+		for (CodecType type : CodecType.values())
+		{
+			if (type != CodecType.CUSTOM)
+			{
+				Assert.assertNotNull("Missing built-in provider: " + type, registry.getProvider(type.name()));
+			}
+		}
+
+		boolean found = false;
+		for (ICodecProvider provider : registry.getProviders())
+		{
+			found |= provider instanceof TestCodecProvider;
+		}
+		Assert.assertTrue(found);
+	}
+
+	/**
+	 * Test that the providers are selected by their name, case insensitive.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void selectionByName()
+	{
+		final CodecProviderRegistry registry = CodecProviderRegistry.getInstance();
+
+		Assert.assertTrue(registry.getProvider("kryo") instanceof KryoCodecProvider);
+		Assert.assertTrue(registry.getProvider(" Test ") instanceof TestCodecProvider);
+		Assert.assertNull(registry.getProvider("unknown"));
+		Assert.assertNull(registry.getProvider(null));
+	}
+
+	/**
+	 * Test that the message manager reports a provider which is not a
+	 * built-in one as {@link CodecType#CUSTOM}, and that this type cannot be
+	 * selected.
+	 * <p>
+	 * @throws Exception Thrown if a codec provider cannot be selected.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void customType() throws Exception
+	{
+		final IMessageManager manager = Manager.getManager(IMessageManager.class);
+		final String previous = manager.getMessageCodecProvider().getName();
+
+		try
+		{
+			manager.setMessageCodecProvider(TestCodecProvider.NAME.toLowerCase());
+			Assert.assertTrue(manager.getMessageCodecProvider() instanceof TestCodecProvider);
+			Assert.assertEquals(CodecType.CUSTOM, manager.getMessageCodecType());
+
+			manager.setMessageCodecType(CodecType.KRYO);
+			Assert.assertEquals(CodecType.KRYO, manager.getMessageCodecType());
+
+			try
+			{
+				manager.setMessageCodecType(CodecType.CUSTOM);
+				Assert.fail("The custom codec type should not be selectable!");
+			}
+			catch (final IllegalArgumentException e)
+			{
+				// Expected.
+			}
+
+			try
+			{
+				manager.setMessageCodecProvider("unknown");
+				Assert.fail("An unknown codec provider should have been rejected!");
+			}
+			catch (final MessageManagerException e)
+			{
+				// Expected.
+			}
+			Assert.assertEquals(CodecType.KRYO, manager.getMessageCodecType());
+		}
+		finally
+		{
+			manager.setMessageCodecProvider(previous);
+		}
+	}
+}
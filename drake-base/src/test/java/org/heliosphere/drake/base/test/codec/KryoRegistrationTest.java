@@ -0,0 +1,82 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.codec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.heliosphere.drake.base.codec.catalog.ClassCatalog;
+import org.heliosphere.drake.base.codec.primitive.PrimitiveSerializers;
+import org.heliosphere.drake.base.codec.serializer.KryoDataSerializer;
+import org.heliosphere.drake.base.collection.IntByteMap;
+import org.heliosphere.drake.base.collection.IntList;
+import org.heliosphere.drake.base.collection.LongList;
+import org.heliosphere.drake.base.collection.LongSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+
+/**
+ * A test case pinning the {@link Kryo} registration identifiers both ends of
+ * a connection must agree on.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class KryoRegistrationTest
+{
+	/**
+	 * Test that the primitive collections and arrays are registered with
+	 * fixed identifiers starting at {@link PrimitiveSerializers#FIRST_ID}.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void primitiveIdentifiers()
+	{
+		final Kryo kryo = new Kryo();
+		PrimitiveSerializers.apply(kryo);
+
+		Assert.assertEquals(32, PrimitiveSerializers.FIRST_ID);
+		Assert.assertEquals(32, kryo.getRegistration(IntList.class).getId());
+		Assert.assertEquals(33, kryo.getRegistration(LongList.class).getId());
+		Assert.assertEquals(34, kryo.getRegistration(LongSet.class).getId());
+		Assert.assertEquals(35, kryo.getRegistration(IntByteMap.class).getId());
+		Assert.assertEquals(36, kryo.getRegistration(int[].class).getId());
+		Assert.assertEquals(37, kryo.getRegistration(long[].class).getId());
+		Assert.assertEquals(41, kryo.getRegistration(double[].class).getId());
+	}
+
+	/**
+	 * Test that the catalog classes are registered in their registration
+	 * order starting at {@link ClassCatalog#BASE_ID}, the natively registered
+	 * classes being skipped.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void catalogIdentifiers()
+	{
+		final ClassCatalog catalog = new ClassCatalog();
+		Assert.assertEquals(64, catalog.register(ArrayList.class));
+		Assert.assertEquals(-1, catalog.register(String.class));
+		Assert.assertEquals(65, catalog.register(HashMap.class));
+		Assert.assertEquals(64, catalog.register(ArrayList.class));
+
+		final KryoDataSerializer serializer = new KryoDataSerializer(catalog);
+		final Kryo kryo = serializer.getSerializer();
+
+		Assert.assertEquals(64, ClassCatalog.BASE_ID);
+		Assert.assertEquals(64, kryo.getRegistration(ArrayList.class).getId());
+		Assert.assertEquals(65, kryo.getRegistration(HashMap.class).getId());
+		Assert.assertEquals(32, kryo.getRegistration(IntList.class).getId());
+	}
+}
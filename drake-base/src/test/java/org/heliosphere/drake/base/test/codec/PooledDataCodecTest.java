@@ -0,0 +1,129 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.heliosphere.drake.base.codec.DataDecodingException;
+import org.heliosphere.drake.base.codec.DataEncodingException;
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.codec.pool.ICodecFactory;
+import org.heliosphere.drake.base.codec.pool.PooledDataCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the pooled data codec.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class PooledDataCodecTest
+{
+	/**
+	 * Test that a registered class is applied to every pooled codec, and only
+	 * once.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void registrationAppliesToPooledCodecs()
+	{
+		final PooledDataCodec codec = new PooledDataCodec(new ICodecFactory<ICodec>()
+		{
+			@Override
+			public ICodec create()
+			{
+				return new RecordingCodec();
+			}
+		}, 1);
+
+		codec.register(Byte.class);
+		codec.register(Byte.class);
+		codec.register(int[].class);
+
+		final RecordingCodec pooled = (RecordingCodec) codec.getPool().borrow();
+		Assert.assertEquals(Arrays.<Class<?>> asList(Byte.class, int[].class), pooled.registrations);
+		codec.getPool().release(pooled);
+	}
+
+	/**
+	 * Test that a codec whose operation failed is returned to the pool.
+	 * <p>
+	 * @throws Exception Thrown if the pooled codec cannot be created.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void failedCodecIsReleased() throws Exception
+	{
+		final AtomicInteger count = new AtomicInteger();
+		final PooledDataCodec codec = new PooledDataCodec(new ICodecFactory<ICodec>()
+		{
+			@Override
+			public ICodec create()
+			{
+				count.incrementAndGet();
+				return new RecordingCodec();
+			}
+		}, 1);
+
+		final int idle = codec.getPool().getIdleCount();
+		for (int i = 0; i < 10; i++)
+		{
+			try
+			{
+				codec.decodeData(ByteBuffer.allocate(0));
+				Assert.fail("Decoding should have failed!");
+			}
+			catch (DataDecodingException e)
+			{
+				// Expected.
+			}
+		}
+
+		Assert.assertEquals(idle, codec.getPool().getIdleCount());
+		Assert.assertEquals(idle, count.get());
+	}
+
+	/**
+	 * A codec recording its registrations and failing to decode.
+	 */
+	private static final class RecordingCodec implements ICodec
+	{
+		/**
+		 * Registered classes.
+		 */
+		private final List<Class<?>> registrations = new ArrayList<>();
+
+		@Override
+		public void register(final Class<?> type)
+		{
+			registrations.add(type);
+		}
+
+		@Override
+		public Object decodeData(final ByteBuffer encoded) throws DataDecodingException
+		{
+			throw new DataDecodingException("Cannot decode data!");
+		}
+
+		@Override
+		public ByteBuffer encodeData(final Object data) throws DataEncodingException
+		{
+			throw new DataEncodingException("Cannot encode data!");
+		}
+	}
+}
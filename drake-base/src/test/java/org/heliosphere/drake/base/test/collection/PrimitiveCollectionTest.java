@@ -0,0 +1,175 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.collection;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.heliosphere.drake.base.codec.serializer.KryoDataSerializer;
+import org.heliosphere.drake.base.collection.IntByteMap;
+import org.heliosphere.drake.base.collection.IntList;
+import org.heliosphere.drake.base.collection.LongList;
+import org.heliosphere.drake.base.collection.LongSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the primitive collections and for the serializers of the
+ * primitive collections and arrays.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public final class PrimitiveCollectionTest
+{
+	/**
+	 * Random number generator.
+	 */
+	private final Random rnd = new Random(42);
+
+	/**
+	 * Test the set against a boxed set under random additions and removals.
+	 */
+	@Test
+	public final void longSet()
+	{
+		LongSet set = new LongSet(4);
+		Set<Long> reference = new HashSet<>();
+
+		for (int i = 0; i < 20000; i++)
+		{
+			long value = rnd.nextInt(512) - 256;
+			if (rnd.nextInt(3) == 0)
+			{
+				Assert.assertEquals(reference.remove(Long.valueOf(value)), set.remove(value));
+			}
+			else
+			{
+				Assert.assertEquals(reference.add(Long.valueOf(value)), set.add(value));
+			}
+			Assert.assertEquals(reference.size(), set.size());
+		}
+
+		for (long value = -256; value < 256; value++)
+		{
+			Assert.assertEquals(reference.contains(Long.valueOf(value)), set.contains(value));
+		}
+	}
+
+	/**
+	 * Test the map against a boxed map under random puts and removals.
+	 */
+	@Test
+	public final void intByteMap()
+	{
+		IntByteMap map = new IntByteMap(4);
+		Map<Integer, Byte> reference = new HashMap<>();
+
+		for (int i = 0; i < 20000; i++)
+		{
+			int key = rnd.nextInt(512) - 256;
+			if (rnd.nextInt(3) == 0)
+			{
+				Assert.assertEquals(reference.remove(Integer.valueOf(key)) != null, map.remove(key));
+			}
+			else
+			{
+				byte value = (byte) rnd.nextInt();
+				Assert.assertEquals(reference.put(Integer.valueOf(key), Byte.valueOf(value)) == null, map.put(key, value));
+			}
+			Assert.assertEquals(reference.size(), map.size());
+		}
+
+		for (int key = -256; key < 256; key++)
+		{
+			Byte expected = reference.get(Integer.valueOf(key));
+			Assert.assertEquals(expected != null, map.containsKey(key));
+			Assert.assertEquals(expected == null ? -1 : expected.byteValue(), map.get(key, (byte) -1));
+		}
+	}
+
+	/**
+	 * Test the encoding and decoding of the primitive collections.
+	 * <p>
+	 * @throws Exception In case an error occurs while encoding or decoding.
+	 */
+	@Test
+	public final void encodeDecode() throws Exception
+	{
+		KryoDataSerializer codec = new KryoDataSerializer();
+
+		IntList ints = new IntList();
+		LongList longs = new LongList();
+		LongSet set = new LongSet();
+		IntByteMap map = new IntByteMap();
+		for (int i = 0; i < 1000; i++)
+		{
+			ints.add(rnd.nextInt(100) - 50);
+			longs.add(rnd.nextLong());
+			set.add(1000000000000L + i * 3);
+			map.put(i, (byte) rnd.nextInt());
+		}
+		longs.add(Long.MIN_VALUE);
+		longs.add(Long.MAX_VALUE);
+		ints.add(Integer.MIN_VALUE);
+
+		for (Object input : new Object[] { ints, longs, set, map, new IntList(), new LongSet() })
+		{
+			ByteBuffer encoded = codec.encodeData(input);
+			Assert.assertEquals(input, codec.decodeData(encoded));
+		}
+
+		// Sorted keys are delta encoded: the 1000 keys fit in less than 2 bits each.
+		ByteBuffer encoded = codec.encodeData(map);
+		Assert.assertTrue(encoded.remaining() < 1000 + 1000 / 4 + 16);
+	}
+
+	/**
+	 * Test the bulk encoding and decoding of the primitive arrays.
+	 * <p>
+	 * @throws Exception In case an error occurs while encoding or decoding.
+	 */
+	@Test
+	public final void encodeDecodeArrays() throws Exception
+	{
+		KryoDataSerializer codec = new KryoDataSerializer();
+
+		int[] ints = new int[10000];
+		long[] longs = new long[10000];
+		double[] doubles = new double[10000];
+		short[] shorts = new short[10000];
+		for (int i = 0; i < ints.length; i++)
+		{
+			ints[i] = rnd.nextInt();
+			longs[i] = rnd.nextLong();
+			doubles[i] = rnd.nextDouble();
+			shorts[i] = (short) rnd.nextInt();
+		}
+
+		Assert.assertArrayEquals(ints, (int[]) codec.decodeData(codec.encodeData(ints)));
+		Assert.assertArrayEquals(longs, (long[]) codec.decodeData(codec.encodeData(longs)));
+		Assert.assertTrue(Arrays.equals(doubles, (double[]) codec.decodeData(codec.encodeData(doubles))));
+		Assert.assertArrayEquals(shorts, (short[]) codec.decodeData(codec.encodeData(shorts)));
+
+		// Sorted arrays are delta packed.
+		Arrays.sort(ints);
+		ByteBuffer encoded = codec.encodeData(ints);
+		Assert.assertTrue(encoded.remaining() < ints.length * 4);
+		Assert.assertArrayEquals(ints, (int[]) codec.decodeData(encoded));
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.nio.ByteBuffer;
+
+import org.heliosphere.drake.base.codec.compression.CompressionStatistics;
+import org.heliosphere.drake.base.codec.compression.DeflateCompressor;
+import org.heliosphere.drake.base.codec.compression.ICompressor;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.codec.CompressingMessageCodec;
+import org.heliosphere.drake.base.message.serializer.KryoMessageSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the compression stage of the message codecs.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class CompressingMessageCodecTest
+{
+	/**
+	 * Test that a message smaller than the threshold is sent untouched and
+	 * that a larger one is compressed, both being decoded.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void roundTrip() throws Exception
+	{
+		final CompressingMessageCodec server = new CompressingMessageCodec(new KryoMessageSerializer(), new DeflateCompressor(), 256);
+		final CompressingMessageCodec client = new CompressingMessageCodec(new KryoMessageSerializer(), new DeflateCompressor(), 256);
+
+		// Below the threshold.
+		final ByteBuffer small = server.encodeMessage(createMessage("small"));
+		Assert.assertEquals(0, small.get(small.position()));
+		Assert.assertEquals("small", client.decodeMessage(small).getContent());
+
+		// Above the threshold.
+		final String content = createContent(2048);
+		final ByteBuffer large = server.encodeMessage(createMessage(content));
+		Assert.assertEquals(CompressingMessageCodec.FLAG_COMPRESSED, large.get(large.position()));
+		Assert.assertTrue(large.remaining() < 2048);
+		Assert.assertEquals(content, client.decodeMessage(large).getContent());
+		Assert.assertFalse(large.hasRemaining());
+
+		Assert.assertEquals(2, server.getStatistics().getEncodedMessages());
+		Assert.assertEquals(1, server.getStatistics().getCompressedMessages());
+		Assert.assertEquals(2, client.getStatistics().getDecodedMessages());
+	}
+
+	/**
+	 * Test that a message above the threshold which does not shrink is sent
+	 * untouched.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void compressionNotHelping() throws Exception
+	{
+		final CompressingMessageCodec server = new CompressingMessageCodec(new KryoMessageSerializer(), new CopyCompressor(), 0);
+		final CompressingMessageCodec client = new CompressingMessageCodec(new KryoMessageSerializer(), new CopyCompressor(), 0);
+		final String content = createContent(1024);
+
+		final ByteBuffer encoded = server.encodeMessage(createMessage(content));
+		Assert.assertEquals(0, encoded.get(encoded.position()));
+		Assert.assertEquals(content, client.decodeMessage(encoded).getContent());
+
+		Assert.assertEquals(1, server.getStatistics().getEncodedMessages());
+		Assert.assertEquals(0, server.getStatistics().getCompressedMessages());
+	}
+
+	/**
+	 * Test the byte counts and the ratio recorded by the statistics.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void statistics() throws Exception
+	{
+		final CompressingMessageCodec server = new CompressingMessageCodec(new KryoMessageSerializer(), new DeflateCompressor(), 256);
+		final CompressingMessageCodec client = new CompressingMessageCodec(new KryoMessageSerializer(), new DeflateCompressor(), 256);
+		Assert.assertEquals(1D, server.getStatistics().getEncodedRatio(), 0D);
+
+		final int plain = new KryoMessageSerializer().encodeMessage(createMessage("small")).remaining();
+		final ByteBuffer small = server.encodeMessage(createMessage("small"));
+		final int smallLength = small.remaining();
+		client.decodeMessage(small);
+
+		final CompressionStatistics encoded = server.getStatistics();
+		Assert.assertEquals(plain, encoded.getEncodedBytesBefore());
+		Assert.assertEquals(plain + 1, encoded.getEncodedBytesAfter());
+		Assert.assertEquals((double) (plain + 1) / plain, encoded.getEncodedRatio(), 1E-9);
+
+		final int large = new KryoMessageSerializer().encodeMessage(createMessage(createContent(4096))).remaining();
+		final ByteBuffer compressed = server.encodeMessage(createMessage(createContent(4096)));
+		final int compressedLength = compressed.remaining();
+		client.decodeMessage(compressed);
+
+		Assert.assertEquals(plain + large, encoded.getEncodedBytesBefore());
+		Assert.assertEquals(smallLength + compressedLength, encoded.getEncodedBytesAfter());
+		Assert.assertTrue(encoded.getEncodedRatio() < 0.5D);
+
+		final CompressionStatistics decoded = client.getStatistics();
+		Assert.assertEquals(2, decoded.getDecodedMessages());
+		Assert.assertEquals(smallLength + compressedLength, decoded.getDecodedBytesBefore());
+		Assert.assertEquals(plain + large, decoded.getDecodedBytesAfter());
+	}
+
+	/**
+	 * Creates a compressible content.
+	 * <p>
+	 * @param length Content length.
+	 * @return Content.
+	 */
+	private static final String createContent(final int length)
+	{
+		final StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+		{
+			builder.append((char) ('a' + i % 7));
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Creates an echo message.
+	 * <p>
+	 * @param content Message content.
+	 * @return Message.
+	 * @throws Exception Thrown if the message cannot be created.
+	 */
+	private static final IMessage createMessage(final String content) throws Exception
+	{
+		final IMessage message = new Message(DrakeMessageType.EchoMessage);
+		message.setContent(content);
+
+		return message;
+	}
+
+	/**
+	 * A compressor copying the data, so that compression never helps.
+	 */
+	private static final class CopyCompressor implements ICompressor
+	{
+		@Override
+		public int getMaxCompressedLength(final int length)
+		{
+			return length;
+		}
+
+		@Override
+		public int compress(final byte[] source, final int offset, final int length, final byte[] target, final int targetOffset)
+		{
+			System.arraycopy(source, offset, target, targetOffset, length);
+
+			return length;
+		}
+
+		@Override
+		public void decompress(final byte[] source, final int offset, final int length, final byte[] target, final int targetOffset, final int originalLength)
+		{
+			System.arraycopy(source, offset, target, targetOffset, originalLength);
+		}
+	}
+}
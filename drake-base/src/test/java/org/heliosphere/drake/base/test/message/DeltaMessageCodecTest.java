@@ -0,0 +1,287 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.codec.DeltaMessageCodec;
+import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.serializer.KryoMessageSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the delta encoding of the messages of a session.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class DeltaMessageCodecTest
+{
+	/**
+	 * Keyframe interval of the tested codecs.
+	 */
+	private static final int KEYFRAME_INTERVAL = 4;
+
+	/**
+	 * Content of the messages, the tests change a few characters of it.
+	 */
+	private static final String CONTENT = "position=0000;velocity=0000;orientation=0000;status=active";
+
+	/**
+	 * Test that messages are sent as snapshots until one is acknowledged by
+	 * the peer, and then as deltas.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void roundTrip() throws Exception
+	{
+		final DeltaMessageCodec server = createCodec();
+		final DeltaMessageCodec client = createCodec();
+
+		final ByteBuffer snapshot = server.encodeMessage(createMessage(0));
+		Assert.assertEquals(createContent(0), client.decodeMessage(snapshot.duplicate()).getContent());
+
+		// Not acknowledged yet, a snapshot is sent again.
+		final ByteBuffer again = server.encodeMessage(createMessage(1));
+		Assert.assertEquals(snapshot.remaining(), again.remaining());
+		Assert.assertEquals(createContent(1), client.decodeMessage(again).getContent());
+
+		acknowledge(client, server);
+
+		final ByteBuffer delta = server.encodeMessage(createMessage(2));
+		Assert.assertTrue(delta.remaining() < snapshot.remaining());
+		Assert.assertEquals(createContent(2), client.decodeMessage(delta).getContent());
+	}
+
+	/**
+	 * Test that lost messages (such as the messages of an aborted
+	 * transaction) and messages received in another order than the one they
+	 * have been encoded in are decoded.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void lostAndReorderedMessages() throws Exception
+	{
+		final DeltaMessageCodec server = createCodec();
+		final DeltaMessageCodec client = createCodec();
+
+		client.decodeMessage(server.encodeMessage(createMessage(0)));
+		acknowledge(client, server);
+
+		// Lost delta, the next one is still based on the acknowledged message.
+		server.encodeMessage(createMessage(1));
+		Assert.assertEquals(createContent(2), client.decodeMessage(server.encodeMessage(createMessage(2))).getContent());
+
+		// Reordered deltas.
+		final ByteBuffer first = server.encodeMessage(createMessage(3));
+		final ByteBuffer second = server.encodeMessage(createMessage(4));
+		Assert.assertEquals(createContent(4), client.decodeMessage(second).getContent());
+		Assert.assertEquals(createContent(3), client.decodeMessage(first).getContent());
+
+		// Lost acknowledgement, the deltas are still based on the previous acknowledged message.
+		client.encodeMessage(createMessage(0));
+		final ByteBuffer delta = server.encodeMessage(createMessage(5));
+		Assert.assertEquals(createContent(5), client.decodeMessage(delta).getContent());
+	}
+
+	/**
+	 * Test that one way traffic (no acknowledgement received after the first
+	 * one) is decoded: the receiver keeps the base however old it is, and the
+	 * sender falls back to snapshots once the base is
+	 * {@link DeltaMessageCodec#HISTORY_LENGTH} messages old.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void oneWayTraffic() throws Exception
+	{
+		final DeltaMessageCodec server = new DeltaMessageCodec(new KryoMessageSerializer(), Collections.singleton(Integer.valueOf(DrakeMessageType.EchoMessage.getMessageId())), Integer.MAX_VALUE);
+		final DeltaMessageCodec client = createCodec();
+
+		final ByteBuffer snapshot = server.encodeMessage(createMessage(0));
+		final int snapshotLength = snapshot.remaining();
+		client.decodeMessage(snapshot);
+		acknowledge(client, server);
+
+		for (int i = 1; i <= 3 * DeltaMessageCodec.HISTORY_LENGTH; i++)
+		{
+			final ByteBuffer encoded = server.encodeMessage(createMessage(i));
+
+			// The base is the first message (sequence 1), the message i has the sequence i + 1.
+			if (i >= DeltaMessageCodec.HISTORY_LENGTH)
+			{
+				Assert.assertEquals(snapshotLength, encoded.remaining());
+			}
+			else
+			{
+				Assert.assertTrue(encoded.remaining() < snapshotLength);
+			}
+
+			Assert.assertEquals(createContent(i), client.decodeMessage(encoded).getContent());
+		}
+	}
+
+	/**
+	 * Test that a delta whose base is unknown to the receiver is rejected and
+	 * that the receiver recovers with the next keyframe.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void keyframeRecovery() throws Exception
+	{
+		final DeltaMessageCodec server = createCodec();
+		final DeltaMessageCodec client = createCodec();
+
+		client.decodeMessage(server.encodeMessage(createMessage(0)));
+		acknowledge(client, server);
+
+		// The receiver lost its state (the base of the next deltas).
+		client.reset();
+
+		int rejected = 0;
+		for (int i = 1; i <= KEYFRAME_INTERVAL; i++)
+		{
+			try
+			{
+				Assert.assertEquals(createContent(i), client.decodeMessage(server.encodeMessage(createMessage(i))).getContent());
+				break;
+			}
+			catch (final MessageDecodingException e)
+			{
+				rejected++;
+			}
+		}
+
+		Assert.assertEquals(KEYFRAME_INTERVAL - 1, rejected);
+
+		// The keyframe becomes the new base once acknowledged.
+		acknowledge(client, server);
+		final ByteBuffer delta = server.encodeMessage(createMessage(9));
+		Assert.assertEquals(createContent(9), client.decodeMessage(delta).getContent());
+	}
+
+	/**
+	 * Test that a delta whose base has a different length is rejected.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void mismatchedBase() throws Exception
+	{
+		final DeltaMessageCodec server = createCodec();
+		final DeltaMessageCodec client = createCodec();
+		final DeltaMessageCodec other = createCodec();
+
+		client.decodeMessage(server.encodeMessage(createMessage(0)));
+		acknowledge(client, server);
+
+		// The other peer holds a message with the same sequence number but of another length.
+		final IMessage message = new Message(DrakeMessageType.EchoMessage);
+		message.setContent("short");
+		other.decodeMessage(createCodec().encodeMessage(message));
+
+		try
+		{
+			other.decodeMessage(server.encodeMessage(createMessage(1)));
+			Assert.fail("A delta based on a message of another length should have been rejected!");
+		}
+		catch (final MessageDecodingException e)
+		{
+			// Expected.
+		}
+	}
+
+	/**
+	 * Test that the messages encoded by a codec without delta encoded types
+	 * are decoded by the codec of a session.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void plainMessages() throws Exception
+	{
+		final DeltaMessageCodec broadcast = new DeltaMessageCodec(new KryoMessageSerializer(), Collections.<Integer> emptySet(), KEYFRAME_INTERVAL);
+		final DeltaMessageCodec client = createCodec();
+
+		for (int i = 0; i < 2; i++)
+		{
+			Assert.assertEquals(createContent(i), client.decodeMessage(broadcast.encodeMessage(createMessage(i))).getContent());
+		}
+	}
+
+	/**
+	 * Sends a message from a peer to another one so that the messages the
+	 * sender received are acknowledged.
+	 * <p>
+	 * @param sender Codec of the sending peer.
+	 * @param receiver Codec of the receiving peer.
+	 * @throws Exception Thrown if the message cannot be encoded or decoded.
+	 */
+	private static final void acknowledge(final DeltaMessageCodec sender, final DeltaMessageCodec receiver) throws Exception
+	{
+		receiver.decodeMessage(sender.encodeMessage(createMessage(0)));
+	}
+
+	/**
+	 * Creates the delta codec of a session, echo messages being delta
+	 * encoded.
+	 * <p>
+	 * @return Codec.
+	 */
+	private static final DeltaMessageCodec createCodec()
+	{
+		final Set<Integer> ids = Collections.singleton(Integer.valueOf(DrakeMessageType.EchoMessage.getMessageId()));
+
+		return new DeltaMessageCodec(new KryoMessageSerializer(), ids, KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Creates the content of an echo message.
+	 * <p>
+	 * @param position Position written in the content.
+	 * @return Content.
+	 */
+	private static final String createContent(final int position)
+	{
+		return CONTENT.replace("position=0000", String.format("position=%04d", Integer.valueOf(position)));
+	}
+
+	/**
+	 * Creates an echo message.
+	 * <p>
+	 * @param position Position written in the content.
+	 * @return Message.
+	 * @throws Exception Thrown if the message cannot be created.
+	 */
+	private static final IMessage createMessage(final int position) throws Exception
+	{
+		final IMessage message = new Message(DrakeMessageType.EchoMessage);
+		message.setContent(createContent(position));
+
+		return message;
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.nio.ByteBuffer;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.codec.DictionaryMessageCodec;
+import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.serializer.KryoMessageSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the string dictionary exchanged on a session.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class DictionaryMessageCodecTest
+{
+	/**
+	 * Test that a string is sent in full until its definition is confirmed
+	 * by the peer, and then as a reference.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void roundTrip() throws Exception
+	{
+		final DictionaryMessageCodec server = createCodec(16);
+		final DictionaryMessageCodec client = createCodec(16);
+		final String value = "a string sent several times";
+
+		final ByteBuffer definition = server.encodeMessage(createMessage(value));
+		Assert.assertEquals(value, client.decodeMessage(definition.duplicate()).getContent());
+
+		// Not confirmed yet, the definition is sent again.
+		final ByteBuffer again = server.encodeMessage(createMessage(value));
+		Assert.assertEquals(definition.remaining(), again.remaining());
+		Assert.assertEquals(value, client.decodeMessage(again).getContent());
+
+		confirm(client, server);
+
+		final ByteBuffer reference = server.encodeMessage(createMessage(value));
+		Assert.assertTrue(reference.remaining() < definition.remaining());
+		Assert.assertEquals(value, client.decodeMessage(reference).getContent());
+		Assert.assertEquals(1, server.getDictionarySize());
+	}
+
+	/**
+	 * Test that lost messages (such as the messages of an aborted
+	 * transaction) and messages received in another order than the one they
+	 * have been encoded in are decoded.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void lostAndReorderedMessages() throws Exception
+	{
+		final DictionaryMessageCodec server = createCodec(16);
+		final DictionaryMessageCodec client = createCodec(16);
+
+		// Lost definition.
+		server.encodeMessage(createMessage("alpha"));
+		Assert.assertEquals("alpha", client.decodeMessage(server.encodeMessage(createMessage("alpha"))).getContent());
+
+		// Reordered definitions.
+		final ByteBuffer first = server.encodeMessage(createMessage("beta"));
+		final ByteBuffer second = server.encodeMessage(createMessage("beta"));
+		Assert.assertEquals("beta", client.decodeMessage(second).getContent());
+		Assert.assertEquals("beta", client.decodeMessage(first).getContent());
+
+		// Lost confirmation, the definitions are sent until a confirmation is received.
+		client.encodeMessage(createMessage("lost"));
+		Assert.assertEquals("alpha", client.decodeMessage(server.encodeMessage(createMessage("alpha"))).getContent());
+		confirm(client, server);
+
+		// Reordered references.
+		final ByteBuffer alpha = server.encodeMessage(createMessage("alpha"));
+		final ByteBuffer beta = server.encodeMessage(createMessage("beta"));
+		Assert.assertEquals("beta", client.decodeMessage(beta).getContent());
+		Assert.assertEquals("alpha", client.decodeMessage(alpha).getContent());
+	}
+
+	/**
+	 * Test that evicted strings are released by the peer and that a reference
+	 * to an evicted string received late is rejected instead of being
+	 * resolved to another string.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void eviction() throws Exception
+	{
+		final DictionaryMessageCodec server = createCodec(1);
+		final DictionaryMessageCodec client = createCodec(1);
+
+		client.decodeMessage(server.encodeMessage(createMessage("alpha")));
+		confirm(client, server);
+
+		// Encoded before the eviction of "alpha" but received after.
+		final ByteBuffer late = server.encodeMessage(createMessage("alpha"));
+
+		Assert.assertEquals("beta", client.decodeMessage(server.encodeMessage(createMessage("beta"))).getContent());
+		Assert.assertEquals(1, server.getDictionarySize());
+		Assert.assertEquals(1, client.getIncomingDictionarySize());
+
+		try
+		{
+			client.decodeMessage(late);
+			Assert.fail("A reference to an evicted string should have been rejected!");
+		}
+		catch (final MessageDecodingException e)
+		{
+			// Expected.
+		}
+
+		// The evicted string is defined again under a new identifier.
+		Assert.assertEquals("alpha", client.decodeMessage(server.encodeMessage(createMessage("alpha"))).getContent());
+		confirm(client, server);
+		Assert.assertEquals("alpha", client.decodeMessage(server.encodeMessage(createMessage("alpha"))).getContent());
+	}
+
+	/**
+	 * Test the encoding directly into a target buffer, control sections
+	 * included.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void targetBuffer() throws Exception
+	{
+		final DictionaryMessageCodec server = createCodec(16);
+		final DictionaryMessageCodec client = createCodec(16);
+		final ByteBuffer target = ByteBuffer.allocate(1024);
+
+		final int definition = server.encodeMessage(createMessage("delta"), target);
+		target.flip();
+		Assert.assertEquals(definition, target.remaining());
+		Assert.assertEquals("delta", client.decodeMessage(target).getContent());
+
+		// The confirmation is carried by the control section written into the target buffer.
+		target.clear();
+		client.encodeMessage(createMessage(null), target);
+		target.flip();
+		server.decodeMessage(target);
+
+		target.clear();
+		final int reference = server.encodeMessage(createMessage("delta"), target);
+		target.flip();
+		Assert.assertTrue(reference < definition);
+		Assert.assertEquals("delta", client.decodeMessage(target).getContent());
+
+		// A target too small is left untouched.
+		final ByteBuffer small = ByteBuffer.allocate(3);
+		try
+		{
+			server.encodeMessage(createMessage("too large for the target"), small);
+			Assert.fail("Encoding into a too small buffer should have failed!");
+		}
+		catch (final Exception e)
+		{
+			Assert.assertEquals(0, small.position());
+		}
+	}
+
+	/**
+	 * Test that the messages encoded by a stateless codec are decoded by the
+	 * codec of a session without altering its dictionary.
+	 * <p>
+	 * @throws Exception Thrown if a message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void statelessCodec() throws Exception
+	{
+		final DictionaryMessageCodec broadcast = new DictionaryMessageCodec(new KryoMessageSerializer());
+		final DictionaryMessageCodec client = createCodec(16);
+
+		Assert.assertEquals("gamma", client.decodeMessage(broadcast.encodeMessage(createMessage("gamma"))).getContent());
+		Assert.assertEquals(0, client.getIncomingDictionarySize());
+		Assert.assertEquals(0, broadcast.getDictionarySize());
+	}
+
+	/**
+	 * Sends a message from a peer to another one so that the definitions the
+	 * sender received are confirmed.
+	 * <p>
+	 * @param sender Codec of the sending peer.
+	 * @param receiver Codec of the receiving peer.
+	 * @throws Exception Thrown if the message cannot be encoded or decoded.
+	 */
+	private static final void confirm(final DictionaryMessageCodec sender, final DictionaryMessageCodec receiver) throws Exception
+	{
+		receiver.decodeMessage(sender.encodeMessage(createMessage(null)));
+	}
+
+	/**
+	 * Creates the dictionary codec of a session.
+	 * <p>
+	 * @param capacity Number of outgoing strings held by the dictionary.
+	 * @return Codec.
+	 */
+	private static final DictionaryMessageCodec createCodec(final int capacity)
+	{
+		return new DictionaryMessageCodec(new KryoMessageSerializer(), capacity, 256);
+	}
+
+	/**
+	 * Creates an echo message.
+	 * <p>
+	 * @param content Message content.
+	 * @return Message.
+	 * @throws Exception Thrown if the message cannot be created.
+	 */
+	private static final IMessage createMessage(final String content) throws Exception
+	{
+		final IMessage message = new Message(DrakeMessageType.EchoMessage);
+		message.setContent(content);
+
+		return message;
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import org.heliosphere.drake.base.codec.serializer.KryoDataSerializer;
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.AbstractMessage;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+import org.heliosphere.drake.base.message.serializer.EnvelopeMessageSerializer;
+import org.heliosphere.drake.base.message.serializer.KryoMessageSerializer;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * A test case for the envelope message serializer and the lazy decoding of
+ * the message contents.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class EnvelopeMessageSerializerTest
+{
+	/**
+	 * Message manager resolving the message identifiers.
+	 */
+	private static IMessageManager manager;
+
+	/**
+	 * Registers the test messages.
+	 * <p>
+	 * @throws Exception In case an error occurs during the initialization.
+	 */
+	@BeforeClass
+	public static final void setUpBeforeClass() throws Exception
+	{
+		manager = Manager.getManager(IMessageManager.class);
+		if (manager.getMessageFactory(DrakeMessageType.EchoMessage.getMessageId()) == null)
+		{
+			manager.registerMessage(DrakeMessageType.class);
+		}
+	}
+
+	/**
+	 * Test that the content is only decoded when accessed after the envelope
+	 * has been decoded.
+	 * <p>
+	 * @throws Exception Thrown if the message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void contentDecodedOnAccess() throws Exception
+	{
+		final EnvelopeMessageSerializer serializer = new EnvelopeMessageSerializer(manager, new KryoDataSerializer());
+		final IMessage message = createMessage("lazy");
+		message.setCorrelationId(-42L);
+
+		final AbstractMessage decoded = (AbstractMessage) serializer.decodeMessage(serializer.encodeMessage(message));
+		Assert.assertEquals(DrakeMessageType.EchoMessage, decoded.getMessageType());
+		Assert.assertEquals(message.getCreationTime(), decoded.getCreationTime());
+		Assert.assertEquals(-42L, decoded.getCorrelationId());
+		Assert.assertTrue(decoded.isContentEncoded());
+
+		Assert.assertEquals("lazy", decoded.getContent());
+		Assert.assertFalse(decoded.isContentEncoded());
+		Assert.assertEquals("lazy", decoded.getContent());
+	}
+
+	/**
+	 * Test that a message whose content has not been accessed is re-encoded
+	 * from its encoded content by the same data codec, and decoded then
+	 * encoded again by another one.
+	 * <p>
+	 * @throws Exception Thrown if the message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void reEncodeUndecodedMessage() throws Exception
+	{
+		final EnvelopeMessageSerializer serializer = new EnvelopeMessageSerializer(manager, new KryoDataSerializer());
+		final ByteBuffer encoded = serializer.encodeMessage(createMessage("forward"));
+
+		final AbstractMessage decoded = (AbstractMessage) serializer.decodeMessage(encoded.duplicate());
+		Assert.assertEquals(encoded, serializer.encodeMessage(decoded));
+		Assert.assertTrue(decoded.isContentEncoded());
+
+		final EnvelopeMessageSerializer other = new EnvelopeMessageSerializer(manager, new KryoDataSerializer());
+		Assert.assertNull(decoded.getEncodedContent(new KryoDataSerializer()));
+		final ByteBuffer reEncoded = other.encodeMessage(decoded);
+		Assert.assertFalse(decoded.isContentEncoded());
+		Assert.assertEquals("forward", other.decodeMessage(reEncoded).getContent());
+	}
+
+	/**
+	 * Test that the Java serialization of an undecoded message decodes its
+	 * content first.
+	 * <p>
+	 * @throws Exception Thrown if the message cannot be serialized.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void javaSerializationDecodesContent() throws Exception
+	{
+		final EnvelopeMessageSerializer serializer = new EnvelopeMessageSerializer(manager, new KryoDataSerializer());
+		final IMessage decoded = serializer.decodeMessage(serializer.encodeMessage(createMessage("java")));
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream stream = new ObjectOutputStream(bytes))
+		{
+			stream.writeObject(decoded);
+		}
+
+		try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+		{
+			Assert.assertEquals("java", ((IMessage) stream.readObject()).getContent());
+		}
+	}
+
+	/**
+	 * Test that the Kryo serialization of an undecoded message does not lose
+	 * its content.
+	 * <p>
+	 * @throws Exception Thrown if the message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void kryoSerializationDecodesContent() throws Exception
+	{
+		final EnvelopeMessageSerializer serializer = new EnvelopeMessageSerializer(manager, new KryoDataSerializer());
+		final IMessage decoded = serializer.decodeMessage(serializer.encodeMessage(createMessage("kryo")));
+
+		final KryoMessageSerializer kryo = new KryoMessageSerializer();
+		Assert.assertEquals("kryo", kryo.decodeMessage(kryo.encodeMessage(decoded)).getContent());
+
+		final IMessage undecoded = serializer.decodeMessage(serializer.encodeMessage(createMessage("target")));
+		final ByteBuffer target = ByteBuffer.allocate(256);
+		kryo.encodeMessage(undecoded, target);
+		target.flip();
+		Assert.assertEquals("target", kryo.decodeMessage(target).getContent());
+	}
+
+	/**
+	 * Creates an echo message.
+	 * <p>
+	 * @param content Message content.
+	 * @return Message.
+	 * @throws Exception Thrown if the message cannot be created.
+	 */
+	private static final IMessage createMessage(final String content) throws Exception
+	{
+		final IMessage message = new Message(DrakeMessageType.EchoMessage);
+		message.setContent(content);
+
+		return message;
+	}
+}
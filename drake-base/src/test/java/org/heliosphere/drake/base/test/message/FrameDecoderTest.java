@@ -0,0 +1,474 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.codec.ChunkAssembler;
+import org.heliosphere.drake.base.message.codec.FrameDecoder;
+import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.codec.MessageChunker;
+import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.codec.MessageFrame;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+import org.heliosphere.drake.base.message.serializer.KryoMessageSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the streaming decoding of message frames.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class FrameDecoderTest
+{
+	/**
+	 * Message codec used to encode and decode the frames.
+	 */
+	private final KryoMessageSerializer codec = new KryoMessageSerializer();
+
+	/**
+	 * Test the decoding of several frames contained in one buffer.
+	 * <p>
+	 * @throws Exception Thrown if the frames cannot be encoded or decoded.
+	 */
+	@Test
+	public final void multipleFramesInOneBuffer() throws Exception
+	{
+		final FrameDecoder decoder = new FrameDecoder(codec);
+
+		final List<IMessage> messages = decoder.decode(frames("one", "two", "three"));
+		Assert.assertEquals(Arrays.asList("one", "two", "three"), contents(messages));
+		Assert.assertFalse(decoder.hasPending());
+	}
+
+	/**
+	 * Test the decoding of frames fed one byte at a time through a reused
+	 * buffer, so every frame (and every length prefix) is split.
+	 * <p>
+	 * @throws Exception Thrown if the frames cannot be encoded or decoded.
+	 */
+	@Test
+	public final void partialFrames() throws Exception
+	{
+		final FrameDecoder decoder = new FrameDecoder(codec);
+		final ByteBuffer stream = frames("first", createContent(300), "last");
+		final ByteBuffer read = ByteBuffer.allocate(1);
+		final List<IMessage> messages = new ArrayList<>();
+
+		while (stream.hasRemaining())
+		{
+			read.clear();
+			read.put(stream.get());
+			read.flip();
+			decoder.feed(read);
+
+			IMessage message;
+			while ((message = decoder.next()) != null)
+			{
+				messages.add(message);
+			}
+
+			// The decoder must not depend on the reused buffer.
+			read.clear();
+			read.put((byte) 0xFF);
+		}
+
+		Assert.assertEquals(Arrays.asList("first", createContent(300), "last"), contents(messages));
+		Assert.assertFalse(decoder.hasPending());
+	}
+
+	/**
+	 * Test the decoding of a frame split at an arbitrary position over two
+	 * buffers containing other frames.
+	 * <p>
+	 * @throws Exception Thrown if the frames cannot be encoded or decoded.
+	 */
+	@Test
+	public final void frameSpanningBuffers() throws Exception
+	{
+		final ByteBuffer stream = frames("alpha", "beta", "gamma");
+
+		for (int split = 1; split < stream.remaining(); split++)
+		{
+			final FrameDecoder decoder = new FrameDecoder(codec);
+			final ByteBuffer head = stream.duplicate();
+			head.limit(split);
+			final ByteBuffer tail = stream.duplicate();
+			tail.position(split);
+
+			final List<IMessage> messages = new ArrayList<>(decoder.decode(head));
+			messages.addAll(decoder.decode(tail));
+
+			Assert.assertEquals("split at: " + split, Arrays.asList("alpha", "beta", "gamma"), contents(messages));
+			Assert.assertFalse(decoder.hasPending());
+		}
+	}
+
+	/**
+	 * Test that a message split into chunk frames written separately is
+	 * reassembled.
+	 * <p>
+	 * @throws Exception Thrown if the frames cannot be encoded or decoded.
+	 */
+	@Test
+	public final void chunkedMessage() throws Exception
+	{
+		final FrameDecoder decoder = new FrameDecoder(codec);
+		final String large = createContent(10 * MessageChunker.MIN_CHUNK_SIZE);
+		final List<ByteBuffer> writes = new MessageChunker(MessageChunker.MIN_CHUNK_SIZE).split(frames("before", large, "after"));
+		Assert.assertTrue(writes.size() > 3);
+
+		final List<IMessage> messages = new ArrayList<>();
+		for (ByteBuffer write : writes)
+		{
+			messages.addAll(decoder.decode(write));
+		}
+
+		Assert.assertEquals(Arrays.asList("before", large, "after"), contents(messages));
+		Assert.assertFalse(decoder.hasPending());
+	}
+
+	/**
+	 * Test that the chunks of a message received as separate reads of a
+	 * session are reassembled by the decoder of the session, which is kept
+	 * until the session is released.
+	 * <p>
+	 * @throws Exception Thrown if the frames cannot be encoded or decoded.
+	 */
+	@Test
+	public final void sessionDecoder() throws Exception
+	{
+		final IMessageManager manager = Manager.getManager(IMessageManager.class);
+		if (manager.getMessageFactory(DrakeMessageType.EchoMessage.getMessageId()) == null)
+		{
+			manager.registerMessage(DrakeMessageType.class);
+		}
+
+		final String session = "frame-decoder-test";
+		final String large = createContent(10 * MessageChunker.MIN_CHUNK_SIZE);
+		final List<ByteBuffer> reads = new MessageChunker(MessageChunker.MIN_CHUNK_SIZE).split(frames(manager.createSessionCodec(), large, "after"));
+		Assert.assertTrue(reads.size() > 2);
+
+		try
+		{
+			final List<IMessage> messages = new ArrayList<>();
+			for (ByteBuffer read : reads)
+			{
+				final FrameDecoder decoder = manager.getSessionDecoder(session);
+				decoder.feed(read);
+
+				IMessage message;
+				while ((message = decoder.next()) != null)
+				{
+					messages.add(message);
+				}
+			}
+
+			Assert.assertEquals(Arrays.asList(large, "after"), contents(messages));
+
+			final FrameDecoder decoder = manager.getSessionDecoder(session);
+			Assert.assertSame(decoder, manager.getSessionDecoder(session));
+
+			manager.releaseSessionCodec(session);
+			Assert.assertNotSame(decoder, manager.getSessionDecoder(session));
+		}
+		finally
+		{
+			manager.releaseSessionCodec(session);
+		}
+	}
+
+	/**
+	 * Test that a read fed again with the same sequence number (a retried
+	 * transaction) is decoded as if it had been fed once, for split frames
+	 * and for chunked messages.
+	 * <p>
+	 * @throws Exception Thrown if the frames cannot be encoded or decoded.
+	 */
+	@Test
+	public final void retriedRead() throws Exception
+	{
+		final FrameDecoder decoder = new FrameDecoder(codec);
+		final String large = createContent(10 * MessageChunker.MIN_CHUNK_SIZE);
+
+		// Chunk writes followed by a frame split over two reads.
+		final List<ByteBuffer> reads = new ArrayList<>(new MessageChunker(MessageChunker.MIN_CHUNK_SIZE).split(frames(large)));
+		final ByteBuffer tail = frames("first", "second");
+		final int half = tail.remaining() / 2;
+		reads.add(slice(tail, 0, half));
+		reads.add(slice(tail, half, tail.remaining()));
+
+		final List<IMessage> messages = new ArrayList<>();
+		for (int i = 0; i < reads.size(); i++)
+		{
+			// Each read is fed twice, the first attempt being aborted.
+			final List<IMessage> aborted = pull(decoder, reads.get(i).duplicate(), i);
+			final List<IMessage> retried = pull(decoder, reads.get(i).duplicate(), i);
+			Assert.assertEquals(contents(aborted), contents(retried));
+			messages.addAll(retried);
+		}
+
+		Assert.assertEquals(Arrays.asList(large, "first", "second"), contents(messages));
+		Assert.assertFalse(decoder.hasPending());
+	}
+
+	/**
+	 * Test that a stream not receiving any chunk within the stream timeout is
+	 * discarded, releasing its share of the reassembly bound.
+	 * <p>
+	 * @throws Exception Thrown if a chunk cannot be added.
+	 */
+	@Test
+	public final void staleStream() throws Exception
+	{
+		final ChunkAssembler assembler = new ChunkAssembler(1000, 500);
+
+		Assert.assertNull(assembler.add(chunk(1, 0, 600, 100)));
+		Assert.assertEquals(600, assembler.getPendingLength());
+
+		try
+		{
+			assembler.add(chunk(2, 0, 600, 100));
+			Assert.fail("Stream should exceed the reassembly bound!");
+		}
+		catch (MessageDecodingException e)
+		{
+			// Expected.
+		}
+
+		Thread.sleep(1000);
+
+		// The first stream has expired.
+		Assert.assertNull(assembler.add(chunk(2, 0, 600, 100)));
+		Assert.assertEquals(600, assembler.getPendingLength());
+
+		try
+		{
+			assembler.add(chunk(1, 1, 600, 100));
+			Assert.fail("Expired stream should be unknown!");
+		}
+		catch (MessageDecodingException e)
+		{
+			// Expected.
+		}
+	}
+
+	/**
+	 * Test that a length exceeding the maximum frame length or a malformed
+	 * length prefix resets the decoder, which can then decode a new stream.
+	 * <p>
+	 * @throws Exception Thrown if the frames cannot be encoded or decoded.
+	 */
+	@Test
+	public final void badLengths() throws Exception
+	{
+		final FrameDecoder decoder = new FrameDecoder(codec, 1024);
+
+		// Length prefix of 2049 bytes.
+		final ByteBuffer tooLong = ByteBuffer.wrap(new byte[] { (byte) 0x81, 0x10, 0x00, 0x00 });
+		try
+		{
+			decoder.decode(tooLong);
+			Assert.fail("A frame longer than the maximum should have been rejected!");
+		}
+		catch (final MessageDecodingException e)
+		{
+			Assert.assertFalse(decoder.hasPending());
+		}
+
+		final ByteBuffer malformed = ByteBuffer.wrap(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01 });
+		try
+		{
+			decoder.decode(malformed);
+			Assert.fail("A malformed length prefix should have been rejected!");
+		}
+		catch (final MessageDecodingException e)
+		{
+			Assert.assertFalse(decoder.hasPending());
+		}
+
+		Assert.assertEquals(Arrays.asList("recovered"), contents(decoder.decode(frames("recovered"))));
+	}
+
+	/**
+	 * Test that a frame whose content cannot be decoded is skipped without
+	 * losing the following frames.
+	 * <p>
+	 * @throws Exception Thrown if the frames cannot be encoded or decoded.
+	 */
+	@Test
+	public final void undecodableFrameIsSkipped() throws Exception
+	{
+		final FrameDecoder decoder = new FrameDecoder(codec);
+		final ByteBuffer valid = frames("valid");
+		final ByteBuffer stream = ByteBuffer.allocate(valid.remaining() + 16);
+
+		MessageFrame.write(stream, new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF }, 0, 3);
+		stream.put(valid).flip();
+
+		Assert.assertEquals(Arrays.asList("valid"), contents(decoder.decode(stream)));
+		Assert.assertFalse(decoder.hasPending());
+	}
+
+	/**
+	 * Encodes echo messages into consecutive frames.
+	 * <p>
+	 * @param contents Message contents.
+	 * @return {@link ByteBuffer} containing the frames.
+	 * @throws Exception Thrown if a message cannot be encoded.
+	 */
+	private final ByteBuffer frames(final String... contents) throws Exception
+	{
+		return frames(codec, contents);
+	}
+
+	/**
+	 * Encodes echo messages into consecutive frames using the given codec.
+	 * <p>
+	 * @param encoder Message codec.
+	 * @param contents Message contents.
+	 * @return {@link ByteBuffer} containing the frames.
+	 * @throws Exception Thrown if a message cannot be encoded.
+	 */
+	private static final ByteBuffer frames(final IMessageCodec encoder, final String... contents) throws Exception
+	{
+		final List<ByteBuffer> encoded = new ArrayList<>();
+		int length = 0;
+		for (String content : contents)
+		{
+			final IMessage message = new Message(DrakeMessageType.EchoMessage);
+			message.setContent(content);
+			final ByteBuffer buffer = encoder.encodeMessage(message);
+			encoded.add(buffer);
+			length += MessageFrame.getLength(buffer.remaining());
+		}
+
+		final ByteBuffer frames = ByteBuffer.allocate(length);
+		for (ByteBuffer buffer : encoded)
+		{
+			MessageFrame.write(frames, buffer);
+		}
+		frames.flip();
+
+		return frames;
+	}
+
+	/**
+	 * Feeds a read and pulls the decoded messages.
+	 * <p>
+	 * @param decoder Frame decoder.
+	 * @param read Read to feed.
+	 * @param sequence Sequence number of the read.
+	 * @return Decoded messages.
+	 * @throws Exception Thrown if a frame cannot be decoded.
+	 */
+	private static final List<IMessage> pull(final FrameDecoder decoder, final ByteBuffer read, final long sequence) throws Exception
+	{
+		final List<IMessage> messages = new ArrayList<>();
+
+		decoder.feed(read, sequence);
+		IMessage message;
+		while ((message = decoder.next()) != null)
+		{
+			messages.add(message);
+		}
+
+		return messages;
+	}
+
+	/**
+	 * Returns a copy of a range of a buffer.
+	 * <p>
+	 * @param buffer {@link ByteBuffer}.
+	 * @param start Start offset (from the position of the buffer).
+	 * @param end End offset (from the position of the buffer).
+	 * @return {@link ByteBuffer} containing the range.
+	 */
+	private static final ByteBuffer slice(final ByteBuffer buffer, final int start, final int end)
+	{
+		final ByteBuffer range = buffer.duplicate();
+		range.position(buffer.position() + start);
+		range.limit(buffer.position() + end);
+
+		final ByteBuffer copy = ByteBuffer.allocate(end - start);
+		copy.put(range);
+		copy.flip();
+
+		return copy;
+	}
+
+	/**
+	 * Creates a chunk record as read by a {@link ChunkAssembler} (without the
+	 * chunk marker and the record length).
+	 * <p>
+	 * @param streamId Stream identifier.
+	 * @param index Chunk index.
+	 * @param total Total length of the encoded message.
+	 * @param length Length of the chunk.
+	 * @return {@link ByteBuffer} containing the chunk record.
+	 * @throws Exception Thrown if the record cannot be read back.
+	 */
+	private static final ByteBuffer chunk(final int streamId, final int index, final int total, final int length) throws Exception
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(MessageFrame.getChunkLength(streamId, index, total, length));
+		MessageFrame.writeChunk(buffer, streamId, index, total, ByteBuffer.allocate(length));
+		buffer.flip();
+
+		MessageFrame.readLength(buffer);
+		MessageFrame.readLength(buffer);
+
+		return buffer;
+	}
+
+	/**
+	 * Returns the contents of messages.
+	 * <p>
+	 * @param messages Messages.
+	 * @return List of contents.
+	 */
+	private static final List<Object> contents(final List<IMessage> messages)
+	{
+		final List<Object> contents = new ArrayList<>();
+		for (IMessage message : messages)
+		{
+			contents.add(message.getContent());
+		}
+
+		return contents;
+	}
+
+	/**
+	 * Creates a content of the given length.
+	 * <p>
+	 * @param length Content length.
+	 * @return Content.
+	 */
+	private static final String createContent(final int length)
+	{
+		final char[] content = new char[length];
+		for (int i = 0; i < length; i++)
+		{
+			content[i] = (char) ('a' + i % 26);
+		}
+
+		return new String(content);
+	}
+}
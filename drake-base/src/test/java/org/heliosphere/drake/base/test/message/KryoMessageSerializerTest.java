@@ -0,0 +1,127 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.serializer.KryoMessageSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the {@code Kryo} message serializer buffer paths.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class KryoMessageSerializerTest
+{
+	/**
+	 * Test the encoding into and the decoding from a heap buffer, done in
+	 * place from the buffer position.
+	 * <p>
+	 * @throws Exception Thrown if the message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void heapBufferInPlace() throws Exception
+	{
+		final KryoMessageSerializer serializer = new KryoMessageSerializer();
+		final ByteBuffer target = ByteBuffer.allocate(1024);
+		target.position(10);
+
+		final int length = serializer.encodeMessage(createMessage("heap"), target);
+		Assert.assertEquals(10 + length, target.position());
+
+		final ByteBuffer encoded = ByteBuffer.wrap(target.array(), 10, length);
+		final IMessage decoded = serializer.decodeMessage(encoded);
+		Assert.assertEquals("heap", decoded.getContent());
+		Assert.assertEquals(DrakeMessageType.EchoMessage, decoded.getMessageType());
+		Assert.assertFalse(encoded.hasRemaining());
+	}
+
+	/**
+	 * Test the encoding into and the decoding from a direct buffer, done
+	 * through the growable output and the stream adapter.
+	 * <p>
+	 * @throws Exception Thrown if the message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void directBuffer() throws Exception
+	{
+		final KryoMessageSerializer serializer = new KryoMessageSerializer();
+		final ByteBuffer target = ByteBuffer.allocateDirect(1024);
+
+		final int first = serializer.encodeMessage(createMessage("first"), target);
+		final int second = serializer.encodeMessage(createMessage("second"), target);
+		Assert.assertEquals(first + second, target.position());
+		target.flip();
+
+		// The stream input may read ahead, only the bytes of each message must be consumed.
+		Assert.assertEquals("first", serializer.decodeMessage(target).getContent());
+		Assert.assertEquals(first, target.position());
+		Assert.assertEquals("second", serializer.decodeMessage(target).getContent());
+		Assert.assertFalse(target.hasRemaining());
+
+		// A target too small is rejected without being written.
+		final ByteBuffer small = ByteBuffer.allocateDirect(4);
+		try
+		{
+			serializer.encodeMessage(createMessage("too large for the target"), small);
+			Assert.fail("Encoding into a too small buffer should have failed!");
+		}
+		catch (Exception e)
+		{
+			Assert.assertEquals(0, small.position());
+		}
+	}
+
+	/**
+	 * Test that the growable output is released after a large message.
+	 * <p>
+	 * @throws Exception Thrown if the message cannot be encoded or decoded.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void outputShrinksAfterLargeMessage() throws Exception
+	{
+		final KryoMessageSerializer serializer = new KryoMessageSerializer();
+		final char[] large = new char[4 * KryoMessageSerializer.MAX_RETAINED_SIZE];
+		Arrays.fill(large, 'x');
+
+		final ByteBuffer encoded = serializer.encodeMessage(createMessage(new String(large)));
+		Assert.assertTrue(serializer.getRetainedSize() <= KryoMessageSerializer.MAX_RETAINED_SIZE);
+		Assert.assertEquals(large.length, ((String) serializer.decodeMessage(encoded).getContent()).length());
+
+		Assert.assertEquals("small", serializer.decodeMessage(serializer.encodeMessage(createMessage("small"))).getContent());
+	}
+
+	/**
+	 * Creates an echo message.
+	 * <p>
+	 * @param content Message content.
+	 * @return Message.
+	 * @throws Exception Thrown if the message cannot be created.
+	 */
+	private static final IMessage createMessage(final String content) throws Exception
+	{
+		final IMessage message = new Message(DrakeMessageType.EchoMessage);
+		message.setContent(content);
+
+		return message;
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.dispatch.MessageDispatcher;
+import org.heliosphere.drake.base.message.dispatch.type.OverflowPolicyType;
+import org.heliosphere.drake.base.player.IEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the message dispatch lanes.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class MessageDispatcherTest
+{
+	/**
+	 * Number of messages sent by each sender.
+	 */
+	private static final int COUNT = 2000;
+
+	/**
+	 * Test that the messages of each sender are handled in order.
+	 * <p>
+	 * @throws InterruptedException Thrown if the test is interrupted.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void orderPerSender() throws InterruptedException
+	{
+		final MessageDispatcher dispatcher = new MessageDispatcher(4, 64, OverflowPolicyType.BLOCK);
+		final CountDownLatch latch = new CountDownLatch(8 * COUNT);
+
+		final List<RecordingEntity> entities = new ArrayList<>();
+		for (int i = 0; i < 8; i++)
+		{
+			entities.add(new RecordingEntity("player-" + i, latch));
+		}
+
+		for (int i = 0; i < COUNT; i++)
+		{
+			for (RecordingEntity entity : entities)
+			{
+				Assert.assertTrue(dispatcher.dispatch(entity.getName(), entity, createMessage(i)));
+			}
+		}
+
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(dispatcher.shutdown(1000));
+
+		for (RecordingEntity entity : entities)
+		{
+			Assert.assertEquals(COUNT, entity.received.size());
+			for (int i = 0; i < COUNT; i++)
+			{
+				Assert.assertEquals(Integer.valueOf(i), entity.received.get(i));
+			}
+		}
+		Assert.assertEquals(0, dispatcher.getDroppedCount());
+	}
+
+	/**
+	 * Test that the messages dispatched to a full lane are dropped.
+	 * <p>
+	 * @throws InterruptedException Thrown if the test is interrupted.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void dropWhenFull() throws InterruptedException
+	{
+		final MessageDispatcher dispatcher = new MessageDispatcher(1, 4, OverflowPolicyType.DROP_NEWEST);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		final RecordingEntity entity = new RecordingEntity("player", null)
+		{
+			@Override
+			public void handleMessage(final IMessage message)
+			{
+				blocked.countDown();
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				super.handleMessage(message);
+			}
+		};
+
+		// The first message keeps the lane busy, the next 4 fill the queue.
+		Assert.assertTrue(dispatcher.dispatch(entity, entity, createMessage(0)));
+		Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+		for (int i = 1; i <= 4; i++)
+		{
+			Assert.assertTrue(dispatcher.dispatch(entity, entity, createMessage(i)));
+		}
+		Assert.assertFalse(dispatcher.dispatch(entity, entity, createMessage(5)));
+		Assert.assertEquals(4, dispatcher.getQueueDepth());
+		Assert.assertEquals(1, dispatcher.getDroppedCount());
+
+		release.countDown();
+		Assert.assertTrue(dispatcher.shutdown(1000));
+		Assert.assertEquals(5, entity.received.size());
+		Assert.assertEquals(4, dispatcher.getLanes().get(0).getMaxQueueDepth());
+	}
+
+	/**
+	 * Test that the lanes stop while messages are dispatched with the
+	 * {@link OverflowPolicyType#DROP_OLDEST} policy, which can drop the stop
+	 * task.
+	 * <p>
+	 * @throws InterruptedException Thrown if the test is interrupted.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void shutdownWhileDropping() throws InterruptedException
+	{
+		final RecordingEntity entity = new RecordingEntity("player", null);
+
+		for (int i = 0; i < 20; i++)
+		{
+			final MessageDispatcher dispatcher = new MessageDispatcher(1, 1, OverflowPolicyType.DROP_OLDEST);
+			final List<Thread> senders = new ArrayList<>();
+			for (int j = 0; j < 4; j++)
+			{
+				final Thread sender = new Thread()
+				{
+					@Override
+					public void run()
+					{
+						while (dispatcher.dispatch(entity, entity, createMessage(0)))
+						{
+							// Keep the lane full.
+						}
+					}
+				};
+				sender.start();
+				senders.add(sender);
+			}
+
+			Assert.assertTrue(dispatcher.shutdown(5000));
+			for (Thread sender : senders)
+			{
+				sender.join(5000);
+				Assert.assertFalse(sender.isAlive());
+			}
+		}
+	}
+
+	/**
+	 * Creates a message carrying a sequence number.
+	 * <p>
+	 * @param sequence Sequence number.
+	 * @return Message.
+	 */
+	private static IMessage createMessage(final int sequence)
+	{
+		final IMessage message = new Message();
+		message.setContent(Integer.valueOf(sequence));
+
+		return message;
+	}
+
+	/**
+	 * Entity recording the content of the messages it handles.
+	 */
+	private static class RecordingEntity implements IEntity
+	{
+		/**
+		 * Contents of the handled messages.
+		 */
+		final List<Object> received = Collections.synchronizedList(new ArrayList<>());
+
+		/**
+		 * Latch counted down for each handled message.
+		 */
+		private final CountDownLatch latch;
+
+		/**
+		 * Entity name.
+		 */
+		private String name;
+
+		/**
+		 * Creates a new recording entity.
+		 * <p>
+		 * @param name Entity name.
+		 * @param latch Latch counted down for each handled message (can be
+		 * {@code null}).
+		 */
+		RecordingEntity(final String name, final CountDownLatch latch)
+		{
+			this.name = name;
+			this.latch = latch;
+		}
+
+		@Override
+		public void sendMessage(final IMessage message)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void sendMessages(final List<IMessage> messages)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void handleMessage(final IMessage message)
+		{
+			received.add(message.getContent());
+			if (latch != null)
+			{
+				latch.countDown();
+			}
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public void setName(final String name)
+		{
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.journal.IJournalRecordHandler;
+import org.heliosphere.drake.base.message.journal.JournalReader;
+import org.heliosphere.drake.base.message.journal.JournalRecord;
+import org.heliosphere.drake.base.message.journal.JournalReplayer;
+import org.heliosphere.drake.base.message.journal.MessageJournal;
+import org.heliosphere.drake.base.message.journal.type.JournalDirectionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the message journal.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class MessageJournalTest
+{
+	/**
+	 * Test that the journaled records are read back in order across several
+	 * segments.
+	 * <p>
+	 * @throws Exception Thrown if the journal cannot be written or read.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void recordAndReplay() throws Exception
+	{
+		final File directory = createDirectory();
+		final int count = 1000;
+
+		final MessageJournal journal = new MessageJournal(directory, MessageJournal.MIN_SEGMENT_SIZE);
+		for (int i = 0; i < count; i++)
+		{
+			final ByteBuffer payload = ByteBuffer.allocate(200);
+			payload.putInt(i).position(0);
+
+			journal.append(i % 2 == 0 ? JournalDirectionType.INBOUND : JournalDirectionType.OUTBOUND, "player-" + i % 3, i % 7, payload);
+			Assert.assertEquals(0, payload.position());
+		}
+		journal.close();
+		Assert.assertTrue(journal.getSegmentCount() > 1);
+
+		final List<JournalRecord> records = new ArrayList<>();
+		final long replayed = new JournalReplayer(new JournalReader(directory), 0).replay(new IJournalRecordHandler()
+		{
+			@Override
+			public void handle(final JournalRecord record) throws MessageException
+			{
+				records.add(record);
+			}
+		});
+
+		Assert.assertEquals(count, replayed);
+		for (int i = 0; i < count; i++)
+		{
+			final JournalRecord record = records.get(i);
+			Assert.assertEquals(i % 2 == 0 ? JournalDirectionType.INBOUND : JournalDirectionType.OUTBOUND, record.getDirection());
+			Assert.assertEquals("player-" + i % 3, record.getSession());
+			Assert.assertEquals(i % 7, record.getMessageId());
+			Assert.assertEquals(200, record.getPayload().remaining());
+			Assert.assertEquals(i, record.getPayload().getInt());
+		}
+	}
+
+	/**
+	 * Test that the records appended while a batch is open are only journaled
+	 * once the batch is committed, and never if it is not.
+	 * <p>
+	 * @throws Exception Thrown if the journal cannot be written or read.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void batches() throws Exception
+	{
+		final File directory = createDirectory();
+		final MessageJournal journal = new MessageJournal(directory, MessageJournal.MIN_SEGMENT_SIZE);
+
+		// Aborted task: the batch is never committed.
+		final long aborted = journal.openBatch();
+		journal.append(JournalDirectionType.OUTBOUND, "player", 1, createPayload(0));
+		journal.closeBatch(aborted);
+
+		// Retried task.
+		final long committed = journal.openBatch();
+		Assert.assertTrue(committed > aborted);
+		Assert.assertEquals(-1, journal.openBatch());
+		journal.append(JournalDirectionType.INBOUND, "player", 1, createPayload(1));
+		journal.append(JournalDirectionType.OUTBOUND, "player", 2, createPayload(2));
+		journal.closeBatch(committed);
+
+		// Appended directly once the batch is closed.
+		journal.append(JournalDirectionType.OUTBOUND, "player", 3, createPayload(3));
+		Assert.assertEquals(1, journal.getRecordCount());
+
+		Assert.assertEquals(2, journal.commitBatch(committed));
+		Assert.assertEquals(0, journal.commitBatch(committed));
+		journal.close();
+
+		final List<Integer> values = new ArrayList<>();
+		try (JournalReader reader = new JournalReader(directory))
+		{
+			JournalRecord record;
+			while ((record = reader.next()) != null)
+			{
+				values.add(Integer.valueOf(record.getPayload().getInt()));
+			}
+		}
+
+		Assert.assertEquals(Arrays.asList(Integer.valueOf(3), Integer.valueOf(1), Integer.valueOf(2)), values);
+	}
+
+	/**
+	 * Creates a payload holding a value.
+	 * <p>
+	 * @param value Value.
+	 * @return Payload.
+	 */
+	private static final ByteBuffer createPayload(final int value)
+	{
+		final ByteBuffer payload = ByteBuffer.allocate(4);
+		payload.putInt(value).flip();
+
+		return payload;
+	}
+
+	/**
+	 * Creates an empty temporary directory.
+	 * <p>
+	 * @return Directory.
+	 * @throws IOException Thrown if the directory cannot be created.
+	 */
+	private static final File createDirectory() throws IOException
+	{
+		final File directory = File.createTempFile("drake-journal", "");
+		if (!directory.delete() || !directory.mkdirs())
+		{
+			throw new IOException("Cannot create directory: " + directory);
+		}
+		directory.deleteOnExit();
+
+		return directory;
+	}
+}
@@ -13,10 +13,15 @@ package org.heliosphere.drake.base.test.message;
 
 import org.heliosphere.drake.base.manager.Manager;
 import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
 import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.factory.MessageFactory;
 import org.heliosphere.drake.base.message.manager.IMessageManager;
 import org.heliosphere.drake.base.message.manager.MessageManagerException;
+import org.heliosphere.drake.base.message.manager.MessageRegistry;
+import org.heliosphere.drake.base.message.type.MessageCategoryType;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -107,4 +112,79 @@ public final class MessageTest
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Test the lookups of a message registry snapshot.
+	 * <p>
+	 * @throws MessageManagerException Thrown if the registration failed.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void registrySnapshot() throws MessageManagerException
+	{
+		MessageRegistry registry = MessageRegistry.EMPTY.register(DrakeMessageType.class);
+
+		Assert.assertEquals(0, MessageRegistry.EMPTY.size());
+		Assert.assertEquals(2, registry.size());
+		Assert.assertSame(DrakeMessageType.EchoMessage, registry.get(1).getType());
+		Assert.assertSame(DrakeMessageType.ErrorMessage, registry.get("ErrorMessage").getType());
+		Assert.assertSame(registry.get(2), registry.get(DrakeMessageType.ErrorMessage));
+		Assert.assertNull(registry.get(MessageRegistry.DENSE_LIMIT + 1));
+		Assert.assertEquals(1, registry.getByCategory(MessageCategoryType.System).size());
+		Assert.assertEquals(2, registry.getByHandlerClass(EchoMessageHandler.class).size() + registry.getByHandlerClass(ErrorMessageHandler.class).size());
+
+		try
+		{
+			registry.register(DrakeMessageType.class);
+			Assert.fail("Registering a protocol twice must fail!");
+		}
+		catch (MessageManagerException e)
+		{
+			// Expected, the snapshot is left untouched.
+			Assert.assertEquals(2, registry.size());
+		}
+	}
+
+	/**
+	 * Test the creation and the pooling of messages by a message factory.
+	 * <p>
+	 * @throws MessageException Thrown if a message cannot be created.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void factoryPooling() throws MessageException
+	{
+		final MessageFactory factory = new MessageFactory(DrakeMessageType.EchoMessage);
+		final int size = MessageFactory.getPoolSize();
+
+		try
+		{
+			IMessage message = factory.create();
+			Assert.assertSame(DrakeMessageType.EchoMessage, message.getMessageType());
+			Assert.assertEquals("", message.getContent());
+
+			// Pooling disabled.
+			MessageFactory.setPoolSize(0);
+			Assert.assertFalse(factory.release(message));
+
+			MessageFactory.setPoolSize(1);
+			message = factory.acquire();
+			message.setContent("Pooled");
+			Assert.assertTrue(factory.release(message));
+			Assert.assertEquals(1, factory.getPooledCount());
+			Assert.assertFalse(factory.release(factory.create()));
+
+			final IMessage reused = factory.acquire();
+			Assert.assertSame(message, reused);
+			Assert.assertEquals("", reused.getContent());
+			Assert.assertEquals(0, factory.getPooledCount());
+
+			// A message of another type is never pooled.
+			Assert.assertFalse(factory.release(new MessageFactory(DrakeMessageType.ErrorMessage).create()));
+		}
+		finally
+		{
+			MessageFactory.setPoolSize(size);
+		}
+	}
 }
@@ -0,0 +1,244 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.outbound.IOutboundSink;
+import org.heliosphere.drake.base.message.outbound.OutboundQueue;
+import org.heliosphere.drake.base.message.outbound.type.BackPressurePolicyType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the outbound message queue.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class OutboundQueueTest
+{
+	/**
+	 * Test that the messages queued within the coalescing budget are written
+	 * within a single batch, in order.
+	 * <p>
+	 * @throws Exception Thrown if the messages cannot be queued.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void messagesAreCoalesced() throws Exception
+	{
+		final List<List<IMessage>> writes = new ArrayList<>();
+		final OutboundQueue queue = new OutboundQueue("outbound-test", new IOutboundSink()
+		{
+			@Override
+			public void write(final List<IMessage> messages)
+			{
+				synchronized (writes)
+				{
+					writes.add(new ArrayList<>(messages));
+				}
+			}
+		}, 16, TimeUnit.SECONDS.toMicros(1), 4, BackPressurePolicyType.BLOCK);
+
+		final List<IMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 6; i++)
+		{
+			messages.add(new Message());
+		}
+		Assert.assertTrue(queue.offer(messages));
+		Assert.assertTrue(queue.stop(5000));
+
+		// The maximum batch size splits the messages into two writes.
+		Assert.assertEquals(2, writes.size());
+		Assert.assertEquals(messages.subList(0, 4), writes.get(0));
+		Assert.assertEquals(messages.subList(4, 6), writes.get(1));
+		Assert.assertEquals(6, queue.getWrittenCount());
+		Assert.assertEquals(2, queue.getBatchCount());
+	}
+
+	/**
+	 * Test the back pressure policies while the writer is stalled.
+	 * <p>
+	 * @throws Exception Thrown if the messages cannot be queued.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void backPressure() throws Exception
+	{
+		final CountDownLatch stalled = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final IOutboundSink sink = new IOutboundSink()
+		{
+			@Override
+			public void write(final List<IMessage> messages)
+			{
+				stalled.countDown();
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		final OutboundQueue failing = new OutboundQueue("outbound-fail", sink, 2, 0, 1, BackPressurePolicyType.FAIL_FAST);
+		failing.offer(new Message());
+		Assert.assertTrue(stalled.await(5, TimeUnit.SECONDS));
+		failing.offer(new Message());
+		failing.offer(new Message());
+		try
+		{
+			failing.offer(new Message());
+			Assert.fail("Send should have failed on a full queue!");
+		}
+		catch (MessageException e)
+		{
+			Assert.assertEquals(1, failing.getRejectedCount());
+		}
+
+		final OutboundQueue dropping = new OutboundQueue("outbound-drop", sink, 2, 0, 1, BackPressurePolicyType.DROP_OLDEST);
+		dropping.offer(new Message());
+		while (dropping.getQueueDepth() > 0)
+		{
+			Thread.sleep(1);
+		}
+		for (int i = 0; i < 4; i++)
+		{
+			Assert.assertTrue(dropping.offer(new Message()));
+		}
+		Assert.assertEquals(2, dropping.getQueueDepth());
+		Assert.assertEquals(2, dropping.getMaxQueueDepth());
+		Assert.assertEquals(2, dropping.getDroppedCount());
+
+		release.countDown();
+		Assert.assertTrue(failing.stop(5000));
+		Assert.assertTrue(dropping.stop(5000));
+		Assert.assertEquals(3, failing.getWrittenCount());
+		Assert.assertEquals(3, dropping.getWrittenCount());
+	}
+
+	/**
+	 * Test that the queue stops while messages are sent with the
+	 * {@link BackPressurePolicyType#DROP_OLDEST} policy, the queue being kept
+	 * full by the senders.
+	 * <p>
+	 * @throws Exception Thrown if the messages cannot be queued.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void stopWhileDropping() throws Exception
+	{
+		final IOutboundSink sink = new IOutboundSink()
+		{
+			@Override
+			public void write(final List<IMessage> messages)
+			{
+				// Nothing to write.
+			}
+		};
+
+		for (int i = 0; i < 20; i++)
+		{
+			final OutboundQueue queue = new OutboundQueue("outbound-stop", sink, 1, 0, 1, BackPressurePolicyType.DROP_OLDEST);
+			final List<Thread> senders = new ArrayList<>();
+			for (int j = 0; j < 4; j++)
+			{
+				final Thread sender = new Thread()
+				{
+					@Override
+					public void run()
+					{
+						try
+						{
+							while (queue.offer(new Message()))
+							{
+								// Keep the queue full.
+							}
+						}
+						catch (MessageException e)
+						{
+							Assert.fail(e.getMessage());
+						}
+					}
+				};
+				sender.start();
+				senders.add(sender);
+			}
+
+			Assert.assertTrue(queue.stop(5000));
+			for (Thread sender : senders)
+			{
+				sender.join(5000);
+				Assert.assertFalse(sender.isAlive());
+			}
+		}
+	}
+
+	/**
+	 * Test that the queues share the outbound writer threads instead of
+	 * having a thread each.
+	 * <p>
+	 * @throws Exception Thrown if the messages cannot be queued.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void sharedWriters() throws Exception
+	{
+		final AtomicLong writes = new AtomicLong();
+		final IOutboundSink sink = new IOutboundSink()
+		{
+			@Override
+			public void write(final List<IMessage> messages)
+			{
+				writes.addAndGet(messages.size());
+			}
+		};
+
+		final List<OutboundQueue> queues = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+		{
+			final OutboundQueue queue = new OutboundQueue("outbound-shared-" + i, sink, 16, 100, 16, BackPressurePolicyType.BLOCK);
+			queue.offer(new Message());
+			queue.offer(new Message());
+			queues.add(queue);
+		}
+
+		for (OutboundQueue queue : queues)
+		{
+			Assert.assertTrue(queue.stop(5000));
+			Assert.assertEquals(2, queue.getWrittenCount());
+		}
+		Assert.assertEquals(400, writes.get());
+
+		int writers = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+		{
+			if (thread.getName().startsWith("drake-outbound-writer-"))
+			{
+				writers++;
+			}
+		}
+		Assert.assertTrue(writers <= Math.max(2, Runtime.getRuntime().availableProcessors()));
+	}
+}
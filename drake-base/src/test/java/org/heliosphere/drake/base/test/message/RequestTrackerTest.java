@@ -0,0 +1,198 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.message;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.Message;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.request.RequestTracker;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the request/response correlation.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class RequestTrackerTest
+{
+	/**
+	 * Test that a response completes its request and that late or uncorrelated
+	 * messages are not mistaken for responses.
+	 * <p>
+	 * @throws Exception Thrown if the request cannot be completed.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void responseCompletesRequest() throws Exception
+	{
+		final RequestTracker tracker = new RequestTracker(4, 10000);
+
+		final IMessage request = new Message();
+		final Future<IMessage> future = tracker.register(request);
+		Assert.assertTrue(RequestTracker.isRequest(request));
+		Assert.assertEquals(1, tracker.getInFlightCount());
+
+		final IMessage response = new Message();
+		RequestTracker.correlate(request, response);
+		Assert.assertTrue(RequestTracker.isResponse(response));
+
+		Assert.assertTrue(tracker.complete(response));
+		Assert.assertSame(response, future.get(1, TimeUnit.SECONDS));
+		Assert.assertEquals(0, tracker.getInFlightCount());
+
+		// A late response is consumed (and dropped), a plain message is not.
+		Assert.assertTrue(tracker.complete(response));
+		Assert.assertFalse(tracker.complete(new Message()));
+	}
+
+	/**
+	 * Test that a request not answered in time fails with a timeout.
+	 * <p>
+	 * @throws Exception Thrown if the request cannot be registered.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void requestTimesOut() throws Exception
+	{
+		final RequestTracker tracker = new RequestTracker(4, 10000);
+		final Future<IMessage> future = tracker.register(new Message(), 50, TimeUnit.MILLISECONDS);
+
+		try
+		{
+			future.get(5, TimeUnit.SECONDS);
+			Assert.fail("Request should have timed out!");
+		}
+		catch (ExecutionException e)
+		{
+			Assert.assertTrue(e.getCause() instanceof TimeoutException);
+		}
+
+		Assert.assertEquals(0, tracker.getInFlightCount());
+	}
+
+	/**
+	 * Test that the number of in-flight requests is bounded and that the
+	 * requests are cancelled on disconnection.
+	 * <p>
+	 * @throws Exception Thrown if a request cannot be registered.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void boundedAndCancelled() throws Exception
+	{
+		final RequestTracker tracker = new RequestTracker(2, 10000);
+		final Future<IMessage> first = tracker.register(new Message());
+		final Future<IMessage> second = tracker.register(new Message());
+
+		try
+		{
+			tracker.register(new Message());
+			Assert.fail("Request should have been rejected!");
+		}
+		catch (MessageException e)
+		{
+			// Expected: too many in-flight requests.
+		}
+
+		Assert.assertEquals(2, tracker.cancelAll());
+		Assert.assertTrue(first.isCancelled());
+		Assert.assertTrue(second.isCancelled());
+		Assert.assertEquals(0, tracker.getInFlightCount());
+
+		// The permits are given back once the requests are cancelled.
+		Assert.assertNotNull(tracker.register(new Message()));
+	}
+
+	/**
+	 * Test that prepared requests (sent within a transaction) only become
+	 * in-flight once confirmed and that the ones never confirmed (aborted
+	 * transactions) are dropped without holding a permit.
+	 * <p>
+	 * @throws Exception Thrown if a request cannot be prepared.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void preparedRequests() throws Exception
+	{
+		final RequestTracker tracker = new RequestTracker(2, 200);
+
+		// Aborted transactions: never confirmed, no permit held.
+		final Future<IMessage> aborted = tracker.prepare(new Message());
+		for (int i = 0; i < 4; i++)
+		{
+			tracker.prepare(new Message());
+		}
+		Assert.assertEquals(0, tracker.getInFlightCount());
+
+		// Committed transactions.
+		final IMessage first = new Message();
+		final Future<IMessage> firstFuture = tracker.prepare(first);
+		final IMessage second = new Message();
+		final Future<IMessage> secondFuture = tracker.prepare(second);
+		final IMessage third = new Message();
+		final Future<IMessage> thirdFuture = tracker.prepare(third);
+
+		Assert.assertTrue(tracker.confirm(first.getCorrelationId()));
+		Assert.assertTrue(tracker.confirm(second.getCorrelationId()));
+		Assert.assertEquals(2, tracker.getInFlightCount());
+
+		// No permit left, the request fails.
+		Assert.assertFalse(tracker.confirm(third.getCorrelationId()));
+		try
+		{
+			thirdFuture.get(1, TimeUnit.SECONDS);
+			Assert.fail("Request should have been rejected!");
+		}
+		catch (ExecutionException e)
+		{
+			Assert.assertTrue(e.getCause() instanceof MessageException);
+		}
+
+		// Timed out by its owner.
+		Assert.assertTrue(tracker.expire(first.getCorrelationId()));
+		try
+		{
+			firstFuture.get(1, TimeUnit.SECONDS);
+			Assert.fail("Request should have timed out!");
+		}
+		catch (ExecutionException e)
+		{
+			Assert.assertTrue(e.getCause() instanceof TimeoutException);
+		}
+
+		// A response received before the confirmation completes the request.
+		final IMessage early = new Message();
+		final Future<IMessage> earlyFuture = tracker.prepare(early);
+		final IMessage response = new Message();
+		RequestTracker.correlate(early, response);
+		Assert.assertTrue(tracker.complete(response));
+		Assert.assertSame(response, earlyFuture.get(1, TimeUnit.SECONDS));
+		Assert.assertFalse(tracker.confirm(early.getCorrelationId()));
+
+		Assert.assertTrue(tracker.expire(second.getCorrelationId()));
+		Assert.assertTrue(secondFuture.isDone());
+		Assert.assertEquals(0, tracker.getInFlightCount());
+
+		// The requests never confirmed are dropped once the timeout elapsed.
+		Thread.sleep(500);
+		tracker.prepare(new Message());
+		Assert.assertTrue(aborted.isDone());
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.base.test.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.heliosphere.drake.base.message.metrics.Histogram;
+import org.heliosphere.drake.base.message.metrics.HistogramSnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A test case for the message metrics histograms.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class HistogramTest
+{
+	/**
+	 * Test that the percentiles are within the precision of the histogram.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void percentiles()
+	{
+		final Histogram histogram = new Histogram();
+		for (long value = 1; value <= 100000; value++)
+		{
+			histogram.record(value);
+		}
+
+		final HistogramSnapshot snapshot = histogram.snapshot();
+		Assert.assertEquals(100000, snapshot.getCount());
+		Assert.assertEquals(100000, snapshot.getMax());
+		Assert.assertEquals(50000.5, snapshot.getMean(), 0.001);
+
+		final double precision = 1d / Histogram.SUB_BUCKETS;
+		Assert.assertEquals(50000, snapshot.getValueAtPercentile(50), 50000 * precision);
+		Assert.assertEquals(99000, snapshot.getValueAtPercentile(99), 99000 * precision);
+		Assert.assertEquals(100000, snapshot.getValueAtPercentile(100));
+		Assert.assertEquals(1, snapshot.getValueAtPercentile(0));
+	}
+
+	/**
+	 * Test that the values recorded by several threads are all merged.
+	 * <p>
+	 * @throws InterruptedException Thrown if the test is interrupted.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void concurrentRecording() throws InterruptedException
+	{
+		final Histogram histogram = new Histogram();
+		final List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+		{
+			final long offset = i * 1000;
+			threads.add(new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (long value = 0; value < 1000; value++)
+					{
+						histogram.record(offset + value);
+					}
+				}
+			}));
+		}
+
+		for (Thread thread : threads)
+		{
+			thread.start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		final HistogramSnapshot snapshot = histogram.snapshot();
+		Assert.assertEquals(4000, snapshot.getCount());
+		Assert.assertEquals(3999, snapshot.getMax());
+		Assert.assertEquals(3999L * 4000 / 2, snapshot.getSum());
+
+		histogram.reset();
+		Assert.assertEquals(0, histogram.snapshot().getCount());
+	}
+}
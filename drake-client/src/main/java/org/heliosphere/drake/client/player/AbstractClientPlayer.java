@@ -14,21 +14,35 @@ package org.heliosphere.drake.client.player;
 import java.io.IOException;
 import java.net.PasswordAuthentication;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
 import org.heliosphere.drake.base.manager.Manager;
 import org.heliosphere.drake.base.message.IMessage;
 import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.codec.CompressingMessageCodec;
+import org.heliosphere.drake.base.message.codec.FrameDecoder;
+import org.heliosphere.drake.base.message.codec.IDelegatingMessageCodec;
 import org.heliosphere.drake.base.message.codec.IMessageCodec;
 import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.dispatch.MessageDispatcher;
 import org.heliosphere.drake.base.message.manager.MessageManagerException;
+import org.heliosphere.drake.base.message.metrics.MessageMetrics;
+import org.heliosphere.drake.base.message.outbound.IOutboundSink;
+import org.heliosphere.drake.base.message.outbound.OutboundQueue;
+import org.heliosphere.drake.base.message.request.RequestTracker;
 import org.heliosphere.drake.base.player.AbstractPlayer;
 import org.heliosphere.drake.base.resource.bundle.ResourceBundleManager;
 import org.heliosphere.drake.client.IClient;
 import org.heliosphere.drake.client.resource.bundle.BundleClient;
 import org.heliosphere.drake.client.type.ClientPropertiesType;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sun.sgs.client.ClientChannel;
 import com.sun.sgs.client.ClientChannelListener;
 import com.sun.sgs.client.simple.SimpleClient;
@@ -44,6 +58,12 @@ import lombok.extern.log4j.Log4j;
 @Log4j
 public abstract class AbstractClientPlayer extends AbstractPlayer implements IClientPlayer
 {
+	/**
+	 * Maximum time to wait for the outbound queue to be drained when the
+	 * session is closed (in milliseconds).
+	 */
+	private static final long OUTBOUND_STOP_TIMEOUT = 1000;
+
 	/**
 	 * Client session used to communicate with the server.
 	 */
@@ -60,9 +80,25 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 	protected IClient application = null;
 
 	/**
-	 * Message codec.
+	 * Message codec of the current session (created at login).
+	 */
+	private volatile IMessageCodec codec = null;
+
+	/**
+	 * Decoder of the frames received from the server (created at login).
+	 */
+	private volatile FrameDecoder decoder = null;
+
+	/**
+	 * Tracker of the in-flight requests (created on first use).
 	 */
-	private IMessageCodec codec = null;
+	private volatile RequestTracker requests = null;
+
+	/**
+	 * Queue of the messages waiting to be written on the session (created at
+	 * login) or {@code null} if the messages are written synchronously.
+	 */
+	private volatile OutboundQueue outbound = null;
 
 	/**
 	 * Creates a new abstract player located on the client side.
@@ -76,18 +112,27 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 
 		this.application = application;
 
-		try
-		{
-			codec = Manager.getMessageManager().getMessageCodec();
-		}
-		catch (MessageManagerException e)
-		{
-			// TODO Throw an ApplicationInitializationException here!
-		}
-
 		initialize();
 	}
 
+	/**
+	 * Creates the session codec and the frame decoder. Called at each login as
+	 * the session codec holds a per session state and as the message manager
+	 * (compression, delta encoding and string dictionary settings) is only
+	 * initialized once the players have been created.
+	 * <p>
+	 * @throws MessageManagerException Thrown if the session codec cannot be
+	 * created.
+	 */
+	private final void createSessionCodec() throws MessageManagerException
+	{
+		// The session is journaled under the user name, so the players of a same application have their own journal session.
+		final IMessageCodec created = Manager.getMessageManager().createSessionCodec(authentication.getUserName());
+
+		decoder = new FrameDecoder(created);
+		codec = created;
+	}
+
 	/**
 	 * Initializes the client player.
 	 */
@@ -99,14 +144,192 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 	@Override
 	public void sendMessage(final IMessage message) throws MessageException
 	{
+		sendMessages(Collections.singletonList(message));
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public void sendMessages(final List<IMessage> messages) throws MessageException
+	{
+		// Once logged in, the messages are written by the outbound writer so the calling thread never waits for the network.
+		final OutboundQueue queue = outbound;
+		if (queue == null)
+		{
+			write(messages);
+		}
+		else if (!queue.offer(messages))
+		{
+			log.warn("Messages dropped by the outbound queue as the session is closing [count=" + messages.size() + "]");
+		}
+	}
+
+	/**
+	 * Encodes and writes messages on the session within a single frame set.
+	 * <p>
+	 * @param messages Messages to write.
+	 * @throws MessageException Thrown if the messages cannot be written.
+	 */
+	@SuppressWarnings("nls")
+	private final void write(final List<IMessage> messages) throws MessageException
+	{
+		final IMessageCodec current = codec;
+		if (current == null)
+		{
+			throw new MessageException("Cannot send messages due to: player is not logged in!");
+		}
+
+		final PooledBuffer buffer = current.encodeMessages(messages, BufferArena.getDefault());
+
 		try
 		{
-			session.send(codec.encodeMessage(message));
+			// Large messages are split into chunks so that no write exceeds the chunk size.
+			for (ByteBuffer write : Manager.getMessageManager().getMessageChunker().split(buffer.getBuffer()))
+			{
+				session.send(write);
+			}
 		}
 		catch (IOException e)
 		{
 			throw new MessageException(e);
 		}
+		finally
+		{
+			// The session copies the buffer content, it can be released as soon as the send returns.
+			buffer.release();
+		}
+	}
+
+	@Override
+	public ListenableFuture<IMessage> sendRequest(final IMessage request) throws MessageException
+	{
+		return sendRequest(request, getRequestTracker().getTimeout(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public ListenableFuture<IMessage> sendRequest(final IMessage request, final long timeout, final TimeUnit unit) throws MessageException
+	{
+		final RequestTracker tracker = getRequestTracker();
+		final ListenableFuture<IMessage> response = tracker.register(request, timeout, unit);
+
+		try
+		{
+			sendMessage(request);
+		}
+		catch (MessageException e)
+		{
+			tracker.fail(request, e);
+			throw e;
+		}
+
+		return response;
+	}
+
+	@Override
+	public void sendResponse(final IMessage request, final IMessage response) throws MessageException
+	{
+		RequestTracker.correlate(request, response);
+		sendMessage(response);
+	}
+
+	/**
+	 * Returns the tracker of the in-flight requests of the player. The tracker
+	 * is created on first use as the message manager is not yet initialized
+	 * when the player of a client application is created.
+	 * <p>
+	 * @return {@link RequestTracker}.
+	 */
+	protected final RequestTracker getRequestTracker()
+	{
+		RequestTracker tracker = requests;
+		if (tracker == null)
+		{
+			synchronized (this)
+			{
+				tracker = requests;
+				if (tracker == null)
+				{
+					tracker = Manager.getMessageManager().createRequestTracker();
+					requests = tracker;
+				}
+			}
+		}
+
+		return tracker;
+	}
+
+	/**
+	 * Returns the queue of the messages waiting to be written on the session.
+	 * <p>
+	 * @return {@link OutboundQueue} or {@code null} if the player is not
+	 * logged in or if the messages are written synchronously.
+	 */
+	public final OutboundQueue getOutboundQueue()
+	{
+		return outbound;
+	}
+
+	/**
+	 * Starts the outbound queue of the session.
+	 */
+	@SuppressWarnings("nls")
+	private final void startOutboundQueue()
+	{
+		outbound = Manager.getMessageManager().createOutboundQueue("drake-outbound-" + getName(), new IOutboundSink()
+		{
+			@Override
+			public void write(final List<IMessage> messages) throws MessageException
+			{
+				try
+				{
+					AbstractClientPlayer.this.write(messages);
+				}
+				catch (MessageException e)
+				{
+					// The senders of the requests are no longer on the stack, fail their futures instead.
+					final RequestTracker tracker = requests;
+					if (tracker != null)
+					{
+						for (IMessage message : messages)
+						{
+							if (RequestTracker.isRequest(message))
+							{
+								tracker.fail(message, e);
+							}
+						}
+					}
+					throw e;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops the outbound queue of the session, writing the messages still
+	 * waiting in the queue if the session allows it.
+	 */
+	@SuppressWarnings("nls")
+	private final void stopOutboundQueue()
+	{
+		final OutboundQueue queue = outbound;
+		if (queue == null)
+		{
+			return;
+		}
+		outbound = null;
+
+		try
+		{
+			if (!queue.stop(OUTBOUND_STOP_TIMEOUT))
+			{
+				log.warn("Outbound queue not drained in time [timeout=" + OUTBOUND_STOP_TIMEOUT + "ms]");
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		log.info("Outbound queue closed [statistics=" + queue + "]");
 	}
 
 	@Override
@@ -132,7 +355,20 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 				application.getProperty(ClientPropertiesType.ServerPortNumber));
 
 		log.info(message);
-		application.getTerminal().getDevice().printf("%s", message);
+		display(message);
+
+		try
+		{
+			createSessionCodec();
+		}
+		catch (MessageManagerException e)
+		{
+			log.error("Cannot create the session codec, logging out [reason=" + e.getMessage() + "]", e);
+			session.logout(true);
+			return;
+		}
+
+		startOutboundQueue();
 	}
 
 	@SuppressWarnings("nls")
@@ -147,7 +383,7 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 				reason);
 
 		log.error(message);
-		application.getTerminal().getDevice().printf("%s", message);
+		display(message);
 	}
 
 	@Override
@@ -158,16 +394,56 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 		return null;
 	}
 
+	@SuppressWarnings("nls")
 	@Override
 	public void receivedMessage(final ByteBuffer encoded)
 	{
-		try
+		final FrameDecoder decoder = this.decoder;
+		if (decoder == null)
 		{
-			handleMessage(codec.decodeMessage(encoded));
+			log.warn("Message received while not logged in, dropped [length=" + encoded.remaining() + "]");
+			return;
 		}
-		catch (MessageDecodingException e)
+
+		decoder.feed(encoded);
+
+		// All the messages come from the server, so they all use the same lane.
+		final MessageDispatcher dispatcher = Manager.getMessageManager().getMessageDispatcher();
+
+		/*
+		 * A frame which cannot be decoded is skipped by the decoder, so keep
+		 * on decoding until no complete frame is available.
+		 */
+		boolean available = true;
+		while (available)
 		{
-			log.error(e);
+			try
+			{
+				final IMessage message = decoder.next();
+				available = message != null;
+				if (available)
+				{
+					if (RequestTracker.isResponse(message))
+					{
+						// Responses complete the future of their request instead of being handled.
+						getRequestTracker().complete(message);
+					}
+					else if (dispatcher == null)
+					{
+						final long time = System.nanoTime();
+						handleMessage(message);
+						MessageMetrics.getInstance().recordHandled(message.getMessageType(), System.nanoTime() - time);
+					}
+					else if (!dispatcher.dispatch(this, this, message))
+					{
+						log.warn("Message dropped by the dispatcher [type=" + message.getMessageType() + "]");
+					}
+				}
+			}
+			catch (MessageDecodingException e)
+			{
+				log.error(e);
+			}
 		}
 	}
 
@@ -182,7 +458,7 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 				application.getProperty(ClientPropertiesType.ServerPortNumber));
 
 		log.info(message);
-		application.getTerminal().getDevice().printf("%s", message);
+		display(message);
 	}
 
 	@SuppressWarnings("nls")
@@ -196,7 +472,7 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 				application.getProperty(ClientPropertiesType.ServerPortNumber));
 
 		log.info(message);
-		application.getTerminal().getDevice().printf("%s", message);
+		display(message);
 	}
 
 	@SuppressWarnings("nls")
@@ -212,7 +488,32 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 				reason);
 
 		log.info(message);
-		application.getTerminal().getDevice().printf("%s", message);
+		display(message);
+
+		IMessageCodec current = codec;
+		while (current instanceof IDelegatingMessageCodec)
+		{
+			current = ((IDelegatingMessageCodec) current).getDelegate();
+		}
+
+		if (current instanceof CompressingMessageCodec)
+		{
+			log.info("Session closed [statistics=" + ((CompressingMessageCodec) current).getStatistics() + "]");
+		}
+
+		// The writer uses the session codec, so it must end before the codec is replaced.
+		stopOutboundQueue();
+
+		// No response can be received anymore for the requests sent on this session.
+		final RequestTracker tracker = requests;
+		if (tracker != null)
+		{
+			tracker.cancelAll();
+		}
+
+		// The next session starts with a new session codec, created at login.
+		codec = null;
+		decoder = null;
 	}
 
 	@SuppressWarnings("nls")
@@ -238,6 +539,19 @@ public abstract class AbstractClientPlayer extends AbstractPlayer implements ICl
 		}
 	}
 
+	/**
+	 * Displays a session event message on the terminal of the parent
+	 * application. Headless players (such as the simulated players of a load
+	 * generator) override this method as they do not have any terminal.
+	 * <p>
+	 * @param message Message to display.
+	 */
+	@SuppressWarnings("nls")
+	protected void display(final String message)
+	{
+		application.getTerminal().getDevice().printf("%s", message);
+	}
+
 	@Override
 	public void handleMessage(final IMessage message)
 	{
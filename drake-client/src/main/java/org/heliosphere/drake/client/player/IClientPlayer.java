@@ -69,7 +69,8 @@ public interface IClientPlayer extends IPlayer, SimpleClientListener
 	 * Returns the message codec used to encode and decode messages and their
 	 * content.
 	 * <p>
-	 * @return {@link IMessageCodec}.
+	 * @return {@link IMessageCodec} of the current session or {@code null} if
+	 * the player is not logged in.
 	 */
 	IMessageCodec getMessageCodec();
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.heliosphere.drake.base.codec.ICodec;
+import org.heliosphere.drake.base.codec.provider.CodecContext;
+import org.heliosphere.drake.base.codec.provider.CodecProviderRegistry;
+import org.heliosphere.drake.base.codec.provider.ICodecProvider;
+import org.heliosphere.drake.base.codec.type.CodecType;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.codec.IMessageCodec;
+import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.codec.MessageEncodingException;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+import org.heliosphere.drake.base.test.message.DrakeMessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base class of the codec benchmarks.
+ * <p>
+ * The data set created by the concrete benchmark is set as the content of an
+ * {@link DrakeMessageType#EchoMessage} which is then encoded, decoded
+ * (including its content) and round-tripped by a message codec created from
+ * the {@link ICodecProvider} of each {@link CodecType}. Codecs are created for
+ * the benchmark thread only, so the pooled codecs of the message manager are
+ * not involved.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public abstract class AbstractCodecBenchmark
+{
+	/**
+	 * Codec type (all the types when not given on the command line).
+	 */
+	@Param
+	public CodecType codec;
+
+	/**
+	 * Data sets factory.
+	 */
+	protected final CodecBenchmarkData data = new CodecBenchmarkData();
+
+	/**
+	 * Message codec.
+	 */
+	private IMessageCodec messageCodec;
+
+	/**
+	 * Message to encode.
+	 */
+	private IMessage message;
+
+	/**
+	 * Encoded form of the message to decode.
+	 */
+	private ByteBuffer encoded;
+
+	/**
+	 * Creates the codec and the message, and checks that the message survives
+	 * a round trip.
+	 * <p>
+	 * @throws Exception Thrown if the benchmark cannot be set up.
+	 */
+	@SuppressWarnings("nls")
+	@Setup(Level.Trial)
+	public final void setUp() throws Exception
+	{
+		final IMessageManager manager = CodecBenchmarkData.initialize();
+
+		final ICodecProvider provider = CodecProviderRegistry.getInstance().getProvider(codec.name());
+		if (provider == null)
+		{
+			throw new IllegalStateException("No codec provider available for codec type: " + codec);
+		}
+
+		final ICodec dataCodec = provider.createDataCodec(new CodecContext(manager.getClassCatalog(), manager, null));
+		messageCodec = provider.createMessageCodec(new CodecContext(manager.getClassCatalog(), manager, dataCodec));
+
+		final Object content = createContent();
+		message = manager.createMessage(DrakeMessageType.EchoMessage);
+		message.setContent(content);
+
+		// The encoded form returned by zero-copy codecs is reused by the next encoding.
+		final ByteBuffer buffer = messageCodec.encodeMessage(message);
+		encoded = ByteBuffer.allocate(buffer.remaining());
+		encoded.put(buffer);
+		encoded.flip();
+
+		if (!Objects.deepEquals(content, messageCodec.decodeMessage(encoded.duplicate()).getContent()))
+		{
+			throw new IllegalStateException("Decoded content differs from the encoded one for codec type: " + codec);
+		}
+	}
+
+	/**
+	 * Creates the data set to set as the message content.
+	 * <p>
+	 * @return Data set.
+	 */
+	protected abstract Object createContent();
+
+	/**
+	 * Encodes the message.
+	 * <p>
+	 * @return Encoded form of the message.
+	 * @throws MessageEncodingException Thrown if the message cannot be
+	 * encoded.
+	 */
+	@Benchmark
+	public final ByteBuffer encode() throws MessageEncodingException
+	{
+		return messageCodec.encodeMessage(message);
+	}
+
+	/**
+	 * Decodes the message and its content.
+	 * <p>
+	 * @return Decoded content.
+	 * @throws MessageDecodingException Thrown if the message cannot be
+	 * decoded.
+	 */
+	@Benchmark
+	public final Object decode() throws MessageDecodingException
+	{
+		return messageCodec.decodeMessage(encoded.duplicate()).getContent();
+	}
+
+	/**
+	 * Encodes then decodes the message and its content.
+	 * <p>
+	 * @return Decoded content.
+	 * @throws MessageEncodingException Thrown if the message cannot be
+	 * encoded.
+	 * @throws MessageDecodingException Thrown if the message cannot be
+	 * decoded.
+	 */
+	@Benchmark
+	public final Object roundTrip() throws MessageEncodingException, MessageDecodingException
+	{
+		return messageCodec.decodeMessage(messageCodec.encodeMessage(message)).getContent();
+	}
+}
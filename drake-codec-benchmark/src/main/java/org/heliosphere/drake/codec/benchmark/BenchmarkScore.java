@@ -0,0 +1,179 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.benchmark;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Score of a benchmark read from a {@code JMH} result file in {@code JSON}
+ * format.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class BenchmarkScore
+{
+	/**
+	 * Suffix of the secondary metric reported by the {@code gc} profiler for
+	 * the normalized allocation rate (bytes per operation).
+	 */
+	@SuppressWarnings("nls")
+	public static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+	/**
+	 * Key of the benchmark (name, parameters and mode).
+	 */
+	private final String key;
+
+	/**
+	 * Benchmark mode ({@code thrpt}, {@code avgt}, ...).
+	 */
+	private final String mode;
+
+	/**
+	 * Primary score.
+	 */
+	private final double score;
+
+	/**
+	 * Primary score error.
+	 */
+	private final double error;
+
+	/**
+	 * Primary score unit.
+	 */
+	private final String unit;
+
+	/**
+	 * Allocated bytes per operation ({@code NaN} if the {@code gc} profiler
+	 * was not enabled).
+	 */
+	private final double allocation;
+
+	/**
+	 * Creates a benchmark score from an element of a {@code JMH} result file.
+	 * <p>
+	 * @param result {@link JsonObject} describing a benchmark result.
+	 */
+	@SuppressWarnings("nls")
+	public BenchmarkScore(final JsonObject result)
+	{
+		final JsonObject primary = result.getAsJsonObject("primaryMetric");
+
+		this.mode = result.get("mode").getAsString();
+		this.score = primary.get("score").getAsDouble();
+		this.error = primary.has("scoreError") && primary.get("scoreError").isJsonPrimitive() ? primary.get("scoreError").getAsDouble() : Double.NaN;
+		this.unit = primary.get("scoreUnit").getAsString();
+
+		double bytes = Double.NaN;
+		if (result.has("secondaryMetrics"))
+		{
+			for (Map.Entry<String, JsonElement> entry : result.getAsJsonObject("secondaryMetrics").entrySet())
+			{
+				if (entry.getKey().endsWith(ALLOCATION_METRIC))
+				{
+					bytes = entry.getValue().getAsJsonObject().get("score").getAsDouble();
+				}
+			}
+		}
+		this.allocation = bytes;
+
+		// Parameters are sorted so that the key does not depend on the file.
+		final Map<String, String> parameters = new TreeMap<>();
+		if (result.has("params"))
+		{
+			for (Map.Entry<String, JsonElement> entry : result.getAsJsonObject("params").entrySet())
+			{
+				parameters.put(entry.getKey(), entry.getValue().getAsString());
+			}
+		}
+		this.key = result.get("benchmark").getAsString() + (parameters.isEmpty() ? "" : " " + parameters) + " (" + mode + ")";
+	}
+
+	/**
+	 * Returns the key of the benchmark (name, parameters and mode).
+	 * <p>
+	 * @return Key.
+	 */
+	public final String getKey()
+	{
+		return key;
+	}
+
+	/**
+	 * Returns the benchmark mode.
+	 * <p>
+	 * @return Mode ({@code thrpt}, {@code avgt}, ...).
+	 */
+	public final String getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * Returns the primary score.
+	 * <p>
+	 * @return Score.
+	 */
+	public final double getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * Returns the primary score error.
+	 * <p>
+	 * @return Score error or {@code NaN} if not available.
+	 */
+	public final double getError()
+	{
+		return error;
+	}
+
+	/**
+	 * Returns the primary score unit.
+	 * <p>
+	 * @return Unit.
+	 */
+	public final String getUnit()
+	{
+		return unit;
+	}
+
+	/**
+	 * Returns the allocated bytes per operation.
+	 * <p>
+	 * @return Allocated bytes or {@code NaN} if not available.
+	 */
+	public final double getAllocation()
+	{
+		return allocation;
+	}
+
+	/**
+	 * Returns if a higher score is better (throughput) or worse (time per
+	 * operation).
+	 * <p>
+	 * @return {@code True} if a higher score is better, {@code false}
+	 * otherwise.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean isHigherBetter()
+	{
+		return "thrpt".equals(mode);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+/**
+ * Compares two {@code JMH} result files (baseline and current run) written
+ * in {@code JSON} format by the {@link CodecBenchmarkRunner} and flags the
+ * regressions above a threshold.
+ * <p>
+ * A benchmark regresses when its score is worse than the baseline one by more
+ * than the threshold (lower throughput or higher time per operation), or when
+ * it allocates more than the threshold above the baseline allocation.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar}
+ * {@code org.heliosphere.drake.codec.benchmark.CodecBenchmarkComparator}
+ * {@code <baseline> <current> [threshold in percent]}. The exit status is
+ * {@code 1} when at least one regression is found.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class CodecBenchmarkComparator
+{
+	/**
+	 * Default regression threshold (in percent).
+	 */
+	public static final double DEFAULT_THRESHOLD = 10;
+
+	/**
+	 * Allocation difference (in bytes per operation) always tolerated, so
+	 * that nearly allocation free benchmarks are not flagged for a few bytes.
+	 */
+	public static final double ALLOCATION_TOLERANCE = 16;
+
+	/**
+	 * Regression threshold (in percent).
+	 */
+	private final double threshold;
+
+	/**
+	 * Creates a new comparator.
+	 * <p>
+	 * @param threshold Regression threshold (in percent).
+	 */
+	@SuppressWarnings("nls")
+	public CodecBenchmarkComparator(final double threshold)
+	{
+		Validate.isTrue(threshold >= 0, "Regression threshold cannot be negative!");
+
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Compares two result files.
+	 * <p>
+	 * @param arguments Baseline result file, current result file and optional
+	 * threshold (in percent).
+	 * @throws IOException Thrown if a result file cannot be read.
+	 */
+	@SuppressWarnings("nls")
+	public static void main(final String[] arguments) throws IOException
+	{
+		if (arguments.length < 2)
+		{
+			System.err.println("Usage: CodecBenchmarkComparator <baseline> <current> [threshold in percent, default: " + DEFAULT_THRESHOLD + "]");
+			System.exit(2);
+		}
+
+		final double threshold = arguments.length > 2 ? Double.parseDouble(arguments[2]) : DEFAULT_THRESHOLD;
+		final List<String> regressions = new CodecBenchmarkComparator(threshold).compare(load(new File(arguments[0])), load(new File(arguments[1])), System.out);
+
+		System.out.println(regressions.size() + " regression(s) above " + threshold + "%");
+		System.exit(regressions.isEmpty() ? 0 : 1);
+	}
+
+	/**
+	 * Loads the scores of a {@code JMH} result file in {@code JSON} format.
+	 * <p>
+	 * @param file Result file.
+	 * @return Scores by benchmark key.
+	 * @throws IOException Thrown if the file cannot be read.
+	 */
+	public static final Map<String, BenchmarkScore> load(final File file) throws IOException
+	{
+		final Map<String, BenchmarkScore> scores = new LinkedHashMap<>();
+
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))
+		{
+			for (JsonElement element : new JsonParser().parse(reader).getAsJsonArray())
+			{
+				final BenchmarkScore score = new BenchmarkScore(element.getAsJsonObject());
+				scores.put(score.getKey(), score);
+			}
+		}
+
+		return scores;
+	}
+
+	/**
+	 * Compares the current scores to the baseline ones.
+	 * <p>
+	 * @param baseline Baseline scores by benchmark key.
+	 * @param current Current scores by benchmark key.
+	 * @param out Stream the comparison report is printed to.
+	 * @return Descriptions of the regressions (empty if there is none).
+	 */
+	@SuppressWarnings("nls")
+	public final List<String> compare(final Map<String, BenchmarkScore> baseline, final Map<String, BenchmarkScore> current, final PrintStream out)
+	{
+		final List<String> regressions = new ArrayList<>();
+
+		for (BenchmarkScore score : current.values())
+		{
+			final BenchmarkScore reference = baseline.get(score.getKey());
+			if (reference == null)
+			{
+				out.println(String.format("NEW         %s: %.3f %s", score.getKey(), Double.valueOf(score.getScore()), score.getUnit()));
+				continue;
+			}
+
+			final double change = percent(reference.getScore(), score.getScore());
+			final boolean worse = reference.isHigherBetter() ? change < -threshold : change > threshold;
+			final boolean better = reference.isHigherBetter() ? change > threshold : change < -threshold;
+
+			String line = String.format("%s: %.3f -> %.3f %s (%+.1f%%)", score.getKey(), Double.valueOf(reference.getScore()), Double.valueOf(score.getScore()), score.getUnit(), Double.valueOf(change));
+			if (worse)
+			{
+				regressions.add(line);
+			}
+			out.println((worse ? "REGRESSION  " : better ? "IMPROVEMENT " : "OK          ") + line);
+
+			if (!Double.isNaN(reference.getAllocation()) && !Double.isNaN(score.getAllocation()))
+			{
+				final double limit = reference.getAllocation() * (1 + threshold / 100) + ALLOCATION_TOLERANCE;
+				if (score.getAllocation() > limit)
+				{
+					line = String.format("%s: %.1f -> %.1f B/op allocated", score.getKey(), Double.valueOf(reference.getAllocation()), Double.valueOf(score.getAllocation()));
+					regressions.add(line);
+					out.println("REGRESSION  " + line);
+				}
+			}
+		}
+
+		for (String key : baseline.keySet())
+		{
+			if (!current.containsKey(key))
+			{
+				out.println("MISSING     " + key);
+			}
+		}
+
+		return regressions;
+	}
+
+	/**
+	 * Returns the relative change between two scores.
+	 * <p>
+	 * @param reference Reference score.
+	 * @param value Score.
+	 * @return Change (in percent).
+	 */
+	private static final double percent(final double reference, final double value)
+	{
+		return reference == 0 ? 0 : (value - reference) * 100 / reference;
+	}
+}
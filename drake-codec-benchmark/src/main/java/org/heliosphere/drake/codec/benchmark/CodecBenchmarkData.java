@@ -0,0 +1,278 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.benchmark;
+
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.heliosphere.drake.base.codec.catalog.IClassCatalog;
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+import org.heliosphere.drake.base.message.manager.MessageManagerException;
+import org.heliosphere.drake.base.test.data.ComplexObject;
+import org.heliosphere.drake.base.test.data.DataObject;
+import org.heliosphere.drake.base.test.data.PrimitiveObject;
+import org.heliosphere.drake.base.test.message.DrakeMessageType;
+
+/**
+ * Data sets of the codec benchmarks.
+ * <p>
+ * The data sets are the ones of the {@code drake-codec} regression tests but
+ * are built from a fixed seed so that two benchmark runs encode exactly the
+ * same data and can be compared.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class CodecBenchmarkData
+{
+	/**
+	 * Seed of the random number generator.
+	 */
+	public static final long SEED = 20130101L;
+
+	/**
+	 * Number of data objects in the list of a complex object.
+	 */
+	public static final int COLLECTION_SIZE = 3;
+
+	/**
+	 * Recursivity for data object creation.
+	 */
+	public static final int RECURSIVITY = 2;
+
+	/**
+	 * Test array of strings.
+	 */
+	@SuppressWarnings("nls")
+	private static final String[] STRINGS = { "A simple test", "ïéàèäöü HJH JK iW 565675671 .:,-_", "jka ds jdahkhshda 9'3'23 {}¨!èè'?^ôîâ" };
+
+	/**
+	 * Classes of the data sets registered in the class catalog.
+	 */
+	private static final Class<?>[] CLASSES = { PrimitiveObject.class, DataObject.class, ComplexObject.class, PrimitiveObject[].class, Integer[].class, String[].class, ArrayList.class, HashSet.class, HashMap.class, MemoryType.class };
+
+	/**
+	 * Random number generator.
+	 */
+	private final Random rnd = new Random(SEED);
+
+	/**
+	 * Registers the test message protocol and the data set classes (once per
+	 * virtual machine) and returns the message manager.
+	 * <p>
+	 * @return {@link IMessageManager}.
+	 * @throws MessageManagerException Thrown if the test message protocol
+	 * cannot be registered.
+	 */
+	public static final synchronized IMessageManager initialize() throws MessageManagerException
+	{
+		final IMessageManager manager = Manager.getMessageManager();
+
+		if (!manager.isRegistered(DrakeMessageType.EchoMessage.getMessageId()))
+		{
+			manager.registerMessage(DrakeMessageType.class);
+		}
+
+		final IClassCatalog catalog = manager.getClassCatalog();
+		for (Class<?> type : CLASSES)
+		{
+			if (!catalog.isRegistered(type))
+			{
+				catalog.register(type);
+			}
+		}
+
+		return manager;
+	}
+
+	/**
+	 * Creates an object data set.
+	 * <p>
+	 * @param type {@link DataSetType}.
+	 * @return Data set.
+	 */
+	public final Object createObject(final DataSetType type)
+	{
+		switch (type)
+		{
+			case PRIMITIVE_OBJECT:
+				return createPrimitiveObject();
+
+			case DATA_OBJECT:
+				return createDataObject(RECURSIVITY);
+
+			case COMPLEX_OBJECT:
+			default:
+				return createComplexObject();
+		}
+	}
+
+	/**
+	 * Creates a collection data set.
+	 * <p>
+	 * @param shape {@link CollectionShapeType}.
+	 * @param element {@link CollectionElementType}.
+	 * @param size Number of elements.
+	 * @return Data set.
+	 */
+	public final Object createCollection(final CollectionShapeType shape, final CollectionElementType element, final int size)
+	{
+		final Object[] elements = createElements(element, size);
+
+		switch (shape)
+		{
+			case ARRAY:
+				return elements;
+
+			case LIST:
+				final List<Object> list = new ArrayList<>(size);
+				for (Object value : elements)
+				{
+					list.add(value);
+				}
+				return list;
+
+			case SET:
+				final Set<Object> set = new HashSet<>(size);
+				for (Object value : elements)
+				{
+					set.add(value);
+				}
+				return set;
+
+			case MAP:
+			default:
+				final Map<Integer, Object> map = new HashMap<>(size);
+				for (int i = 0; i < size; i++)
+				{
+					map.put(Integer.valueOf(i), elements[i]);
+				}
+				return map;
+		}
+	}
+
+	/**
+	 * Creates the elements of a collection data set.
+	 * <p>
+	 * @param element {@link CollectionElementType}.
+	 * @param size Number of elements.
+	 * @return Elements (as an array typed after the element type).
+	 */
+	private final Object[] createElements(final CollectionElementType element, final int size)
+	{
+		switch (element)
+		{
+			case INTEGER:
+				final Integer[] integers = new Integer[size];
+				for (int i = 0; i < size; i++)
+				{
+					integers[i] = Integer.valueOf(rnd.nextInt(Integer.MAX_VALUE));
+				}
+				return integers;
+
+			case STRING:
+				final String[] strings = new String[size];
+				for (int i = 0; i < size; i++)
+				{
+					// Distinct values so that sets have the requested size.
+					strings[i] = STRINGS[i % STRINGS.length] + i;
+				}
+				return strings;
+
+			case PRIMITIVE_OBJECT:
+			default:
+				final PrimitiveObject[] objects = new PrimitiveObject[size];
+				for (int i = 0; i < size; i++)
+				{
+					objects[i] = createPrimitiveObject();
+				}
+				return objects;
+		}
+	}
+
+	/**
+	 * Creates a {@code PrimitiveObject} having random values except for the
+	 * string.
+	 * <p>
+	 * @return {@link PrimitiveObject}.
+	 */
+	@SuppressWarnings("nls")
+	public final PrimitiveObject createPrimitiveObject()
+	{
+		final PrimitiveObject data = new PrimitiveObject();
+
+		data.setBoolean(rnd.nextBoolean());
+		data.setByte((byte) rnd.nextInt(Byte.MAX_VALUE));
+		data.setShort((short) rnd.nextInt(Short.MAX_VALUE));
+		data.setChar((char) rnd.nextInt(Short.MAX_VALUE));
+		data.setInteger(rnd.nextInt(Integer.MAX_VALUE));
+		data.setEnum(MemoryType.values()[rnd.nextInt(2)]);
+		data.setLong(rnd.nextLong());
+		data.setDouble(rnd.nextDouble());
+		data.setFloat(rnd.nextFloat());
+		data.setString("A simple string with special characters ,.-'90'9875642354316%&/*'`^!%&");
+
+		return data;
+	}
+
+	/**
+	 * Creates a {@code DataObject} containing 2 {@link PrimitiveObject} and,
+	 * while the recursivity level is not reached, a nested {@link DataObject}.
+	 * <p>
+	 * @param recursivity Recursivity level for object imbrication.
+	 * @return {@link DataObject}.
+	 */
+	public final DataObject createDataObject(final int recursivity)
+	{
+		final DataObject data = new DataObject();
+
+		data.setObject1(createPrimitiveObject());
+		data.setObject2(createPrimitiveObject());
+		if (recursivity > 0)
+		{
+			data.setObject3(createDataObject(recursivity - 1));
+		}
+
+		return data;
+	}
+
+	/**
+	 * Creates a {@code ComplexObject} containing a {@link PrimitiveObject}, an
+	 * {@code int}, a {@code long} and a list of {@link DataObject}.
+	 * <p>
+	 * @return {@link ComplexObject}.
+	 */
+	public final ComplexObject createComplexObject()
+	{
+		final ComplexObject data = new ComplexObject();
+
+		data.setObject(createPrimitiveObject());
+		data.setInteger(rnd.nextInt());
+		data.setLong(Long.valueOf(rnd.nextLong()));
+
+		final List<DataObject> list = new ArrayList<>(COLLECTION_SIZE);
+		for (int i = 0; i < COLLECTION_SIZE; i++)
+		{
+			list.add(createDataObject(RECURSIVITY));
+		}
+		data.setList(list);
+
+		return data;
+	}
+}
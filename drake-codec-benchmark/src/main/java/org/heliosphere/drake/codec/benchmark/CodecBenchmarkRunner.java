@@ -0,0 +1,62 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the codec benchmarks with the {@code gc} profiler (allocation rate)
+ * and writes the results in {@code JSON} format.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar [result file] [benchmark regexp]}.
+ * The result file defaults to {@value #DEFAULT_RESULT_FILE} and all the codec
+ * benchmarks are run when no regular expression is given. Two result files
+ * can be compared using the {@link CodecBenchmarkComparator}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class CodecBenchmarkRunner
+{
+	/**
+	 * Default result file.
+	 */
+	@SuppressWarnings("nls")
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	/**
+	 * Runs the codec benchmarks.
+	 * <p>
+	 * @param arguments Arguments provided on the command line.
+	 * @throws RunnerException Thrown if the benchmarks cannot be run.
+	 */
+	@SuppressWarnings("nls")
+	public static void main(final String[] arguments) throws RunnerException
+	{
+		final String result = arguments.length > 0 ? arguments[0] : DEFAULT_RESULT_FILE;
+		final String include = arguments.length > 1 ? arguments[1] : CodecBenchmarkRunner.class.getPackage().getName() + ".*Benchmark";
+
+		final Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(result)
+				.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the codecs on the collection data sets (arrays, lists, sets and
+ * maps of integers, strings and primitive objects).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public class CollectionCodecBenchmark extends AbstractCodecBenchmark
+{
+	/**
+	 * Collection shape.
+	 */
+	@Param
+	public CollectionShapeType shape;
+
+	/**
+	 * Collection element type.
+	 */
+	@Param
+	public CollectionElementType element;
+
+	/**
+	 * Number of elements.
+	 */
+	@Param({ "10", "1000" })
+	public int size;
+
+	@Override
+	protected final Object createContent()
+	{
+		return data.createCollection(shape, element, size);
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks the codecs on the object data sets ({@code PrimitiveObject},
+ * {@code DataObject} and {@code ComplexObject}).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public class ObjectCodecBenchmark extends AbstractCodecBenchmark
+{
+	/**
+	 * Data set type.
+	 */
+	@Param
+	public DataSetType dataSet;
+
+	@Override
+	protected final Object createContent()
+	{
+		return data.createObject(dataSet);
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor generating a dedicated {@code Kryo} serializer for
+ * each message data class annotated with {@code Encodable}.
+ * <p>
+ * For each annotated class, a {@code <ClassName>KryoSerializer} class is
+ * generated in the same package. The generated serializer writes the fields
+ * directly (or through their accessors for private fields) without any
+ * reflection. An index of the generated serializers is written to
+ * {@code META-INF/drake/serializers} so that they can be discovered at runtime
+ * by the {@code GeneratedSerializerRegistry}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SupportedAnnotationTypes(EncodableProcessor.ANNOTATION)
+public final class EncodableProcessor extends AbstractProcessor
+{
+	/**
+	 * Fully qualified name of the annotation processed.
+	 */
+	@SuppressWarnings("nls")
+	public static final String ANNOTATION = "org.heliosphere.drake.base.codec.annotation.Encodable";
+
+	/**
+	 * Location of the index of the generated serializers.
+	 */
+	@SuppressWarnings("nls")
+	public static final String INDEX = "META-INF/drake/serializers";
+
+	/**
+	 * Suffix of the generated serializer class names.
+	 */
+	@SuppressWarnings("nls")
+	public static final String SUFFIX = "KryoSerializer";
+
+	/**
+	 * Generated serializers by data class (sorted to get a stable index).
+	 */
+	private final Map<String, String> generated = new TreeMap<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment environment)
+	{
+		for (TypeElement annotation : annotations)
+		{
+			for (Element element : environment.getElementsAnnotatedWith(annotation))
+			{
+				if (element.getKind() != ElementKind.CLASS)
+				{
+					error(element, "@Encodable can only be put on a class");
+					continue;
+				}
+
+				process((TypeElement) element);
+			}
+		}
+
+		if (environment.processingOver() && !generated.isEmpty())
+		{
+			writeIndex();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Generates the serializer of an annotated data class.
+	 * <p>
+	 * @param type Annotated data class.
+	 */
+	@SuppressWarnings("nls")
+	private final void process(final TypeElement type)
+	{
+		if (!isValid(type))
+		{
+			return;
+		}
+
+		final List<FieldModel> fields = new ArrayList<>();
+		if (!collectFields(type, type, fields))
+		{
+			return;
+		}
+
+		final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		final String serializerName = processingEnv.getElementUtils().getBinaryName(type).toString().substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$', '_') + SUFFIX;
+		final String qualifiedName = packageName.isEmpty() ? serializerName : packageName + "." + serializerName;
+
+		final SerializerGenerator generator = new SerializerGenerator(processingEnv, type, packageName, serializerName, fields);
+		try
+		{
+			final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+			try (Writer writer = file.openWriter())
+			{
+				writer.write(generator.generate());
+			}
+		}
+		catch (final IOException e)
+		{
+			error(type, "Cannot generate serializer " + qualifiedName + ": " + e.getMessage());
+			return;
+		}
+
+		generated.put(processingEnv.getElementUtils().getBinaryName(type).toString(), qualifiedName);
+		processingEnv.getMessager().printMessage(Kind.NOTE, "Generated serializer " + qualifiedName, type);
+	}
+
+	/**
+	 * Checks that a serializer can be generated for the given class.
+	 * <p>
+	 * @param type Annotated data class.
+	 * @return {@code True} if the class is valid, {@code false} otherwise.
+	 */
+	@SuppressWarnings("nls")
+	private final boolean isValid(final TypeElement type)
+	{
+		if (type.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			error(type, "@Encodable class cannot be abstract");
+			return false;
+		}
+
+		if (type.getModifiers().contains(Modifier.PRIVATE))
+		{
+			error(type, "@Encodable class cannot be private");
+			return false;
+		}
+
+		if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))
+		{
+			error(type, "@Encodable nested class must be static");
+			return false;
+		}
+
+		if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS)
+		{
+			error(type, "@Encodable class cannot be a local or an anonymous class");
+			return false;
+		}
+
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements()))
+		{
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE))
+			{
+				return true;
+			}
+		}
+
+		error(type, "@Encodable class must declare a non-private no-argument constructor");
+
+		return false;
+	}
+
+	/**
+	 * Collects the serializable fields of a class and of its super classes.
+	 * <p>
+	 * @param root Annotated data class.
+	 * @param type Class to collect the fields of.
+	 * @param fields List to collect the fields into.
+	 * @return {@code True} if all the fields can be accessed, {@code false}
+	 * otherwise.
+	 */
+	@SuppressWarnings("nls")
+	private final boolean collectFields(final TypeElement root, final TypeElement type, final List<FieldModel> fields)
+	{
+		boolean valid = true;
+
+		// Super class fields first.
+		final TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() == TypeKind.DECLARED)
+		{
+			final TypeElement parent = (TypeElement) ((DeclaredType) superclass).asElement();
+			if (!parent.getQualifiedName().contentEquals("java.lang.Object"))
+			{
+				valid = collectFields(root, parent, fields);
+			}
+		}
+
+		final boolean samePackage = processingEnv.getElementUtils().getPackageOf(root).equals(processingEnv.getElementUtils().getPackageOf(type));
+
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+		{
+			final Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+			{
+				continue;
+			}
+
+			final String name = field.getSimpleName().toString();
+			final boolean direct = modifiers.contains(Modifier.PUBLIC) || (samePackage && !modifiers.contains(Modifier.PRIVATE));
+
+			String getter = direct ? null : findGetter(type, field);
+			String setter = direct && !modifiers.contains(Modifier.FINAL) ? null : findSetter(type, field);
+
+			if (!direct && getter == null)
+			{
+				error(field, "Field " + name + " is not accessible and has no getter, it cannot be encoded by a generated serializer (make it non-private or mark it transient)");
+				valid = false;
+				continue;
+			}
+
+			if ((!direct || modifiers.contains(Modifier.FINAL)) && setter == null)
+			{
+				error(field, "Field " + name + " is not writable and has no setter, it cannot be decoded by a generated serializer (make it non-final or mark it transient)");
+				valid = false;
+				continue;
+			}
+
+			fields.add(new FieldModel(name, field.asType(), getter == null ? "object." + name : "object." + getter + "()", setter == null ? "object." + name + " = %s;" : "object." + setter + "(%s);"));
+		}
+
+		return valid;
+	}
+
+	/**
+	 * Finds the getter of a field.
+	 * <p>
+	 * @param type Class declaring the field.
+	 * @param field Field.
+	 * @return Getter name or {@code null} if none is accessible.
+	 */
+	@SuppressWarnings("nls")
+	private final String findGetter(final TypeElement type, final VariableElement field)
+	{
+		final String suffix = capitalize(field.getSimpleName().toString());
+		final boolean bool = field.asType().getKind() == TypeKind.BOOLEAN;
+
+		for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+		{
+			final String name = method.getSimpleName().toString();
+			if (method.getParameters().isEmpty() && !method.getModifiers().contains(Modifier.PRIVATE) && (name.equals("get" + suffix) || (bool && name.equals("is" + suffix))))
+			{
+				return name;
+			}
+		}
+
+		// Accessors generated by Lombok are not visible to other processors.
+		if (hasLombok(type, field, "lombok.Data", "lombok.Value", "lombok.Getter"))
+		{
+			return (bool ? "is" : "get") + suffix;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Finds the setter of a field.
+	 * <p>
+	 * @param type Class declaring the field.
+	 * @param field Field.
+	 * @return Setter name or {@code null} if none is accessible.
+	 */
+	@SuppressWarnings("nls")
+	private final String findSetter(final TypeElement type, final VariableElement field)
+	{
+		final String name = "set" + capitalize(field.getSimpleName().toString());
+
+		for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements()))
+		{
+			if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == 1 && !method.getModifiers().contains(Modifier.PRIVATE))
+			{
+				return name;
+			}
+		}
+
+		// Accessors generated by Lombok are not visible to other processors.
+		if (!field.getModifiers().contains(Modifier.FINAL) && hasLombok(type, field, "lombok.Data", "lombok.Setter"))
+		{
+			return name;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns if the class or the field is annotated with one of the given
+	 * Lombok annotations.
+	 * <p>
+	 * @param type Class declaring the field.
+	 * @param field Field.
+	 * @param annotations Fully qualified names of the Lombok annotations.
+	 * @return {@code True} if one of the annotations is present,
+	 * {@code false} otherwise.
+	 */
+	private static final boolean hasLombok(final TypeElement type, final VariableElement field, final String... annotations)
+	{
+		for (Element element : new Element[] { type, field })
+		{
+			for (AnnotationMirror mirror : element.getAnnotationMirrors())
+			{
+				final String name = ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+				for (String annotation : annotations)
+				{
+					if (annotation.equals(name))
+					{
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Writes the index of the generated serializers.
+	 */
+	@SuppressWarnings("nls")
+	private final void writeIndex()
+	{
+		try
+		{
+			final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+			try (Writer writer = file.openWriter())
+			{
+				writer.write("# Serializers generated by the drake-codec-processor (data.class=serializer.class).\n");
+				for (Map.Entry<String, String> entry : generated.entrySet())
+				{
+					writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+				}
+			}
+		}
+		catch (final IOException e)
+		{
+			processingEnv.getMessager().printMessage(Kind.ERROR, "Cannot write the generated serializers index " + INDEX + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Reports an error.
+	 * <p>
+	 * @param element Element the error relates to.
+	 * @param message Error message.
+	 */
+	private final void error(final Element element, final String message)
+	{
+		processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+	}
+
+	/**
+	 * Capitalizes the given name.
+	 * <p>
+	 * @param name Name.
+	 * @return Capitalized name.
+	 */
+	private static final String capitalize(final String name)
+	{
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+}
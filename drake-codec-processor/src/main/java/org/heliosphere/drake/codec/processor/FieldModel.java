@@ -0,0 +1,101 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.processor;
+
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Model of a field encoded by a generated serializer.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+final class FieldModel
+{
+	/**
+	 * Field name.
+	 */
+	private final String name;
+
+	/**
+	 * Field type.
+	 */
+	private final TypeMirror type;
+
+	/**
+	 * Expression reading the field value.
+	 */
+	private final String getter;
+
+	/**
+	 * Statement pattern writing the field value ({@code %s} being replaced by
+	 * the value expression).
+	 */
+	private final String setter;
+
+	/**
+	 * Creates a new field model.
+	 * <p>
+	 * @param name Field name.
+	 * @param type Field type.
+	 * @param getter Expression reading the field value.
+	 * @param setter Statement pattern writing the field value.
+	 */
+	FieldModel(final String name, final TypeMirror type, final String getter, final String setter)
+	{
+		this.name = name;
+		this.type = type;
+		this.getter = getter;
+		this.setter = setter;
+	}
+
+	/**
+	 * Returns the field name.
+	 * <p>
+	 * @return Field name.
+	 */
+	final String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Returns the field type.
+	 * <p>
+	 * @return Field type.
+	 */
+	final TypeMirror getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Returns the expression reading the field value.
+	 * <p>
+	 * @return Getter expression.
+	 */
+	final String getGetter()
+	{
+		return getter;
+	}
+
+	/**
+	 * Returns the statement writing the given value into the field.
+	 * <p>
+	 * @param value Value expression.
+	 * @return Setter statement.
+	 */
+	final String getSetter(final String value)
+	{
+		return String.format(setter, value);
+	}
+}
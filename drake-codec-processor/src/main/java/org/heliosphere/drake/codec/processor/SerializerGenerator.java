@@ -0,0 +1,712 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/**
+ * Generator of the source code of a {@code Kryo} serializer for a data class.
+ * <p>
+ * Primitives are written straight into the {@code Kryo} output (integers and
+ * longs using a zig-zag variable length encoding), strings and boxed
+ * primitives are written with a null marker, enumerations by ordinal and
+ * collections, maps and arrays element by element with their size. Other
+ * objects are delegated to {@code Kryo}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+final class SerializerGenerator
+{
+	/**
+	 * Candidate implementations of collection interfaces (in order of
+	 * preference).
+	 */
+	private static final String[] COLLECTIONS = { "java.util.ArrayList", "java.util.HashSet", "java.util.TreeSet", "java.util.ArrayDeque", "java.util.LinkedList" };
+
+	/**
+	 * Candidate implementations of map interfaces (in order of preference).
+	 */
+	private static final String[] MAPS = { "java.util.HashMap", "java.util.TreeMap", "java.util.concurrent.ConcurrentHashMap" };
+
+	/**
+	 * Processing environment.
+	 */
+	private final ProcessingEnvironment environment;
+
+	/**
+	 * Type utilities.
+	 */
+	private final Types types;
+
+	/**
+	 * Data class.
+	 */
+	private final TypeElement type;
+
+	/**
+	 * Package of the serializer.
+	 */
+	private final String packageName;
+
+	/**
+	 * Simple name of the serializer.
+	 */
+	private final String serializerName;
+
+	/**
+	 * Fields to encode.
+	 */
+	private final List<FieldModel> fields;
+
+	/**
+	 * Static constants needed by the generated code (enumeration values).
+	 */
+	private final List<String> constants = new ArrayList<>();
+
+	/**
+	 * Counter used to generate unique local variable names.
+	 */
+	private int counter = 0;
+
+	/**
+	 * Creates a new serializer generator.
+	 * <p>
+	 * @param environment Processing environment.
+	 * @param type Data class.
+	 * @param packageName Package of the serializer.
+	 * @param serializerName Simple name of the serializer.
+	 * @param fields Fields to encode.
+	 */
+	SerializerGenerator(final ProcessingEnvironment environment, final TypeElement type, final String packageName, final String serializerName, final List<FieldModel> fields)
+	{
+		this.environment = environment;
+		this.types = environment.getTypeUtils();
+		this.type = type;
+		this.packageName = packageName;
+		this.serializerName = serializerName;
+		this.fields = fields;
+	}
+
+	/**
+	 * Generates the source code of the serializer.
+	 * <p>
+	 * @return Source code.
+	 */
+	final String generate()
+	{
+		final String dataName = type.getQualifiedName().toString();
+
+		final StringBuilder write = new StringBuilder();
+		final StringBuilder read = new StringBuilder();
+		for (FieldModel field : fields)
+		{
+			write.append("\t\t// ").append(field.getName()).append("\n");
+			appendWrite(write, field.getType(), field.getGetter(), 2);
+
+			read.append("\t\t// ").append(field.getName()).append("\n");
+			final String value = appendRead(read, field.getType(), 2);
+			line(read, 2, field.getSetter(value));
+		}
+
+		final StringBuilder source = new StringBuilder();
+		if (!packageName.isEmpty())
+		{
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("import com.esotericsoftware.kryo.Kryo;\n");
+		source.append("import com.esotericsoftware.kryo.Serializer;\n");
+		source.append("import com.esotericsoftware.kryo.io.Input;\n");
+		source.append("import com.esotericsoftware.kryo.io.Output;\n");
+		source.append("import org.heliosphere.drake.base.codec.dictionary.DictionaryStringSerializer;\n\n");
+		source.append("/**\n");
+		source.append(" * Serializer of {@link ").append(dataName).append("} generated by the\n");
+		source.append(" * drake-codec-processor. Do not edit.\n");
+		source.append(" */\n");
+		source.append("public final class ").append(serializerName).append(" extends Serializer<").append(dataName).append(">\n");
+		source.append("{\n");
+		for (String constant : constants)
+		{
+			source.append("\t").append(constant).append("\n\n");
+		}
+		source.append("\t@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		source.append("\t@Override\n");
+		source.append("\tpublic void write(final Kryo kryo, final Output output, final ").append(dataName).append(" object)\n");
+		source.append("\t{\n");
+		source.append(write);
+		source.append("\t}\n\n");
+		source.append("\t@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		source.append("\t@Override\n");
+		source.append("\tpublic ").append(dataName).append(" read(final Kryo kryo, final Input input, final Class<").append(dataName).append("> type)\n");
+		source.append("\t{\n");
+		source.append("\t\tfinal ").append(dataName).append(" object = new ").append(dataName).append("();\n");
+		source.append("\t\tkryo.reference(object);\n\n");
+		source.append(read);
+		source.append("\n\t\treturn object;\n");
+		source.append("\t}\n");
+		source.append("}\n");
+
+		return source.toString();
+	}
+
+	/**
+	 * Appends the code writing a value.
+	 * <p>
+	 * @param code Code being generated.
+	 * @param valueType Type of the value.
+	 * @param value Expression of the value.
+	 * @param indent Indentation level.
+	 */
+	private final void appendWrite(final StringBuilder code, final TypeMirror valueType, final String value, final int indent)
+	{
+		final Primitive primitive = Primitive.of(valueType, types);
+		if (valueType.getKind().isPrimitive())
+		{
+			line(code, indent, "output." + String.format(primitive.writer, value) + ";");
+			return;
+		}
+
+		if (primitive != null)
+		{
+			// Boxed primitive.
+			final String local = local();
+			line(code, indent, "final " + erasure(valueType) + " " + local + " = " + value + ";");
+			line(code, indent, "output.writeBoolean(" + local + " != null);");
+			line(code, indent, "if (" + local + " != null)");
+			line(code, indent, "{");
+			line(code, indent + 1, "output." + String.format(primitive.writer, local) + ";");
+			line(code, indent, "}");
+			return;
+		}
+
+		if (isString(valueType))
+		{
+			line(code, indent, "DictionaryStringSerializer.writeString(output, " + value + ");");
+			return;
+		}
+
+		if (isEnum(valueType))
+		{
+			final String local = local();
+			line(code, indent, "final " + erasure(valueType) + " " + local + " = " + value + ";");
+			line(code, indent, "output.writeVarInt(" + local + " == null ? 0 : " + local + ".ordinal() + 1, true);");
+			return;
+		}
+
+		if (valueType.getKind() == TypeKind.ARRAY)
+		{
+			final TypeMirror component = ((ArrayType) valueType).getComponentType();
+			final String local = local();
+			line(code, indent, "final " + erasure(valueType) + " " + local + " = " + value + ";");
+			line(code, indent, "output.writeVarInt(" + local + " == null ? 0 : " + local + ".length + 1, true);");
+			if (component.getKind() == TypeKind.BYTE)
+			{
+				line(code, indent, "if (" + local + " != null)");
+				line(code, indent, "{");
+				line(code, indent + 1, "output.writeBytes(" + local + ");");
+				line(code, indent, "}");
+				return;
+			}
+			final String index = local();
+			line(code, indent, "for (int " + index + " = 0; " + local + " != null && " + index + " < " + local + ".length; " + index + "++)");
+			line(code, indent, "{");
+			appendWriteElement(code, component, local + "[" + index + "]", indent + 1);
+			line(code, indent, "}");
+			return;
+		}
+
+		if (isCollection(valueType))
+		{
+			final String local = local();
+			final String element = local();
+			line(code, indent, "final java.util.Collection " + local + " = " + value + ";");
+			line(code, indent, "output.writeVarInt(" + local + " == null ? 0 : " + local + ".size() + 1, true);");
+			line(code, indent, "if (" + local + " != null)");
+			line(code, indent, "{");
+			line(code, indent + 1, "for (Object " + element + " : " + local + ")");
+			line(code, indent + 1, "{");
+			appendWriteElement(code, typeArgument(valueType, 0, 1), element, indent + 2);
+			line(code, indent + 1, "}");
+			line(code, indent, "}");
+			return;
+		}
+
+		if (isMap(valueType))
+		{
+			final String local = local();
+			final String element = local();
+			line(code, indent, "final java.util.Map " + local + " = " + value + ";");
+			line(code, indent, "output.writeVarInt(" + local + " == null ? 0 : " + local + ".size() + 1, true);");
+			line(code, indent, "if (" + local + " != null)");
+			line(code, indent, "{");
+			line(code, indent + 1, "for (Object " + element + " : " + local + ".entrySet())");
+			line(code, indent + 1, "{");
+			appendWriteElement(code, typeArgument(valueType, 0, 2), "((java.util.Map.Entry) " + element + ").getKey()", indent + 2);
+			appendWriteElement(code, typeArgument(valueType, 1, 2), "((java.util.Map.Entry) " + element + ").getValue()", indent + 2);
+			line(code, indent + 1, "}");
+			line(code, indent, "}");
+			return;
+		}
+
+		if (isFinalClass(valueType))
+		{
+			line(code, indent, "kryo.writeObjectOrNull(output, " + value + ", " + erasure(valueType) + ".class);");
+			return;
+		}
+
+		line(code, indent, "kryo.writeClassAndObject(output, " + value + ");");
+	}
+
+	/**
+	 * Appends the code writing an element (of a collection, a map or an array)
+	 * which static type may be {@link Object}.
+	 * <p>
+	 * @param code Code being generated.
+	 * @param elementType Type of the element.
+	 * @param value Expression of the element.
+	 * @param indent Indentation level.
+	 */
+	private final void appendWriteElement(final StringBuilder code, final TypeMirror elementType, final String value, final int indent)
+	{
+		if (elementType.getKind().isPrimitive())
+		{
+			appendWrite(code, elementType, value, indent);
+		}
+		else if (isString(elementType) || Primitive.of(elementType, types) != null)
+		{
+			appendWrite(code, elementType, "(" + erasure(elementType) + ") " + value, indent);
+		}
+		else
+		{
+			line(code, indent, "kryo.writeClassAndObject(output, " + value + ");");
+		}
+	}
+
+	/**
+	 * Appends the code reading a value into a new local variable.
+	 * <p>
+	 * @param code Code being generated.
+	 * @param valueType Type of the value.
+	 * @param indent Indentation level.
+	 * @return Name of the local variable holding the value.
+	 */
+	private final String appendRead(final StringBuilder code, final TypeMirror valueType, final int indent)
+	{
+		final String local = local();
+		final String erasure = erasure(valueType);
+		final Primitive primitive = Primitive.of(valueType, types);
+
+		if (valueType.getKind().isPrimitive())
+		{
+			line(code, indent, "final " + erasure + " " + local + " = input." + primitive.reader + ";");
+		}
+		else if (primitive != null)
+		{
+			line(code, indent, "final " + erasure + " " + local + " = input.readBoolean() ? " + erasure + ".valueOf(input." + primitive.reader + ") : null;");
+		}
+		else if (isString(valueType))
+		{
+			line(code, indent, "final String " + local + " = DictionaryStringSerializer.readString(input);");
+		}
+		else if (isEnum(valueType))
+		{
+			final String values = constant(erasure);
+			final String ordinal = local();
+			line(code, indent, "final int " + ordinal + " = input.readVarInt(true);");
+			line(code, indent, "final " + erasure + " " + local + " = " + ordinal + " == 0 ? null : " + values + "[" + ordinal + " - 1];");
+		}
+		else if (valueType.getKind() == TypeKind.ARRAY)
+		{
+			final TypeMirror component = ((ArrayType) valueType).getComponentType();
+			final String length = local();
+			line(code, indent, "final int " + length + " = input.readVarInt(true) - 1;");
+			if (component.getKind() == TypeKind.BYTE)
+			{
+				line(code, indent, "final byte[] " + local + " = " + length + " < 0 ? null : input.readBytes(" + length + ");");
+			}
+			else
+			{
+				final String index = local();
+				line(code, indent, "final " + erasure + " " + local + " = " + length + " < 0 ? null : new " + arrayAllocation(valueType, length) + ";");
+				line(code, indent, "for (int " + index + " = 0; " + index + " < " + length + "; " + index + "++)");
+				line(code, indent, "{");
+				line(code, indent + 1, local + "[" + index + "] = " + appendReadElement(code, component, indent + 1) + ";");
+				line(code, indent, "}");
+			}
+		}
+		else if (isCollection(valueType) || isMap(valueType))
+		{
+			final boolean map = isMap(valueType);
+			final String size = local();
+			final String index = local();
+			line(code, indent, "final int " + size + " = input.readVarInt(true) - 1;");
+			line(code, indent, erasure + " " + local + " = null;");
+			line(code, indent, "if (" + size + " >= 0)");
+			line(code, indent, "{");
+			final String implementation = implementation(valueType, map ? MAPS : COLLECTIONS);
+			final String container = local();
+			line(code, indent + 1, "final " + implementation + " " + container + " = new " + implementation + "();");
+			line(code, indent + 1, "for (int " + index + " = 0; " + index + " < " + size + "; " + index + "++)");
+			line(code, indent + 1, "{");
+			if (map)
+			{
+				final String key = appendReadElement(code, typeArgument(valueType, 0, 2), indent + 2);
+				final String keyLocal = local();
+				line(code, indent + 2, "final Object " + keyLocal + " = " + key + ";");
+				line(code, indent + 2, container + ".put(" + keyLocal + ", " + appendReadElement(code, typeArgument(valueType, 1, 2), indent + 2) + ");");
+			}
+			else
+			{
+				line(code, indent + 2, container + ".add(" + appendReadElement(code, typeArgument(valueType, 0, 1), indent + 2) + ");");
+			}
+			line(code, indent + 1, "}");
+			line(code, indent + 1, local + " = " + container + ";");
+			line(code, indent, "}");
+		}
+		else if (isFinalClass(valueType))
+		{
+			line(code, indent, "final " + erasure + " " + local + " = kryo.readObjectOrNull(input, " + erasure + ".class);");
+		}
+		else
+		{
+			line(code, indent, "final " + erasure + " " + local + " = (" + erasure + ") kryo.readClassAndObject(input);");
+		}
+
+		return local;
+	}
+
+	/**
+	 * Appends the code reading an element (of a collection, a map or an array)
+	 * and returns the expression of the element.
+	 * <p>
+	 * @param code Code being generated.
+	 * @param elementType Type of the element.
+	 * @param indent Indentation level.
+	 * @return Expression of the element.
+	 */
+	private final String appendReadElement(final StringBuilder code, final TypeMirror elementType, final int indent)
+	{
+		if (elementType.getKind().isPrimitive() || isString(elementType) || Primitive.of(elementType, types) != null)
+		{
+			return appendRead(code, elementType, indent);
+		}
+
+		return "(" + erasure(elementType) + ") kryo.readClassAndObject(input)";
+	}
+
+	/**
+	 * Returns the implementation to instantiate for a collection or a map.
+	 * <p>
+	 * @param valueType Declared collection or map type.
+	 * @param candidates Candidate implementations of the interfaces.
+	 * @return Fully qualified name of the implementation.
+	 */
+	private final String implementation(final TypeMirror valueType, final String[] candidates)
+	{
+		final Element element = types.asElement(valueType);
+		if (element.getKind() == ElementKind.CLASS && !element.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			return erasure(valueType);
+		}
+
+		for (String candidate : candidates)
+		{
+			final TypeElement implementation = environment.getElementUtils().getTypeElement(candidate);
+			if (implementation != null && types.isAssignable(types.erasure(implementation.asType()), types.erasure(valueType)))
+			{
+				return candidate;
+			}
+		}
+
+		environment.getMessager().printMessage(javax.tools.Diagnostic.Kind.ERROR, "No implementation found for type: " + valueType, type);
+
+		return erasure(valueType);
+	}
+
+	/**
+	 * Returns the allocation expression of an array.
+	 * <p>
+	 * @param arrayType Array type.
+	 * @param length Length expression.
+	 * @return Allocation expression (without the {@code new} keyword).
+	 */
+	private final String arrayAllocation(final TypeMirror arrayType, final String length)
+	{
+		final String erasure = erasure(arrayType);
+		final int bracket = erasure.indexOf('[');
+
+		return erasure.substring(0, bracket) + "[" + length + "]" + erasure.substring(bracket + 2);
+	}
+
+	/**
+	 * Returns a type argument of a declared type.
+	 * <p>
+	 * @param valueType Declared type.
+	 * @param index Index of the type argument.
+	 * @param count Expected number of type arguments.
+	 * @return Type argument or {@link Object} if not available.
+	 */
+	private final TypeMirror typeArgument(final TypeMirror valueType, final int index, final int count)
+	{
+		if (valueType.getKind() == TypeKind.DECLARED)
+		{
+			final List<? extends TypeMirror> arguments = ((DeclaredType) valueType).getTypeArguments();
+			if (arguments.size() == count && arguments.get(index).getKind() == TypeKind.DECLARED)
+			{
+				return arguments.get(index);
+			}
+		}
+
+		return environment.getElementUtils().getTypeElement("java.lang.Object").asType();
+	}
+
+	/**
+	 * Returns if a type is {@link String}.
+	 * <p>
+	 * @param valueType Type.
+	 * @return {@code True} if the type is {@link String}.
+	 */
+	private final boolean isString(final TypeMirror valueType)
+	{
+		return valueType.getKind() == TypeKind.DECLARED && erasure(valueType).equals("java.lang.String");
+	}
+
+	/**
+	 * Returns if a type is an enumeration.
+	 * <p>
+	 * @param valueType Type.
+	 * @return {@code True} if the type is an enumeration.
+	 */
+	private final boolean isEnum(final TypeMirror valueType)
+	{
+		return valueType.getKind() == TypeKind.DECLARED && types.asElement(valueType).getKind() == ElementKind.ENUM;
+	}
+
+	/**
+	 * Returns if a type is a collection.
+	 * <p>
+	 * @param valueType Type.
+	 * @return {@code True} if the type is a collection.
+	 */
+	private final boolean isCollection(final TypeMirror valueType)
+	{
+		return isSubtype(valueType, "java.util.Collection");
+	}
+
+	/**
+	 * Returns if a type is a map.
+	 * <p>
+	 * @param valueType Type.
+	 * @return {@code True} if the type is a map.
+	 */
+	private final boolean isMap(final TypeMirror valueType)
+	{
+		return isSubtype(valueType, "java.util.Map");
+	}
+
+	/**
+	 * Returns if a type is a sub type of the given type.
+	 * <p>
+	 * @param valueType Type.
+	 * @param parent Fully qualified name of the parent type.
+	 * @return {@code True} if the type is a sub type.
+	 */
+	private final boolean isSubtype(final TypeMirror valueType, final String parent)
+	{
+		return valueType.getKind() == TypeKind.DECLARED && types.isSubtype(types.erasure(valueType), types.erasure(environment.getElementUtils().getTypeElement(parent).asType()));
+	}
+
+	/**
+	 * Returns if a type is a final class.
+	 * <p>
+	 * @param valueType Type.
+	 * @return {@code True} if the type is a final class.
+	 */
+	private final boolean isFinalClass(final TypeMirror valueType)
+	{
+		return valueType.getKind() == TypeKind.DECLARED && types.asElement(valueType).getModifiers().contains(Modifier.FINAL);
+	}
+
+	/**
+	 * Returns the erasure of a type as source code.
+	 * <p>
+	 * @param valueType Type.
+	 * @return Erasure.
+	 */
+	private final String erasure(final TypeMirror valueType)
+	{
+		if (valueType.getKind() == TypeKind.TYPEVAR || valueType.getKind() == TypeKind.WILDCARD)
+		{
+			return "Object";
+		}
+
+		return types.erasure(valueType).toString();
+	}
+
+	/**
+	 * Declares a constant holding the values of an enumeration.
+	 * <p>
+	 * @param enumeration Fully qualified name of the enumeration.
+	 * @return Constant name.
+	 */
+	private final String constant(final String enumeration)
+	{
+		final String name = "VALUES_" + constants.size();
+		constants.add("private static final " + enumeration + "[] " + name + " = " + enumeration + ".values();");
+
+		return name;
+	}
+
+	/**
+	 * Returns a new unique local variable name.
+	 * <p>
+	 * @return Variable name.
+	 */
+	private final String local()
+	{
+		return "value" + counter++;
+	}
+
+	/**
+	 * Appends an indented line of code.
+	 * <p>
+	 * @param code Code being generated.
+	 * @param indent Indentation level.
+	 * @param line Line of code.
+	 */
+	private static final void line(final StringBuilder code, final int indent, final String line)
+	{
+		for (int i = 0; i < indent; i++)
+		{
+			code.append('\t');
+		}
+		code.append(line).append('\n');
+	}
+
+	/**
+	 * Enumeration of the primitive types (and of their boxed counterparts)
+	 * with the {@code Kryo} output and input methods used to encode them.
+	 */
+	private enum Primitive
+	{
+		/**
+		 * Boolean.
+		 */
+		BOOLEAN(TypeKind.BOOLEAN, "java.lang.Boolean", "writeBoolean(%s)", "readBoolean()"),
+
+		/**
+		 * Byte.
+		 */
+		BYTE(TypeKind.BYTE, "java.lang.Byte", "writeByte(%s)", "readByte()"),
+
+		/**
+		 * Short.
+		 */
+		SHORT(TypeKind.SHORT, "java.lang.Short", "writeShort(%s)", "readShort()"),
+
+		/**
+		 * Char.
+		 */
+		CHAR(TypeKind.CHAR, "java.lang.Character", "writeChar(%s)", "readChar()"),
+
+		/**
+		 * Integer (zig-zag variable length encoding).
+		 */
+		INT(TypeKind.INT, "java.lang.Integer", "writeVarInt(%s, false)", "readVarInt(false)"),
+
+		/**
+		 * Long (zig-zag variable length encoding).
+		 */
+		LONG(TypeKind.LONG, "java.lang.Long", "writeVarLong(%s, false)", "readVarLong(false)"),
+
+		/**
+		 * Float.
+		 */
+		FLOAT(TypeKind.FLOAT, "java.lang.Float", "writeFloat(%s)", "readFloat()"),
+
+		/**
+		 * Double.
+		 */
+		DOUBLE(TypeKind.DOUBLE, "java.lang.Double", "writeDouble(%s)", "readDouble()");
+
+		/**
+		 * Primitive kind.
+		 */
+		private final TypeKind kind;
+
+		/**
+		 * Boxed class name.
+		 */
+		private final String boxed;
+
+		/**
+		 * Output method pattern.
+		 */
+		final String writer;
+
+		/**
+		 * Input method.
+		 */
+		final String reader;
+
+		/**
+		 * Creates a new primitive.
+		 * <p>
+		 * @param kind Primitive kind.
+		 * @param boxed Boxed class name.
+		 * @param writer Output method pattern.
+		 * @param reader Input method.
+		 */
+		private Primitive(final TypeKind kind, final String boxed, final String writer, final String reader)
+		{
+			this.kind = kind;
+			this.boxed = boxed;
+			this.writer = writer;
+			this.reader = reader;
+		}
+
+		/**
+		 * Returns the primitive matching a primitive or a boxed type.
+		 * <p>
+		 * @param valueType Type.
+		 * @param types Type utilities.
+		 * @return Primitive or {@code null} if the type is neither a primitive
+		 * nor a boxed primitive.
+		 */
+		static final Primitive of(final TypeMirror valueType, final Types types)
+		{
+			final String name = valueType.getKind() == TypeKind.DECLARED ? types.erasure(valueType).toString() : null;
+			for (Primitive primitive : values())
+			{
+				if (primitive.kind == valueType.getKind() || primitive.boxed.equals(name))
+				{
+					return primitive;
+				}
+			}
+
+			return null;
+		}
+	}
+}
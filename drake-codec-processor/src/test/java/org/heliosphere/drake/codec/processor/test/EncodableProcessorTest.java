@@ -0,0 +1,240 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.codec.processor.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.heliosphere.drake.codec.processor.EncodableProcessor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A test case compiling data classes with the {@link EncodableProcessor} and
+ * checking the generated serializers.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class EncodableProcessorTest
+{
+	/**
+	 * Source of a data class using the supported kinds of fields.
+	 */
+	private static final String SAMPLE = "package sample;\n"
+			+ "import java.util.List;\n"
+			+ "import java.util.Map;\n"
+			+ "import java.util.concurrent.TimeUnit;\n"
+			+ "@org.heliosphere.drake.base.codec.annotation.Encodable\n"
+			+ "public class SampleData implements java.io.Serializable {\n"
+			+ "  public int count;\n"
+			+ "  private String name;\n"
+			+ "  public String getName() { return name; }\n"
+			+ "  public void setName(String name) { this.name = name; }\n"
+			+ "  long[] values;\n"
+			+ "  public Integer boxed;\n"
+			+ "  public TimeUnit unit;\n"
+			+ "  public List<String> tags;\n"
+			+ "  public Map<String, Integer> scores;\n"
+			+ "  public transient Object ignored;\n"
+			+ "}\n";
+
+	/**
+	 * Source of a data class having a field that cannot be accessed.
+	 */
+	private static final String INACCESSIBLE = "package sample;\n"
+			+ "@org.heliosphere.drake.base.codec.annotation.Encodable\n"
+			+ "public class HiddenData {\n"
+			+ "  private int hidden;\n"
+			+ "}\n";
+
+	/**
+	 * Test that the generated serializer compiles, is indexed and encodes
+	 * then decodes all the fields of the data class.
+	 * <p>
+	 * @throws Exception Thrown if the generated serializer cannot be used.
+	 */
+	@SuppressWarnings({ "static-method", "unchecked", "rawtypes" })
+	@Test
+	public final void generatedSerializerRoundTrip() throws Exception
+	{
+		final File output = Files.createTempDirectory("drake-processor").toFile();
+		final DiagnosticCollector<JavaFileObject> diagnostics = compile(output, "sample.SampleData", SAMPLE);
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), isSuccessful(diagnostics));
+
+		final File generated = new File(output, "sample/SampleDataKryoSerializer.java");
+		Assert.assertTrue(generated.isFile());
+		final String index = new String(Files.readAllBytes(new File(output, EncodableProcessor.INDEX).toPath()), Charset.forName("UTF-8"));
+		Assert.assertTrue(index, index.contains("sample.SampleData=sample.SampleDataKryoSerializer"));
+
+		try (URLClassLoader loader = new URLClassLoader(new URL[] { output.toURI().toURL() }, EncodableProcessorTest.class.getClassLoader()))
+		{
+			final Class data = loader.loadClass("sample.SampleData");
+			final Serializer serializer = (Serializer) loader.loadClass("sample.SampleDataKryoSerializer").newInstance();
+
+			final Object object = data.newInstance();
+			set(object, "count", Integer.valueOf(42));
+			set(object, "name", "drake");
+			set(object, "values", new long[] { 1L, -1L, Long.MAX_VALUE });
+			set(object, "boxed", null);
+			set(object, "unit", java.util.concurrent.TimeUnit.SECONDS);
+			set(object, "tags", Arrays.asList("a", null, "c"));
+			set(object, "scores", Collections.singletonMap("score", Integer.valueOf(7)));
+
+			final Kryo kryo = new Kryo();
+			kryo.register(data, serializer);
+
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (Output out = new Output(bytes))
+			{
+				kryo.writeObject(out, object);
+			}
+			final Object decoded = kryo.readObject(new Input(bytes.toByteArray()), data);
+
+			Assert.assertEquals(Integer.valueOf(42), get(decoded, "count"));
+			Assert.assertEquals("drake", get(decoded, "name"));
+			Assert.assertTrue(Arrays.equals(new long[] { 1L, -1L, Long.MAX_VALUE }, (long[]) get(decoded, "values")));
+			Assert.assertNull(get(decoded, "boxed"));
+			Assert.assertEquals(java.util.concurrent.TimeUnit.SECONDS, get(decoded, "unit"));
+			Assert.assertEquals(Arrays.asList("a", null, "c"), get(decoded, "tags"));
+			Assert.assertEquals(Collections.singletonMap("score", Integer.valueOf(7)), get(decoded, "scores"));
+		}
+	}
+
+	/**
+	 * Test that a field which can neither be read nor written is reported as
+	 * a compilation error.
+	 * <p>
+	 * @throws Exception Thrown if the compilation cannot be run.
+	 */
+	@SuppressWarnings("static-method")
+	@Test
+	public final void inaccessibleFieldIsRejected() throws Exception
+	{
+		final File output = Files.createTempDirectory("drake-processor").toFile();
+		final DiagnosticCollector<JavaFileObject> diagnostics = compile(output, "sample.HiddenData", INACCESSIBLE);
+
+		Assert.assertFalse(isSuccessful(diagnostics));
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), diagnostics.getDiagnostics().toString().contains("Field hidden is not accessible"));
+		Assert.assertFalse(new File(output, "sample/HiddenDataKryoSerializer.java").exists());
+	}
+
+	/**
+	 * Compiles a source with the annotation processor.
+	 * <p>
+	 * @param output Directory receiving the generated sources and classes.
+	 * @param name Fully qualified name of the compiled class.
+	 * @param source Source code.
+	 * @return Compilation diagnostics.
+	 * @throws IOException Thrown if the compiler cannot be set up.
+	 */
+	private static final DiagnosticCollector<JavaFileObject> compile(final File output, final String name, final String source) throws IOException
+	{
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+		try (StandardJavaFileManager manager = compiler.getStandardFileManager(diagnostics, null, Charset.forName("UTF-8")))
+		{
+			final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", output.getPath(), "-s", output.getPath());
+			final JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE)
+			{
+				@Override
+				public CharSequence getCharContent(final boolean ignoreEncodingErrors)
+				{
+					return source;
+				}
+			};
+
+			final CompilationTask task = compiler.getTask(null, manager, diagnostics, options, null, Collections.singletonList(file));
+			task.setProcessors(Collections.singletonList(new EncodableProcessor()));
+			task.call();
+		}
+
+		return diagnostics;
+	}
+
+	/**
+	 * Returns if a compilation succeeded.
+	 * <p>
+	 * @param diagnostics Compilation diagnostics.
+	 * @return {@code True} if no error has been reported.
+	 */
+	private static final boolean isSuccessful(final DiagnosticCollector<JavaFileObject> diagnostics)
+	{
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+		{
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Sets a field of an object.
+	 * <p>
+	 * @param object Object.
+	 * @param name Field name.
+	 * @param value Field value.
+	 * @throws Exception Thrown if the field cannot be set.
+	 */
+	private static final void set(final Object object, final String name, final Object value) throws Exception
+	{
+		final Field field = object.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(object, value);
+	}
+
+	/**
+	 * Returns a field of an object.
+	 * <p>
+	 * @param object Object.
+	 * @param name Field name.
+	 * @return Field value.
+	 * @throws Exception Thrown if the field cannot be read.
+	 */
+	private static final Object get(final Object object, final String name) throws Exception
+	{
+		final Field field = object.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+
+		return field.get(object);
+	}
+}
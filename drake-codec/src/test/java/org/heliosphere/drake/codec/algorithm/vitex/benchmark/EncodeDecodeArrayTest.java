@@ -119,7 +119,7 @@ public final class EncodeDecodeArrayTest extends AbstractDrakeBenchmarkTest
 		Byte[] input = new Byte[ARRAY_SIZE];
 		Byte[] output = null;
 
-		dataCodec.getSerializer().register(Byte.class);
+		dataCodec.register(Byte.class);
 
 		for (int i = 0; i < ARRAY_SIZE; i++)
 		{
@@ -281,7 +281,7 @@ public final class EncodeDecodeArrayTest extends AbstractDrakeBenchmarkTest
 		final int[] input = new int[ARRAY_SIZE];
 		int[] output = null;
 
-		dataCodec.getSerializer().register(int[].class);
+		dataCodec.register(int[].class);
 
 		for (int i = 0; i < ARRAY_SIZE; i++)
 		{
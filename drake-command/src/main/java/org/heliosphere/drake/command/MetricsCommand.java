@@ -0,0 +1,118 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.command;
+
+import java.util.List;
+
+import org.heliosphere.drake.base.application.IApplication;
+import org.heliosphere.drake.base.command.AbstractCommand;
+import org.heliosphere.drake.base.command.annotation.Command;
+import org.heliosphere.drake.base.command.annotation.Parameter;
+import org.heliosphere.drake.base.message.metrics.HistogramSnapshot;
+import org.heliosphere.drake.base.message.metrics.MessageMetrics;
+import org.heliosphere.drake.base.message.metrics.MessageTypeMetrics;
+
+/**
+ * Metrics command.
+ * <p>
+ * This command is used to display on the terminal the metrics of the message
+ * types (number of messages, timings and encoded sizes).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class MetricsCommand extends AbstractCommand
+{
+	/**
+	 * Constructs a new metrics command.
+	 * <p>
+	 * @param application Parent application.
+	 */
+	public MetricsCommand(final IApplication application)
+	{
+		super(application);
+	}
+
+	/**
+	 * Metrics command.
+	 * <p>
+	 * @param prefix Prefix of the message type names to display (all the
+	 * message types if {@code null} or empty).
+	 */
+	@SuppressWarnings("nls")
+	@Command(name = "metrics", description = "Prints the metrics of the message types", version = "1.0", author = "Heliosphere", aliases = { "stats", "m" })
+	public final void metrics(final @Parameter(name = "prefix", description = "Message type name prefix", required = false) String prefix)
+	{
+		final MessageMetrics metrics = MessageMetrics.getInstance();
+		if (!metrics.isEnabled())
+		{
+			getDevice().printf("Message metrics are disabled!\n");
+			return;
+		}
+
+		final List<MessageTypeMetrics> list = metrics.getMetrics();
+
+		getDevice().printf("Message metrics (times in microseconds, sizes in bytes):\n");
+		getDevice().printf("%-32s %10s %10s %20s %20s %20s %20s %20s\n", "type", "received", "sent", "decode p50/p99", "encode p50/p99", "handler p50/p99", "in size p50/max", "out size p50/max");
+
+		int count = 0;
+		for (MessageTypeMetrics current : list)
+		{
+			if (prefix != null && !prefix.trim().isEmpty() && !current.getName().startsWith(prefix.trim()))
+			{
+				continue;
+			}
+
+			getDevice().printf("%-32s %10d %10d %20s %20s %20s %20s %20s\n", current.getName(), Long.valueOf(current.getReceivedCount()), Long.valueOf(current.getSentCount()), formatTime(current.getDecodeTimeSnapshot()), formatTime(current.getEncodeTimeSnapshot()), formatTime(current.getHandlerTimeSnapshot()), formatSize(current.getReceivedSizeSnapshot()), formatSize(current.getSentSizeSnapshot()));
+			count++;
+		}
+
+		if (count == 0)
+		{
+			getDevice().printf("No message recorded!\n");
+		}
+	}
+
+	/**
+	 * Formats the median and 99th percentile of a time distribution.
+	 * <p>
+	 * @param snapshot {@link HistogramSnapshot} of times in nanoseconds.
+	 * @return Formatted times in microseconds.
+	 */
+	@SuppressWarnings("nls")
+	private static final String formatTime(final HistogramSnapshot snapshot)
+	{
+		if (snapshot.getCount() == 0)
+		{
+			return "-";
+		}
+
+		return String.format("%.1f/%.1f", Double.valueOf(snapshot.getValueAtPercentile(50) / 1000d), Double.valueOf(snapshot.getValueAtPercentile(99) / 1000d));
+	}
+
+	/**
+	 * Formats the median and highest value of a size distribution.
+	 * <p>
+	 * @param snapshot {@link HistogramSnapshot} of sizes in bytes.
+	 * @return Formatted sizes.
+	 */
+	@SuppressWarnings("nls")
+	private static final String formatSize(final HistogramSnapshot snapshot)
+	{
+		if (snapshot.getCount() == 0)
+		{
+			return "-";
+		}
+
+		return snapshot.getValueAtPercentile(50) + "/" + snapshot.getMax();
+	}
+}
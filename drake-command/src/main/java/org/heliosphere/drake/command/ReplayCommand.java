@@ -0,0 +1,128 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.command;
+
+import java.io.File;
+
+import lombok.extern.log4j.Log4j;
+
+import org.heliosphere.drake.base.application.IApplication;
+import org.heliosphere.drake.base.command.AbstractCommand;
+import org.heliosphere.drake.base.command.annotation.Command;
+import org.heliosphere.drake.base.command.annotation.Parameter;
+import org.heliosphere.drake.base.message.journal.JournalReader;
+import org.heliosphere.drake.base.message.journal.JournalReplayer;
+import org.heliosphere.drake.base.message.journal.SessionReplayHandler;
+import org.heliosphere.drake.base.message.journal.type.JournalDirectionType;
+import org.heliosphere.drake.base.message.journal.type.ReplayModeType;
+import org.heliosphere.drake.client.IClient;
+import org.heliosphere.drake.client.player.IClientPlayer;
+
+/**
+ * Replay command.
+ * <p>
+ * This command is used to replay a message journal. In {@code send} mode, the
+ * messages sent by a client (outbound records) are sent again to the server
+ * the player is connected to. In {@code handle} mode, the messages received by
+ * a client (inbound records) are handled again by the player. The replay runs
+ * in the background.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class ReplayCommand extends AbstractCommand
+{
+	/**
+	 * Constructs a new replay command.
+	 * <p>
+	 * @param application Parent application.
+	 */
+	public ReplayCommand(final IApplication application)
+	{
+		super(application);
+	}
+
+	/**
+	 * Replay command.
+	 * <p>
+	 * @param directory Directory of the journal segments.
+	 * @param speed Replay speed ({@code 1} for the original pace, {@code 0}
+	 * for as fast as possible).
+	 * @param mode Replay mode ({@code send} or {@code handle}).
+	 */
+	@SuppressWarnings("nls")
+	@Command(name = "replay", description = "Replays a message journal", version = "1.0", author = "Heliosphere", aliases = { "rp" })
+	public final void replay(final @Parameter(required = true) String directory, final @Parameter(required = false) String speed, final @Parameter(required = false) String mode)
+	{
+		final IClientPlayer player = ((IClient) getApplication()).getPlayer();
+
+		final ReplayModeType type;
+		final double factor;
+		try
+		{
+			type = mode == null || mode.trim().isEmpty() ? ReplayModeType.SEND : ReplayModeType.valueOf(mode.trim().toUpperCase());
+			factor = speed == null || speed.trim().isEmpty() ? 1 : Double.parseDouble(speed.trim());
+		}
+		catch (final IllegalArgumentException e)
+		{
+			getDevice().printf("Invalid replay parameters [speed=%s, mode=%s]!\n", speed, mode);
+			return;
+		}
+
+		if (type == ReplayModeType.SEND && !player.isConnected())
+		{
+			getDevice().printf("Player must be connected to replay the messages it sent!\n");
+			return;
+		}
+
+		final JournalReader reader;
+		try
+		{
+			reader = new JournalReader(new File(directory));
+		}
+		catch (final Exception e)
+		{
+			getDevice().printf("Cannot read journal: %s\n", e.getMessage());
+			return;
+		}
+
+		final JournalDirectionType direction = type == ReplayModeType.SEND ? JournalDirectionType.OUTBOUND : JournalDirectionType.INBOUND;
+		final Thread thread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				final long start = System.currentTimeMillis();
+				try
+				{
+					final long count = new JournalReplayer(reader, factor).replay(new SessionReplayHandler(direction, player, type));
+					getDevice().printf("Journal replayed [records=%d, duration=%dms]\n", Long.valueOf(count), Long.valueOf(System.currentTimeMillis() - start));
+				}
+				catch (final Exception e)
+				{
+					log.error("Cannot replay journal due to: " + e.getMessage(), e);
+					getDevice().printf("Cannot replay journal: %s\n", e.getMessage());
+				}
+				finally
+				{
+					reader.close();
+				}
+			}
+		}, "journal-replay");
+
+		thread.setDaemon(true);
+		thread.start();
+
+		getDevice().printf("Replaying journal [segments=%d, speed=%s, mode=%s]\n", Integer.valueOf(reader.getSegments().size()), Double.valueOf(factor), type);
+	}
+}
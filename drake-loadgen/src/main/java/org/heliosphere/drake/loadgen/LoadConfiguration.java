@@ -0,0 +1,226 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen;
+
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Settings of a load generation run, read from the load generator properties
+ * file.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@SuppressWarnings("nls")
+public final class LoadConfiguration
+{
+	/**
+	 * Root of the load generator properties.
+	 */
+	public static final String PROPERTY_ROOT = "org.heliosphere.drake.loadgen.";
+
+	/**
+	 * Property defining the number of simulated players.
+	 */
+	public static final String PROPERTY_PLAYERS = PROPERTY_ROOT + "players";
+
+	/**
+	 * Property defining the ramp-up duration (in milliseconds) over which the
+	 * players are started.
+	 */
+	public static final String PROPERTY_RAMP_UP = PROPERTY_ROOT + "rampup";
+
+	/**
+	 * Property defining the scenario run by each player.
+	 */
+	public static final String PROPERTY_SCENARIO = PROPERTY_ROOT + "scenario";
+
+	/**
+	 * Property defining the maximum duration (in milliseconds) of the run
+	 * ({@code 0} to wait for all the scenarios to end).
+	 */
+	public static final String PROPERTY_DURATION = PROPERTY_ROOT + "duration";
+
+	/**
+	 * Property defining the interval (in milliseconds) between two reports.
+	 */
+	public static final String PROPERTY_REPORT_INTERVAL = PROPERTY_ROOT + "report.interval";
+
+	/**
+	 * Property defining the number of threads running the scenarios.
+	 */
+	public static final String PROPERTY_THREADS = PROPERTY_ROOT + "threads";
+
+	/**
+	 * Property defining the prefix of the player identifiers (followed by the
+	 * player number).
+	 */
+	public static final String PROPERTY_USER_PREFIX = PROPERTY_ROOT + "user.prefix";
+
+	/**
+	 * Property defining the password of the players.
+	 */
+	public static final String PROPERTY_USER_PASSWORD = PROPERTY_ROOT + "user.password";
+
+	/**
+	 * Default scenario.
+	 */
+	public static final String DEFAULT_SCENARIO = "login;echo:100:50;idle:5000;burst:200";
+
+	/**
+	 * Number of simulated players.
+	 */
+	private final int players;
+
+	/**
+	 * Ramp-up duration (in milliseconds).
+	 */
+	private final long rampUp;
+
+	/**
+	 * Scenario definition.
+	 */
+	private final String scenario;
+
+	/**
+	 * Maximum duration of the run (in milliseconds).
+	 */
+	private final long duration;
+
+	/**
+	 * Interval between two reports (in milliseconds).
+	 */
+	private final long reportInterval;
+
+	/**
+	 * Number of threads running the scenarios.
+	 */
+	private final int threads;
+
+	/**
+	 * Prefix of the player identifiers.
+	 */
+	private final String userPrefix;
+
+	/**
+	 * Password of the players.
+	 */
+	private final String userPassword;
+
+	/**
+	 * Creates a new load configuration.
+	 * <p>
+	 * @param configuration {@link Configuration} holding the load generator
+	 * properties.
+	 */
+	public LoadConfiguration(final Configuration configuration)
+	{
+		Validate.notNull(configuration, "Configuration cannot be null!");
+
+		players = configuration.getInt(PROPERTY_PLAYERS, 100);
+		rampUp = configuration.getLong(PROPERTY_RAMP_UP, 10000);
+		scenario = configuration.getString(PROPERTY_SCENARIO, DEFAULT_SCENARIO);
+		duration = configuration.getLong(PROPERTY_DURATION, 0);
+		reportInterval = configuration.getLong(PROPERTY_REPORT_INTERVAL, 5000);
+		threads = configuration.getInt(PROPERTY_THREADS, Runtime.getRuntime().availableProcessors());
+		userPrefix = configuration.getString(PROPERTY_USER_PREFIX, "loadgen");
+		userPassword = configuration.getString(PROPERTY_USER_PASSWORD, "loadgen");
+
+		Validate.isTrue(players > 0, "Number of players must be greater than zero!");
+		Validate.isTrue(rampUp >= 0, "Ramp-up duration cannot be negative!");
+		Validate.isTrue(duration >= 0, "Run duration cannot be negative!");
+		Validate.isTrue(reportInterval > 0, "Report interval must be greater than zero!");
+		Validate.isTrue(threads > 0, "Number of threads must be greater than zero!");
+	}
+
+	/**
+	 * Returns the number of simulated players.
+	 * <p>
+	 * @return Number of players.
+	 */
+	public final int getPlayers()
+	{
+		return players;
+	}
+
+	/**
+	 * Returns the ramp-up duration.
+	 * <p>
+	 * @return Ramp-up duration in milliseconds.
+	 */
+	public final long getRampUp()
+	{
+		return rampUp;
+	}
+
+	/**
+	 * Returns the scenario definition.
+	 * <p>
+	 * @return Scenario definition.
+	 */
+	public final String getScenario()
+	{
+		return scenario;
+	}
+
+	/**
+	 * Returns the maximum duration of the run.
+	 * <p>
+	 * @return Duration in milliseconds ({@code 0} if unbounded).
+	 */
+	public final long getDuration()
+	{
+		return duration;
+	}
+
+	/**
+	 * Returns the interval between two reports.
+	 * <p>
+	 * @return Interval in milliseconds.
+	 */
+	public final long getReportInterval()
+	{
+		return reportInterval;
+	}
+
+	/**
+	 * Returns the number of threads running the scenarios.
+	 * <p>
+	 * @return Number of threads.
+	 */
+	public final int getThreads()
+	{
+		return threads;
+	}
+
+	/**
+	 * Returns the identifier of a player.
+	 * <p>
+	 * @param number Player number.
+	 * @return Player identifier.
+	 */
+	public final String getUserIdentifier(final int number)
+	{
+		return userPrefix + number;
+	}
+
+	/**
+	 * Returns the password of the players.
+	 * <p>
+	 * @return Password.
+	 */
+	public final String getUserPassword()
+	{
+		return userPassword;
+	}
+}
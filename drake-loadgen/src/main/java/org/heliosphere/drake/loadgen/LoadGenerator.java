@@ -0,0 +1,181 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.client.Client;
+import org.heliosphere.drake.client.IClient;
+import org.heliosphere.drake.loadgen.behaviour.Scenario;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Load generator running a swarm of headless {@link SimulatedPlayer}s against
+ * a Drake server.
+ * <p>
+ * The players share the client application (and so its message manager and
+ * server settings) and are started over the ramp-up duration. Each player
+ * runs the configured {@link Scenario} and the {@link LoadStatistics} (players,
+ * throughput, error rate and latency percentiles) are reported periodically.
+ * <p>
+ * Usage: {@code java -Ddrake.client.properties=<client properties> -jar loadgen.jar [loadgen properties]}.
+ * The load generator properties file defaults to {@value #DEFAULT_PROPERTIES}
+ * (or to the file given by the {@code drake.loadgen.properties} system
+ * property).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class LoadGenerator
+{
+	/**
+	 * Default load generator properties file.
+	 */
+	@SuppressWarnings("nls")
+	public static final String DEFAULT_PROPERTIES = "conf/loadgen.properties";
+
+	/**
+	 * Client application shared by the simulated players.
+	 */
+	private final IClient client;
+
+	/**
+	 * Settings of the run.
+	 */
+	private final LoadConfiguration configuration;
+
+	/**
+	 * Statistics of the run.
+	 */
+	private final LoadStatistics statistics = new LoadStatistics();
+
+	/**
+	 * Launches the load generator.
+	 * <p>
+	 * @param arguments Arguments provided on the command line.
+	 * @throws ConfigurationException Thrown if the load generator properties
+	 * cannot be read.
+	 * @throws InterruptedException Thrown if the run is interrupted.
+	 */
+	@SuppressWarnings("nls")
+	public static void main(final String[] arguments) throws ConfigurationException, InterruptedException
+	{
+		final String filename = arguments.length > 0 ? arguments[0] : System.getProperty("drake.loadgen.properties", DEFAULT_PROPERTIES);
+
+		new LoadGenerator(new Client(), new LoadConfiguration(new PropertiesConfiguration(filename))).run();
+
+		// The client sessions use non daemon threads.
+		System.exit(0);
+	}
+
+	/**
+	 * Creates a new load generator.
+	 * <p>
+	 * @param client {@link IClient} shared by the simulated players.
+	 * @param configuration {@link LoadConfiguration} of the run.
+	 */
+	@SuppressWarnings("nls")
+	public LoadGenerator(final IClient client, final LoadConfiguration configuration)
+	{
+		Validate.notNull(client, "Client application cannot be null!");
+		Validate.notNull(configuration, "Load configuration cannot be null!");
+
+		this.client = client;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Runs the load generation and waits for all the scenarios to end (or for
+	 * the maximum duration of the run to elapse).
+	 * <p>
+	 * @throws InterruptedException Thrown if the run is interrupted.
+	 */
+	@SuppressWarnings("nls")
+	public final void run() throws InterruptedException
+	{
+		final Scenario scenario = Scenario.parse(configuration.getScenario());
+		final int count = configuration.getPlayers();
+		final long interval = configuration.getReportInterval();
+
+		final CountDownLatch latch = new CountDownLatch(count);
+		final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(configuration.getThreads());
+		final List<ScenarioRunner> runners = new ArrayList<>(count);
+
+		log.info("Load generation started [players=" + count + ", rampUp=" + configuration.getRampUp() + "ms, scenario=" + scenario + "]");
+
+		final ScheduledFuture<?> reporter = executor.scheduleAtFixedRate(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				log.info(statistics.report());
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+
+		// Players are started evenly over the ramp-up duration.
+		for (int i = 0; i < count; i++)
+		{
+			final SimulatedPlayer player = new SimulatedPlayer(client, statistics, configuration.getUserIdentifier(i), configuration.getUserPassword());
+			final ScenarioRunner runner = new ScenarioRunner(player, scenario, executor, statistics, latch);
+			runners.add(runner);
+			executor.schedule(runner, configuration.getRampUp() * i / count, TimeUnit.MILLISECONDS);
+		}
+
+		boolean completed = true;
+		if (configuration.getDuration() == 0)
+		{
+			latch.await();
+		}
+		else
+		{
+			completed = latch.await(configuration.getDuration(), TimeUnit.MILLISECONDS);
+		}
+
+		reporter.cancel(false);
+
+		if (!completed)
+		{
+			for (ScenarioRunner runner : runners)
+			{
+				if (!runner.isFinished())
+				{
+					runner.cancel();
+				}
+			}
+		}
+
+		executor.shutdownNow();
+		executor.awaitTermination(interval, TimeUnit.MILLISECONDS);
+
+		log.info("Load generation ended [completed=" + completed + "] " + statistics.report());
+	}
+
+	/**
+	 * Returns the statistics of the run.
+	 * <p>
+	 * @return {@link LoadStatistics}.
+	 */
+	public final LoadStatistics getStatistics()
+	{
+		return statistics;
+	}
+}
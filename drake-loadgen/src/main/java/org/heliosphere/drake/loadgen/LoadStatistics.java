@@ -0,0 +1,282 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.heliosphere.drake.base.message.metrics.Histogram;
+import org.heliosphere.drake.base.message.metrics.HistogramSnapshot;
+
+/**
+ * Statistics of a load generation run, shared by all the simulated players.
+ * <p>
+ * Latencies are recorded in nanoseconds in {@link Histogram}s (cumulated
+ * since the start of the run) while the throughputs of a report are computed
+ * over the interval elapsed since the previous report.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class LoadStatistics
+{
+	/**
+	 * Login latencies (from the login request to the login acknowledgement).
+	 */
+	private final Histogram login = new Histogram();
+
+	/**
+	 * Round trip times of the echo requests answered by the server.
+	 */
+	private final Histogram roundTrip = new Histogram();
+
+	/**
+	 * Send times (queuing, or encoding and writing when the players have no
+	 * outbound queue, of a batch of messages).
+	 */
+	private final Histogram send = new Histogram();
+
+	/**
+	 * Number of started players.
+	 */
+	private final AtomicLong started = new AtomicLong();
+
+	/**
+	 * Number of currently connected players.
+	 */
+	private final AtomicLong connected = new AtomicLong();
+
+	/**
+	 * Number of players having completed (or aborted) their scenario.
+	 */
+	private final AtomicLong finished = new AtomicLong();
+
+	/**
+	 * Number of failed (or timed out) logins.
+	 */
+	private final AtomicLong loginFailures = new AtomicLong();
+
+	/**
+	 * Number of unexpected disconnections.
+	 */
+	private final AtomicLong disconnections = new AtomicLong();
+
+	/**
+	 * Number of send errors.
+	 */
+	private final AtomicLong errors = new AtomicLong();
+
+	/**
+	 * Number of sent messages.
+	 */
+	private final AtomicLong sent = new AtomicLong();
+
+	/**
+	 * Number of received messages.
+	 */
+	private final AtomicLong received = new AtomicLong();
+
+	/**
+	 * Time (in nanoseconds) of the start of the run.
+	 */
+	private final long start = System.nanoTime();
+
+	/**
+	 * Time (in nanoseconds) of the previous report.
+	 */
+	private long lastTime = start;
+
+	/**
+	 * Number of sent messages at the previous report.
+	 */
+	private long lastSent = 0;
+
+	/**
+	 * Number of received messages at the previous report.
+	 */
+	private long lastReceived = 0;
+
+	/**
+	 * Records the start of a player.
+	 */
+	public final void recordStarted()
+	{
+		started.incrementAndGet();
+	}
+
+	/**
+	 * Records the end of the scenario of a player.
+	 */
+	public final void recordFinished()
+	{
+		finished.incrementAndGet();
+	}
+
+	/**
+	 * Records a successful login.
+	 * <p>
+	 * @param latency Login latency (in nanoseconds).
+	 */
+	public final void recordLogin(final long latency)
+	{
+		connected.incrementAndGet();
+		login.record(latency);
+	}
+
+	/**
+	 * Records a failed or timed out login.
+	 */
+	public final void recordLoginFailure()
+	{
+		loginFailures.incrementAndGet();
+	}
+
+	/**
+	 * Records the disconnection of a logged in player.
+	 * <p>
+	 * @param expected {@code True} if the disconnection has been requested by
+	 * the load generator, {@code false} otherwise.
+	 */
+	public final void recordDisconnection(final boolean expected)
+	{
+		connected.decrementAndGet();
+		if (!expected)
+		{
+			disconnections.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Records a batch of sent messages.
+	 * <p>
+	 * @param count Number of messages.
+	 * @param duration Time (in nanoseconds) taken to encode and write the
+	 * messages.
+	 */
+	public final void recordSent(final int count, final long duration)
+	{
+		sent.addAndGet(count);
+		send.record(duration);
+	}
+
+	/**
+	 * Records a send error.
+	 */
+	public final void recordError()
+	{
+		errors.incrementAndGet();
+	}
+
+	/**
+	 * Records a received message.
+	 */
+	public final void recordReceived()
+	{
+		received.incrementAndGet();
+	}
+
+	/**
+	 * Records the round trip time of an echo request.
+	 * <p>
+	 * @param duration Round trip time (in nanoseconds).
+	 */
+	public final void recordRoundTrip(final long duration)
+	{
+		roundTrip.record(duration);
+	}
+
+	/**
+	 * Returns the number of players having completed their scenario.
+	 * <p>
+	 * @return Number of finished players.
+	 */
+	public final long getFinishedCount()
+	{
+		return finished.get();
+	}
+
+	/**
+	 * Builds a report of the statistics. The throughputs are computed since the
+	 * previous report, so this method must be called by a single thread.
+	 * <p>
+	 * @return Report.
+	 */
+	@SuppressWarnings("nls")
+	public final String report()
+	{
+		final long now = System.nanoTime();
+		final long currentSent = sent.get();
+		final long currentReceived = received.get();
+		final double seconds = Math.max(now - lastTime, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+
+		final double sentRate = (currentSent - lastSent) / seconds;
+		final double receivedRate = (currentReceived - lastReceived) / seconds;
+
+		lastTime = now;
+		lastSent = currentSent;
+		lastReceived = currentReceived;
+
+		final long failures = loginFailures.get() + disconnections.get() + errors.get();
+		final long operations = started.get() + currentSent;
+		final double errorRate = operations == 0 ? 0 : 100.0 * failures / operations;
+
+		return String.format(
+				"elapsed=%ds players[started=%d, connected=%d, finished=%d] throughput[sent=%.1f/s, received=%.1f/s] errors[login=%d, disconnection=%d, send=%d, rate=%.2f%%] login%s roundTrip%s send%s",
+				Long.valueOf(TimeUnit.NANOSECONDS.toSeconds(now - start)),
+				Long.valueOf(started.get()),
+				Long.valueOf(connected.get()),
+				Long.valueOf(finished.get()),
+				Double.valueOf(sentRate),
+				Double.valueOf(receivedRate),
+				Long.valueOf(loginFailures.get()),
+				Long.valueOf(disconnections.get()),
+				Long.valueOf(errors.get()),
+				Double.valueOf(errorRate),
+				format(login.snapshot()),
+				format(roundTrip.snapshot()),
+				format(send.snapshot()));
+	}
+
+	/**
+	 * Formats the percentiles of a histogram snapshot in milliseconds.
+	 * <p>
+	 * @param snapshot {@link HistogramSnapshot}.
+	 * @return Formatted percentiles.
+	 */
+	@SuppressWarnings("nls")
+	private static String format(final HistogramSnapshot snapshot)
+	{
+		if (snapshot.getCount() == 0)
+		{
+			return "[count=0]";
+		}
+
+		return String.format(
+				"[count=%d, p50=%.2fms, p90=%.2fms, p99=%.2fms, max=%.2fms]",
+				Long.valueOf(snapshot.getCount()),
+				Double.valueOf(toMillis(snapshot.getValueAtPercentile(50))),
+				Double.valueOf(toMillis(snapshot.getValueAtPercentile(90))),
+				Double.valueOf(toMillis(snapshot.getValueAtPercentile(99))),
+				Double.valueOf(toMillis(snapshot.getMax())));
+	}
+
+	/**
+	 * Converts nanoseconds to milliseconds.
+	 * <p>
+	 * @param nanos Duration in nanoseconds.
+	 * @return Duration in milliseconds.
+	 */
+	private static double toMillis(final long nanos)
+	{
+		return nanos / 1000000.0;
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.heliosphere.drake.loadgen.behaviour.IBehaviour;
+import org.heliosphere.drake.loadgen.behaviour.Scenario;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Task running the scenario of a simulated player.
+ * <p>
+ * Each execution runs the steps of the scenario until a step asks for a
+ * delay, then the task schedules itself again on the shared executor, so a
+ * few threads are enough to drive thousands of players. A task is never
+ * executed concurrently with itself.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class ScenarioRunner implements Runnable
+{
+	/**
+	 * Simulated player.
+	 */
+	private final SimulatedPlayer player;
+
+	/**
+	 * Behaviours of the scenario.
+	 */
+	private final List<IBehaviour> behaviours;
+
+	/**
+	 * Executor running the scenario tasks.
+	 */
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * Statistics of the run.
+	 */
+	private final LoadStatistics statistics;
+
+	/**
+	 * Latch counted down when the scenario ends.
+	 */
+	private final CountDownLatch latch;
+
+	/**
+	 * Index of the current behaviour.
+	 */
+	private int index = 0;
+
+	/**
+	 * Step of the current behaviour.
+	 */
+	private int step = 0;
+
+	/**
+	 * Has the scenario been started?
+	 */
+	private boolean started = false;
+
+	/**
+	 * Has the scenario ended?
+	 */
+	private volatile boolean finished = false;
+
+	/**
+	 * Has the run been stopped?
+	 */
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Creates a new scenario runner.
+	 * <p>
+	 * @param player {@link SimulatedPlayer} running the scenario.
+	 * @param scenario {@link Scenario} to run.
+	 * @param executor {@link ScheduledExecutorService} running the tasks.
+	 * @param statistics {@link LoadStatistics} of the run.
+	 * @param latch {@link CountDownLatch} counted down when the scenario ends.
+	 */
+	public ScenarioRunner(final SimulatedPlayer player, final Scenario scenario, final ScheduledExecutorService executor, final LoadStatistics statistics, final CountDownLatch latch)
+	{
+		this.player = player;
+		this.behaviours = scenario.getBehaviours();
+		this.executor = executor;
+		this.statistics = statistics;
+		this.latch = latch;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final void run()
+	{
+		if (finished)
+		{
+			return;
+		}
+
+		if (!started)
+		{
+			started = true;
+			statistics.recordStarted();
+		}
+
+		try
+		{
+			while (!cancelled && index < behaviours.size())
+			{
+				final long delay = behaviours.get(index).execute(player, step);
+
+				if (delay == IBehaviour.ABORT)
+				{
+					break;
+				}
+
+				if (delay == IBehaviour.DONE)
+				{
+					index++;
+					step = 0;
+				}
+				else
+				{
+					step++;
+					executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+
+					return;
+				}
+			}
+		}
+		catch (RejectedExecutionException e)
+		{
+			// The executor has been shut down.
+		}
+		catch (RuntimeException e)
+		{
+			log.error("Scenario failed [player=" + player.getName() + ", behaviour=" + behaviours.get(index) + "]", e);
+			statistics.recordError();
+		}
+
+		finish();
+	}
+
+	/**
+	 * Stops the scenario. The player is disconnected and the scenario ends at
+	 * its next step.
+	 */
+	public final void cancel()
+	{
+		cancelled = true;
+		player.disconnect();
+	}
+
+	/**
+	 * Returns if the scenario has ended.
+	 * <p>
+	 * @return {@code True} if the scenario has ended, {@code false} otherwise.
+	 */
+	public final boolean isFinished()
+	{
+		return finished;
+	}
+
+	/**
+	 * Ends the scenario: disconnects the player and counts the latch down.
+	 */
+	private final void finish()
+	{
+		finished = true;
+		player.disconnect();
+		statistics.recordFinished();
+		latch.countDown();
+	}
+}
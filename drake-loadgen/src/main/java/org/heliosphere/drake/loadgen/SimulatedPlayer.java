@@ -0,0 +1,330 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+import org.heliosphere.drake.base.message.manager.MessageManagerException;
+import org.heliosphere.drake.base.message.request.RequestTracker;
+import org.heliosphere.drake.client.IClient;
+import org.heliosphere.drake.client.player.AbstractClientPlayer;
+import org.heliosphere.drake.message.type.DrakeMessageType;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * A headless client player driven by a load generation scenario.
+ * <p>
+ * The player records its login latency and its sent and received messages
+ * in the shared {@link LoadStatistics}. The echo messages it sends are
+ * requests (see {@link RequestTracker}) answered by the server, so that the
+ * round trip time is measured when the response completes the request; other
+ * received messages are only counted.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public class SimulatedPlayer extends AbstractClientPlayer
+{
+	/**
+	 * Prefix of the content of the echo messages sent by the simulated
+	 * players, followed by the send time (in nanoseconds) so that they can be
+	 * told apart in the server logs.
+	 */
+	@SuppressWarnings("nls")
+	public static final String PROBE_PREFIX = "loadgen:";
+
+	/**
+	 * Statistics of the run.
+	 */
+	private final LoadStatistics statistics;
+
+	/**
+	 * Player identifier.
+	 */
+	private final String identifier;
+
+	/**
+	 * Player password.
+	 */
+	private final String password;
+
+	/**
+	 * Time (in nanoseconds) of the login request.
+	 */
+	private volatile long loginStartTime;
+
+	/**
+	 * Is the player logged in?
+	 */
+	private volatile boolean loggedIn = false;
+
+	/**
+	 * Has the login failed?
+	 */
+	private volatile boolean loginFailed = false;
+
+	/**
+	 * Has the disconnection been requested by the load generator?
+	 */
+	private volatile boolean stopping = false;
+
+	/**
+	 * Creates a new simulated player.
+	 * <p>
+	 * @param application {@link IClient} being the parent application.
+	 * @param statistics {@link LoadStatistics} of the run.
+	 * @param identifier Player identifier.
+	 * @param password Player password.
+	 */
+	@SuppressWarnings("nls")
+	public SimulatedPlayer(final IClient application, final LoadStatistics statistics, final String identifier, final String password)
+	{
+		super(application);
+
+		Validate.notNull(statistics, "Load statistics cannot be null!");
+		Validate.notEmpty(identifier, "Player identifier cannot be null or empty!");
+
+		this.statistics = statistics;
+		this.identifier = identifier;
+		this.password = password;
+	}
+
+	/**
+	 * Requests the login of the player. The login completes asynchronously.
+	 * <p>
+	 * @return {@code True} if the login has been requested, {@code false} if
+	 * the login request failed.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean login()
+	{
+		loginStartTime = System.nanoTime();
+		loginFailed = false;
+
+		try
+		{
+			connect(identifier, password);
+
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.debug("Login request failed [player=" + identifier + ", cause=" + e.getMessage() + "]");
+			loginFailed = true;
+			statistics.recordLoginFailure();
+
+			return false;
+		}
+	}
+
+	/**
+	 * Flags the login as timed out.
+	 */
+	public final void loginTimedOut()
+	{
+		loginFailed = true;
+		statistics.recordLoginFailure();
+	}
+
+	/**
+	 * Sends echo requests to the server, encoded and written at once (by the
+	 * outbound writer when the player has an outbound queue). Each request is
+	 * registered before being sent, its round trip time is recorded when its
+	 * response is received.
+	 * <p>
+	 * @param count Number of messages to send.
+	 * @return {@code True} if the messages have been sent, {@code false}
+	 * otherwise.
+	 */
+	@SuppressWarnings("nls")
+	public final boolean sendEcho(final int count)
+	{
+		final IMessageManager manager = Manager.getMessageManager();
+		final RequestTracker tracker = getRequestTracker();
+		final List<IMessage> messages = new ArrayList<>(count);
+
+		// Queued messages are encoded later by the outbound writer, so they cannot be returned to the pool here.
+		final boolean pooled = getOutboundQueue() == null;
+
+		try
+		{
+			for (int i = 0; i < count; i++)
+			{
+				final IMessage message = pooled ? manager.acquireMessage(DrakeMessageType.EchoMessage) : manager.createMessage(DrakeMessageType.EchoMessage);
+				messages.add(message);
+				message.setContent(PROBE_PREFIX + System.nanoTime());
+				track(tracker.register(message), System.nanoTime());
+			}
+
+			final long time = System.nanoTime();
+			sendMessages(messages);
+			statistics.recordSent(count, System.nanoTime() - time);
+
+			return true;
+		}
+		catch (MessageManagerException | MessageException e)
+		{
+			log.debug("Cannot send echo messages [player=" + identifier + ", cause=" + e.getMessage() + "]");
+			statistics.recordError();
+
+			// The requests not sent will never be answered.
+			for (IMessage message : messages)
+			{
+				tracker.fail(message, e);
+			}
+
+			return false;
+		}
+		finally
+		{
+			if (pooled)
+			{
+				for (IMessage message : messages)
+				{
+					manager.releaseMessage(message);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the round trip time of an echo request when its response is
+	 * received. A request timing out is counted as an error, a request
+	 * cancelled by the disconnection is ignored.
+	 * <p>
+	 * @param response {@link ListenableFuture} completed by the response.
+	 * @param sent Time (in nanoseconds) at which the request has been sent.
+	 */
+	private final void track(final ListenableFuture<IMessage> response, final long sent)
+	{
+		response.addListener(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					response.get();
+					statistics.recordReceived();
+					statistics.recordRoundTrip(System.nanoTime() - sent);
+				}
+				catch (final ExecutionException e)
+				{
+					if (e.getCause() instanceof TimeoutException)
+					{
+						statistics.recordError();
+					}
+				}
+				catch (final CancellationException | InterruptedException e)
+				{
+					// Disconnected, the request will never be answered.
+				}
+			}
+		}, MoreExecutors.sameThreadExecutor());
+	}
+
+	/**
+	 * Returns the time of the last login request.
+	 * <p>
+	 * @return Time in nanoseconds.
+	 */
+	public final long getLoginStartTime()
+	{
+		return loginStartTime;
+	}
+
+	/**
+	 * Returns if the player is logged in.
+	 * <p>
+	 * @return {@code True} if the player is logged in, {@code false}
+	 * otherwise.
+	 */
+	public final boolean isLoggedIn()
+	{
+		return loggedIn;
+	}
+
+	/**
+	 * Returns if the last login failed (or timed out).
+	 * <p>
+	 * @return {@code True} if the login failed, {@code false} otherwise.
+	 */
+	public final boolean isLoginFailed()
+	{
+		return loginFailed;
+	}
+
+	@Override
+	public void loggedIn()
+	{
+		super.loggedIn();
+
+		loggedIn = true;
+		statistics.recordLogin(System.nanoTime() - loginStartTime);
+	}
+
+	@Override
+	public void loginFailed(final String reason)
+	{
+		super.loginFailed(reason);
+
+		loginFailed = true;
+		statistics.recordLoginFailure();
+	}
+
+	@Override
+	public void disconnected(final boolean graceful, final String reason)
+	{
+		super.disconnected(graceful, reason);
+
+		if (loggedIn)
+		{
+			loggedIn = false;
+			statistics.recordDisconnection(stopping);
+		}
+	}
+
+	@Override
+	public void disconnect()
+	{
+		stopping = true;
+
+		super.disconnect();
+	}
+
+	@Override
+	public void handleMessage(final IMessage message)
+	{
+		statistics.recordReceived();
+	}
+
+	@Override
+	protected void display(final String message)
+	{
+		// Headless player, the session events are only logged.
+	}
+}
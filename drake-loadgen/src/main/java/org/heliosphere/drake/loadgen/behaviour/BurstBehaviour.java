@@ -0,0 +1,62 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen.behaviour;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.loadgen.SimulatedPlayer;
+
+/**
+ * Behaviour sending a burst of echo messages encoded and written at once.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class BurstBehaviour implements IBehaviour
+{
+	/**
+	 * Number of messages of the burst.
+	 */
+	private final int count;
+
+	/**
+	 * Creates a new burst behaviour.
+	 * <p>
+	 * @param count Number of messages of the burst.
+	 */
+	@SuppressWarnings("nls")
+	public BurstBehaviour(final int count)
+	{
+		Validate.isTrue(count > 0, "Number of burst messages must be greater than zero!");
+
+		this.count = count;
+	}
+
+	@Override
+	public final long execute(final SimulatedPlayer player, final int step)
+	{
+		if (!player.isConnected())
+		{
+			return ABORT;
+		}
+
+		player.sendEcho(count);
+
+		return DONE;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "burst:" + count;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen.behaviour;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.loadgen.SimulatedPlayer;
+
+/**
+ * Behaviour sending echo messages at a fixed rate, one message per step.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class EchoBehaviour implements IBehaviour
+{
+	/**
+	 * Number of messages to send.
+	 */
+	private final int count;
+
+	/**
+	 * Interval (in milliseconds) between two messages.
+	 */
+	private final long interval;
+
+	/**
+	 * Creates a new echo behaviour.
+	 * <p>
+	 * @param count Number of messages to send.
+	 * @param interval Interval (in milliseconds) between two messages.
+	 */
+	@SuppressWarnings("nls")
+	public EchoBehaviour(final int count, final long interval)
+	{
+		Validate.isTrue(count > 0, "Number of echo messages must be greater than zero!");
+		Validate.isTrue(interval >= 0, "Echo interval cannot be negative!");
+
+		this.count = count;
+		this.interval = interval;
+	}
+
+	@Override
+	public final long execute(final SimulatedPlayer player, final int step)
+	{
+		if (!player.isConnected())
+		{
+			return ABORT;
+		}
+
+		player.sendEcho(1);
+
+		return step + 1 < count ? interval : DONE;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "echo:" + count + ":" + interval;
+	}
+}
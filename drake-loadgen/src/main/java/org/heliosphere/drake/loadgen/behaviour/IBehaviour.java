@@ -0,0 +1,51 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen.behaviour;
+
+import org.heliosphere.drake.loadgen.SimulatedPlayer;
+
+/**
+ * Interface that the scripted behaviours of a simulated player must
+ * implement.
+ * <p>
+ * A behaviour is executed in steps: each step performs a (non blocking)
+ * action and returns the delay before the next step of the same behaviour,
+ * {@link #DONE} to move on to the next behaviour of the scenario or
+ * {@link #ABORT} to end the scenario of the player. Behaviours are shared by
+ * all the players running the same scenario, so they must not keep any per
+ * player state.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface IBehaviour
+{
+	/**
+	 * Value returned when the behaviour is completed.
+	 */
+	long DONE = -1;
+
+	/**
+	 * Value returned when the scenario of the player must be ended.
+	 */
+	long ABORT = -2;
+
+	/**
+	 * Executes a step of the behaviour.
+	 * <p>
+	 * @param player {@link SimulatedPlayer} executing the behaviour.
+	 * @param step Step number (starting at {@code 0}).
+	 * @return Delay in milliseconds before the next step, {@link #DONE} or
+	 * {@link #ABORT}.
+	 */
+	long execute(final SimulatedPlayer player, final int step);
+}
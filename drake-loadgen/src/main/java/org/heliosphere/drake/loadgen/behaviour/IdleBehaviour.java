@@ -0,0 +1,55 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen.behaviour;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.loadgen.SimulatedPlayer;
+
+/**
+ * Behaviour keeping a simulated player connected without sending anything.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class IdleBehaviour implements IBehaviour
+{
+	/**
+	 * Idle duration (in milliseconds).
+	 */
+	private final long duration;
+
+	/**
+	 * Creates a new idle behaviour.
+	 * <p>
+	 * @param duration Idle duration (in milliseconds).
+	 */
+	@SuppressWarnings("nls")
+	public IdleBehaviour(final long duration)
+	{
+		Validate.isTrue(duration >= 0, "Idle duration cannot be negative!");
+
+		this.duration = duration;
+	}
+
+	@Override
+	public final long execute(final SimulatedPlayer player, final int step)
+	{
+		return step == 0 ? duration : DONE;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "idle:" + duration;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen.behaviour;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.loadgen.SimulatedPlayer;
+
+/**
+ * Behaviour logging in a simulated player.
+ * <p>
+ * The login is asynchronous, so once requested the behaviour polls the
+ * player until the login succeeds (behaviour done), fails or times out
+ * (scenario aborted).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class LoginBehaviour implements IBehaviour
+{
+	/**
+	 * Default login timeout (in milliseconds).
+	 */
+	public static final long DEFAULT_TIMEOUT = 30000;
+
+	/**
+	 * Interval (in milliseconds) between two checks of the login state.
+	 */
+	public static final long POLL_INTERVAL = 10;
+
+	/**
+	 * Login timeout (in milliseconds).
+	 */
+	private final long timeout;
+
+	/**
+	 * Creates a new login behaviour.
+	 * <p>
+	 * @param timeout Login timeout (in milliseconds).
+	 */
+	@SuppressWarnings("nls")
+	public LoginBehaviour(final long timeout)
+	{
+		Validate.isTrue(timeout > 0, "Login timeout must be greater than zero!");
+
+		this.timeout = timeout;
+	}
+
+	@Override
+	public final long execute(final SimulatedPlayer player, final int step)
+	{
+		if (step == 0)
+		{
+			return player.login() ? POLL_INTERVAL : ABORT;
+		}
+
+		if (player.isLoggedIn())
+		{
+			return DONE;
+		}
+
+		if (player.isLoginFailed())
+		{
+			return ABORT;
+		}
+
+		if (System.nanoTime() - player.getLoginStartTime() > TimeUnit.MILLISECONDS.toNanos(timeout))
+		{
+			player.loginTimedOut();
+
+			return ABORT;
+		}
+
+		return POLL_INTERVAL;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "login:" + timeout;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen.behaviour;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.heliosphere.drake.loadgen.type.BehaviourType;
+
+/**
+ * Ordered list of behaviours executed by each simulated player.
+ * <p>
+ * A scenario is defined as a semicolon separated list of behaviours, each
+ * behaviour being given by its {@link BehaviourType} name followed by its
+ * colon separated arguments, for instance:
+ * {@code login:10000;echo:100:50;idle:5000;burst:200}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class Scenario
+{
+	/**
+	 * Behaviours of the scenario.
+	 */
+	private final List<IBehaviour> behaviours;
+
+	/**
+	 * Creates a new scenario.
+	 * <p>
+	 * @param behaviours Behaviours of the scenario.
+	 */
+	public Scenario(final List<IBehaviour> behaviours)
+	{
+		this.behaviours = Collections.unmodifiableList(new ArrayList<>(behaviours));
+	}
+
+	/**
+	 * Parses a scenario definition.
+	 * <p>
+	 * @param definition Scenario definition.
+	 * @return {@link Scenario}.
+	 * @throws IllegalArgumentException Thrown if the definition is not valid.
+	 */
+	@SuppressWarnings("nls")
+	public static Scenario parse(final String definition) throws IllegalArgumentException
+	{
+		if (StringUtils.isBlank(definition))
+		{
+			throw new IllegalArgumentException("Scenario definition cannot be null or empty");
+		}
+
+		final List<IBehaviour> behaviours = new ArrayList<>();
+		for (String element : StringUtils.split(definition, ';'))
+		{
+			if (!StringUtils.isBlank(element))
+			{
+				behaviours.add(parseBehaviour(StringUtils.split(element.trim(), ':')));
+			}
+		}
+
+		return new Scenario(behaviours);
+	}
+
+	/**
+	 * Creates a behaviour from its name and arguments.
+	 * <p>
+	 * @param elements Behaviour name followed by its arguments.
+	 * @return {@link IBehaviour}.
+	 * @throws IllegalArgumentException Thrown if the behaviour is not valid.
+	 */
+	@SuppressWarnings("nls")
+	private static IBehaviour parseBehaviour(final String[] elements) throws IllegalArgumentException
+	{
+		final BehaviourType type = BehaviourType.from(elements[0]);
+
+		try
+		{
+			switch (type)
+			{
+			case LOGIN:
+				return new LoginBehaviour(elements.length > 1 ? Long.parseLong(elements[1].trim()) : LoginBehaviour.DEFAULT_TIMEOUT);
+
+			case ECHO:
+				return new EchoBehaviour(Integer.parseInt(elements[1].trim()), Long.parseLong(elements[2].trim()));
+
+			case IDLE:
+				return new IdleBehaviour(Long.parseLong(elements[1].trim()));
+
+			case BURST:
+				return new BurstBehaviour(Integer.parseInt(elements[1].trim()));
+
+			default:
+				throw new IllegalArgumentException("Unsupported behaviour type: " + type);
+			}
+		}
+		catch (NumberFormatException | ArrayIndexOutOfBoundsException e)
+		{
+			throw new IllegalArgumentException("Invalid arguments for behaviour: " + StringUtils.join(elements, ':'), e);
+		}
+	}
+
+	/**
+	 * Returns the behaviours of the scenario.
+	 * <p>
+	 * @return Unmodifiable list of {@link IBehaviour}.
+	 */
+	public final List<IBehaviour> getBehaviours()
+	{
+		return behaviours;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return StringUtils.join(behaviours, ';');
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.loadgen.type;
+
+/**
+ * Enumeration of the scripted behaviours a simulated player can execute.
+ * <p>
+ * In a scenario definition, a behaviour is given by its name (case
+ * insensitive) followed by its colon separated arguments.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public enum BehaviourType
+{
+	/**
+	 * Logs in the player and waits for the login to complete. Argument: login
+	 * timeout in milliseconds (optional).
+	 */
+	LOGIN,
+
+	/**
+	 * Sends echo messages at a fixed rate. Arguments: number of messages and
+	 * interval in milliseconds between two messages.
+	 */
+	ECHO,
+
+	/**
+	 * Stays connected without sending anything. Argument: duration in
+	 * milliseconds.
+	 */
+	IDLE,
+
+	/**
+	 * Sends a burst of echo messages in a single write. Argument: number of
+	 * messages.
+	 */
+	BURST;
+
+	/**
+	 * Returns the behaviour type matching the given name.
+	 * <p>
+	 * @param name Behaviour name (case insensitive).
+	 * @return {@link BehaviourType}.
+	 * @throws IllegalArgumentException Thrown if the name does not match any
+	 * behaviour type.
+	 */
+	@SuppressWarnings("nls")
+	public static BehaviourType from(final String name) throws IllegalArgumentException
+	{
+		if (name == null || name.trim().isEmpty())
+		{
+			throw new IllegalArgumentException("Behaviour name cannot be null or empty");
+		}
+
+		for (final BehaviourType type : values())
+		{
+			if (type.name().equalsIgnoreCase(name.trim()))
+			{
+				return type;
+			}
+		}
+
+		throw new IllegalArgumentException("Error due to [cause=Cannot create a " + BehaviourType.class.getSimpleName() + " from given name, name=" + name + "]");
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.message.data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.heliosphere.drake.base.codec.annotation.Encodable;
+
+/**
+ * Data of a status message: a status report sent by a client or a server to
+ * its peer.
+ * <p>
+ * The class is annotated with {@link Encodable} so that its {@code Kryo}
+ * serializer is generated at compile time by the
+ * {@code drake-codec-processor}.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Encodable
+public final class StatusData implements Serializable
+{
+	/**
+	 * Serialization version identifier.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Name of the peer reporting its status.
+	 */
+	private String origin = null;
+
+	/**
+	 * Time of the report (in milliseconds since the epoch).
+	 */
+	private long time = 0L;
+
+	/**
+	 * Number of players connected to the peer.
+	 */
+	private int playerCount = 0;
+
+	/**
+	 * Notices attached to the report.
+	 */
+	private List<String> notices = new ArrayList<>();
+
+	/**
+	 * Creates a new empty status.
+	 */
+	public StatusData()
+	{
+		// Empty
+	}
+
+	/**
+	 * Returns the name of the peer reporting its status.
+	 * <p>
+	 * @return Peer name.
+	 */
+	public final String getOrigin()
+	{
+		return origin;
+	}
+
+	/**
+	 * Sets the name of the peer reporting its status.
+	 * <p>
+	 * @param origin Peer name.
+	 */
+	public final void setOrigin(final String origin)
+	{
+		this.origin = origin;
+	}
+
+	/**
+	 * Returns the time of the report.
+	 * <p>
+	 * @return Time (in milliseconds since the epoch).
+	 */
+	public final long getTime()
+	{
+		return time;
+	}
+
+	/**
+	 * Sets the time of the report.
+	 * <p>
+	 * @param time Time (in milliseconds since the epoch).
+	 */
+	public final void setTime(final long time)
+	{
+		this.time = time;
+	}
+
+	/**
+	 * Returns the number of players connected to the peer.
+	 * <p>
+	 * @return Number of players.
+	 */
+	public final int getPlayerCount()
+	{
+		return playerCount;
+	}
+
+	/**
+	 * Sets the number of players connected to the peer.
+	 * <p>
+	 * @param playerCount Number of players.
+	 */
+	public final void setPlayerCount(final int playerCount)
+	{
+		this.playerCount = playerCount;
+	}
+
+	/**
+	 * Returns the notices attached to the report.
+	 * <p>
+	 * @return List of notices.
+	 */
+	public final List<String> getNotices()
+	{
+		return notices;
+	}
+
+	/**
+	 * Sets the notices attached to the report.
+	 * <p>
+	 * @param notices List of notices.
+	 */
+	public final void setNotices(final List<String> notices)
+	{
+		this.notices = notices;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "origin=" + origin + ", time=" + time + ", playerCount=" + playerCount + ", notices=" + notices;
+	}
+}
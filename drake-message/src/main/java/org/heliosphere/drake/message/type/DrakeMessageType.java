@@ -9,8 +9,10 @@ import org.heliosphere.drake.base.message.handler.IMessageHandler;
 import org.heliosphere.drake.base.message.type.IMessageCategoryType;
 import org.heliosphere.drake.base.message.type.IMessageType;
 import org.heliosphere.drake.base.message.type.MessageCategoryType;
+import org.heliosphere.drake.message.data.StatusData;
 import org.heliosphere.drake.message.handler.EchoMessageHandler;
 import org.heliosphere.drake.message.handler.ErrorMessageHandler;
+import org.heliosphere.drake.message.handler.StatusMessageHandler;
 
 /**
  * Enumeration of messages provided by the Drake framework for testing purpose.
@@ -28,7 +30,12 @@ public enum DrakeMessageType implements IMessageType
 	/**
 	 * Error message.
 	 */
-	ErrorMessage(2, MessageCategoryType.System, Message.class, String.class, ErrorMessageHandler.class);
+	ErrorMessage(2, MessageCategoryType.System, Message.class, String.class, ErrorMessageHandler.class),
+
+	/**
+	 * Status message (its data serializer is generated at compile time).
+	 */
+	StatusMessage(3, MessageCategoryType.System, Message.class, StatusData.class, StatusMessageHandler.class);
 
 	@SuppressWarnings("nls")
 	private DrakeMessageType(final int id, final Enum<? extends IMessageCategoryType> category, final Class<? extends IMessage> messageClass, final Class<? extends Serializable> dataClass, final Class<? extends IMessageHandler> handlerClass)
@@ -14,7 +14,14 @@ package org.heliosphere.drake.server.client;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.codec.FrameDecoder;
 import org.heliosphere.drake.base.message.codec.MessageDecodingException;
+import org.heliosphere.drake.base.message.manager.MessageManagerException;
+import org.heliosphere.drake.base.message.metrics.MessageMetrics;
+import org.heliosphere.drake.base.message.request.RequestTracker;
+import org.heliosphere.drake.server.message.journal.JournalCommitTask;
 import org.heliosphere.drake.server.player.IServerPlayer;
 
 import com.sun.sgs.app.AppContext;
@@ -44,6 +51,12 @@ public final class ClientListener implements ClientSessionListener, Serializable
 	 */
 	private final ManagedReference<? extends IServerPlayer> reference;
 
+	/**
+	 * Reference to the number of reads fed to the frame decoder of the
+	 * session.
+	 */
+	private final ManagedReference<ClientReadCounter> reads;
+
 	/**
 	 * Creates a new client listener for the given server player.
 	 * <p>
@@ -53,14 +66,20 @@ public final class ClientListener implements ClientSessionListener, Serializable
 	public ClientListener(final IServerPlayer player)
 	{
 		reference = AppContext.getDataManager().createReference(player);
+		reads = AppContext.getDataManager().createReference(new ClientReadCounter());
 		AppContext.getDataManager().setBinding(player.getBindingName(), player);
 
+		// A new session starts with a new session codec and decoder (delta encoding state must match the client one).
+		Manager.getMessageManager().releaseSessionCodec(player.getBindingName());
+		Manager.getMessageManager().releaseRequestTracker(player.getBindingName());
+
 		player.setClientListener(this);
 	}
 
 	@Override
 	public void disconnected(final boolean graceful)
 	{
+		AppContext.getDataManager().removeObject(reads.get());
 		reference.get().disconnect();
 	}
 
@@ -70,13 +89,70 @@ public final class ClientListener implements ClientSessionListener, Serializable
 	{
 		final IServerPlayer player = reference.get();
 
+		/*
+		 * A frame (or the chunks of a large message) can span several session
+		 * messages, so the decoder of the session keeps the partial frames
+		 * between two calls. It is released with the session codec. The
+		 * decoder lives outside of the transaction: the committed read count
+		 * lets it restore its state when an aborted task is retried.
+		 */
+		final FrameDecoder decoder;
 		try
 		{
-			player.handleMessage(player.getMessageCodec().decodeMessage(message));
+			decoder = Manager.getMessageManager().getSessionDecoder(player.getBindingName());
 		}
-		catch (final MessageDecodingException e)
+		catch (final MessageManagerException e)
 		{
 			log.error("Cannot decode message due to: " + e.getMessage());
+			return;
+		}
+
+		// The messages are journaled once the task committed.
+		final long batch = JournalCommitTask.begin();
+		try
+		{
+			final ClientReadCounter counter = reads.getForUpdate();
+			decoder.feed(message, counter.getCount());
+			counter.increment();
+
+			/*
+			 * Messages are always handled within the session task: the tasks
+			 * of a session run in order, each one in its own transaction, and
+			 * the handlers rely on the data manager. The dispatch lanes
+			 * (running outside of any transaction) are therefore never used
+			 * on the server.
+			 */
+			boolean available = true;
+			while (available)
+			{
+				try
+				{
+					final IMessage decoded = decoder.next();
+					available = decoded != null;
+					if (available)
+					{
+						if (RequestTracker.isResponse(decoded))
+						{
+							// Responses complete the future of their request instead of being handled.
+							Manager.getMessageManager().getRequestTracker(player.getBindingName()).complete(decoded);
+						}
+						else
+						{
+							final long time = System.nanoTime();
+							player.handleMessage(decoded);
+							MessageMetrics.getInstance().recordHandled(decoded.getMessageType(), System.nanoTime() - time);
+						}
+					}
+				}
+				catch (final MessageDecodingException e)
+				{
+					log.error("Cannot decode message due to: " + e.getMessage());
+				}
+			}
+		}
+		finally
+		{
+			JournalCommitTask.end(batch);
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.server.client;
+
+import java.io.Serializable;
+
+import com.sun.sgs.app.ManagedObject;
+
+/**
+ * Number of reads of a client session fed to its frame decoder within
+ * committed tasks.
+ * <p>
+ * The frame decoder of a session lives in memory, outside of the
+ * transactions. As the counter is a managed object, the read of an aborted
+ * task is not counted, so the retried task feeds the read again with the
+ * same sequence number and the decoder restores its state before the read
+ * (see
+ * {@link org.heliosphere.drake.base.message.codec.FrameDecoder#feed(java.nio.ByteBuffer, long)}).
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+final class ClientReadCounter implements ManagedObject, Serializable
+{
+	/**
+	 * Default serialization identifier.
+	 */
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Number of reads fed within committed tasks.
+	 */
+	private long count = 0;
+
+	/**
+	 * Returns the number of reads fed within committed tasks.
+	 * <p>
+	 * @return Number of reads.
+	 */
+	final long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Counts a read (the counter must have been obtained for update).
+	 */
+	final void increment()
+	{
+		count++;
+	}
+}
@@ -45,7 +45,8 @@ public abstract class AbstractServerEntity implements IServerEntity
 	private String name;
 
 	/**
-	 * Message codec.
+	 * Message codec (dedicated to the entity session, retrieved again from the
+	 * message manager once the entity has been deserialized).
 	 */
 	private transient IMessageCodec codec;
 
@@ -65,15 +66,6 @@ public abstract class AbstractServerEntity implements IServerEntity
 	{
 		BINDING_PREFIX = bindingPrefix;
 		this.name = name;
-
-		try
-		{
-			codec = Manager.getMessageManager().getMessageCodec();
-		}
-		catch (MessageManagerException e)
-		{
-			log.error(e);
-		}
 	}
 
 	@Override
@@ -113,6 +105,18 @@ public abstract class AbstractServerEntity implements IServerEntity
 	@Override
 	public final IMessageCodec getMessageCodec()
 	{
+		if (codec == null)
+		{
+			try
+			{
+				codec = Manager.getMessageManager().getSessionCodec(getBindingName());
+			}
+			catch (MessageManagerException e)
+			{
+				log.error(e);
+			}
+		}
+
 		return codec;
 	}
 }
@@ -12,17 +12,26 @@
 package org.heliosphere.drake.server.game;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import lombok.extern.log4j.Log4j;
 
 import org.heliosphere.drake.base.game.mode.GameModeException;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
 import org.heliosphere.drake.server.IServer;
 import org.heliosphere.drake.server.entity.AbstractServerEntity;
 import org.heliosphere.drake.server.game.mode.IServerGameMode;
 import org.heliosphere.drake.server.game.mode.IServerGameModeType;
 import org.heliosphere.drake.server.game.mode.ServerGameModeFactory;
 import org.heliosphere.drake.server.game.mode.ServerGameModeType;
+import org.heliosphere.drake.server.message.broadcast.BroadcastResult;
+import org.heliosphere.drake.server.message.broadcast.IBroadcastFilter;
+import org.heliosphere.drake.server.message.broadcast.MessageBroadcaster;
 import org.heliosphere.drake.server.player.IServerPlayer;
 import org.heliosphere.drake.server.player.ServerPlayer;
 import org.heliosphere.drake.server.type.ServerPropertiesType;
@@ -143,6 +152,31 @@ public abstract class AbstractServerGame extends AbstractServerEntity implements
 		return modes.get(type).get();
 	}
 
+	@Override
+	public final BroadcastResult broadcast(final List<IMessage> messages, final IBroadcastFilter filter) throws MessageException
+	{
+		// Without a filter, only the sessions of the players are read.
+		if (filter == null)
+		{
+			final Map<String, ManagedReference<ClientSession>> sessions = new LinkedHashMap<>();
+			for (ManagedReference<? extends IServerGameMode> reference : modes.values())
+			{
+				sessions.putAll(reference.get().getSessions());
+			}
+
+			return MessageBroadcaster.broadcast(messages, sessions);
+		}
+
+		// A player is only part of one game mode at a time, the set only guards against stale entries.
+		final Set<IServerPlayer> players = new LinkedHashSet<>();
+		for (ManagedReference<? extends IServerGameMode> reference : modes.values())
+		{
+			players.addAll(reference.get().getPlayers());
+		}
+
+		return MessageBroadcaster.broadcast(messages, players, filter);
+	}
+
 	@Override
 	public final IServer getApplication()
 	{
@@ -12,13 +12,18 @@
 package org.heliosphere.drake.server.game;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Properties;
 
 import org.heliosphere.drake.base.game.IGame;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
 import org.heliosphere.drake.base.player.IPlayer;
 import org.heliosphere.drake.server.entity.IServerEntity;
 import org.heliosphere.drake.server.game.mode.IServerGameMode;
 import org.heliosphere.drake.server.game.mode.IServerGameModeType;
+import org.heliosphere.drake.server.message.broadcast.BroadcastResult;
+import org.heliosphere.drake.server.message.broadcast.IBroadcastFilter;
 import org.heliosphere.drake.server.player.IServerPlayer;
 import org.heliosphere.drake.server.region.IServerRegionFactory;
 
@@ -81,4 +86,16 @@ public interface IServerGame extends IGame, IServerEntity
 	 * @return {@link IServerGameMode}.
 	 */
 	IServerGameMode getMode(final Enum<? extends IServerGameModeType> type);
+
+	/**
+	 * Sends messages to the connected players of all the game modes accepted
+	 * by a filter. The messages are encoded only once for the whole game.
+	 * <p>
+	 * @param messages List of {@link IMessage} to send.
+	 * @param filter {@link IBroadcastFilter} selecting the recipients or
+	 * {@code null} to send the messages to all the players.
+	 * @return {@link BroadcastResult}.
+	 * @throws MessageException Thrown if the messages cannot be encoded.
+	 */
+	BroadcastResult broadcast(final List<IMessage> messages, final IBroadcastFilter filter) throws MessageException;
 }
@@ -1,14 +1,23 @@
 package org.heliosphere.drake.server.game.mode;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import lombok.extern.log4j.Log4j;
 
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
 import org.heliosphere.drake.server.entity.AbstractServerEntity;
+import org.heliosphere.drake.server.message.broadcast.BroadcastResult;
+import org.heliosphere.drake.server.message.broadcast.IBroadcastFilter;
+import org.heliosphere.drake.server.message.broadcast.MessageBroadcaster;
 import org.heliosphere.drake.server.player.IServerPlayer;
 
 import com.sun.sgs.app.AppContext;
+import com.sun.sgs.app.ClientSession;
 import com.sun.sgs.app.ManagedReference;
 
 @Log4j
@@ -30,6 +39,12 @@ public abstract class AbstractServerGameMode extends AbstractServerEntity implem
 	 */
 	protected List<ManagedReference<? extends IServerPlayer>> players;
 
+	/**
+	 * Sessions of the connected players of this game mode (by player binding
+	 * name), so the broadcasts do not have to read the players.
+	 */
+	private Map<String, ManagedReference<ClientSession>> sessions;
+
 	/**
 	 * Creates a new server game mode of the given type.
 	 * <p>
@@ -55,5 +70,62 @@ public abstract class AbstractServerGameMode extends AbstractServerEntity implem
 			player.setGameMode(this);
 			players.add(playerReference);
 		}
+
+		// A player joins again at each login, with a new session.
+		final ClientSession session = player.getSession();
+		if (session != null)
+		{
+			if (sessions == null)
+			{
+				sessions = new LinkedHashMap<>();
+			}
+			sessions.put(player.getBindingName(), AppContext.getDataManager().createReference(session));
+		}
+	}
+
+	@Override
+	public final void disconnected(final IServerPlayer player)
+	{
+		if (sessions != null && sessions.containsKey(player.getBindingName()))
+		{
+			AppContext.getDataManager().markForUpdate(this);
+			sessions.remove(player.getBindingName());
+		}
+	}
+
+	@Override
+	public final List<IServerPlayer> getPlayers()
+	{
+		if (players == null)
+		{
+			return Collections.emptyList();
+		}
+
+		final List<IServerPlayer> list = new ArrayList<>(players.size());
+		for (ManagedReference<? extends IServerPlayer> reference : players)
+		{
+			list.add(reference.get());
+		}
+
+		return list;
+	}
+
+	@Override
+	public final Map<String, ManagedReference<ClientSession>> getSessions()
+	{
+		return sessions == null ? Collections.<String, ManagedReference<ClientSession>> emptyMap() : Collections.unmodifiableMap(sessions);
+	}
+
+	@Override
+	public final BroadcastResult broadcast(final IMessage message) throws MessageException
+	{
+		return broadcast(Collections.singletonList(message), null);
+	}
+
+	@Override
+	public final BroadcastResult broadcast(final List<IMessage> messages, final IBroadcastFilter filter) throws MessageException
+	{
+		// Without a filter, only the sessions of the players are read.
+		return filter == null ? MessageBroadcaster.broadcast(messages, getSessions()) : MessageBroadcaster.broadcast(messages, getPlayers(), filter);
 	}
 }
@@ -11,9 +11,19 @@
  */
 package org.heliosphere.drake.server.game.mode;
 
+import java.util.List;
+import java.util.Map;
+
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
 import org.heliosphere.drake.server.entity.IServerEntity;
+import org.heliosphere.drake.server.message.broadcast.BroadcastResult;
+import org.heliosphere.drake.server.message.broadcast.IBroadcastFilter;
 import org.heliosphere.drake.server.player.IServerPlayer;
 
+import com.sun.sgs.app.ClientSession;
+import com.sun.sgs.app.ManagedReference;
+
 /**
  * Interface defining a specific mode of play within the game. Typical examples
  * would be a lobby, a field for combat, an auction house, etc.<br>
@@ -40,4 +50,48 @@ public interface IServerGameMode extends IServerEntity
 	 * @param player {@link IServerPlayer} to join the game mode.
 	 */
 	void join(final IServerPlayer player);
+
+	/**
+	 * Returns the players of the game mode.
+	 * <p>
+	 * @return List of {@link IServerPlayer}.
+	 */
+	List<IServerPlayer> getPlayers();
+
+	/**
+	 * Forgets the session of a player which disconnected.
+	 * <p>
+	 * @param player {@link IServerPlayer} which disconnected.
+	 */
+	void disconnected(final IServerPlayer player);
+
+	/**
+	 * Returns the sessions of the connected players of the game mode. Reading
+	 * the sessions does not require reading the players.
+	 * <p>
+	 * @return Map of the session references by player binding name.
+	 */
+	Map<String, ManagedReference<ClientSession>> getSessions();
+
+	/**
+	 * Sends a message to all the connected players of the game mode. The
+	 * message is encoded only once.
+	 * <p>
+	 * @param message {@link IMessage} to send.
+	 * @return {@link BroadcastResult}.
+	 * @throws MessageException Thrown if the message cannot be encoded.
+	 */
+	BroadcastResult broadcast(final IMessage message) throws MessageException;
+
+	/**
+	 * Sends messages to the connected players of the game mode accepted by a
+	 * filter. The messages are encoded only once.
+	 * <p>
+	 * @param messages List of {@link IMessage} to send.
+	 * @param filter {@link IBroadcastFilter} selecting the recipients or
+	 * {@code null} to send the messages to all the players.
+	 * @return {@link BroadcastResult}.
+	 * @throws MessageException Thrown if the messages cannot be encoded.
+	 */
+	BroadcastResult broadcast(final List<IMessage> messages, final IBroadcastFilter filter) throws MessageException;
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.server.message.broadcast;
+
+/**
+ * Result of a broadcast: number of recipients and timings.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public final class BroadcastResult
+{
+	/**
+	 * Number of broadcast messages.
+	 */
+	private final int messageCount;
+
+	/**
+	 * Length of the encoded messages (in bytes).
+	 */
+	private final int encodedLength;
+
+	/**
+	 * Number of players the messages have been sent to.
+	 */
+	private final int recipientCount;
+
+	/**
+	 * Number of players rejected by the filter or not connected.
+	 */
+	private final int skippedCount;
+
+	/**
+	 * Number of players the messages could not be sent to.
+	 */
+	private final int failedCount;
+
+	/**
+	 * Time spent encoding the messages (in nanoseconds).
+	 */
+	private final long encodeTime;
+
+	/**
+	 * Time spent sending the messages (in nanoseconds).
+	 */
+	private final long sendTime;
+
+	/**
+	 * Creates a new broadcast result.
+	 * <p>
+	 * @param messageCount Number of broadcast messages.
+	 * @param encodedLength Length of the encoded messages.
+	 * @param recipientCount Number of players the messages have been sent to.
+	 * @param skippedCount Number of players rejected by the filter or not
+	 * connected.
+	 * @param failedCount Number of players the messages could not be sent to.
+	 * @param encodeTime Time spent encoding the messages (in nanoseconds).
+	 * @param sendTime Time spent sending the messages (in nanoseconds).
+	 */
+	BroadcastResult(final int messageCount, final int encodedLength, final int recipientCount, final int skippedCount, final int failedCount, final long encodeTime, final long sendTime)
+	{
+		this.messageCount = messageCount;
+		this.encodedLength = encodedLength;
+		this.recipientCount = recipientCount;
+		this.skippedCount = skippedCount;
+		this.failedCount = failedCount;
+		this.encodeTime = encodeTime;
+		this.sendTime = sendTime;
+	}
+
+	/**
+	 * Returns the number of broadcast messages.
+	 * <p>
+	 * @return Number of messages.
+	 */
+	public final int getMessageCount()
+	{
+		return messageCount;
+	}
+
+	/**
+	 * Returns the length of the encoded messages (sent to each recipient).
+	 * <p>
+	 * @return Length in bytes.
+	 */
+	public final int getEncodedLength()
+	{
+		return encodedLength;
+	}
+
+	/**
+	 * Returns the number of players the messages have been sent to.
+	 * <p>
+	 * @return Number of recipients.
+	 */
+	public final int getRecipientCount()
+	{
+		return recipientCount;
+	}
+
+	/**
+	 * Returns the number of players rejected by the filter or not connected.
+	 * <p>
+	 * @return Number of skipped players.
+	 */
+	public final int getSkippedCount()
+	{
+		return skippedCount;
+	}
+
+	/**
+	 * Returns the number of players the messages could not be sent to.
+	 * <p>
+	 * @return Number of failed players.
+	 */
+	public final int getFailedCount()
+	{
+		return failedCount;
+	}
+
+	/**
+	 * Returns the time spent encoding the messages.
+	 * <p>
+	 * @return Time in nanoseconds.
+	 */
+	public final long getEncodeTime()
+	{
+		return encodeTime;
+	}
+
+	/**
+	 * Returns the time spent sending the messages to the recipients.
+	 * <p>
+	 * @return Time in nanoseconds.
+	 */
+	public final long getSendTime()
+	{
+		return sendTime;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final String toString()
+	{
+		return "[messages=" + messageCount + ", length=" + encodedLength + ", recipients=" + recipientCount + ", skipped=" + skippedCount + ", failed=" + failedCount + ", encode.time=" + encodeTime / 1000 + "us, send.time=" + sendTime / 1000 + "us]";
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.server.message.broadcast;
+
+import org.heliosphere.drake.server.player.IServerPlayer;
+
+/**
+ * Interface used to select the recipients of a broadcast.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+public interface IBroadcastFilter
+{
+	/**
+	 * Returns if a player must receive the broadcast messages.
+	 * <p>
+	 * @param player {@link IServerPlayer}.
+	 * @return {@code True} if the player must receive the messages,
+	 * {@code false} otherwise.
+	 */
+	boolean accept(final IServerPlayer player);
+}
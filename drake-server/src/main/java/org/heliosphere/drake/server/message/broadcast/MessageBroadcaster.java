@@ -0,0 +1,378 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.server.message.broadcast;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.log4j.Log4j;
+
+import org.apache.commons.lang.Validate;
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.IMessage;
+import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.codec.MessageFrame;
+import org.heliosphere.drake.base.message.journal.MessageJournal;
+import org.heliosphere.drake.base.message.journal.type.JournalDirectionType;
+import org.heliosphere.drake.base.message.manager.IMessageManager;
+import org.heliosphere.drake.base.message.type.IMessageType;
+import org.heliosphere.drake.server.message.journal.JournalCommitTask;
+import org.heliosphere.drake.server.player.IServerPlayer;
+
+import com.sun.sgs.app.ClientSession;
+import com.sun.sgs.app.ManagedReference;
+
+/**
+ * Sends the same messages to several players.
+ * <p>
+ * The messages are encoded once using the broadcast codec of the message
+ * manager (see {@link IMessageManager#createBroadcastCodec()}) and the
+ * resulting frames are sent to the session of each recipient as read-only
+ * views of the same buffer, so a broadcast costs a single encoding whatever
+ * the number of recipients. If a message journal is configured, the shared
+ * encoded form of the messages is journaled under the name of each recipient
+ * session once the broadcasting task committed (see {@link JournalCommitTask}).
+ * <p>
+ * Broadcasting to session references (see
+ * {@link #broadcast(List, Map)}) only reads the sessions, so the broadcasting
+ * task does not access (and conflict with the tasks updating) the players.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class MessageBroadcaster
+{
+	/**
+	 * Creates a new message broadcaster.
+	 */
+	private MessageBroadcaster()
+	{
+		// Static methods only.
+	}
+
+	/**
+	 * Sends messages to several players.
+	 * <p>
+	 * @param messages List of {@link IMessage} to send.
+	 * @param recipients Players to send the messages to.
+	 * @param filter {@link IBroadcastFilter} selecting the recipients or
+	 * {@code null} to send the messages to all the connected players.
+	 * @return {@link BroadcastResult}.
+	 * @throws MessageException Thrown if the messages cannot be encoded.
+	 */
+	@SuppressWarnings("nls")
+	public static final BroadcastResult broadcast(final List<IMessage> messages, final Collection<? extends IServerPlayer> recipients, final IBroadcastFilter filter) throws MessageException
+	{
+		Validate.notNull(messages, "Messages cannot be null!");
+		Validate.notNull(recipients, "Recipients cannot be null!");
+
+		final Broadcast broadcast = new Broadcast(messages);
+		final long batch = JournalCommitTask.begin();
+		try
+		{
+			for (IServerPlayer player : recipients)
+			{
+				if (player == null || (filter != null && !filter.accept(player)))
+				{
+					broadcast.skipped++;
+					continue;
+				}
+
+				broadcast.send(player.getBindingName(), player.getSession());
+			}
+
+			return broadcast.getResult();
+		}
+		finally
+		{
+			broadcast.release();
+			JournalCommitTask.end(batch);
+		}
+	}
+
+	/**
+	 * Sends messages to the sessions of several players without reading the
+	 * players.
+	 * <p>
+	 * @param messages List of {@link IMessage} to send.
+	 * @param sessions References of the sessions to send the messages to (by
+	 * player binding name).
+	 * @return {@link BroadcastResult}.
+	 * @throws MessageException Thrown if the messages cannot be encoded.
+	 */
+	@SuppressWarnings("nls")
+	public static final BroadcastResult broadcast(final List<IMessage> messages, final Map<String, ? extends ManagedReference<? extends ClientSession>> sessions) throws MessageException
+	{
+		Validate.notNull(messages, "Messages cannot be null!");
+		Validate.notNull(sessions, "Sessions cannot be null!");
+
+		final Broadcast broadcast = new Broadcast(messages);
+		final long batch = JournalCommitTask.begin();
+		try
+		{
+			for (Map.Entry<String, ? extends ManagedReference<? extends ClientSession>> entry : sessions.entrySet())
+			{
+				final ClientSession session;
+				try
+				{
+					session = entry.getValue().get();
+				}
+				catch (final RuntimeException e)
+				{
+					// Session removed since the player disconnected.
+					broadcast.skipped++;
+					continue;
+				}
+
+				broadcast.send(entry.getKey(), session);
+			}
+
+			return broadcast.getResult();
+		}
+		finally
+		{
+			broadcast.release();
+			JournalCommitTask.end(batch);
+		}
+	}
+
+	/**
+	 * Messages encoded once and sent to several sessions.
+	 */
+	private static final class Broadcast
+	{
+		/**
+		 * Number of messages.
+		 */
+		private final int count;
+
+		/**
+		 * Identifiers of the messages (journaled with their encoded form).
+		 */
+		private final int[] messageIds;
+
+		/**
+		 * Encoded messages.
+		 */
+		private final PooledBuffer buffer;
+
+		/**
+		 * Length of the encoded messages.
+		 */
+		private final int length;
+
+		/**
+		 * Network writes of the encoded messages.
+		 */
+		private final List<ByteBuffer> writes;
+
+		/**
+		 * Journal of the messages or {@code null} if the messages are not
+		 * journaled.
+		 */
+		private final MessageJournal journal;
+
+		/**
+		 * Encoded form of each message (journaled for each recipient).
+		 */
+		private final List<ByteBuffer> payloads;
+
+		/**
+		 * Time at which the encoding started (in nanoseconds).
+		 */
+		private final long start;
+
+		/**
+		 * Time at which the encoding ended (in nanoseconds).
+		 */
+		private final long encoded;
+
+		/**
+		 * Number of sessions the messages have been sent to.
+		 */
+		int sent = 0;
+
+		/**
+		 * Number of recipients skipped (filtered out or not connected).
+		 */
+		int skipped = 0;
+
+		/**
+		 * Number of sessions the messages could not be sent to.
+		 */
+		int failed = 0;
+
+		/**
+		 * Encodes the messages to broadcast.
+		 * <p>
+		 * @param messages List of {@link IMessage} to send.
+		 * @throws MessageException Thrown if the messages cannot be encoded.
+		 */
+		Broadcast(final List<IMessage> messages) throws MessageException
+		{
+			final IMessageManager manager = Manager.getMessageManager();
+
+			count = messages.size();
+			start = System.nanoTime();
+
+			messageIds = new int[count];
+			for (int i = 0; i < count; i++)
+			{
+				messageIds[i] = ((IMessageType) messages.get(i).getMessageType()).getMessageId();
+			}
+
+			PooledBuffer pooled = null;
+			try
+			{
+				pooled = manager.createBroadcastCodec().encodeMessages(messages, BufferArena.getDefault());
+
+				length = pooled.getBuffer().remaining();
+				writes = manager.getMessageChunker().split(pooled.getBuffer());
+				journal = manager.getMessageJournal();
+				payloads = journal == null ? null : split(pooled.getBuffer());
+			}
+			catch (final MessageException e)
+			{
+				release(pooled);
+				throw e;
+			}
+			catch (final Exception e)
+			{
+				release(pooled);
+				log.error(e);
+				throw new MessageException(e);
+			}
+
+			buffer = pooled;
+			encoded = System.nanoTime();
+		}
+
+		/**
+		 * Sends the messages to a session.
+		 * <p>
+		 * @param name Name of the session (binding name of the player).
+		 * @param session {@link ClientSession} or {@code null} if the player
+		 * is not connected.
+		 */
+		@SuppressWarnings("nls")
+		final void send(final String name, final ClientSession session)
+		{
+			if (session == null || !session.isConnected())
+			{
+				skipped++;
+				return;
+			}
+
+			try
+			{
+				// The session copies the content, so every recipient reads the same buffer.
+				for (ByteBuffer write : writes)
+				{
+					session.send(write.asReadOnlyBuffer());
+				}
+				sent++;
+			}
+			catch (final RuntimeException e)
+			{
+				failed++;
+				log.warn("Cannot broadcast messages [recipient=" + name + "] due to: " + e.getMessage());
+				return;
+			}
+
+			if (journal != null)
+			{
+				try
+				{
+					for (int i = 0; i < count; i++)
+					{
+						journal.append(JournalDirectionType.OUTBOUND, name, messageIds[i], payloads.get(i).duplicate());
+					}
+				}
+				catch (final IOException e)
+				{
+					log.error("Cannot journal broadcast messages [session=" + name + "] due to: " + e.getMessage());
+				}
+			}
+		}
+
+		/**
+		 * Returns the result of the broadcast.
+		 * <p>
+		 * @return {@link BroadcastResult}.
+		 */
+		@SuppressWarnings("nls")
+		final BroadcastResult getResult()
+		{
+			final BroadcastResult result = new BroadcastResult(count, length, sent, skipped, failed, encoded - start, System.nanoTime() - encoded);
+			if (log.isDebugEnabled())
+			{
+				log.debug("Messages broadcast " + result);
+			}
+
+			return result;
+		}
+
+		/**
+		 * Releases the encoded messages.
+		 */
+		final void release()
+		{
+			release(buffer);
+		}
+
+		/**
+		 * Releases a buffer.
+		 * <p>
+		 * @param pooled {@link PooledBuffer} to release (can be {@code null}).
+		 */
+		private static final void release(final PooledBuffer pooled)
+		{
+			if (pooled != null)
+			{
+				pooled.release();
+			}
+		}
+
+		/**
+		 * Returns the encoded form of each message of a frame set.
+		 * <p>
+		 * @param frames {@link ByteBuffer} containing the frames. Its position
+		 * is not modified.
+		 * @return List of views of the encoded messages.
+		 * @throws MessageException Thrown if a frame is malformed.
+		 */
+		private static final List<ByteBuffer> split(final ByteBuffer frames) throws MessageException
+		{
+			final ByteBuffer source = frames.duplicate();
+			final List<ByteBuffer> payloads = new ArrayList<>();
+			while (source.hasRemaining())
+			{
+				final int size = MessageFrame.readLength(source);
+
+				final ByteBuffer payload = source.slice();
+				payload.limit(size);
+				payloads.add(payload);
+
+				source.position(source.position() + size);
+			}
+
+			return payloads;
+		}
+	}
+}
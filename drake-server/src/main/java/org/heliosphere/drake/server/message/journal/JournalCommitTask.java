@@ -0,0 +1,117 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.server.message.journal;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import lombok.extern.log4j.Log4j;
+
+import org.heliosphere.drake.base.manager.Manager;
+import org.heliosphere.drake.base.message.journal.MessageJournal;
+
+import com.sun.sgs.app.AppContext;
+import com.sun.sgs.app.Task;
+
+/**
+ * Task appending the messages journaled by a task once it committed.
+ * <p>
+ * The messages are encoded and decoded within the task transactions, so
+ * journaling them right away would journal the messages of the aborted tasks
+ * (never sent) and the messages received by the retried tasks twice. The
+ * journaled messages of a task are instead held by a batch of the message
+ * journal (see {@link MessageJournal#openBatch()}) and a commit task is
+ * scheduled: as a task is only scheduled if the scheduling transaction
+ * commits, the batch of an aborted task is never appended.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+@Log4j
+public final class JournalCommitTask implements Task, Serializable
+{
+	/**
+	 * Default serialization identifier.
+	 */
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Identifier of the batch to commit.
+	 */
+	private final long batch;
+
+	/**
+	 * Creates a new journal commit task.
+	 * <p>
+	 * @param batch Identifier of the batch to commit.
+	 */
+	private JournalCommitTask(final long batch)
+	{
+		this.batch = batch;
+	}
+
+	/**
+	 * Opens a journal batch holding the messages journaled by the current
+	 * task.
+	 * <p>
+	 * @return Batch identifier or {@code -1} if no message journal is
+	 * configured or if a batch is already open (by a calling method).
+	 */
+	public static final long begin()
+	{
+		final MessageJournal journal = Manager.getMessageManager().getMessageJournal();
+
+		return journal == null ? -1 : journal.openBatch();
+	}
+
+	/**
+	 * Closes a journal batch and schedules its commit once the current task
+	 * commits. Must be called in a {@code finally} block.
+	 * <p>
+	 * @param batch Batch identifier (see {@link #begin()}).
+	 */
+	public static final void end(final long batch)
+	{
+		if (batch < 0)
+		{
+			return;
+		}
+
+		final MessageJournal journal = Manager.getMessageManager().getMessageJournal();
+		if (journal != null)
+		{
+			journal.closeBatch(batch);
+		}
+
+		AppContext.getTaskManager().scheduleTask(new JournalCommitTask(batch));
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public final void run()
+	{
+		final MessageJournal journal = Manager.getMessageManager().getMessageJournal();
+		if (journal == null)
+		{
+			return;
+		}
+
+		try
+		{
+			journal.commitBatch(batch);
+		}
+		catch (final IOException e)
+		{
+			log.error("Cannot journal messages [batch=" + batch + "] due to: " + e.getMessage());
+		}
+	}
+}
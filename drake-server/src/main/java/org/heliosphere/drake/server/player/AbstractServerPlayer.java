@@ -11,20 +11,32 @@
  */
 package org.heliosphere.drake.server.player;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import lombok.ToString;
 import lombok.extern.log4j.Log4j;
 
+import org.heliosphere.drake.base.buffer.BufferArena;
+import org.heliosphere.drake.base.buffer.PooledBuffer;
+import org.heliosphere.drake.base.manager.Manager;
 import org.heliosphere.drake.base.message.IMessage;
 import org.heliosphere.drake.base.message.MessageException;
+import org.heliosphere.drake.base.message.manager.MessageManagerException;
+import org.heliosphere.drake.base.message.request.RequestTracker;
 import org.heliosphere.drake.base.player.status.IPlayerStatusType;
 import org.heliosphere.drake.base.player.status.PlayerStatusType;
 import org.heliosphere.drake.server.client.ClientListener;
 import org.heliosphere.drake.server.entity.AbstractServerEntity;
 import org.heliosphere.drake.server.game.IServerGame;
 import org.heliosphere.drake.server.game.mode.IServerGameMode;
+import org.heliosphere.drake.message.type.DrakeMessageType;
+import org.heliosphere.drake.server.message.journal.JournalCommitTask;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sun.sgs.app.AppContext;
 import com.sun.sgs.app.ClientSession;
 import com.sun.sgs.app.DataManager;
@@ -137,6 +149,7 @@ public abstract class AbstractServerPlayer extends AbstractServerEntity implemen
 	 * @return {@link ClientSession} for this player or {@code null} if the
 	 * player has no session, i.e. player not connected.
 	 */
+	@Override
 	public ClientSession getSession()
 	{
 		try
@@ -152,10 +165,33 @@ public abstract class AbstractServerPlayer extends AbstractServerEntity implemen
 		}
 	}
 
+	/**
+	 * Handles a message received from the client. The echo requests are
+	 * answered with their content, so that a client can measure the round
+	 * trip time (see {@link #sendRequest(IMessage)}), the other messages are
+	 * only logged.
+	 * <p>
+	 * @param message {@link IMessage} to handle.
+	 */
+	@SuppressWarnings("nls")
 	@Override
 	public void handleMessage(final IMessage message)
 	{
 		log.info("Message received [type=" + message.getMessageType() + "]");
+
+		if (message.getMessageType() == DrakeMessageType.EchoMessage && RequestTracker.isRequest(message))
+		{
+			try
+			{
+				final IMessage response = Manager.getMessageManager().createMessage(DrakeMessageType.EchoMessage);
+				response.setContent(message.getContent());
+				sendResponse(message, response);
+			}
+			catch (final MessageManagerException | MessageException e)
+			{
+				log.error("Cannot answer echo request due to: " + e.getMessage());
+			}
+		}
 	}
 
 	@Override
@@ -211,16 +247,42 @@ public abstract class AbstractServerPlayer extends AbstractServerEntity implemen
 	@Override
 	public final void sendMessage(final IMessage message) throws MessageException
 	{
+		log.info("Sending message [type=" + message.getMessageType() + ", recipient=" + getName() + ", timestamp=" + message.getCreationTime() + ", content=" + message.getContent().toString() + "]");
+
+		sendMessages(Collections.singletonList(message));
+	}
+
+	@Override
+	public final void sendMessages(final List<IMessage> messages) throws MessageException
+	{
+		PooledBuffer buffer = null;
+
+		// The messages are journaled once the task committed.
+		final long batch = JournalCommitTask.begin();
 		try
 		{
-			log.info("Sending message [type=" + message.getMessageType() + ", recipient=" + getName() + ", timestamp=" + message.getCreationTime() + ", content=" + message.getContent().toString() + "]");
-			getSession().send(getMessageCodec().encodeMessage(message));
+			buffer = getMessageCodec().encodeMessages(messages, BufferArena.getDefault());
+
+			// Large messages are split into chunks so that no write exceeds the chunk size.
+			for (ByteBuffer write : Manager.getMessageManager().getMessageChunker().split(buffer.getBuffer()))
+			{
+				getSession().send(write);
+			}
 		}
 		catch (final Exception e)
 		{
 			log.error(e);
 			throw new MessageException(e);
 		}
+		finally
+		{
+			// The session copies the buffer content, it can be released as soon as the send returns.
+			if (buffer != null)
+			{
+				buffer.release();
+			}
+			JournalCommitTask.end(batch);
+		}
 	}
 
 	@Override
@@ -233,11 +295,87 @@ public abstract class AbstractServerPlayer extends AbstractServerEntity implemen
 			return false;
 		}
 
+		final IServerGameMode mode = getGameMode();
+		if (mode != null)
+		{
+			mode.disconnected(this);
+		}
+
 		setSession(null);
+		Manager.getMessageManager().releaseSessionCodec(getBindingName());
+		Manager.getMessageManager().releaseRequestTracker(getBindingName());
 
 		return true;
 	}
 
+	@Override
+	public final ListenableFuture<IMessage> sendRequest(final IMessage request) throws MessageException
+	{
+		return sendRequest(request, getRequestTracker().getTimeout(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sends a request to the client of this player.
+	 * <p>
+	 * The request only becomes in-flight once the current transaction commits
+	 * (see {@link RequestTask}), so the requests of aborted or retried tasks
+	 * do not hold an in-flight slot. The returned future is completed within
+	 * a transaction: the one receiving the response, the one timing out the
+	 * request or the one disconnecting the player. As that transaction can
+	 * still abort, listeners must not change managed objects directly but
+	 * re-enter through a task scheduled with
+	 * {@code AppContext.getTaskManager()}, and must run on the completing
+	 * thread (same thread executor) to do so.
+	 * <p>
+	 * @param request {@link IMessage} to send.
+	 * @param timeout Request timeout.
+	 * @param unit Unit of the request timeout.
+	 * @return {@link ListenableFuture} completed by the response.
+	 * @throws MessageException Thrown if the request cannot be sent or if the
+	 * maximum number of in-flight requests is reached.
+	 */
+	@Override
+	public final ListenableFuture<IMessage> sendRequest(final IMessage request, final long timeout, final TimeUnit unit) throws MessageException
+	{
+		final RequestTracker tracker = getRequestTracker();
+		final ListenableFuture<IMessage> response = tracker.prepare(request);
+
+		try
+		{
+			sendMessage(request);
+		}
+		catch (final MessageException e)
+		{
+			tracker.fail(request, e);
+			throw e;
+		}
+
+		// Scheduled tasks only run if the transaction commits.
+		final ManagedReference<AbstractServerPlayer> self = AppContext.getDataManager().createReference(this);
+		AppContext.getTaskManager().scheduleTask(new RequestTask(self, request.getCorrelationId(), unit.toMillis(timeout), false));
+
+		return response;
+	}
+
+	@Override
+	public final void sendResponse(final IMessage request, final IMessage response) throws MessageException
+	{
+		RequestTracker.correlate(request, response);
+		sendMessage(response);
+	}
+
+	/**
+	 * Returns the tracker of the in-flight requests of the player. The tracker
+	 * is held by the message manager (and not persisted with the player) as
+	 * the pending futures only live as long as the session.
+	 * <p>
+	 * @return {@link RequestTracker}.
+	 */
+	protected final RequestTracker getRequestTracker()
+	{
+		return Manager.getMessageManager().getRequestTracker(getBindingName());
+	}
+
 	@Override
 	public void leave()
 	{
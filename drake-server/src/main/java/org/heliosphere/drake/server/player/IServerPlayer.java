@@ -17,6 +17,8 @@ import org.heliosphere.drake.server.entity.IServerEntity;
 import org.heliosphere.drake.server.game.IServerGame;
 import org.heliosphere.drake.server.game.mode.IServerGameMode;
 
+import com.sun.sgs.app.ClientSession;
+
 /**
  * Interface defining the bahavior of a server player.
  * <p>
@@ -68,6 +70,14 @@ public interface IServerPlayer extends IServerEntity, IPlayer
 	 */
 	IServerGameMode getGameMode();
 
+	/**
+	 * Returns the client session of the player.
+	 * <p>
+	 * @return {@link ClientSession} or {@code null} if the player is not
+	 * connected.
+	 */
+	ClientSession getSession();
+
 	/**
 	 * Sets the client listener for this server side player.
 	 * @param listener Client listener.
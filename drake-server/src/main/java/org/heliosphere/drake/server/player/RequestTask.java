@@ -0,0 +1,113 @@
+/*
+ * Copyright(c) 2010-2013 Heliosphere Ltd.
+ * ---------------------------------------------------------------------------
+ * This file is part of the Drake project which is licensed under the Apache
+ * license version 2 and use is subject to license terms.
+ * You should have received a copy of the license with the project artefact
+ * binaries and/or sources.
+ * 
+ * License can be consulted at http://www.apache.org/licenses/LICENSE-2.0
+ * ---------------------------------------------------------------------------
+ */
+package org.heliosphere.drake.server.player;
+
+import java.io.Serializable;
+
+import org.heliosphere.drake.base.message.request.RequestTracker;
+
+import com.sun.sgs.app.AppContext;
+import com.sun.sgs.app.ManagedReference;
+import com.sun.sgs.app.ObjectNotFoundException;
+import com.sun.sgs.app.Task;
+
+/**
+ * Task following a request sent by a server player once the transaction
+ * sending it committed.
+ * <p>
+ * As a task is only scheduled if the scheduling transaction commits, the
+ * first run confirms the request (making it in-flight, see
+ * {@link RequestTracker#confirm(long)}) and schedules the second run after the
+ * request timeout, which fails the request if it is still in-flight (see
+ * {@link RequestTracker#expire(long)}). Both runs happen within a
+ * transaction, so the future of the request is never completed on the
+ * request timer thread.
+ * <hr>
+ * @author <a href="mailto:christophe.resse@hotmail.com">Christophe Resse</a>
+ * @version 1.0.0
+ */
+final class RequestTask implements Task, Serializable
+{
+	/**
+	 * Default serialization identifier.
+	 */
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * Player having sent the request.
+	 */
+	private final ManagedReference<AbstractServerPlayer> player;
+
+	/**
+	 * Correlation identifier of the request.
+	 */
+	private final long correlationId;
+
+	/**
+	 * Request timeout (in milliseconds).
+	 */
+	private final long timeout;
+
+	/**
+	 * Whether the request has been confirmed (second run).
+	 */
+	private final boolean confirmed;
+
+	/**
+	 * Creates a new request task.
+	 * <p>
+	 * @param player Player having sent the request.
+	 * @param correlationId Correlation identifier of the request.
+	 * @param timeout Request timeout (in milliseconds).
+	 * @param confirmed Whether the request has been confirmed.
+	 */
+	RequestTask(final ManagedReference<AbstractServerPlayer> player, final long correlationId, final long timeout, final boolean confirmed)
+	{
+		this.player = player;
+		this.correlationId = correlationId;
+		this.timeout = timeout;
+		this.confirmed = confirmed;
+	}
+
+	@Override
+	public final void run() throws Exception
+	{
+		final AbstractServerPlayer owner;
+		try
+		{
+			owner = player.get();
+		}
+		catch (final ObjectNotFoundException e)
+		{
+			return;
+		}
+
+		// The tracker of a disconnected player has been released along with its requests.
+		if (owner.getSession() == null)
+		{
+			return;
+		}
+
+		final RequestTracker tracker = owner.getRequestTracker();
+		if (!confirmed)
+		{
+			if (tracker.confirm(correlationId))
+			{
+				AppContext.getTaskManager().scheduleTask(new RequestTask(player, correlationId, timeout, true), timeout);
+			}
+		}
+		else
+		{
+			tracker.expire(correlationId);
+		}
+	}
+}